@@ -14,6 +14,7 @@ import java.util.Collection;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
@@ -25,6 +26,7 @@ import org.openhab.binding.modbus.ModbusBindingProvider;
 import org.openhab.binding.modbus.internal.ModbusGenericBindingProvider.ModbusBindingConfig;
 import org.openhab.core.binding.AbstractActiveBinding;
 import org.openhab.core.binding.BindingProvider;
+import org.openhab.core.events.BatchEventPublisher;
 import org.openhab.core.library.items.NumberItem;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.types.Command;
@@ -63,6 +65,9 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>i
     /** slaves update interval in milliseconds, defaults to 200ms */
     public static int pollInterval = 200;
 
+    /** the updates collected during a poll cycle, which are posted at once at its end */
+    private Map<String, State> pendingUpdates;
+
     @Override
     public void activate() {
     }
@@ -129,7 +134,7 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>i
 
             State currentState = config.getItemState();
             if (!newState.equals(currentState)) {
-                eventPublisher.postUpdate(itemName, newState);
+                publishUpdate(itemName, newState);
             }
         }
     }
@@ -184,13 +189,27 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>i
                     State currentState = provider.getConfig(itemName).getItemState();
                     State newState = provider.getConfig(itemName).translateBoolean2State(state);
                     if (!newState.equals(currentState)) {
-                        eventPublisher.postUpdate(itemName, newState);
+                        publishUpdate(itemName, newState);
                     }
                 }
             }
         }
     }
 
+    /**
+     * Posts an update, or collects it if a poll cycle is in progress.
+     * 
+     * @param itemName item to update
+     * @param newState the new state of the item
+     */
+    private void publishUpdate(String itemName, State newState) {
+        if (pendingUpdates != null) {
+            pendingUpdates.put(itemName, newState);
+        } else {
+            eventPublisher.postUpdate(itemName, newState);
+        }
+    }
+
     /**
      * Returns names of all the items, registered with this binding
      * 
@@ -217,8 +236,23 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>i
         synchronized (slaves) {
             slaves.addAll(modbusSlaves.values());
         }
-        for (ModbusSlave slave : slaves) {
-            slave.update(this);
+        pendingUpdates = new LinkedHashMap<String, State>();
+        try {
+            for (ModbusSlave slave : slaves) {
+                slave.update(this);
+            }
+        } finally {
+            Map<String, State> updates = pendingUpdates;
+            pendingUpdates = null;
+            if (eventPublisher instanceof BatchEventPublisher) {
+                if (!updates.isEmpty()) {
+                    ((BatchEventPublisher) eventPublisher).postUpdates(updates);
+                }
+            } else {
+                for (Map.Entry<String, State> update : updates.entrySet()) {
+                    eventPublisher.postUpdate(update.getKey(), update.getValue());
+                }
+            }
         }
     }
 
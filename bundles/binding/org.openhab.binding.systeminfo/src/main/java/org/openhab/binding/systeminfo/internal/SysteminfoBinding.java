@@ -27,6 +27,7 @@ import org.openhab.core.binding.AbstractActiveBinding;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.service.AbstractActiveService.SchedulingMode;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.osgi.service.cm.ConfigurationException;
@@ -80,6 +81,14 @@ public class SysteminfoBinding extends AbstractActiveBinding<SysteminfoBindingPr
         return "Systeminfo Refresh Service";
     }
 
+    /**
+     * @{inheritDoc}
+     */
+    @Override
+    protected SchedulingMode getSchedulingMode() {
+        return SchedulingMode.FIXED_RATE;
+    }
+
     /**
      * @{inheritDoc
      */
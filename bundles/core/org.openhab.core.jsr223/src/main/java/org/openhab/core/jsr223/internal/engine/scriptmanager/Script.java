@@ -50,6 +50,7 @@ import org.openhab.core.library.types.StringType;
 import org.openhab.core.library.types.UpDownType;
 import org.openhab.core.persistence.*;
 import org.openhab.core.persistence.extensions.PersistenceExtensions;
+import org.openhab.core.scriptengine.RuleExecutor;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
@@ -272,8 +273,14 @@ public class Script{
 	}
 
 	public void executeRule(Rule rule, Event event) {
-		Thread t = new Thread(new RuleExecutionRunnable(rule, event));
-		t.start();
+		RuleExecutor.getInstance().execute(getRuleName(rule), new RuleExecutionRunnable(rule, event));
+	}
+
+	/**
+	 * Rules of scripts have no names, so they are identified by the script file and their position in it.
+	 */
+	private String getRuleName(Rule rule) {
+		return fileName + "#" + (rules.indexOf(rule) + 1);
 	}
 
 	public String getFileName() {
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.library.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.library.items.ColorItem;
+import org.openhab.core.library.items.ContactItem;
+import org.openhab.core.library.items.DateTimeItem;
+import org.openhab.core.library.items.DimmerItem;
+import org.openhab.core.library.items.LocationItem;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.RollershutterItem;
+import org.openhab.core.library.items.StringItem;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.Type;
+import org.openhab.core.types.TypeParser;
+
+/**
+ * @since 1.9.0
+ */
+public class LibraryTypeParsersTest {
+
+	private static final String[] INPUTS = { "ON", "OFF", "on", "OPEN", "UP", "INCREASE", "STOP", "UNDEF", "NULL",
+			"42.5", "-42.5", "+7", ".5", "1e3", "100", "100.1", "-1", "0,100,50", "10,20", "1,2,3,", "52.5,13.4",
+			"52.5,13.4,34", "2016-02-20T12:00:00", "2016-02-20T12:00:00+0100", "2016-02-20", "12:00", "text",
+			" 42", "42 ", "", "1,2,three", "abc,def,ghi" };
+
+	private static final List<GenericItem> ITEMS = Arrays.<GenericItem> asList(new SwitchItem("s"),
+			new DimmerItem("d"), new ColorItem("c"), new NumberItem("n"), new StringItem("t"),
+			new ContactItem("o"), new RollershutterItem("r"), new DateTimeItem("dt"), new LocationItem("l"));
+
+	@Before
+	public void setUp() {
+		LibraryTypeParsers.register();
+	}
+
+	@After
+	public void tearDown() {
+		LibraryTypeParsers.unregister();
+	}
+
+	@Test
+	public void testParsersAcceptTheSameStringsAsValueOf() throws Exception {
+		List<Class<? extends Type>> types = new ArrayList<Class<? extends Type>>();
+		for (GenericItem item : ITEMS) {
+			types.addAll(item.getAcceptedDataTypes());
+			types.addAll(item.getAcceptedCommandTypes());
+		}
+		for (Class<? extends Type> type : types) {
+			for (String input : INPUTS) {
+				assertEquals(type.getSimpleName() + " '" + input + "'", valueOf(type, input),
+						TypeParser.parse(type, input));
+			}
+		}
+	}
+
+	@Test
+	public void testParseStateAndCommand() {
+		DimmerItem dimmer = new DimmerItem("d");
+		assertEquals(OnOffType.ON, TypeParser.parseState(dimmer.getAcceptedDataTypes(), "ON"));
+		assertEquals(new PercentType("42.5"), TypeParser.parseState(dimmer.getAcceptedDataTypes(), "42.5"));
+		assertNull(TypeParser.parseState(dimmer.getAcceptedDataTypes(), "0,100,50"));
+
+		ColorItem color = new ColorItem("c");
+		State state = TypeParser.parseState(color.getAcceptedDataTypes(), "0,100,50");
+		assertEquals(new HSBType("0,100,50"), state);
+		Command command = TypeParser.parseCommand(color.getAcceptedCommandTypes(), "42.5");
+		assertEquals(PercentType.class, command.getClass());
+		assertNull(TypeParser.parseCommand(color.getAcceptedCommandTypes(), null));
+	}
+
+	private static Type valueOf(Class<? extends Type> type, String input) throws Exception {
+		try {
+			return (Type) type.getMethod("valueOf", String.class).invoke(null, input);
+		} catch (InvocationTargetException e) {
+			return null;
+		}
+	}
+
+}
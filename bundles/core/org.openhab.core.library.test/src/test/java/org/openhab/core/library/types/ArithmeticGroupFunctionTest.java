@@ -17,8 +17,12 @@ import org.junit.Before;
 import org.junit.Test;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.GroupFunction;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.IncrementalGroupFunction;
+import org.openhab.core.items.IncrementalGroupFunction.Aggregation;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.items.DimmerItem;
+import org.openhab.core.library.items.NumberItem;
 import org.openhab.core.library.items.SwitchItem;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
@@ -205,6 +209,70 @@ public class ArithmeticGroupFunctionTest {
 		Assert.assertEquals(new DecimalType("234.95"), state);
 	}
 	
+	@Test
+	public void testIncrementalAggregations() {
+		TestItem item1 = new TestItem("TestItem1", new DecimalType("23.54"));
+		TestItem item2 = new TestItem("TestItem2", UnDefType.NULL);
+		TestItem item3 = new TestItem("TestItem3", new DecimalType("89"));
+		items.add(item1);
+		items.add(item2);
+		items.add(item3);
+		
+		IncrementalGroupFunction[] functions = new IncrementalGroupFunction[] {
+			new ArithmeticGroupFunction.Sum(), new ArithmeticGroupFunction.Avg(),
+			new ArithmeticGroupFunction.Min(), new ArithmeticGroupFunction.Max(),
+			new ArithmeticGroupFunction.Count(new StringType("[0-9]*"))
+		};
+		for(IncrementalGroupFunction function : functions) {
+			Aggregation aggregation = function.createAggregation(items);
+			Assert.assertEquals(function.calculate(items).toString(), aggregation.getState().toString());
+			
+			item2.setState(new DecimalType("-7"));
+			Assert.assertTrue(aggregation.update(item2));
+			Assert.assertEquals(function.calculate(items).toString(), aggregation.getState().toString());
+			
+			item1.setState(new DecimalType("3"));
+			Assert.assertTrue(aggregation.update(item1));
+			Assert.assertEquals(function.calculate(items).toString(), aggregation.getState().toString());
+			
+			item3.setState(UnDefType.UNDEF);
+			Assert.assertTrue(aggregation.update(item3));
+			Assert.assertEquals(function.calculate(items).toString(), aggregation.getState().toString());
+			
+			Assert.assertFalse(aggregation.update(new TestItem("TestItem4", new DecimalType("1"))));
+			
+			item1.setState(new DecimalType("23.54"));
+			item2.setState(UnDefType.NULL);
+			item3.setState(new DecimalType("89"));
+		}
+	}
+	
+	@Test
+	public void testUsesAggregatedStateOfSubgroups() {
+		final int[] scans = new int[1];
+		GroupItem subgroup = new GroupItem("Subgroup", new NumberItem("Number"), new ArithmeticGroupFunction.Sum()) {
+			@Override
+			public State getStateAs(Class<? extends State> typeClass) {
+				scans[0]++;
+				return super.getStateAs(typeClass);
+			}
+		};
+		TestItem member = new TestItem("TestItem1", new DecimalType("2"));
+		subgroup.addMember(member);
+		member.addStateChangeListener(subgroup);
+		subgroup.setState(new DecimalType("2"));
+		items.add(subgroup);
+		items.add(new TestItem("TestItem2", new DecimalType("3")));
+		
+		Aggregation aggregation = new ArithmeticGroupFunction.Sum().createAggregation(items);
+		Assert.assertEquals(new DecimalType("5"), aggregation.getState());
+		
+		subgroup.setState(new DecimalType("7"));
+		Assert.assertTrue(aggregation.update(subgroup));
+		Assert.assertEquals(new DecimalType("10"), aggregation.getState());
+		Assert.assertEquals(0, scans[0]);
+	}
+	
 	class TestItem extends GenericItem {
 
 		public TestItem(String name, State state) {
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.library.internal;
+
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.PointType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.types.TypeParser;
+import org.openhab.core.types.TypeValueParser;
+
+/**
+ * Parsers for the non-enum types of the core library, which are registered with the
+ * {@link TypeParser}. They reject strings that cannot be values of their type by a cheap
+ * check of the syntax, so that e.g. parsing "ON" for a dimmer item does not throw and
+ * catch exceptions in the constructors of the numeric types.
+ *
+ * @since 1.9.0
+ */
+public class LibraryTypeParsers {
+
+	private static final TypeValueParser<DecimalType> DECIMAL_PARSER = new TypeValueParser<DecimalType>() {
+		public DecimalType parse(String value) {
+			if(isNumberSyntax(value, false)) {
+				try {
+					return new DecimalType(value);
+				} catch (RuntimeException e) {
+				}
+			}
+			return null;
+		}
+	};
+
+	private static final TypeValueParser<PercentType> PERCENT_PARSER = new TypeValueParser<PercentType>() {
+		public PercentType parse(String value) {
+			if(isNumberSyntax(value, false)) {
+				try {
+					return new PercentType(value);
+				} catch (RuntimeException e) {
+				}
+			}
+			return null;
+		}
+	};
+
+	private static final TypeValueParser<HSBType> HSB_PARSER = new TypeValueParser<HSBType>() {
+		public HSBType parse(String value) {
+			// hue, saturation and brightness separated by commas
+			if(isNumberSyntax(value, true) && value.indexOf(',') != value.lastIndexOf(',')) {
+				try {
+					return new HSBType(value);
+				} catch (RuntimeException e) {
+				}
+			}
+			return null;
+		}
+	};
+
+	private static final TypeValueParser<PointType> POINT_PARSER = new TypeValueParser<PointType>() {
+		public PointType parse(String value) {
+			// latitude and longitude, optionally followed by the altitude, separated by commas
+			if(isNumberSyntax(value, true) && value.indexOf(',') >= 0) {
+				try {
+					return new PointType(value);
+				} catch (RuntimeException e) {
+				}
+			}
+			return null;
+		}
+	};
+
+	private static final TypeValueParser<DateTimeType> DATE_TIME_PARSER = new TypeValueParser<DateTimeType>() {
+		public DateTimeType parse(String value) {
+			if(containsDigit(value)) {
+				try {
+					return new DateTimeType(value);
+				} catch (RuntimeException e) {
+				}
+			}
+			return null;
+		}
+	};
+
+	private static final TypeValueParser<StringType> STRING_PARSER = new TypeValueParser<StringType>() {
+		public StringType parse(String value) {
+			return new StringType(value);
+		}
+	};
+
+	/**
+	 * Registers the parsers with the {@link TypeParser}.
+	 */
+	public static void register() {
+		TypeParser.registerParser(DecimalType.class, DECIMAL_PARSER);
+		TypeParser.registerParser(PercentType.class, PERCENT_PARSER);
+		TypeParser.registerParser(HSBType.class, HSB_PARSER);
+		TypeParser.registerParser(PointType.class, POINT_PARSER);
+		TypeParser.registerParser(DateTimeType.class, DATE_TIME_PARSER);
+		TypeParser.registerParser(StringType.class, STRING_PARSER);
+	}
+
+	/**
+	 * Removes the parsers from the {@link TypeParser}.
+	 */
+	public static void unregister() {
+		TypeParser.unregisterParser(DecimalType.class);
+		TypeParser.unregisterParser(PercentType.class);
+		TypeParser.unregisterParser(HSBType.class);
+		TypeParser.unregisterParser(PointType.class);
+		TypeParser.unregisterParser(DateTimeType.class);
+		TypeParser.unregisterParser(StringType.class);
+	}
+
+	/**
+	 * Checks whether a string only consists of characters that may occur in decimal numbers
+	 * as accepted by {@link java.math.BigDecimal}: digits, signs, the decimal point and the
+	 * exponent.
+	 * 
+	 * @param commaSeparated <code>true</code>, if the string may hold several numbers separated by commas
+	 */
+	private static boolean isNumberSyntax(String value, boolean commaSeparated) {
+		if(value==null || value.isEmpty()) {
+			return false;
+		}
+		for(int i=0; i<value.length(); i++) {
+			char c = value.charAt(i);
+			if(!(Character.isDigit(c) || c=='.' || c=='-' || c=='+' || c=='e' || c=='E' || (commaSeparated && c==','))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean containsDigit(String value) {
+		if(value!=null) {
+			for(int i=0; i<value.length(); i++) {
+				if(Character.isDigit(value.charAt(i))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+}
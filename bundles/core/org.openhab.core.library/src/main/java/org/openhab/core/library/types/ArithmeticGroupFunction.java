@@ -10,11 +10,16 @@ package org.openhab.core.library.types;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.openhab.core.items.GroupFunction;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.IncrementalGroupFunction;
 import org.openhab.core.items.Item;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
@@ -226,7 +231,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Avg implements GroupFunction {
+	static class Avg implements IncrementalGroupFunction {
 		
 		public Avg() {}
 
@@ -252,6 +257,22 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			}
 		}
 		
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregation createAggregation(List<Item> items) {
+			SumAggregation aggregation = new SumAggregation() {
+				public State getState() {
+					if(count>0) {
+						return new DecimalType(getSum().divide(new BigDecimal(count), RoundingMode.HALF_UP));
+					} else {
+						return UnDefType.UNDEF;
+					}
+				}
+			};
+			return aggregation.init(items) ? aggregation : null;
+		}
+		
 		/**
 		 * @{inheritDoc
 		 */
@@ -276,7 +297,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 1.7.0
 	 *
 	 */
-	static class Count implements GroupFunction {
+	static class Count implements IncrementalGroupFunction {
 		
 		protected final Pattern pattern;
 		
@@ -303,6 +324,14 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			
 			return new DecimalType(count);
 		}
+		
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregation createAggregation(List<Item> items) {
+			CountAggregation aggregation = new CountAggregation(pattern);
+			return aggregation.init(items) ? aggregation : null;
+		}
 
 		/**
 		 * @{inheritDoc
@@ -324,7 +353,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 1.1.0
 	 *
 	 */
-	static class Sum implements GroupFunction {
+	static class Sum implements IncrementalGroupFunction {
 		
 		public Sum() {}
 
@@ -344,6 +373,14 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			return new DecimalType(sum);
 		}
 		
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregation createAggregation(List<Item> items) {
+			SumAggregation aggregation = new SumAggregation();
+			return aggregation.init(items) ? aggregation : null;
+		}
+		
 		/**
 		 * @{inheritDoc
 		 */
@@ -364,7 +401,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Min implements GroupFunction {
+	static class Min implements IncrementalGroupFunction {
 		
 		public Min() {}
 
@@ -388,6 +425,14 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			}
 			return UnDefType.UNDEF;
 		}
+		
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregation createAggregation(List<Item> items) {
+			RangeAggregation aggregation = new RangeAggregation(false);
+			return aggregation.init(items) ? aggregation : null;
+		}
 
 		/**
 		 * @{inheritDoc
@@ -409,7 +454,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Max implements GroupFunction {
+	static class Max implements IncrementalGroupFunction {
 		
 		public Max() {}
 
@@ -433,6 +478,14 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			}
 			return UnDefType.UNDEF;
 		}
+		
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregation createAggregation(List<Item> items) {
+			RangeAggregation aggregation = new RangeAggregation(true);
+			return aggregation.init(items) ? aggregation : null;
+		}
 
 		/**
 		 * @{inheritDoc
@@ -448,4 +501,226 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	}
 	
 	
+	/**
+	 * The base class for the aggregations of the numeric group functions. It keeps
+	 * the decimal value that each item contributes to the group state, so that the 
+	 * group state can be adjusted when the state of a single item is updated.
+	 * 
+	 * @since 1.9.0
+	 */
+	static abstract class DecimalAggregation implements IncrementalGroupFunction.Aggregation {
+		
+		private final Map<Item, BigDecimal> contributions = new IdentityHashMap<Item, BigDecimal>();
+		
+		/**
+		 * Initializes the aggregation with the current states of the given items.
+		 * 
+		 * @param items the items to aggregate
+		 * @return false, if an item is contained more than once and thus cannot be aggregated incrementally
+		 */
+		boolean init(List<Item> items) {
+			if(items!=null) {
+				for(Item item : items) {
+					if(contributions.containsKey(item)) {
+						return false;
+					}
+					BigDecimal value = getValue(item);
+					contributions.put(item, value);
+					if(value!=null) {
+						add(value);
+					}
+				}
+			}
+			return true;
+		}
+		
+		/**
+		 * @{inheritDoc
+		 */
+		public boolean update(Item item) {
+			if(!contributions.containsKey(item)) {
+				return false;
+			}
+			BigDecimal newValue = getValue(item);
+			BigDecimal oldValue = contributions.put(item, newValue);
+			if(oldValue!=null) {
+				remove(oldValue);
+			}
+			if(newValue!=null) {
+				add(newValue);
+			}
+			return true;
+		}
+		
+		private BigDecimal getValue(Item item) {
+			DecimalType itemState;
+			if(item instanceof GroupItem && item.getState() instanceof DecimalType) {
+				// a subgroup has aggregated its state already, asking it for a decimal would scan its members
+				itemState = (DecimalType) item.getState();
+			} else {
+				itemState = (DecimalType) item.getStateAs(DecimalType.class);
+			}
+			return itemState!=null ? itemState.toBigDecimal() : null;
+		}
+		
+		protected abstract void add(BigDecimal value);
+		
+		protected abstract void remove(BigDecimal value);
+		
+		protected static <K> void increment(Map<K, Integer> counts, K key) {
+			Integer count = counts.get(key);
+			counts.put(key, count==null ? 1 : count + 1);
+		}
+		
+		protected static <K> void decrement(Map<K, Integer> counts, K key) {
+			Integer count = counts.get(key);
+			if(count==null || count <= 1) {
+				counts.remove(key);
+			} else {
+				counts.put(key, count - 1);
+			}
+		}
+	}
+	
+	/**
+	 * Keeps the running sum and the number of all decimal item states.
+	 * 
+	 * @since 1.9.0
+	 */
+	static class SumAggregation extends DecimalAggregation {
+		
+		protected BigDecimal sum = BigDecimal.ZERO;
+		
+		protected int count = 0;
+		
+		/** the number of values per scale, as the sum has the scale of the most precise value */
+		private final TreeMap<Integer, Integer> scales = new TreeMap<Integer, Integer>();
+		
+		protected void add(BigDecimal value) {
+			sum = sum.add(value);
+			count++;
+			increment(scales, value.scale());
+		}
+		
+		protected void remove(BigDecimal value) {
+			sum = sum.subtract(value);
+			count--;
+			decrement(scales, value.scale());
+		}
+		
+		/**
+		 * Returns the sum with the same scale as if it was calculated from scratch.
+		 * 
+		 * @return the sum of all values
+		 */
+		protected BigDecimal getSum() {
+			int scale = scales.isEmpty() ? 0 : Math.max(0, scales.lastKey());
+			return sum.setScale(scale);
+		}
+		
+		/**
+		 * @{inheritDoc
+		 */
+		public State getState() {
+			return new DecimalType(getSum());
+		}
+	}
+	
+	/**
+	 * Keeps all decimal item states in sorted order to determine the minimum or maximum.
+	 * 
+	 * @since 1.9.0
+	 */
+	static class RangeAggregation extends DecimalAggregation {
+		
+		private final TreeMap<BigDecimal, Integer> values = new TreeMap<BigDecimal, Integer>();
+		
+		private final boolean maximum;
+		
+		public RangeAggregation(boolean maximum) {
+			this.maximum = maximum;
+		}
+		
+		protected void add(BigDecimal value) {
+			increment(values, value);
+		}
+		
+		protected void remove(BigDecimal value) {
+			decrement(values, value);
+		}
+		
+		/**
+		 * @{inheritDoc
+		 */
+		public State getState() {
+			if(values.isEmpty()) {
+				return UnDefType.UNDEF;
+			}
+			return new DecimalType(maximum ? values.lastKey() : values.firstKey());
+		}
+	}
+	
+	/**
+	 * Keeps track of which item states match the pattern of the count function.
+	 * 
+	 * @since 1.9.0
+	 */
+	static class CountAggregation implements IncrementalGroupFunction.Aggregation {
+		
+		private final Pattern pattern;
+		
+		private final Map<Item, Boolean> matches = new IdentityHashMap<Item, Boolean>();
+		
+		private int count = 0;
+		
+		public CountAggregation(Pattern pattern) {
+			this.pattern = pattern;
+		}
+		
+		boolean init(List<Item> items) {
+			if(items!=null) {
+				for(Item item : items) {
+					if(matches.containsKey(item)) {
+						return false;
+					}
+					boolean match = matches(item);
+					matches.put(item, match);
+					if(match) {
+						count++;
+					}
+				}
+			}
+			return true;
+		}
+		
+		/**
+		 * @{inheritDoc
+		 */
+		public boolean update(Item item) {
+			Boolean oldMatch = matches.get(item);
+			if(oldMatch==null) {
+				return false;
+			}
+			boolean newMatch = matches(item);
+			matches.put(item, newMatch);
+			if(oldMatch && !newMatch) {
+				count--;
+			} else if(!oldMatch && newMatch) {
+				count++;
+			}
+			return true;
+		}
+		
+		private boolean matches(Item item) {
+			return pattern.matcher(item.getState().toString()).matches();
+		}
+		
+		/**
+		 * @{inheritDoc
+		 */
+		public State getState() {
+			return new DecimalType(count);
+		}
+	}
+	
 }
@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.joda.time.DateMidnight;
+import org.junit.Test;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.test.TestPersistenceService;
+import org.openhab.core.types.State;
+
+/**
+ * @since 1.9.0
+ */
+public class PagedQueryResultTest {
+
+	private static final long START = new DateMidnight(2016, 1, 1).getMillis();
+
+	@Test
+	public void testIteratesAllPages() {
+		PagingPersistenceService service = new PagingPersistenceService(false);
+		for (int i = 0; i < 11; i++) {
+			service.add(START + i * 1000 + 500);
+		}
+		FilterCriteria filter = new FilterCriteria().setItemName("Test").setOrdering(Ordering.ASCENDING)
+				.setBeginDate(new Date(START - 1000)).setEndDate(new Date(START + 60000));
+
+		assertEquals(service.expected(Ordering.ASCENDING), iterate(service, filter));
+		// the pages are queried by their time range, each of them repeats the last returned item
+		assertEquals(4, service.pageNumbers.size());
+		assertEquals(Collections.nCopies(4, 0), service.pageNumbers);
+	}
+
+	@Test
+	public void testIteratesAllPagesDescending() {
+		PagingPersistenceService service = new PagingPersistenceService(false);
+		for (int i = 0; i < 12; i++) {
+			service.add(START + i * 1000);
+		}
+		FilterCriteria filter = new FilterCriteria().setItemName("Test").setOrdering(Ordering.DESCENDING)
+				.setBeginDate(new Date(START - 1000)).setEndDate(new Date(START + 60000));
+
+		assertEquals(service.expected(Ordering.DESCENDING), iterate(service, filter));
+		assertEquals(Collections.nCopies(service.pageNumbers.size(), 0), service.pageNumbers);
+	}
+
+	@Test
+	public void testIteratesItemsWithinOneSecond() {
+		PagingPersistenceService service = new PagingPersistenceService(false);
+		service.add(START);
+		for (int i = 0; i < 10; i++) {
+			service.add(START + 1000);
+		}
+		service.add(START + 2000);
+		FilterCriteria filter = new FilterCriteria().setItemName("Test").setOrdering(Ordering.ASCENDING);
+
+		assertEquals(service.expected(Ordering.ASCENDING), iterate(service, filter));
+		// the pages which only repeat returned items are followed by the next page number
+		assertTrue(service.pageNumbers.contains(2));
+	}
+
+	@Test
+	public void testSkipsItemsOfServicesIncludingTheBoundaries() {
+		PagingPersistenceService service = new PagingPersistenceService(true);
+		for (int i = 0; i < 20; i++) {
+			service.add(START + i * 300);
+		}
+		FilterCriteria filter = new FilterCriteria().setItemName("Test").setOrdering(Ordering.ASCENDING);
+		assertEquals(service.expected(Ordering.ASCENDING), iterate(service, filter));
+
+		filter.setOrdering(Ordering.DESCENDING);
+		assertEquals(service.expected(Ordering.DESCENDING), iterate(service, filter));
+	}
+
+	@Test
+	public void testEmptyResult() {
+		FilterCriteria filter = new FilterCriteria().setItemName("Test")
+				.setBeginDate(new DateMidnight(2011, 1, 1).toDate()).setEndDate(new DateMidnight(2000, 1, 1).toDate());
+		PagingPersistenceService service = new PagingPersistenceService(false);
+		Iterator<HistoricItem> it = new PagedQueryResult(service, filter, 4).iterator();
+
+		assertFalse(it.hasNext());
+		assertEquals(1, service.pageNumbers.size());
+	}
+
+	private static List<String> iterate(QueryablePersistenceService service, FilterCriteria filter) {
+		List<String> states = new ArrayList<String>();
+		for (HistoricItem historicItem : new PagedQueryResult(service, filter, 4)) {
+			states.add(historicItem.getState().toString());
+		}
+		return states;
+	}
+
+	/**
+	 * Returns the requested page of the stored items. The dates of the filter are compared in
+	 * whole seconds and excluded, like many SQL services do, or they are included.
+	 */
+	private static class PagingPersistenceService extends TestPersistenceService {
+
+		final List<Integer> pageNumbers = new ArrayList<Integer>();
+
+		private final List<HistoricItem> items = new ArrayList<HistoricItem>();
+
+		private final boolean inclusive;
+
+		PagingPersistenceService(boolean inclusive) {
+			this.inclusive = inclusive;
+		}
+
+		void add(final long time) {
+			final State state = new DecimalType(items.size());
+			items.add(new HistoricItem() {
+				public Date getTimestamp() {
+					return new Date(time);
+				}
+
+				public State getState() {
+					return state;
+				}
+
+				public String getName() {
+					return "Test";
+				}
+			});
+		}
+
+		List<String> expected(Ordering ordering) {
+			List<String> states = new ArrayList<String>();
+			for (HistoricItem historicItem : items) {
+				states.add(historicItem.getState().toString());
+			}
+			if (ordering == Ordering.DESCENDING) {
+				Collections.reverse(states);
+			}
+			return states;
+		}
+
+		@Override
+		public Iterable<HistoricItem> query(FilterCriteria filter) {
+			pageNumbers.add(filter.getPageNumber());
+			List<HistoricItem> results = new ArrayList<HistoricItem>();
+			for (HistoricItem historicItem : items) {
+				long time = historicItem.getTimestamp().getTime();
+				if (filter.getBeginDate() != null && !(inclusive ? time >= filter.getBeginDate().getTime()
+						: time / 1000 > filter.getBeginDate().getTime() / 1000)) {
+					continue;
+				}
+				if (filter.getEndDate() != null && !(inclusive ? time <= filter.getEndDate().getTime()
+						: time / 1000 < filter.getEndDate().getTime() / 1000)) {
+					continue;
+				}
+				results.add(historicItem);
+			}
+			if (filter.getOrdering() == Ordering.DESCENDING) {
+				Collections.reverse(results);
+			}
+			int from = Math.min(results.size(), filter.getPageNumber() * filter.getPageSize());
+			int to = Math.min(results.size(), from + filter.getPageSize());
+			return results.subList(from, to);
+		}
+
+	}
+
+}
@@ -10,6 +10,7 @@ package org.openhab.core.persistence.extensions;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
@@ -20,7 +21,9 @@ import org.junit.Test;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.AggregatingPersistenceService.AggregateFunction;
 import org.openhab.core.persistence.PersistenceService;
+import org.openhab.core.persistence.test.TestAggregatingPersistenceService;
 import org.openhab.core.persistence.test.TestPersistenceService;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
@@ -33,6 +36,7 @@ import org.openhab.core.types.State;
 public class PersistenceExtensionsTest {
 
 	private PersistenceService testPersistenceService = new TestPersistenceService();
+	private TestAggregatingPersistenceService aggregatingPersistenceService = new TestAggregatingPersistenceService();
 	private PersistenceExtensions ext;
 	private GenericItem item;
 	
@@ -40,6 +44,7 @@ public class PersistenceExtensionsTest {
 	public void setUp() {
 		ext = new PersistenceExtensions();
 		ext.addPersistenceService(testPersistenceService);
+		ext.addPersistenceService(aggregatingPersistenceService);
 		item = new GenericItem("Test") {
 			@Override
 			public List<Class<? extends State>> getAcceptedDataTypes() {
@@ -56,6 +61,7 @@ public class PersistenceExtensionsTest {
 	@After
 	public void tearDown() {
 		ext.removePersistenceService(testPersistenceService);	
+		ext.removePersistenceService(aggregatingPersistenceService);
 	}
 	
 	@Test
@@ -103,4 +109,31 @@ public class PersistenceExtensionsTest {
 		DecimalType average = PersistenceExtensions.averageSince(item, new DateMidnight(2003, 1, 1), "test");
 		assertEquals("2100", average.toString());
 	}
+
+	@Test
+	public void testAggregates() {
+		item.setState(new DecimalType(3025));
+		assertEquals(PersistenceExtensions.averageSince(item, new DateMidnight(2003, 1, 1), "test"),
+				PersistenceExtensions.averageSince(item, new DateMidnight(2003, 1, 1), "aggregate"));
+		assertEquals(PersistenceExtensions.sumSince(item, new DateMidnight(2003, 1, 1), "test"),
+				PersistenceExtensions.sumSince(item, new DateMidnight(2003, 1, 1), "aggregate"));
+		assertEquals(PersistenceExtensions.updatedSince(item, new DateMidnight(2003, 1, 1), "test"),
+				PersistenceExtensions.updatedSince(item, new DateMidnight(2003, 1, 1), "aggregate"));
+
+		item.setState(new DecimalType(2008));
+		HistoricItem maximum = PersistenceExtensions.maximumSince(item, new DateMidnight(2005, 1, 1), "aggregate");
+		assertEquals("2012", maximum.getState().toString());
+		assertEquals(new DateMidnight(2012, 1, 1).toDate(), maximum.getTimestamp());
+		HistoricItem minimum = PersistenceExtensions.minimumSince(item, new DateMidnight(2005, 1, 1), "aggregate");
+		assertEquals("2005", minimum.getState().toString());
+		assertEquals(new DateMidnight(2005, 1, 1).toDate(), minimum.getTimestamp());
+		minimum = PersistenceExtensions.minimumSince(item, new DateMidnight(2010, 1, 1), "aggregate");
+		assertEquals("2008", minimum.getState().toString());
+
+		assertTrue(aggregatingPersistenceService.aggregated.contains(AggregateFunction.SUM));
+		assertTrue(aggregatingPersistenceService.aggregated.contains(AggregateFunction.COUNT));
+		assertTrue(aggregatingPersistenceService.aggregated.contains(AggregateFunction.MAX));
+		assertTrue(aggregatingPersistenceService.aggregated.contains(AggregateFunction.MIN));
+	}
+
 }
@@ -0,0 +1,237 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.ArithmeticGroupFunction;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.PersistenceRecord;
+import org.openhab.core.persistence.PersistenceService;
+import org.openhab.core.persistence.internal.PersistenceQueue.OverflowPolicy;
+
+/**
+ * @since 1.9.0
+ */
+public class PersistenceQueueTest {
+
+	private RecordingBatchPersistenceService service = new RecordingBatchPersistenceService();
+
+	@Test
+	public void testStoresSnapshotOfItem() {
+		PersistenceQueue queue = new PersistenceQueue(service, 10, OverflowPolicy.DROP_OLDEST, 1);
+		NumberItem item = createItem("A", 1);
+		long before = System.currentTimeMillis();
+		queue.enqueue(item, null);
+		item.setState(new DecimalType(2));
+		queue.enqueue(item, null);
+		long after = System.currentTimeMillis();
+
+		queue.start();
+		queue.stop(5000);
+
+		assertEquals(Arrays.asList("A=1", "A=2"), service.stored);
+		assertEquals(2, queue.getStoredCount());
+		assertEquals(0, queue.getDroppedCount());
+		assertEquals(2, queue.getStoreLatencies().getCount());
+		for (long timestamp : service.timestamps) {
+			assertTrue(timestamp >= before && timestamp <= after);
+		}
+	}
+
+	@Test
+	public void testStoresSnapshotOfGroup() {
+		PersistenceQueue queue = new PersistenceQueue(service, 10, OverflowPolicy.DROP_OLDEST, 1);
+		NumberItem member = createItem("Member", 1);
+		GroupItem group = new GroupItem("Group", new NumberItem("Base"), new ArithmeticGroupFunction.Sum());
+		group.addMember(member);
+		group.setState(new DecimalType(1));
+		queue.enqueue(group, null);
+		member.setState(new DecimalType(5));
+		group.setState(new DecimalType(5));
+
+		queue.start();
+		queue.stop(5000);
+
+		assertEquals(Arrays.asList("Group=1"), service.stored);
+		assertEquals(new DecimalType(1), service.records.get(0).getItem().getStateAs(DecimalType.class));
+	}
+
+	@Test
+	public void testDropOldest() {
+		PersistenceQueue queue = new PersistenceQueue(service, 2, OverflowPolicy.DROP_OLDEST, 1);
+		queue.enqueue(createItem("A", 1), null);
+		queue.enqueue(createItem("B", 1), null);
+		queue.enqueue(createItem("C", 1), null);
+		assertEquals(2, queue.getSize());
+
+		queue.start();
+		queue.stop(5000);
+
+		assertEquals(Arrays.asList("B=1", "C=1"), service.stored);
+		assertEquals(1, queue.getDroppedCount());
+	}
+
+	@Test
+	public void testCoalesce() {
+		PersistenceQueue queue = new PersistenceQueue(service, 2, OverflowPolicy.COALESCE, 1);
+		queue.enqueue(createItem("A", 1), null);
+		queue.enqueue(createItem("B", 1), null);
+		queue.enqueue(createItem("A", 2), null);
+		queue.enqueue(createItem("C", 1), null);
+
+		queue.start();
+		queue.stop(5000);
+
+		assertEquals(Arrays.asList("B=1", "C=1"), service.stored);
+		assertEquals(2, queue.getDroppedCount());
+	}
+
+	@Test
+	public void testCoalesceKeepsPosition() {
+		PersistenceQueue queue = new PersistenceQueue(service, 2, OverflowPolicy.COALESCE, 1);
+		queue.enqueue(createItem("A", 1), null);
+		queue.enqueue(createItem("B", 1), null);
+		queue.enqueue(createItem("A", 2), null);
+
+		queue.start();
+		queue.stop(5000);
+
+		assertEquals(Arrays.asList("A=2", "B=1"), service.stored);
+		assertEquals(1, queue.getDroppedCount());
+	}
+
+	@Test
+	public void testBatches() {
+		RecordingBatchPersistenceService batchService = new RecordingBatchPersistenceService();
+		PersistenceQueue queue = new PersistenceQueue(batchService, 10, OverflowPolicy.DROP_OLDEST, 2);
+		queue.enqueue(createItem("A", 1), null);
+		queue.enqueue(createItem("B", 1), "alias");
+		queue.enqueue(createItem("C", 1), null);
+
+		queue.start();
+		queue.stop(5000);
+
+		assertEquals(Arrays.asList("A=1", "B=1", "C=1"), batchService.stored);
+		assertEquals(Arrays.asList(2, 1), batchService.batchSizes);
+		assertEquals(3, queue.getStoredCount());
+	}
+
+	@Test
+	public void testStoresPlainServiceItemByItem() {
+		RecordingPersistenceService plainService = new RecordingPersistenceService();
+		PersistenceQueue queue = new PersistenceQueue(plainService, 10, OverflowPolicy.BLOCK, 500);
+		queue.enqueue(createItem("A", 1), null);
+		queue.enqueue(createItem("B", 2), "alias");
+
+		queue.start();
+		queue.stop(5000);
+
+		assertEquals(Arrays.asList("A=1", "alias=2"), plainService.stored);
+		assertEquals(1, queue.getBatchSize());
+		assertEquals(2, queue.getStoredCount());
+	}
+
+	@Test
+	public void testBlockWaitsForSpace() throws InterruptedException {
+		final PersistenceQueue queue = new PersistenceQueue(service, 1, OverflowPolicy.BLOCK, 1);
+		queue.enqueue(createItem("A", 1), null);
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				queue.enqueue(createItem("B", 1), null);
+			}
+		};
+		producer.start();
+		producer.join(200);
+		assertTrue(producer.isAlive());
+
+		queue.start();
+		producer.join(5000);
+		assertFalse(producer.isAlive());
+		queue.stop(5000);
+
+		assertEquals(Arrays.asList("A=1", "B=1"), service.stored);
+		assertEquals(0, queue.getDroppedCount());
+	}
+
+	@Test
+	public void testParseOverflowPolicy() {
+		assertEquals(OverflowPolicy.BLOCK, OverflowPolicy.parse("block"));
+		assertEquals(OverflowPolicy.DROP_OLDEST, OverflowPolicy.parse("drop-oldest"));
+		assertEquals(OverflowPolicy.COALESCE, OverflowPolicy.parse(" Coalesce "));
+		assertEquals(null, OverflowPolicy.parse("unknown"));
+	}
+
+	private static NumberItem createItem(String name, int value) {
+		NumberItem item = new NumberItem(name);
+		item.setState(new DecimalType(value));
+		return item;
+	}
+
+	private static class RecordingPersistenceService implements PersistenceService {
+
+		final List<String> stored = new ArrayList<String>();
+
+		public String getName() {
+			return "plain";
+		}
+
+		public void store(Item item) {
+			store(item, null);
+		}
+
+		public synchronized void store(Item item, String alias) {
+			stored.add((alias != null ? alias : item.getName()) + "=" + item.getState());
+		}
+
+	}
+
+	private static class RecordingBatchPersistenceService implements BatchPersistenceService {
+
+		final List<String> stored = new ArrayList<String>();
+		final List<Long> timestamps = new ArrayList<Long>();
+		final List<PersistenceRecord> records = new ArrayList<PersistenceRecord>();
+		final List<Integer> batchSizes = new ArrayList<Integer>();
+
+		public String getName() {
+			return "recording";
+		}
+
+		public void store(Item item) {
+			store(item, null);
+		}
+
+		public void store(Item item, String alias) {
+			throw new UnsupportedOperationException("queued items must be stored with their time");
+		}
+
+		public void store(List<PersistenceRecord> records) {
+			batchSizes.add(records.size());
+			for (PersistenceRecord record : records) {
+				stored.add(record.getItem().getName() + "=" + record.getState());
+				timestamps.add(record.getTimestamp().getTime());
+				this.records.add(record);
+			}
+		}
+
+	}
+
+}
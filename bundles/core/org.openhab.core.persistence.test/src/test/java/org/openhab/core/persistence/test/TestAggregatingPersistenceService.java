@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.types.State;
+
+/**
+ * A persistence service used for unit tests, which aggregates the states
+ * of the {@link TestPersistenceService} itself
+ *
+ * @since 1.9.0
+ */
+public class TestAggregatingPersistenceService extends TestPersistenceService implements AggregatingPersistenceService {
+
+	public final List<AggregateFunction> aggregated = new ArrayList<AggregateFunction>();
+
+	@Override
+	public String getName() {
+		return "aggregate";
+	}
+
+	@Override
+	public HistoricItem aggregate(FilterCriteria filter, AggregateFunction function) {
+		aggregated.add(function);
+		filter.setOrdering(Ordering.ASCENDING);
+		HistoricItem result = null;
+		double sum = 0;
+		int count = 0;
+		for (HistoricItem historicItem : query(filter)) {
+			double value = ((DecimalType) historicItem.getState()).doubleValue();
+			sum += value;
+			count++;
+			double resultValue = result == null ? 0 : ((DecimalType) result.getState()).doubleValue();
+			if (result == null || function == AggregateFunction.LAST
+					|| (function == AggregateFunction.MIN && value < resultValue)
+					|| (function == AggregateFunction.MAX && value > resultValue)) {
+				result = historicItem;
+			}
+		}
+		switch (function) {
+			case AVG:
+				return count == 0 ? null : createItem(new DecimalType(sum / count));
+			case SUM:
+				return count == 0 ? null : createItem(new DecimalType(sum));
+			case COUNT:
+				return createItem(new DecimalType(count));
+			default:
+				return result;
+		}
+	}
+
+	@Override
+	public Iterable<HistoricItem> aggregate(FilterCriteria filter, AggregateFunction function, long interval) {
+		throw new UnsupportedOperationException();
+	}
+
+	private static HistoricItem createItem(final State state) {
+		return new HistoricItem() {
+			public Date getTimestamp() {
+				return new Date();
+			}
+
+			public State getState() {
+				return state;
+			}
+
+			public String getName() {
+				return "Test";
+			}
+		};
+	}
+
+}
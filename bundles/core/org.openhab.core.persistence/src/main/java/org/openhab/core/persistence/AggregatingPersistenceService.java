@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+/**
+ * A {@link QueryablePersistenceService} which can aggregate the persisted states of an item
+ * itself, e.g. by an SQL aggregate function, so that the states do not have to be loaded
+ * and iterated by the caller.
+ *
+ * <p>Only the item name, begin and end date of the {@link FilterCriteria} are taken into
+ * account. If a service cannot calculate an aggregate for an item, it throws an
+ * {@link UnsupportedOperationException}, so that the caller can fall back to a
+ * {@link #query(FilterCriteria)}.</p>
+ *
+ * @since 1.9.0
+ */
+public interface AggregatingPersistenceService extends QueryablePersistenceService {
+
+	/** Enumeration with all supported aggregate functions */
+	public enum AggregateFunction {
+		/** the average of the numeric states */
+		AVG,
+		/** the lowest numeric state, timestamped with its first occurrence */
+		MIN,
+		/** the highest numeric state, timestamped with its first occurrence */
+		MAX,
+		/** the sum of the numeric states */
+		SUM,
+		/** the number of persisted states */
+		COUNT,
+		/** the oldest state */
+		FIRST,
+		/** the most recent state */
+		LAST
+	}
+
+	/**
+	 * Aggregates the persisted states of an item within the time range of the filter.
+	 * For the functions which do not select a single state, the timestamp of the result
+	 * is the end of the time range.
+	 *
+	 * @param filter the item and time range to aggregate
+	 * @param function the aggregate function to apply
+	 * @return the aggregate or <code>null</code>, if there are no states within the range
+	 * @throws UnsupportedOperationException if the aggregate cannot be calculated for the item
+	 */
+	HistoricItem aggregate(FilterCriteria filter, AggregateFunction function);
+
+	/**
+	 * Aggregates the persisted states of an item within consecutive intervals of the time range
+	 * of the filter. The results are ordered by time and are timestamped with the beginning of
+	 * their interval; intervals without any state are omitted.
+	 *
+	 * @param filter the item and time range to aggregate
+	 * @param function the aggregate function to apply
+	 * @param interval the length of the intervals in milliseconds
+	 * @return the aggregates of all intervals with states
+	 * @throws UnsupportedOperationException if the aggregate cannot be calculated for the item
+	 */
+	Iterable<HistoricItem> aggregate(FilterCriteria filter, AggregateFunction function, long interval);
+
+}
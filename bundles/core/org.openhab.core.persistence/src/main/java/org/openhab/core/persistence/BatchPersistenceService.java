@@ -0,0 +1,29 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.List;
+
+/**
+ * A {@link PersistenceService} which can store several item states at once, e.g.
+ * by batching the inserts into a database. The persistence manager passes all states
+ * which queued up for such a service in a single call.
+ *
+ * @since 1.9.0
+ */
+public interface BatchPersistenceService extends PersistenceService {
+
+	/**
+	 * Stores the given records in the order in which they have been queued.
+	 *
+	 * @param records the item states to persist
+	 */
+	void store(List<PersistenceRecord> records);
+
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A {@link QueryablePersistenceService} which can look up the most recent states of many
+ * items at once, e.g. by a single database query. The persistence manager uses this to
+ * restore the item states on startup, instead of querying every item separately.
+ *
+ * @since 1.9.0
+ */
+public interface BulkQueryablePersistenceService extends QueryablePersistenceService {
+
+	/**
+	 * Queries the most recent persisted state of each of the given items.
+	 *
+	 * @param itemNames the names of the items to query
+	 * @return the most recent state of each item by its name; items without any persisted
+	 *         state are not contained
+	 */
+	Map<String, HistoricItem> queryLatest(Collection<String> itemNames);
+
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+
+/**
+ * The result of a query, which is fetched page by page from a {@link QueryablePersistenceService}
+ * while it is iterated. Only the current page is kept in memory, so that callers which consume
+ * the historic items sequentially need constant memory, however large the result is.
+ *
+ * <p>A persistence service can return this from {@link QueryablePersistenceService#query(FilterCriteria)}
+ * for queries without a page size, as long as it supports paging for the other queries.</p>
+ *
+ * <p>Every iterator queries the service anew. If the filter has no end date, it is fixed to the
+ * time at which the iterator is created, so that states which are persisted in the meantime
+ * do not shift the pages.</p>
+ *
+ * <p>The pages are queried by their time range rather than by their page number, as most services
+ * skip the rows before a page number on every query: after each page, the begin date (or the end
+ * date for descending queries) is moved to the second before (or after) the last returned item.
+ * This works no matter whether a service includes the boundaries or whether it compares whole
+ * seconds, and the historic items which have been returned already are skipped. Only if a whole
+ * page consists of these, e.g. for more items within one second than the page size, the next page
+ * is requested by its number.</p>
+ *
+ * @since 1.9.0
+ */
+public class PagedQueryResult implements Iterable<HistoricItem> {
+
+	/** the default number of historic items to fetch at once */
+	public static final int DEFAULT_PAGE_SIZE = 1000;
+
+	private final QueryablePersistenceService service;
+
+	private final FilterCriteria filter;
+
+	private final int pageSize;
+
+	/**
+	 * @param service the service to query the pages from
+	 * @param filter the filter of the whole query, its page number and size are ignored
+	 * @param pageSize the number of historic items to fetch at once
+	 */
+	public PagedQueryResult(QueryablePersistenceService service, FilterCriteria filter, int pageSize) {
+		if(pageSize<=0) {
+			throw new IllegalArgumentException("The page size must be positive");
+		}
+		this.service = service;
+		this.filter = filter;
+		this.pageSize = pageSize;
+	}
+
+	public PagedQueryResult(QueryablePersistenceService service, FilterCriteria filter) {
+		this(service, filter, DEFAULT_PAGE_SIZE);
+	}
+
+	public Iterator<HistoricItem> iterator() {
+		return new PageIterator();
+	}
+
+	private class PageIterator implements Iterator<HistoricItem> {
+
+		private final FilterCriteria pageFilter = new FilterCriteria();
+
+		private final boolean ascending = filter.getOrdering() == Ordering.ASCENDING;
+
+		private Iterator<HistoricItem> page = Collections.<HistoricItem>emptyList().iterator();
+
+		/** the number of historic items of the current page, which have been read from it */
+		private int pageCount = pageSize;
+
+		/** whether an item of the current page has been returned */
+		private boolean pageReturnedItems = true;
+
+		private boolean lastPage = false;
+
+		/** the next item to return, which has been read ahead to skip the ones returned already */
+		private HistoricItem next;
+
+		/** the time of the last returned item and how many items with this time have been returned */
+		private long lastTime;
+		private int lastTimeCount = 0;
+
+		/** the items until this time and this number of items at it are skipped, as they have been returned */
+		private long skipTime;
+		private int skipTimeCount = 0;
+
+		public PageIterator() {
+			pageFilter.setItemName(filter.getItemName());
+			pageFilter.setBeginDate(filter.getBeginDate());
+			if(filter.getEndDate()!=null) {
+				pageFilter.setEndDate(filter.getEndDate());
+			} else {
+				// many services only store seconds, so we round up to include the current one
+				pageFilter.setEndDate(new Date((System.currentTimeMillis() / 1000 + 1) * 1000));
+			}
+			pageFilter.setOperator(filter.getOperator());
+			pageFilter.setState(filter.getState());
+			pageFilter.setOrdering(filter.getOrdering());
+			pageFilter.setPageSize(pageSize);
+			pageFilter.setPageNumber(0);
+		}
+
+		public boolean hasNext() {
+			while(next==null) {
+				if(page.hasNext()) {
+					HistoricItem historicItem = page.next();
+					pageCount++;
+					if(!isReturned(historicItem)) {
+						next = historicItem;
+					}
+					continue;
+				}
+				// a page which is not full is the last one
+				if(lastPage || pageCount<pageSize) {
+					return false;
+				}
+				if(pageReturnedItems) {
+					startPageAfterLastItem();
+				} else {
+					pageFilter.setPageNumber(pageFilter.getPageNumber() + 1);
+				}
+				Iterable<HistoricItem> result = service.query(pageFilter);
+				page = result!=null ? result.iterator() : Collections.<HistoricItem>emptyList().iterator();
+				pageCount = 0;
+				pageReturnedItems = false;
+				lastPage = !page.hasNext();
+			}
+			return true;
+		}
+
+		public HistoricItem next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			HistoricItem historicItem = next;
+			next = null;
+			long time = historicItem.getTimestamp().getTime();
+			if(lastTimeCount>0 && time==lastTime) {
+				lastTimeCount++;
+			} else {
+				lastTime = time;
+				lastTimeCount = 1;
+			}
+			pageReturnedItems = true;
+			return historicItem;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Moves the time range of the next page to start at the second of the last returned item.
+		 */
+		private void startPageAfterLastItem() {
+			pageFilter.setPageNumber(0);
+			if(lastTimeCount==0) {
+				return;
+			}
+			skipTime = lastTime;
+			skipTimeCount = lastTimeCount;
+			long second = lastTime - ((lastTime % 1000) + 1000) % 1000;
+			if(ascending) {
+				Date begin = new Date(second - 1);
+				if(filter.getBeginDate()==null || begin.after(filter.getBeginDate())) {
+					pageFilter.setBeginDate(begin);
+				}
+			} else {
+				Date end = new Date(second + 1000);
+				if(end.before(pageFilter.getEndDate())) {
+					pageFilter.setEndDate(end);
+				}
+			}
+		}
+
+		private boolean isReturned(HistoricItem historicItem) {
+			if(skipTimeCount==0) {
+				return false;
+			}
+			long time = historicItem.getTimestamp().getTime();
+			if(time==skipTime) {
+				skipTimeCount--;
+				return true;
+			}
+			return ascending ? time < skipTime : time > skipTime;
+		}
+
+	}
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Set;
+
+import org.openhab.core.events.LatencyHistogram;
+
+/**
+ * Provides statistics about the write-behind queues, through which the persistence
+ * manager passes the items to the {@link PersistenceService}s.
+ * 
+ * @since 1.9.0
+ */
+public interface PersistenceMetrics {
+
+	/**
+	 * @return the names of the persistence services which are fed through a write-behind queue
+	 */
+	Set<String> getServiceNames();
+	
+	/**
+	 * @param serviceName the name of the persistence service
+	 * @return the number of items which wait for being stored by the service
+	 */
+	int getQueueSize(String serviceName);
+	
+	/**
+	 * @param serviceName the name of the persistence service
+	 * @return the maximum number of items which can wait for being stored by the service
+	 */
+	int getQueueCapacity(String serviceName);
+	
+	/**
+	 * @param serviceName the name of the persistence service
+	 * @return the number of items which have been stored by the service
+	 */
+	long getStoredCount(String serviceName);
+	
+	/**
+	 * @param serviceName the name of the persistence service
+	 * @return the number of items which have been dropped or replaced due to a full queue
+	 */
+	long getDroppedCount(String serviceName);
+	
+	/**
+	 * @param serviceName the name of the persistence service
+	 * @return the number of items which the service failed to store
+	 */
+	long getFailedCount(String serviceName);
+	
+	/**
+	 * @param serviceName the name of the persistence service
+	 * @return the time the service needed to store the items or <code>null</code>
+	 * if the service is not fed through a write-behind queue
+	 */
+	LatencyHistogram getStoreLatencies(String serviceName);
+	
+}
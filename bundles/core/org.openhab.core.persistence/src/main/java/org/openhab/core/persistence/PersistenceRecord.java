@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Date;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.types.State;
+
+/**
+ * A state of an item which is to be persisted by a {@link BatchPersistenceService}.
+ * The item is a snapshot, i.e. its state is the one at the given time.
+ *
+ * @since 1.9.0
+ */
+public class PersistenceRecord {
+
+	private final Item item;
+
+	private final String alias;
+
+	private final Date timestamp;
+
+	public PersistenceRecord(Item item, String alias, Date timestamp) {
+		this.item = item;
+		this.alias = alias;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * @return the item which state should be persisted
+	 */
+	public Item getItem() {
+		return item;
+	}
+
+	/**
+	 * @return the alias under which the item should be persisted, can be <code>null</code>
+	 */
+	public String getAlias() {
+		return alias;
+	}
+
+	/**
+	 * @return the state to persist
+	 */
+	public State getState() {
+		return item.getState();
+	}
+
+	/**
+	 * @return the time at which the item had this state
+	 */
+	public Date getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return item.getName() + "=" + item.getState() + " (" + timestamp + ")";
+	}
+
+}
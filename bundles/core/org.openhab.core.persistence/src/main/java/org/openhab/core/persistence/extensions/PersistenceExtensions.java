@@ -19,6 +19,8 @@ import java.util.Map;
 import org.joda.time.base.AbstractInstant;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.AggregatingPersistenceService.AggregateFunction;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
@@ -160,6 +162,14 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return true, if item state had changed
 	 */
 	static public Boolean changedSince(Item item, AbstractInstant timestamp, String serviceName) {
+		AggregatingPersistenceService aService = getAggregatingService(serviceName);
+		if (aService != null) {
+			try {
+				return changedSince(item, timestamp, aService);
+			} catch (UnsupportedOperationException e) {
+				// the service cannot aggregate the states of this item, so we iterate them
+			}
+		}
 		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
 		Iterator<HistoricItem> it = result.iterator();
 		HistoricItem itemThen = historicState(item, timestamp);
@@ -180,6 +190,25 @@ public class PersistenceExtensions implements ManagedService {
 		return false;
 	} 
 
+	static private Boolean changedSince(Item item, AbstractInstant timestamp, AggregatingPersistenceService service) {
+		HistoricItem itemThen = historicState(item, timestamp);
+		if(itemThen == null) {
+			// Can't get the state at the start time
+			// If we've got results more recent that this, it must have changed
+			HistoricItem count = aggregateSince(item, timestamp, service, AggregateFunction.COUNT);
+			return count!=null && ((DecimalType) count.getState()).intValue()>0;
+		}
+
+		// the state has changed, if the lowest or highest state since then differs from the one at that time
+		State state = itemThen.getState();
+		HistoricItem minimum = aggregateSince(item, timestamp, service, AggregateFunction.MIN);
+		if(minimum == null) {
+			return false;
+		}
+		HistoricItem maximum = aggregateSince(item, timestamp, service, AggregateFunction.MAX);
+		return !minimum.getState().equals(state) || (maximum!=null && !maximum.getState().equals(state));
+	}
+
 	/**
 	 * Checks if the state of a given <code>item</code> has been updated since a certain point in time. 
 	 * The default persistence service is used. 
@@ -206,6 +235,15 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return true, if item state was updated
 	 */
 	static public Boolean updatedSince(Item item, AbstractInstant timestamp, String serviceName) {
+		AggregatingPersistenceService aService = getAggregatingService(serviceName);
+		if (aService != null) {
+			try {
+				HistoricItem count = aggregateSince(item, timestamp, aService, AggregateFunction.COUNT);
+				return count!=null && ((DecimalType) count.getState()).intValue()>0;
+			} catch (UnsupportedOperationException e) {
+				// the service cannot aggregate the states of this item, so we iterate them
+			}
+		}
 		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
 		if(result.iterator().hasNext()) {
 			return true;
@@ -242,7 +280,7 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return a historic item with the maximum state value since the given point in time
 	 */
 	static public HistoricItem maximumSince(final Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
+		Iterable<HistoricItem> result = getAggregateSince(item, timestamp, serviceName, AggregateFunction.MAX);
 		Iterator<HistoricItem> it = result.iterator();
 		HistoricItem maximumHistoricItem = null;
 		DecimalType maximum = (DecimalType) item.getStateAs(DecimalType.class);
@@ -307,7 +345,7 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the historic item with the minimum state value since the given point in time
 	 */
 	static public HistoricItem minimumSince(final Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
+		Iterable<HistoricItem> result = getAggregateSince(item, timestamp, serviceName, AggregateFunction.MIN);
 		Iterator<HistoricItem> it = result.iterator();
 		HistoricItem minimumHistoricItem = null;
 		DecimalType minimum = (DecimalType) item.getStateAs(DecimalType.class);
@@ -370,18 +408,35 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the average state value since the given point in time
 	 */
 	static public DecimalType averageSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-
 		double total = 0;
 		int quantity = 0;
 		DecimalType histValue = null;
-		while(it.hasNext()) {
-			State state = it.next().getState();
-			if (state instanceof DecimalType) {
-				histValue = (DecimalType) state;
-				total += histValue.doubleValue();
-				quantity++;
+		boolean aggregated = false;
+
+		AggregatingPersistenceService aService = getAggregatingService(serviceName);
+		if (aService != null) {
+			try {
+				HistoricItem sum = aggregateSince(item, timestamp, aService, AggregateFunction.SUM);
+				HistoricItem count = aggregateSince(item, timestamp, aService, AggregateFunction.COUNT);
+				if (sum != null && count != null) {
+					total = ((DecimalType) sum.getState()).doubleValue();
+					quantity = ((DecimalType) count.getState()).intValue();
+				}
+				aggregated = true;
+			} catch (UnsupportedOperationException e) {
+				// the service cannot aggregate the states of this item, so we iterate them
+			}
+		}
+
+		if (!aggregated) {
+			Iterator<HistoricItem> it = getAllStatesSince(item, timestamp, serviceName).iterator();
+			while(it.hasNext()) {
+				State state = it.next().getState();
+				if (state instanceof DecimalType) {
+					histValue = (DecimalType) state;
+					total += histValue.doubleValue();
+					quantity++;
+				}
 			}
 		}
 		
@@ -529,7 +584,7 @@ public class PersistenceExtensions implements ManagedService {
 	 */
 
 	static public DecimalType sumSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
+		Iterable<HistoricItem> result = getAggregateSince(item, timestamp, serviceName, AggregateFunction.SUM);
 		Iterator<HistoricItem> it = result.iterator();
 		
 		double sum = 0;
@@ -739,6 +794,44 @@ public class PersistenceExtensions implements ManagedService {
 		}
 	}
 
+	/**
+	 * Returns the aggregate of the states since a certain point in time as the only element, if the
+	 * {@link PersistenceService} is able to calculate it, and all the states since then otherwise.
+	 * This allows to use the same loop for both cases for aggregates like the maximum or the sum.
+	 */
+	static private Iterable<HistoricItem> getAggregateSince(Item item, AbstractInstant timestamp, String serviceName, AggregateFunction function) {
+		AggregatingPersistenceService aService = getAggregatingService(serviceName);
+		if (aService != null) {
+			try {
+				HistoricItem aggregate = aggregateSince(item, timestamp, aService, function);
+				if (aggregate != null) {
+					return Collections.singletonList(aggregate);
+				} else {
+					return Collections.emptyList();
+				}
+			} catch (UnsupportedOperationException e) {
+				// the service cannot aggregate the states of this item, so we return them all
+			}
+		}
+		return getAllStatesSince(item, timestamp, serviceName);
+	}
+
+	static private HistoricItem aggregateSince(Item item, AbstractInstant timestamp, AggregatingPersistenceService service, AggregateFunction function) {
+		FilterCriteria filter = new FilterCriteria();
+		filter.setBeginDate(timestamp.toDate());
+		filter.setItemName(item.getName());
+		return service.aggregate(filter, function);
+	}
+
+	static private AggregatingPersistenceService getAggregatingService(String serviceName) {
+		PersistenceService service = services.get(serviceName);
+		if (service instanceof AggregatingPersistenceService) {
+			return (AggregatingPersistenceService) service;
+		} else {
+			return null;
+		}
+	}
+
 	static private Iterable<HistoricItem> getAllStatesSince(Item item, AbstractInstant timestamp, String serviceName) {
 		PersistenceService service = services.get(serviceName);
 		if (service instanceof QueryablePersistenceService) {
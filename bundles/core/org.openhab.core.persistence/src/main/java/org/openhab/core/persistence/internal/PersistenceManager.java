@@ -12,19 +12,29 @@ import static org.quartz.JobBuilder.newJob;
 import static org.quartz.TriggerBuilder.newTrigger;
 
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.emf.ecore.EObject;
 import org.openhab.core.events.AbstractEventSubscriber;
+import org.openhab.core.events.LatencyHistogram;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
@@ -32,10 +42,14 @@ import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.items.ItemRegistryChangeListener;
 import org.openhab.core.items.StateChangeListener;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PersistenceMetrics;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.persistence.internal.PersistenceQueue.OverflowPolicy;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.openhab.model.core.EventType;
@@ -64,15 +78,44 @@ import org.slf4j.LoggerFactory;
 /**
  * This class is the central part of the persistence management and delegation. It reads the persistence
  * models, schedules timers and manages the invocation of {@link PersistenceService}s upon events.
+ * <p>
+ * Items which are persisted upon state changes or updates are passed to the services through
+ * a bounded {@link PersistenceQueue} per service, so that slow services do not block the item
+ * updates. The size of the queues can be configured with the system property 
+ * <code>openhab.persistence.queueSize</code> (default 10000) or, for a single service, with
+ * <code>openhab.persistence.&lt;service&gt;.queueSize</code>; a size of 0 lets the service
+ * store the items synchronously. If a queue is full, <code>openhab.persistence.overflowPolicy</code> 
+ * or <code>openhab.persistence.&lt;service&gt;.overflowPolicy</code> decides whether the item 
+ * update waits for it (<code>block</code>, the default, so that nothing is lost), or whether 
+ * entries are dropped (<code>drop-oldest</code> or <code>coalesce</code>). 
+ * <p>
+ * A {@link BatchPersistenceService} receives up to <code>openhab.persistence.batchSize</code> 
+ * queued items at once, together with the time at which they have been queued. Other services
+ * store the queued items one by one with the time at which they are passed to them.
+ * <p>
+ * On startup, the states of the items with the "restoreOnStartup" strategy are queried from each
+ * service at once, by a single bulk query if it is a {@link BulkQueryablePersistenceService}, or
+ * otherwise by <code>openhab.persistence.restoreThreads</code> parallel queries.
  * 
  * @author Kai Kreuzer
  * @since 1.0.0
  *
  */
-public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener {
+public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener, PersistenceMetrics {
 	
 	private static final Logger logger = LoggerFactory.getLogger(PersistenceManager.class);
 
+	private static final String PROPERTY_PREFIX = "openhab.persistence.";
+	
+	private static final int DEFAULT_QUEUE_SIZE = 10000;
+	
+	private static final int DEFAULT_BATCH_SIZE = 500;
+	
+	private static final int DEFAULT_RESTORE_THREADS = 4;
+	
+	/** the time in milliseconds to wait for queued items to be stored when a service is removed */
+	private static final long QUEUE_STOP_TIMEOUT = 5000;
+
 	private static PersistenceManager instance;
 	
 	// the scheduler used for timer events
@@ -82,7 +125,10 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 
 	private ItemRegistry itemRegistry;
 
-	/*default */ Map<String, PersistenceService> persistenceServices = new HashMap<String, PersistenceService>();
+	/*default */ Map<String, PersistenceService> persistenceServices = new ConcurrentHashMap<String, PersistenceService>();
+	
+	/** the write-behind queues of the persistence services */
+	private Map<String, PersistenceQueue> queues = new ConcurrentHashMap<String, PersistenceQueue>();
 	
 	/** keeps a list of configurations for each persistence service */
 	protected Map<String, List<PersistenceConfiguration>> persistenceConfigurations = new ConcurrentHashMap<String, List<PersistenceConfiguration>>();
@@ -91,6 +137,15 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	protected Map<String, List<Strategy>> defaultStrategies = 
 			Collections.synchronizedMap(new HashMap<String, List<Strategy>>());
 	
+	/** 
+	 * the routes of each item name to the persistence configurations which apply to it; the map
+	 * is replaced when the configurations change and updated in place when single items change
+	 */
+	private volatile Map<String, List<Route>> routes = new ConcurrentHashMap<String, List<Route>>();
+	
+	/** the items by name to which each persistence configuration applies */
+	private volatile Map<PersistenceConfiguration, Map<String, Item>> configItems = Collections.emptyMap();
+	
 	
 	public PersistenceManager() {
 		PersistenceManager.instance = this;
@@ -110,6 +165,10 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 	
 	public void deactivate() {
+		for(PersistenceQueue queue : queues.values()) {
+			queue.stop(QUEUE_STOP_TIMEOUT);
+		}
+		queues.clear();
 	}
 	
 	
@@ -145,6 +204,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	public void addPersistenceService(PersistenceService persistenceService) {
 		logger.debug("Initializing {} persistence service.", persistenceService.getName());
 		persistenceServices.put(persistenceService.getName(), persistenceService);
+		startQueue(persistenceService);
 		stopEventHandling(persistenceService.getName());
 		startEventHandling(persistenceService.getName());
 	}
@@ -152,6 +212,60 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	public void removePersistenceService(PersistenceService persistenceService) {
 		stopEventHandling(persistenceService.getName());
 		persistenceServices.remove(persistenceService.getName());
+		PersistenceQueue queue = queues.remove(persistenceService.getName());
+		if(queue!=null) {
+			queue.stop(QUEUE_STOP_TIMEOUT);
+		}
+	}
+	
+	/**
+	 * Creates and starts the write-behind queue for a persistence service, unless
+	 * it is configured to store the items synchronously.
+	 * 
+	 * @param persistenceService the persistence service to create the queue for
+	 */
+	private void startQueue(PersistenceService persistenceService) {
+		String serviceName = persistenceService.getName();
+		int queueSize = getIntProperty(serviceName, "queueSize", DEFAULT_QUEUE_SIZE);
+		int batchSize = getIntProperty(serviceName, "batchSize", DEFAULT_BATCH_SIZE);
+		OverflowPolicy policy = OverflowPolicy.BLOCK;
+		String configuredPolicy = getProperty(serviceName, "overflowPolicy");
+		if(configuredPolicy!=null) {
+			policy = OverflowPolicy.parse(configuredPolicy);
+			if(policy==null) {
+				logger.warn("Invalid overflow policy '{}' for persistence service '{}'.", configuredPolicy, serviceName);
+				policy = OverflowPolicy.BLOCK;
+			}
+		}
+		
+		PersistenceQueue oldQueue = queues.remove(serviceName);
+		if(oldQueue!=null) {
+			oldQueue.stop(QUEUE_STOP_TIMEOUT);
+		}
+		if(queueSize > 0) {
+			PersistenceQueue queue = new PersistenceQueue(persistenceService, queueSize, policy, batchSize);
+			queue.start();
+			queues.put(serviceName, queue);
+			logger.debug("Persistence service '{}' is fed through a queue of size {} ({}).", 
+					new Object[] { serviceName, queueSize, policy });
+		}
+	}
+	
+	private static String getProperty(String serviceName, String key) {
+		String value = System.getProperty(PROPERTY_PREFIX + serviceName + "." + key);
+		return value!=null ? value : System.getProperty(PROPERTY_PREFIX + key);
+	}
+	
+	private static int getIntProperty(String serviceName, String key, int defaultValue) {
+		String value = getProperty(serviceName, key);
+		if(value!=null) {
+			try {
+				return Integer.parseInt(value.trim());
+			} catch (NumberFormatException e) {
+				logger.warn("Invalid value '{}' of '{}' for persistence service '{}'.", new Object[] { value, key, serviceName });
+			}
+		}
+		return defaultValue;
 	}
 	
 	
@@ -180,13 +294,16 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 		if(model!=null) {
 			persistenceConfigurations.put(modelName, model.getConfigs());
 			defaultStrategies.put(modelName, model.getDefaults());
+			updateRoutes();
+			Set<Item> restoreItems = new HashSet<Item>();
 			for(PersistenceConfiguration config : model.getConfigs()) {
 				if(hasStrategy(modelName, config, GlobalStrategies.RESTORE)) {
 					for(Item item : getAllItems(config)) {
-						initialize(item);
+						restoreItems.add(item);
 					}
 				}
 			}
+			restore(restoreItems, modelName);
 			createTimers(modelName);
 		}
 	}
@@ -199,6 +316,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	private void stopEventHandling(String modelName) {
 		persistenceConfigurations.remove(modelName);
 		defaultStrategies.remove(modelName);
+		updateRoutes();
 		removeTimers(modelName);
 	}
 
@@ -217,77 +335,168 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	 * @param onlyChanges true, if it has the change strategy, false otherwise
 	 */
 	private void handleStateEvent(Item item, boolean onlyChanges) {
-		synchronized (persistenceConfigurations) {
+		List<Route> itemRoutes = routes.get(item.getName());
+		if(itemRoutes!=null) {
+			for(Route route : itemRoutes) {
+				if(onlyChanges ? route.onChange : route.onUpdate) {
+					PersistenceService service = persistenceServices.get(route.serviceName);
+					if(service!=null) {
+						store(service, item, route.config.getAlias());
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Compiles the persistence configurations into the routing table, which maps the 
+	 * item names to the configurations which apply to them. This has to be called 
+	 * whenever the configurations change or groups are added or removed; single items
+	 * are handled by {@link #addRoutes(Item)} and {@link #removeRoutes(Item)}.
+	 */
+	private synchronized void updateRoutes() {
+		Map<String, List<Route>> newRoutes = new ConcurrentHashMap<String, List<Route>>();
+		Map<PersistenceConfiguration, Map<String, Item>> newConfigItems = 
+				new IdentityHashMap<PersistenceConfiguration, Map<String, Item>>();
+		if(itemRegistry!=null) {
 			for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
 				String serviceName = entry.getKey();
-				if(persistenceServices.containsKey(serviceName)) {				
-					for(PersistenceConfiguration config : entry.getValue()) {
-						if(hasStrategy(serviceName, config, onlyChanges ? GlobalStrategies.CHANGE : GlobalStrategies.UPDATE)) {
-							if(appliesToItem(config, item)) {
-								persistenceServices.get(serviceName).store(item, config.getAlias());
-							}
+				for(PersistenceConfiguration config : entry.getValue()) {
+					Map<String, Item> items = new ConcurrentHashMap<String, Item>();
+					for(Item item : collectItems(config)) {
+						items.put(item.getName(), item);
+					}
+					newConfigItems.put(config, items);
+					Route route = createRoute(serviceName, config);
+					for(Item item : items.values()) {
+						List<Route> itemRoutes = newRoutes.get(item.getName());
+						if(itemRoutes==null) {
+							itemRoutes = new ArrayList<Route>(1);
+							newRoutes.put(item.getName(), itemRoutes);
 						}
+						itemRoutes.add(route);
 					}
 				}
 			}
 		}
+		routes = newRoutes;
+		configItems = newConfigItems;
 	}
 	
 	/**
-	 * Checks if a given persistence configuration entry has a certain strategy for the given service
+	 * Adds the routes of a single item, which has been added to the item registry, 
+	 * without recompiling the whole routing table.
 	 * 
-	 * @param serviceName the service to check the configuration for
-	 * @param config the persistence configuration entry
-	 * @param strategy the strategy to check for
-	 * @return true, if it has the given strategy
+	 * @param item the added item
 	 */
-	protected boolean hasStrategy(String serviceName, PersistenceConfiguration config, Strategy strategy) {
-		if(defaultStrategies.get(serviceName).contains(strategy) && config.getStrategies().isEmpty()) {
-			return true;
-		} else {
-			for(Strategy s : config.getStrategies()) {
-				if(s.equals(strategy)) {
-					return true;
+	private synchronized void addRoutes(Item item) {
+		if(itemRegistry==null) {
+			return;
+		}
+		List<Route> itemRoutes = new ArrayList<Route>(1);
+		for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
+			for(PersistenceConfiguration config : entry.getValue()) {
+				Map<String, Item> items = configItems.get(config);
+				if(items!=null && appliesTo(config, item)) {
+					items.put(item.getName(), item);
+					itemRoutes.add(createRoute(entry.getKey(), config));
 				}
 			}
-			return false;
+		}
+		if(itemRoutes.isEmpty()) {
+			routes.remove(item.getName());
+		} else {
+			routes.put(item.getName(), itemRoutes);
 		}
 	}
-
+	
 	/**
-	 * Checks if a given persistence configuration entry is relevant for an item
+	 * Removes the routes of a single item, which has been removed from the item registry,
+	 * without recompiling the whole routing table.
+	 * 
+	 * @param item the removed item
+	 */
+	private synchronized void removeRoutes(Item item) {
+		routes.remove(item.getName());
+		for(Map<String, Item> items : configItems.values()) {
+			items.remove(item.getName());
+		}
+	}
+	
+	private Route createRoute(String serviceName, PersistenceConfiguration config) {
+		return new Route(serviceName, config, 
+				hasStrategy(serviceName, config, GlobalStrategies.CHANGE),
+				hasStrategy(serviceName, config, GlobalStrategies.UPDATE),
+				hasStrategy(serviceName, config, GlobalStrategies.RESTORE));
+	}
+	
+	/**
+	 * Checks whether a persistence configuration applies to an item. This is the 
+	 * single item counterpart of {@link #collectItems(PersistenceConfiguration)}.
 	 * 
 	 * @param config the persistence configuration entry
-	 * @param item to check if the configuration applies to
-	 * @return true, if the configuration applies to the item
+	 * @param item the item to check
+	 * @return <code>true</code>, if the configuration applies to the item
 	 */
-	protected boolean appliesToItem(PersistenceConfiguration config, Item item) {
+	private boolean appliesTo(PersistenceConfiguration config, Item item) {
 		for(EObject itemCfg : config.getItems()) {
 			if (itemCfg instanceof AllConfig) {
 				return true;
 			}
-			if (itemCfg instanceof ItemConfig) {
-				ItemConfig singleItemConfig = (ItemConfig) itemCfg;
-				if(item.getName().equals(singleItemConfig.getItem())) {
-					return true;
-				}
+			if (itemCfg instanceof ItemConfig && item.getName().equals(((ItemConfig) itemCfg).getItem())) {
+				return true;
 			}
 			if (itemCfg instanceof GroupConfig) {
-				GroupConfig groupItemCfg = (GroupConfig) itemCfg;
-				String groupName = groupItemCfg.getGroup();
 				try {
-					Item gItem = itemRegistry.getItem(groupName);
-					if (gItem instanceof GroupItem) {
-						GroupItem groupItem = (GroupItem) gItem;
-						if(groupItem.getAllMembers().contains(item)) {
-							return true;
-						}
+					Item gItem = itemRegistry.getItem(((GroupConfig) itemCfg).getGroup());
+					if (gItem instanceof GroupItem && ((GroupItem) gItem).getAllMembers().contains(item)) {
+						return true;
 					}
-				} catch (Exception e) {}
+				} catch (ItemNotFoundException e) {
+					// the group does not exist, so the item cannot be a member
+				}
 			}
 		}
 		return false;
 	}
+	
+	/**
+	 * Passes an item to the write-behind queue of a persistence service or stores it 
+	 * directly, if the service has no queue.
+	 * 
+	 * @param service the persistence service
+	 * @param item the item to persist
+	 * @param alias the alias under which the item should be persisted
+	 */
+	/*default */ void store(PersistenceService service, Item item, String alias) {
+		PersistenceQueue queue = queues.get(service.getName());
+		if(queue!=null) {
+			queue.enqueue(item, alias);
+		} else {
+			service.store(item, alias);
+		}
+	}
+	
+	/**
+	 * Checks if a given persistence configuration entry has a certain strategy for the given service
+	 * 
+	 * @param serviceName the service to check the configuration for
+	 * @param config the persistence configuration entry
+	 * @param strategy the strategy to check for
+	 * @return true, if it has the given strategy
+	 */
+	protected boolean hasStrategy(String serviceName, PersistenceConfiguration config, Strategy strategy) {
+		if(defaultStrategies.get(serviceName).contains(strategy) && config.getStrategies().isEmpty()) {
+			return true;
+		} else {
+			for(Strategy s : config.getStrategies()) {
+				if(s.equals(strategy)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
 
 	/**
 	 * Retrieves all items for which the persistence configuration applies to.
@@ -296,10 +505,22 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	 * @return all items that this configuration applies to
 	 */
 	protected Iterable<Item> getAllItems(PersistenceConfiguration config) {
+		Map<String, Item> items = configItems.get(config);
+		return items!=null ? items.values() : collectItems(config);
+	}
+	
+	/**
+	 * Resolves the items for which the persistence configuration applies to 
+	 * from the item registry.
+	 * 
+	 * @param config the persistence configuration entry
+	 * @return all items that this configuration applies to
+	 */
+	private Collection<Item> collectItems(PersistenceConfiguration config) {
 		// first check, if we should return them all
 		for(EObject itemCfg : config.getItems()) {
 			if (itemCfg instanceof AllConfig) {
-				return itemRegistry.getItems();
+				return new ArrayList<Item>(itemRegistry.getItems());
 			}
 		}
 		
@@ -333,13 +554,26 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 
 	public void allItemsChanged(Collection<String> oldItemNames) {
-		for(Item item : itemRegistry.getItems()) {
-			itemAdded(item);
+		updateRoutes();
+		Collection<Item> items = itemRegistry.getItems();
+		restore(items, null);
+		for(Item item : items) {
+			addItem(item);
 		}
 	}
 
 	public void itemAdded(Item item) {
+		if(item instanceof GroupItem) {
+			// the members of the group may be affected as well
+			updateRoutes();
+		} else {
+			addRoutes(item);
+		}
 		initialize(item);
+		addItem(item);
+	}
+	
+	private void addItem(Item item) {
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.addStateChangeListener(this);
@@ -355,38 +589,153 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	 * @param item the item to restore the state for
 	 */
 	protected void initialize(Item item) {
-		// get the last persisted state from the persistence service if no state is yet set
-		if(item.getState().equals(UnDefType.NULL) && item instanceof GenericItem) {
-			for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
-				String serviceName = entry.getKey();
-				for(PersistenceConfiguration config : entry.getValue()) {
-					if(hasStrategy(serviceName, config, GlobalStrategies.RESTORE)) {
-						if(appliesToItem(config, item)) {
-							PersistenceService service = persistenceServices.get(serviceName);
-							if(service instanceof QueryablePersistenceService) {
-								QueryablePersistenceService queryService = (QueryablePersistenceService) service;
-								FilterCriteria filter = new FilterCriteria().setItemName(item.getName()).setPageSize(1);
-								Iterable<HistoricItem> result = queryService.query(filter);
-								Iterator<HistoricItem> it = result.iterator();
-								if(it.hasNext()) {
-									HistoricItem historicItem = it.next();
-									GenericItem genericItem = (GenericItem) item;
-									genericItem.removeStateChangeListener(this);
-									genericItem.setState(historicItem.getState());
-									genericItem.addStateChangeListener(this);
-									logger.debug("Restored item state from '{}' for item '{}' -> '{}'", 
-											new Object[] { DateFormat.getDateTimeInstance().format(historicItem.getTimestamp()), 
-											item.getName(), historicItem.getState().toString() } );
-									return;
-								}
-							} else if(service!=null) {
-								logger.warn("Failed to restore item states as persistence service '{}' can not be queried.", serviceName);
-							}
+		restore(Collections.singletonList(item), null);
+	}
+
+	/**
+	 * Handles the "restoreOnStartup" strategy for several items at once. The items are grouped by the
+	 * services which have the strategy configured for them, so that each service is queried for all
+	 * of its items together. Items which have been restored from one service are skipped by the others.
+	 * 
+	 * @param items the items to restore the states for
+	 * @param serviceName the service to restore the states from, or <code>null</code> for all services
+	 */
+	private void restore(Collection<Item> items, String serviceName) {
+		Map<String, Map<String, GenericItem>> serviceItems = new LinkedHashMap<String, Map<String, GenericItem>>();
+		for(Item item : items) {
+			List<Route> itemRoutes = routes.get(item.getName());
+			if(itemRoutes!=null && item.getState().equals(UnDefType.NULL) && item instanceof GenericItem) {
+				for(Route route : itemRoutes) {
+					if(route.onRestore && (serviceName==null || serviceName.equals(route.serviceName))) {
+						Map<String, GenericItem> restoreItems = serviceItems.get(route.serviceName);
+						if(restoreItems==null) {
+							restoreItems = new LinkedHashMap<String, GenericItem>();
+							serviceItems.put(route.serviceName, restoreItems);
 						}
+						restoreItems.put(item.getName(), (GenericItem) item);
 					}
 				}
-			}	
-		}		
+			}
+		}
+		
+		for(Entry<String, Map<String, GenericItem>> entry : serviceItems.entrySet()) {
+			PersistenceService service = persistenceServices.get(entry.getKey());
+			if(service instanceof QueryablePersistenceService) {
+				restore((QueryablePersistenceService) service, entry.getValue().values());
+			} else if(service!=null) {
+				logger.warn("Failed to restore item states as persistence service '{}' can not be queried.", entry.getKey());
+			}
+		}
+	}
+	
+	/**
+	 * Restores the states of the items which are still undefined from a persistence service.
+	 * 
+	 * @param service the service to query the states from
+	 * @param items the items to restore the states for
+	 */
+	private void restore(QueryablePersistenceService service, Collection<GenericItem> items) {
+		List<GenericItem> pendingItems = new ArrayList<GenericItem>(items.size());
+		for(GenericItem item : items) {
+			if(item.getState().equals(UnDefType.NULL)) {
+				pendingItems.add(item);
+			}
+		}
+		if(pendingItems.isEmpty()) {
+			return;
+		}
+		
+		long start = System.currentTimeMillis();
+		Map<String, HistoricItem> historicItems = queryLatest(service, pendingItems);
+		int restored = 0;
+		for(GenericItem item : pendingItems) {
+			HistoricItem historicItem = historicItems.get(item.getName());
+			if(historicItem!=null && item.getState().equals(UnDefType.NULL)) {
+				item.removeStateChangeListener(this);
+				item.setState(historicItem.getState());
+				item.addStateChangeListener(this);
+				logger.debug("Restored item state from '{}' for item '{}' -> '{}'", 
+						new Object[] { DateFormat.getDateTimeInstance().format(historicItem.getTimestamp()), 
+						item.getName(), historicItem.getState().toString() } );
+				restored++;
+			}
+		}
+		if(pendingItems.size() > 1) {
+			logger.info("Restored {} of {} item states from persistence service '{}' in {} ms.", 
+					new Object[] { restored, pendingItems.size(), service.getName(), System.currentTimeMillis() - start });
+		}
+	}
+	
+	/**
+	 * Queries the most recent persisted states of the given items, either by a single bulk query
+	 * or by parallel queries for the single items.
+	 * 
+	 * @param service the service to query
+	 * @param items the items to query the states of
+	 * @return the most recent states by item name
+	 */
+	private Map<String, HistoricItem> queryLatest(final QueryablePersistenceService service, List<GenericItem> items) {
+		if(service instanceof BulkQueryablePersistenceService) {
+			List<String> itemNames = new ArrayList<String>(items.size());
+			for(GenericItem item : items) {
+				itemNames.add(item.getName());
+			}
+			try {
+				return ((BulkQueryablePersistenceService) service).queryLatest(itemNames);
+			} catch (RuntimeException e) {
+				logger.warn("Failed to restore item states from persistence service '{}': {}", service.getName(), e.getMessage());
+				return Collections.emptyMap();
+			}
+		}
+		
+		final Map<String, HistoricItem> historicItems = new ConcurrentHashMap<String, HistoricItem>();
+		int threads = Math.min(items.size(), getIntProperty(service.getName(), "restoreThreads", DEFAULT_RESTORE_THREADS));
+		if(threads <= 1) {
+			for(GenericItem item : items) {
+				queryLatest(service, item.getName(), historicItems);
+			}
+			return historicItems;
+		}
+		
+		final String threadName = "openHAB-Restore-" + service.getName() + "-";
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger(1);
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, threadName + threadNumber.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(items.size());
+			for(final GenericItem item : items) {
+				tasks.add(Executors.callable(new Runnable() {
+					public void run() {
+						queryLatest(service, item.getName(), historicItems);
+					}
+				}));
+			}
+			executor.invokeAll(tasks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+		return historicItems;
+	}
+	
+	private void queryLatest(QueryablePersistenceService service, String itemName, Map<String, HistoricItem> historicItems) {
+		try {
+			FilterCriteria filter = new FilterCriteria().setItemName(itemName).setPageSize(1);
+			Iterable<HistoricItem> result = service.query(filter);
+			Iterator<HistoricItem> it = result.iterator();
+			if(it.hasNext()) {
+				historicItems.put(itemName, it.next());
+			}
+		} catch (RuntimeException e) {
+			logger.warn("Failed to restore the state of item '{}' from persistence service '{}': {}", 
+					new Object[] { itemName, service.getName(), e.getMessage() });
+		}
 	}
 
 	public void itemRemoved(Item item) {
@@ -394,6 +743,66 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.removeStateChangeListener(this);
 		}
+		if(item instanceof GroupItem) {
+			updateRoutes();
+		} else {
+			removeRoutes(item);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public Set<String> getServiceNames() {
+		return new TreeSet<String>(queues.keySet());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getQueueSize(String serviceName) {
+		PersistenceQueue queue = queues.get(serviceName);
+		return queue!=null ? queue.getSize() : 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getQueueCapacity(String serviceName) {
+		PersistenceQueue queue = queues.get(serviceName);
+		return queue!=null ? queue.getCapacity() : 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getStoredCount(String serviceName) {
+		PersistenceQueue queue = queues.get(serviceName);
+		return queue!=null ? queue.getStoredCount() : 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getDroppedCount(String serviceName) {
+		PersistenceQueue queue = queues.get(serviceName);
+		return queue!=null ? queue.getDroppedCount() : 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getFailedCount(String serviceName) {
+		PersistenceQueue queue = queues.get(serviceName);
+		return queue!=null ? queue.getFailedCount() : 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public LatencyHistogram getStoreLatencies(String serviceName) {
+		PersistenceQueue queue = queues.get(serviceName);
+		return queue!=null ? queue.getStoreLatencies() : null;
 	}
 	
 	/**
@@ -460,4 +869,30 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 		
 
+	/**
+	 * An entry of the routing table: a persistence configuration of a service which
+	 * applies to an item, together with its resolved strategies.
+	 */
+	private static class Route {
+		
+		final String serviceName;
+		
+		final PersistenceConfiguration config;
+		
+		final boolean onChange;
+		
+		final boolean onUpdate;
+		
+		final boolean onRestore;
+		
+		Route(String serviceName, PersistenceConfiguration config, boolean onChange, boolean onUpdate, boolean onRestore) {
+			this.serviceName = serviceName;
+			this.config = config;
+			this.onChange = onChange;
+			this.onUpdate = onUpdate;
+			this.onRestore = onRestore;
+		}
+		
+	}
+
 }
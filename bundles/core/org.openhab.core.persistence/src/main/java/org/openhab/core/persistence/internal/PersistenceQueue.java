@@ -0,0 +1,373 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openhab.core.events.LatencyHistogram;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.PersistenceRecord;
+import org.openhab.core.persistence.PersistenceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded write-behind queue for a single {@link PersistenceService}. The items are
+ * stored by a dedicated worker thread, so that a slow persistence service does not block
+ * the item updates. A snapshot of the item is taken when it is enqueued, so that the 
+ * state is persisted which the item had at that time.
+ * <p>
+ * If the service is a {@link BatchPersistenceService}, all entries which queued up while
+ * the previous ones were stored are passed to it at once (up to the batch size), together
+ * with the time of enqueuing. Other services receive the entries one by one and store them
+ * with the time at which they are passed.
+ * <p>
+ * If the queue is full, the {@link OverflowPolicy} decides whether the caller waits or
+ * which entry is dropped.
+ * 
+ * @since 1.9.0
+ */
+public class PersistenceQueue implements Runnable {
+	
+	private static final Logger logger = LoggerFactory.getLogger(PersistenceQueue.class);
+	
+	/**
+	 * The ways to handle an item which is to be persisted while the queue is full.
+	 */
+	public enum OverflowPolicy {
+		/** the caller waits until there is space in the queue */
+		BLOCK,
+		/** the oldest entry of the queue is dropped */
+		DROP_OLDEST,
+		/** a queued entry of the same item is replaced by the new one; if there is none, the oldest entry is dropped */
+		COALESCE;
+		
+		/**
+		 * Parses a policy name like <code>drop-oldest</code>.
+		 * 
+		 * @param name the name of the policy
+		 * @return the policy or <code>null</code> if the name is unknown
+		 */
+		public static OverflowPolicy parse(String name) {
+			if(name!=null) {
+				for(OverflowPolicy policy : values()) {
+					if(policy.name().equalsIgnoreCase(name.trim().replace('-', '_'))) {
+						return policy;
+					}
+				}
+			}
+			return null;
+		}
+	}
+	
+	private final PersistenceService service;
+	
+	private final int capacity;
+	
+	private final OverflowPolicy overflowPolicy;
+	
+	private final int batchSize;
+	
+	private final ArrayDeque<Entry> entries = new ArrayDeque<Entry>();
+	
+	/** the queued entries per item and alias, only maintained for the {@link OverflowPolicy#COALESCE} policy */
+	private final Map<String, Entry> entriesByKey = new HashMap<String, Entry>();
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	
+	private Thread worker;
+	
+	private boolean stopped = false;
+	
+	private final AtomicLong storedCount = new AtomicLong();
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final LatencyHistogram storeLatencies = new LatencyHistogram();
+	
+	/**
+	 * @param service the service to pass the items to
+	 * @param capacity the maximum number of queued entries
+	 * @param overflowPolicy the way to handle entries while the queue is full
+	 * @param batchSize the maximum number of entries to pass to a {@link BatchPersistenceService} at once
+	 */
+	public PersistenceQueue(PersistenceService service, int capacity, OverflowPolicy overflowPolicy, int batchSize) {
+		this.service = service;
+		this.capacity = Math.max(1, capacity);
+		this.overflowPolicy = overflowPolicy;
+		this.batchSize = service instanceof BatchPersistenceService ? Math.max(1, batchSize) : 1;
+	}
+	
+	/**
+	 * Starts the worker thread of this queue.
+	 */
+	public void start() {
+		worker = new Thread(this, "openHAB-Persistence-" + service.getName());
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Stops the worker thread after the queued entries have been stored. If this 
+	 * takes longer than the given timeout, the remaining entries are discarded.
+	 * 
+	 * @param timeout the maximum time to wait in milliseconds
+	 */
+	public void stop(long timeout) {
+		lock.lock();
+		try {
+			stopped = true;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		if(worker!=null) {
+			try {
+				worker.join(timeout);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if(worker.isAlive()) {
+				worker.interrupt();
+			}
+			worker = null;
+		}
+		lock.lock();
+		try {
+			if(!entries.isEmpty()) {
+				logger.warn("Discarded {} queued entries of persistence service '{}'.", entries.size(), service.getName());
+				droppedCount.addAndGet(entries.size());
+				entries.clear();
+				entriesByKey.clear();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Adds an item to the queue. If the queue is full, the overflow policy applies.
+	 * 
+	 * @param item the item to persist
+	 * @param alias the alias under which the item should be persisted, can be <code>null</code>
+	 */
+	public void enqueue(Item item, String alias) {
+		Item snapshot = item instanceof GenericItem ? ((GenericItem) item).snapshot() : item;
+		Entry entry = new Entry(snapshot, alias, System.currentTimeMillis());
+		lock.lock();
+		try {
+			if(stopped) {
+				droppedCount.incrementAndGet();
+				return;
+			}
+			if(entries.size() >= capacity) {
+				switch(overflowPolicy) {
+				case BLOCK:
+					while(entries.size() >= capacity && !stopped) {
+						notFull.await();
+					}
+					if(stopped) {
+						countDropped();
+						return;
+					}
+					break;
+				case COALESCE:
+					Entry queued = entriesByKey.get(entry.getKey());
+					if(queued!=null) {
+						queued.item = entry.item;
+						queued.timestamp = entry.timestamp;
+						countDropped();
+						return;
+					}
+					dropOldest();
+					break;
+				case DROP_OLDEST:
+					dropOldest();
+					break;
+				}
+			}
+			entries.add(entry);
+			if(overflowPolicy==OverflowPolicy.COALESCE) {
+				entriesByKey.put(entry.getKey(), entry);
+			}
+			notEmpty.signal();
+		} catch (InterruptedException e) {
+			countDropped();
+			Thread.currentThread().interrupt();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	private void dropOldest() {
+		removed(entries.poll());
+		countDropped();
+	}
+	
+	private void countDropped() {
+		long dropped = droppedCount.incrementAndGet();
+		if(dropped==1 || dropped % 1000==0) {
+			logger.warn("Queue of persistence service '{}' is full, {} entries have been dropped so far.", service.getName(), dropped);
+		}
+	}
+	
+	private void removed(Entry entry) {
+		if(entry!=null && overflowPolicy==OverflowPolicy.COALESCE && entriesByKey.get(entry.getKey())==entry) {
+			entriesByKey.remove(entry.getKey());
+		}
+	}
+	
+	/**
+	 * Waits for the next entries of the queue.
+	 * 
+	 * @param batch the list to add the entries to, at most {@link #batchSize} entries are added
+	 * @return <code>false</code> if the queue has been stopped and is empty
+	 * @throws InterruptedException if the worker has been interrupted
+	 */
+	private boolean take(List<Entry> batch) throws InterruptedException {
+		lock.lock();
+		try {
+			while(entries.isEmpty()) {
+				if(stopped) {
+					return false;
+				}
+				notEmpty.await(1, TimeUnit.SECONDS);
+			}
+			while(batch.size() < batchSize && !entries.isEmpty()) {
+				Entry entry = entries.poll();
+				removed(entry);
+				batch.add(entry);
+			}
+			notFull.signalAll();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void run() {
+		try {
+			List<Entry> batch = new ArrayList<Entry>(batchSize);
+			while(take(batch)) {
+				store(batch);
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			logger.debug("Worker of persistence service '{}' has been interrupted.", service.getName());
+		}
+	}
+	
+	private void store(List<Entry> batch) {
+		if(!(service instanceof BatchPersistenceService)) {
+			for(Entry entry : batch) {
+				long start = System.nanoTime();
+				try {
+					service.store(entry.item, entry.alias);
+					storedCount.incrementAndGet();
+				} catch (RuntimeException e) {
+					failedCount.incrementAndGet();
+					logger.error("Persistence service '" + service.getName() + "' failed to store item '" + entry.item.getName() + "'", e);
+				}
+				storeLatencies.record((System.nanoTime() - start) / 1000);
+			}
+			return;
+		}
+		List<PersistenceRecord> records = new ArrayList<PersistenceRecord>(batch.size());
+		for(Entry entry : batch) {
+			records.add(new PersistenceRecord(entry.item, entry.alias, new Date(entry.timestamp)));
+		}
+		long start = System.nanoTime();
+		try {
+			((BatchPersistenceService) service).store(records);
+			storedCount.addAndGet(records.size());
+		} catch (RuntimeException e) {
+			failedCount.addAndGet(records.size());
+			logger.error("Persistence service '" + service.getName() + "' failed to store " + records.size() + " items", e);
+		}
+		storeLatencies.record((System.nanoTime() - start) / 1000);
+	}
+	
+	public int getSize() {
+		lock.lock();
+		try {
+			return entries.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+	
+	public long getStoredCount() {
+		return storedCount.get();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	public LatencyHistogram getStoreLatencies() {
+		return storeLatencies;
+	}
+	
+	/**
+	 * An item snapshot waiting for being persisted.
+	 */
+	static class Entry {
+		
+		Item item;
+		
+		final String alias;
+		
+		/** the time at which the entry has been enqueued */
+		long timestamp;
+		
+		Entry(Item item, String alias, long timestamp) {
+			this.item = item;
+			this.alias = alias;
+			this.timestamp = timestamp;
+		}
+		
+		String getKey() {
+			return alias==null ? item.getName() : item.getName() + "/" + alias;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.scriptengine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openhab.core.scriptengine.RuleExecutor.SerializationMode;
+
+/**
+ * @since 1.9.0
+ */
+public class RuleExecutorTest {
+
+	@Test
+	public void testRejectsWhenQueueIsFull() throws InterruptedException {
+		RuleExecutor executor = new RuleExecutor(1, 2, SerializationMode.NONE);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(3);
+
+		assertTrue(executor.execute("blocker", new BlockingRule(started, release, finished)));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertTrue(executor.execute("a", new BlockingRule(null, null, finished)));
+		assertTrue(executor.execute("b", new BlockingRule(null, null, finished)));
+		assertFalse(executor.execute("c", new BlockingRule(null, null, finished)));
+		assertEquals(2, executor.getQueueSize());
+		assertEquals(1, executor.getRejectedCount());
+
+		release.countDown();
+		assertTrue(finished.await(5, TimeUnit.SECONDS));
+		waitUntilIdle(executor);
+		assertEquals(1, executor.getRuleLatencies().get("a").getCount());
+		assertFalse(executor.getRuleLatencies().containsKey("c"));
+	}
+
+	@Test
+	public void testDropsWhileRuleIsRunning() throws InterruptedException {
+		RuleExecutor executor = new RuleExecutor(4, 100, SerializationMode.DROP);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(2);
+
+		assertTrue(executor.execute("rule", new BlockingRule(started, release, finished)));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertFalse(executor.execute("rule", new BlockingRule(null, null, finished)));
+		assertTrue(executor.execute("other", new BlockingRule(null, null, finished)));
+		assertEquals(1, executor.getDroppedCount());
+
+		release.countDown();
+		assertTrue(finished.await(5, TimeUnit.SECONDS));
+		waitUntilIdle(executor);
+		assertTrue(executor.execute("rule", new BlockingRule(null, null, null)));
+	}
+
+	@Test
+	public void testDoesNotDropRulesOfTheSameNameInOtherFiles() throws InterruptedException {
+		RuleExecutor executor = new RuleExecutor(4, 100, SerializationMode.DROP);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(2);
+
+		assertTrue(executor.execute("a.rules#Startup", new BlockingRule(started, release, finished)));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertTrue(executor.execute("b.rules#Startup", new BlockingRule(null, null, finished)));
+		assertEquals(0, executor.getDroppedCount());
+
+		release.countDown();
+		assertTrue(finished.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testQueuesExecutionsOfTheSameRule() throws InterruptedException {
+		RuleExecutor executor = new RuleExecutor(4, 100, SerializationMode.QUEUE);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		final CountDownLatch finished = new CountDownLatch(20);
+
+		for (int i = 0; i < 20; i++) {
+			final int number = i;
+			executor.execute("rule", new Runnable() {
+				public void run() {
+					int current = running.incrementAndGet();
+					maxRunning.set(Math.max(maxRunning.get(), current));
+					try {
+						Thread.sleep(1);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					order.add(number);
+					running.decrementAndGet();
+					finished.countDown();
+				}
+			});
+		}
+
+		assertTrue(finished.await(5, TimeUnit.SECONDS));
+		assertEquals(1, maxRunning.get());
+		for (int i = 0; i < 20; i++) {
+			assertEquals(Integer.valueOf(i), order.get(i));
+		}
+		waitUntilIdle(executor);
+		assertEquals(20, executor.getRuleLatencies().get("rule").getCount());
+	}
+
+	@Test
+	public void testThreadCarriesRuleName() throws InterruptedException {
+		RuleExecutor executor = new RuleExecutor(1, 10, SerializationMode.NONE);
+		final List<String> names = Collections.synchronizedList(new ArrayList<String>());
+		final CountDownLatch finished = new CountDownLatch(1);
+
+		executor.execute("my rule", new Runnable() {
+			public void run() {
+				names.add(Thread.currentThread().getName());
+				throw new IllegalStateException("failing rule");
+			}
+		});
+		executor.execute("next rule", new Runnable() {
+			public void run() {
+				names.add(Thread.currentThread().getName());
+				finished.countDown();
+			}
+		});
+
+		assertTrue(finished.await(5, TimeUnit.SECONDS));
+		assertEquals("my rule", names.get(0));
+		assertEquals("next rule", names.get(1));
+	}
+
+	private static void waitUntilIdle(RuleExecutor executor) throws InterruptedException {
+		for (int i = 0; i < 500 && (executor.getActiveCount() > 0 || executor.getQueueSize() > 0); i++) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static class BlockingRule implements Runnable {
+
+		private final CountDownLatch started;
+		private final CountDownLatch release;
+		private final CountDownLatch finished;
+
+		public BlockingRule(CountDownLatch started, CountDownLatch release, CountDownLatch finished) {
+			this.started = started;
+			this.release = release;
+			this.finished = finished;
+		}
+
+		public void run() {
+			if (started != null) {
+				started.countDown();
+			}
+			try {
+				if (release != null) {
+					release.await(5, TimeUnit.SECONDS);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (finished != null) {
+				finished.countDown();
+			}
+		}
+
+	}
+
+}
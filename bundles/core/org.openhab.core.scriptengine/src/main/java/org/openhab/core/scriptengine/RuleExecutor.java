@@ -0,0 +1,327 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.scriptengine;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.core.events.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes rules in a bounded pool of threads, which is shared by the rule engines. Executions
+ * wait in a queue of limited size while all threads are busy; if the queue is full, further
+ * executions are rejected instead of exhausting the memory or the native threads of the JVM.
+ *
+ * <p>Depending on the {@link SerializationMode}, executions of the same rule may run in parallel,
+ * one after the other, or are dropped while the rule is still running.</p>
+ *
+ * <p>The shared instance is configured through the system properties
+ * <code>openhab.rules.threads</code> (default 10), <code>openhab.rules.queueSize</code>
+ * (default 1000) and <code>openhab.rules.serialization</code> (<code>none</code>,
+ * <code>queue</code> or <code>drop</code>, default <code>none</code>).</p>
+ *
+ * <p>The execution metrics are shown by the <code>metrics</code> console command and the
+ * <code>metrics</code> REST resource together with the event bus metrics.</p>
+ *
+ * @since 1.9.0
+ */
+public class RuleExecutor {
+
+	/**
+	 * Defines how an execution of a rule is handled, while the same rule is still running.
+	 */
+	public enum SerializationMode {
+		/** executions of the same rule run in parallel */
+		NONE,
+		/** executions of the same rule are queued and run one after the other */
+		QUEUE,
+		/** executions of the same rule are dropped while the rule is running */
+		DROP
+	}
+
+	private static final Logger logger = LoggerFactory.getLogger(RuleExecutor.class);
+
+	private static final String THREADS_PROPERTY = "openhab.rules.threads";
+
+	private static final String QUEUE_SIZE_PROPERTY = "openhab.rules.queueSize";
+
+	private static final String SERIALIZATION_PROPERTY = "openhab.rules.serialization";
+
+	private static final int DEFAULT_THREADS = 10;
+
+	private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+	private static RuleExecutor instance;
+
+	private final ThreadPoolExecutor executor;
+
+	private final int queueSize;
+
+	private final SerializationMode serializationMode;
+
+	/** the number of executions that have been accepted, but not been started yet */
+	private final AtomicInteger queuedCount = new AtomicInteger();
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private final ConcurrentMap<String, RuleQueue> ruleQueues = new ConcurrentHashMap<String, RuleQueue>();
+
+	private final ConcurrentMap<String, LatencyHistogram> ruleLatencies = new ConcurrentHashMap<String, LatencyHistogram>();
+
+	/**
+	 * Creates a new executor. Its threads are created on demand and terminate after a minute
+	 * without executions.
+	 *
+	 * @param threads the maximum number of rules which are executed at the same time
+	 * @param queueSize the maximum number of executions which wait for a thread
+	 * @param serializationMode the handling of executions of a rule that is still running
+	 */
+	public RuleExecutor(int threads, int queueSize, SerializationMode serializationMode) {
+		this.queueSize = queueSize;
+		this.serializationMode = serializationMode;
+		executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger threadNumber = new AtomicInteger(1);
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "openHAB-RuleExecutor-" + threadNumber.getAndIncrement());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @return the executor which is shared by the rule engines
+	 */
+	public static synchronized RuleExecutor getInstance() {
+		if (instance == null) {
+			int threads = getIntProperty(THREADS_PROPERTY, DEFAULT_THREADS);
+			int queueSize = getIntProperty(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE);
+			SerializationMode serializationMode = SerializationMode.NONE;
+			String configuredMode = System.getProperty(SERIALIZATION_PROPERTY);
+			if (configuredMode != null) {
+				try {
+					serializationMode = SerializationMode.valueOf(configuredMode.trim().toUpperCase());
+				} catch (IllegalArgumentException e) {
+					logger.warn("Invalid value '{}' for system property '{}' - using '{}'.",
+							new Object[] { configuredMode, SERIALIZATION_PROPERTY, serializationMode });
+				}
+			}
+			logger.debug("Executing rules with {} threads, a queue of {} executions and serialization mode {}",
+					new Object[] { threads, queueSize, serializationMode });
+			instance = new RuleExecutor(threads, queueSize, serializationMode);
+		}
+		return instance;
+	}
+
+	private static int getIntProperty(String name, int defaultValue) {
+		String value = System.getProperty(name);
+		if (value != null) {
+			try {
+				return Math.max(1, Integer.parseInt(value.trim()));
+			} catch (NumberFormatException e) {
+				logger.warn("Invalid value '{}' for system property '{}' - using {}.",
+						new Object[] { value, name, defaultValue });
+			}
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Schedules the execution of a rule. While it is running, the executing thread carries
+	 * the name of the rule.
+	 *
+	 * @param ruleName the name of the rule, which identifies executions of the same rule; as
+	 * rules of different files may have the same name, it should be qualified by the file name,
+	 * e.g. <code>demo.rules#Startup</code>
+	 * @param runnable the execution of the rule
+	 * @return <code>true</code>, if the execution has been accepted, <code>false</code>, if it
+	 * has been rejected because the queue is full or dropped because the rule is running
+	 */
+	public boolean execute(String ruleName, Runnable runnable) {
+		if (queuedCount.incrementAndGet() > queueSize) {
+			queuedCount.decrementAndGet();
+			rejectedCount.incrementAndGet();
+			logger.warn("Rule execution queue is full ({} executions) - rejecting execution of rule '{}'",
+					queueSize, ruleName);
+			return false;
+		}
+		Execution execution = new Execution(ruleName, runnable);
+		if (serializationMode != SerializationMode.NONE) {
+			RuleQueue ruleQueue = getRuleQueue(ruleName);
+			synchronized (ruleQueue) {
+				if (ruleQueue.running) {
+					if (serializationMode == SerializationMode.DROP) {
+						queuedCount.decrementAndGet();
+						droppedCount.incrementAndGet();
+						logger.debug("Rule '{}' is still running - dropping execution", ruleName);
+						return false;
+					}
+					ruleQueue.pending.add(execution);
+					return true;
+				}
+				ruleQueue.running = true;
+			}
+		}
+		executor.execute(execution);
+		return true;
+	}
+
+	private RuleQueue getRuleQueue(String ruleName) {
+		RuleQueue ruleQueue = ruleQueues.get(ruleName);
+		if (ruleQueue == null) {
+			RuleQueue newQueue = new RuleQueue();
+			ruleQueue = ruleQueues.putIfAbsent(ruleName, newQueue);
+			if (ruleQueue == null) {
+				ruleQueue = newQueue;
+			}
+		}
+		return ruleQueue;
+	}
+
+	private LatencyHistogram getRuleLatency(String ruleName) {
+		LatencyHistogram histogram = ruleLatencies.get(ruleName);
+		if (histogram == null) {
+			LatencyHistogram newHistogram = new LatencyHistogram();
+			histogram = ruleLatencies.putIfAbsent(ruleName, newHistogram);
+			if (histogram == null) {
+				histogram = newHistogram;
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Starts the next queued execution of a serialized rule, or marks it as idle.
+	 */
+	private void executeNext(String ruleName) {
+		RuleQueue ruleQueue = getRuleQueue(ruleName);
+		Execution next;
+		synchronized (ruleQueue) {
+			next = ruleQueue.pending.poll();
+			if (next == null) {
+				ruleQueue.running = false;
+			}
+		}
+		if (next != null) {
+			executor.execute(next);
+		}
+	}
+
+	/**
+	 * @return the handling of executions of a rule that is still running
+	 */
+	public SerializationMode getSerializationMode() {
+		return serializationMode;
+	}
+
+	/**
+	 * @return the number of executions which have been accepted, but not been started yet
+	 */
+	public int getQueueSize() {
+		return queuedCount.get();
+	}
+
+	/**
+	 * @return the number of rules which are running at the moment
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	/**
+	 * @return the number of executions which have been rejected because the queue was full
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * @return the number of executions which have been dropped because the rule was running
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return the execution times per rule name, ordered by rule name
+	 */
+	public Map<String, LatencyHistogram> getRuleLatencies() {
+		return Collections.unmodifiableMap(new TreeMap<String, LatencyHistogram>(ruleLatencies));
+	}
+
+	/**
+	 * Discards the execution times and the numbers of rejected and dropped executions.
+	 */
+	public void reset() {
+		rejectedCount.set(0);
+		droppedCount.set(0);
+		ruleLatencies.clear();
+	}
+
+	/**
+	 * The executions of a serialized rule which wait for the running one to finish.
+	 */
+	private static class RuleQueue {
+
+		private boolean running;
+
+		private final Queue<Execution> pending = new LinkedList<Execution>();
+
+	}
+
+	private class Execution implements Runnable {
+
+		private final String ruleName;
+
+		private final Runnable runnable;
+
+		public Execution(String ruleName, Runnable runnable) {
+			this.ruleName = ruleName;
+			this.runnable = runnable;
+		}
+
+		public void run() {
+			queuedCount.decrementAndGet();
+			Thread thread = Thread.currentThread();
+			String threadName = thread.getName();
+			thread.setName(ruleName);
+			long start = System.nanoTime();
+			try {
+				runnable.run();
+			} catch (RuntimeException e) {
+				logger.error("Error during the execution of rule '{}'", ruleName, e);
+			} finally {
+				getRuleLatency(ruleName).record((System.nanoTime() - start) / 1000);
+				thread.setName(threadName);
+				if (serializationMode != SerializationMode.NONE) {
+					executeNext(ruleName);
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.scriptengine;
+
+import org.eclipse.xtext.xbase.interpreter.IEvaluationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class executes a script and logs the errors of the execution, so that it can be
+ * passed to a thread or an executor such as the {@link RuleExecutor}.
+ *
+ * @since 1.9.0
+ */
+@SuppressWarnings("restriction")
+public class ScriptExecutionRunnable implements Runnable {
+
+	// logs under the category of the ScriptExecutionThread, which executed the scripts before
+	static private final Logger logger = LoggerFactory.getLogger(ScriptExecutionThread.class);
+
+	private final String name;
+	private final Script script;
+	private final IEvaluationContext context;
+
+	// the script evaluation result
+	private volatile Object result = null;
+
+	public ScriptExecutionRunnable(String name, Script script, IEvaluationContext context) {
+		this.name = name;
+		this.script = script;
+		this.context = context;
+	}
+
+	public void run() {
+		try {
+			result = script.execute(context);
+		} catch (ScriptExecutionException e) {
+			String msg = e.getCause().getMessage();
+			if (msg==null) {
+				logger.error("Error during the execution of rule '{}'", name, e.getCause());
+			} else {
+				logger.error("Error during the execution of rule '{}': {}", new String[] { name, msg });
+			}
+		}
+	}
+
+	/**
+	 * Returns the script evaluation result (or null, if the script has not been executed yet)
+	 *
+	 * @return the script evaluation result
+	 */
+	public Object getResult() {
+		return result;
+	}
+}
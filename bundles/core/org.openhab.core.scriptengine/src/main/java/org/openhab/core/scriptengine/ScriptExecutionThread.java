@@ -9,8 +9,6 @@
 package org.openhab.core.scriptengine;
 
 import org.eclipse.xtext.xbase.interpreter.IEvaluationContext;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * This class can be used to execute scripts in a separate thread, so that the execution
@@ -23,33 +21,17 @@ import org.slf4j.LoggerFactory;
 @SuppressWarnings("restriction")
 public class ScriptExecutionThread extends Thread {
 
-	static private final Logger logger = LoggerFactory.getLogger(ScriptExecutionThread.class);
-
-	private Script script;
-	private IEvaluationContext context;
-
-	// the script evaluation result
-	private Object result = null;
+	private final ScriptExecutionRunnable runnable;
 	
 	public ScriptExecutionThread(String name, Script script, IEvaluationContext context) {
 		setName(name);
-		this.script = script;
-		this.context = context;
+		this.runnable = new ScriptExecutionRunnable(name, script, context);
 	}
 	
 	@Override
 	public void run() {
 		super.run();
-		try {
-			result = script.execute(context);
-		} catch (ScriptExecutionException e) {
-			String msg = e.getCause().getMessage();
-			if (msg==null) {
-				logger.error("Error during the execution of rule '{}'", getName(), e.getCause());
-			} else {
-				logger.error("Error during the execution of rule '{}': {}", new String[] { getName(), msg });
-			}
-		}
+		runnable.run();
 	}
 
 	/**
@@ -58,6 +40,6 @@ public class ScriptExecutionThread extends Thread {
 	 * @return the script evaluation result
 	 */
 	public Object getResult() {
-		return result;
+		return runnable.getResult();
 	}
 }
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import org.junit.Test;
+import org.openhab.core.internal.events.EventStatistics;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.types.State;
+import org.osgi.service.event.Event;
+
+
+/**
+ * @since 1.9.0
+ */
+public class AbstractEventSubscriberTest {
+
+	@Test
+	public void testRecordsProcessingTime() {
+		EventStatistics.getInstance().reset();
+		AbstractEventSubscriber subscriber = new BindingSubscriber();
+		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+		properties.put("item", "item");
+		properties.put("state", new DecimalType(1));
+
+		subscriber.handleEvent(new Event("openhab/update/item", properties));
+		subscriber.handleEvent(new Event("openhab/update/item", properties));
+
+		LatencyHistogram histogram = EventStatistics.getInstance().getSubscriberLatencies()
+				.get(BindingSubscriber.class.getName());
+		assertEquals(2, histogram.getCount());
+	}
+
+	private static class BindingSubscriber extends AbstractEventSubscriber {
+
+		@Override
+		public void receiveUpdate(String itemName, State newState) {
+		}
+
+	}
+
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+
+/**
+ * @since 1.9.0
+ */
+public class LatencyHistogramTest {
+	
+	@Test
+	public void testRecord() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(50);
+		histogram.record(100);
+		histogram.record(2500);
+		histogram.record(5000000);
+		
+		assertEquals(4, histogram.getCount());
+		assertEquals(5000000, histogram.getMaxTime());
+		assertEquals((50 + 100 + 2500 + 5000000) / 4, histogram.getAverageTime());
+		assertArrayEquals(new long[] { 1, 1, 1, 0, 0, 1 }, histogram.getBucketCounts());
+	}
+	
+	@Test
+	public void testBucketLabels() {
+		assertEquals("<0.1ms", LatencyHistogram.getBucketLabel(0));
+		assertEquals("<10ms", LatencyHistogram.getBucketLabel(2));
+		assertEquals(">=1s", LatencyHistogram.getBucketLabel(5));
+	}
+
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.events.EventSubscriber;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * @since 1.9.0
+ */
+public class EventPublisherImplTest {
+
+	private EventPublisherImpl publisher;
+
+	@Before
+	public void setUp() {
+		System.setProperty("openhab.eventbus.queueSize", "2");
+		publisher = new EventPublisherImpl();
+		publisher.activate();
+		publisher.reset();
+	}
+
+	@After
+	public void tearDown() {
+		publisher.deactivate();
+		System.clearProperty("openhab.eventbus.queueSize");
+	}
+
+	@Test
+	public void testBlocksPosterWhenQueueIsFull() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<State> states = Collections.synchronizedList(new ArrayList<State>());
+		publisher.addEventSubscriber(new BlockingSubscriber(started, release, states));
+
+		publisher.postUpdate("item", new DecimalType(1));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		final CountDownLatch posted = new CountDownLatch(1);
+		Thread poster = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 2; i <= 5; i++) {
+					publisher.postUpdate("item", new DecimalType(i));
+				}
+				posted.countDown();
+			}
+		};
+		poster.start();
+		assertFalse(posted.await(200, TimeUnit.MILLISECONDS));
+		assertEquals(2, publisher.getPendingDeliveries());
+
+		release.countDown();
+		assertTrue(posted.await(5, TimeUnit.SECONDS));
+		waitForDeliveries(states, 5);
+		assertEquals(0, publisher.getDroppedDeliveries());
+		for (int i = 1; i <= 5; i++) {
+			assertEquals(new DecimalType(i), states.get(i - 1));
+		}
+	}
+
+	@Test
+	public void testDropsEventsOnlyForOptionalSubscribers() throws InterruptedException {
+		publisher.deactivate();
+		System.setProperty("openhab.eventbus.overflowPolicy", "drop");
+		try {
+			publisher = new EventPublisherImpl();
+			publisher.activate();
+		} finally {
+			System.clearProperty("openhab.eventbus.overflowPolicy");
+		}
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		List<State> optionalStates = Collections.synchronizedList(new ArrayList<State>());
+		List<State> states = Collections.synchronizedList(new ArrayList<State>());
+		publisher.addOptionalEventSubscriber(new BlockingSubscriber(started, release, optionalStates));
+		publisher.addEventSubscriber(new BlockingSubscriber(null, null, states));
+
+		publisher.postUpdate("item", new DecimalType(1));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		for (int i = 2; i <= 5; i++) {
+			publisher.postUpdate("item", new DecimalType(i));
+		}
+		assertEquals(2, publisher.getDroppedDeliveries());
+
+		release.countDown();
+		waitForDeliveries(states, 5);
+		waitForDeliveries(optionalStates, 3);
+		assertEquals(5, states.size());
+		assertEquals(3, optionalStates.size());
+		assertEquals(5, publisher.getUpdateCount());
+	}
+
+	@Test
+	public void testCreatesEventAdminEventsOnlyForOpenHABHandlers() {
+		EventAdmin eventAdmin = mock(EventAdmin.class);
+		publisher.setEventAdmin(eventAdmin);
+
+		publisher.postUpdate("item", new DecimalType(1));
+		verify(eventAdmin, never()).postEvent(any(Event.class));
+
+		EventHandler otherHandler = mock(EventHandler.class);
+		Map<String, Object> otherTopics = Collections.<String, Object> singletonMap(EventConstants.EVENT_TOPIC,
+				"org/osgi/framework/*");
+		publisher.addEventHandler(otherHandler, otherTopics);
+		publisher.postUpdate("item", new DecimalType(2));
+		verify(eventAdmin, never()).postEvent(any(Event.class));
+
+		EventHandler handler = mock(EventHandler.class);
+		Map<String, Object> topics = Collections.<String, Object> singletonMap(EventConstants.EVENT_TOPIC,
+				new String[] { "openhab/command/*" });
+		publisher.addEventHandler(handler, topics);
+		publisher.postUpdate("item", new DecimalType(3));
+		verify(eventAdmin, times(1)).postEvent(any(Event.class));
+
+		publisher.removeEventHandler(handler, topics);
+		publisher.postUpdate("item", new DecimalType(4));
+		verify(eventAdmin, times(1)).postEvent(any(Event.class));
+	}
+
+	@Test
+	public void testIsOpenHABTopic() {
+		assertTrue(EventPublisherImpl.isOpenHABTopic("*"));
+		assertTrue(EventPublisherImpl.isOpenHABTopic("openhab/*"));
+		assertTrue(EventPublisherImpl.isOpenHABTopic("open*"));
+		assertTrue(EventPublisherImpl.isOpenHABTopic(new String[] { "org/osgi/*", "openhab/update/*" }));
+		assertFalse(EventPublisherImpl.isOpenHABTopic("org/osgi/*"));
+		assertFalse(EventPublisherImpl.isOpenHABTopic(null));
+	}
+
+	private static void waitForDeliveries(List<State> states, int count) throws InterruptedException {
+		for (int i = 0; i < 500 && states.size() < count; i++) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static class BlockingSubscriber implements EventSubscriber {
+
+		private final CountDownLatch started;
+		private final CountDownLatch release;
+		private final List<State> states;
+
+		public BlockingSubscriber(CountDownLatch started, CountDownLatch release, List<State> states) {
+			this.started = started;
+			this.release = release;
+			this.states = states;
+		}
+
+		public void receiveUpdate(String itemName, State newState) {
+			if (started != null) {
+				started.countDown();
+			}
+			try {
+				if (release != null) {
+					release.await(5, TimeUnit.SECONDS);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			states.add(newState);
+		}
+
+		public void receiveCommand(String itemName, Command command) {
+		}
+
+	}
+
+}
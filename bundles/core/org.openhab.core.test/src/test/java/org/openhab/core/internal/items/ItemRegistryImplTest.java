@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.items;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemProvider;
+import org.openhab.core.items.ItemsChangeListener;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+
+
+public class ItemRegistryImplTest {
+	
+	private ItemRegistryImpl registry;
+	
+	private TestItemProvider provider;
+	
+	@Before
+	public void setup() {
+		registry = new ItemRegistryImpl();
+		provider = new TestItemProvider();
+		provider.items.add(new TestItem("Light_Kitchen"));
+		provider.items.add(new TestItem("Light_Hall"));
+		provider.items.add(new TestItem("Temperature"));
+		registry.addItemProvider(provider);
+	}
+
+	@Test
+	public void testGetItem() throws ItemNotFoundException {
+		assertEquals("Light_Hall", registry.getItem("Light_Hall").getName());
+	}
+
+	@Test(expected=ItemNotFoundException.class)
+	public void testGetUnknownItem() throws ItemNotFoundException {
+		registry.getItem("Unknown");
+	}
+
+	@Test
+	public void testIndexFollowsItemChanges() throws ItemNotFoundException {
+		Item item = new TestItem("Humidity");
+		provider.items.add(item);
+		registry.itemAdded(provider, item);
+		assertSame(item, registry.getItem("Humidity"));
+		
+		provider.items.remove(item);
+		registry.itemRemoved(provider, item);
+		assertTrue(registry.getItems("Humidity").isEmpty());
+		
+		provider.items.clear();
+		provider.items.add(new TestItem("Pressure"));
+		registry.allItemsChanged(provider, null);
+		assertTrue(registry.getItems("Temperature").isEmpty());
+		assertEquals("Pressure", registry.getItem("Pressure").getName());
+		
+		registry.removeItemProvider(provider);
+		assertTrue(registry.getItems().isEmpty());
+		assertTrue(registry.getItems("Pressure").isEmpty());
+	}
+
+	@Test
+	public void testDuplicateItemNames() throws ItemNotFoundException {
+		TestItemProvider otherProvider = new TestItemProvider();
+		Item duplicate = new TestItem("Temperature");
+		otherProvider.items.add(duplicate);
+		registry.addItemProvider(otherProvider);
+		
+		registry.removeItemProvider(provider);
+		assertSame(duplicate, registry.getItem("Temperature"));
+	}
+
+	@Test
+	public void testGetItemsByPattern() {
+		assertEquals(2, registry.getItems("Light_*").size());
+		assertEquals(2, registry.getItems("Light_*").size());
+		assertEquals(1, registry.getItems("*Hall").size());
+		assertEquals(1, registry.getItems("Temperature").size());
+		assertEquals(0, registry.getItems("Light").size());
+	}
+
+	@Test
+	public void testGroupMembership() throws ItemNotFoundException {
+		TestItem member = new TestItem("Light_Office");
+		member.getGroupNames().add("Lights");
+		provider.items.add(new GroupItem("Lights"));
+		provider.items.add(member);
+		registry.allItemsChanged(provider, null);
+		
+		GroupItem group = (GroupItem) registry.getItem("Lights");
+		assertEquals(1, group.getMembers().size());
+		assertSame(member, group.getMembers().get(0));
+	}
+	
+	
+	class TestItemProvider implements ItemProvider {
+		
+		List<Item> items = new ArrayList<Item>();
+
+		@Override
+		public Collection<Item> getItems() {
+			return new ArrayList<Item>(items);
+		}
+
+		@Override
+		public void addItemChangeListener(ItemsChangeListener listener) {
+		}
+
+		@Override
+		public void removeItemChangeListener(ItemsChangeListener listener) {
+		}
+		
+	}
+	
+	class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return null;
+		}
+
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return null;
+		}
+		
+	}
+
+}
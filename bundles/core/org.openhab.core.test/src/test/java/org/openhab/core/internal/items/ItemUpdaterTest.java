@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.items;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.internal.events.EventStatistics;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemProvider;
+import org.openhab.core.items.ItemsChangeListener;
+import org.openhab.core.items.StateChangeListener;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.PrimitiveType;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+
+
+public class ItemUpdaterTest {
+	
+	private ItemUpdater itemUpdater;
+	
+	private GroupItem group;
+	
+	@Before
+	public void setup() {
+		final List<Item> items = new ArrayList<Item>();
+		items.add(new TestItem("Text"));
+		group = new GroupItem("Texts");
+		for (int i = 1; i <= 3; i++) {
+			TestItem member = new TestItem("Text" + i);
+			group.addMember(member);
+			items.add(member);
+		}
+		items.add(group);
+		ItemRegistryImpl registry = new ItemRegistryImpl();
+		registry.addItemProvider(new ItemProvider() {
+			public Collection<Item> getItems() {
+				return items;
+			}
+			public void addItemChangeListener(ItemsChangeListener listener) {
+			}
+			public void removeItemChangeListener(ItemsChangeListener listener) {
+			}
+		});
+		itemUpdater = new ItemUpdater();
+		itemUpdater.setItemRegistry(registry);
+		EventStatistics.getInstance().reset();
+	}
+
+	@Test
+	public void testAcceptsSubclassesOfAcceptedTypes() throws ItemNotFoundException {
+		itemUpdater.receiveUpdate("Text", new SpecialTextState("special"));
+		assertEquals(new SpecialTextState("special"), itemUpdater.itemRegistry.getItem("Text").getState());
+		assertNull(EventStatistics.getInstance().getRejectedUpdates().get("Text"));
+	}
+	
+	@Test
+	public void testCountsRejectedUpdates() throws ItemNotFoundException {
+		itemUpdater.receiveUpdate("Text", UnDefType.UNDEF);
+		itemUpdater.receiveUpdate("Text", UnDefType.UNDEF);
+		assertEquals(UnDefType.NULL, itemUpdater.itemRegistry.getItem("Text").getState());
+		assertEquals(Long.valueOf(2), EventStatistics.getInstance().getRejectedUpdates().get("Text"));
+	}
+
+	@Test
+	public void testBatchUpdatesRecalculateGroupsOnce() throws ItemNotFoundException {
+		final List<State> groupStates = new ArrayList<State>();
+		group.addStateChangeListener(new StateChangeListener() {
+			public void stateChanged(Item item, State oldState, State newState) {
+			}
+			public void stateUpdated(Item item, State state) {
+				groupStates.add(state);
+			}
+		});
+		
+		Map<String, State> updates = new LinkedHashMap<String, State>();
+		updates.put("Text1", new TextState("on"));
+		updates.put("Text2", new TextState("on"));
+		updates.put("Text3", new TextState("on"));
+		updates.put("Text", new TextState("other"));
+		itemUpdater.receiveUpdates(updates);
+		
+		assertEquals(new TextState("on"), itemUpdater.itemRegistry.getItem("Text3").getState());
+		assertEquals(new TextState("other"), itemUpdater.itemRegistry.getItem("Text").getState());
+		assertEquals(1, groupStates.size());
+		assertEquals(new TextState("on"), groupStates.get(0));
+	}
+
+	static class TextState implements PrimitiveType, State {
+		
+		private final String value;
+		
+		public TextState(String value) {
+			this.value = value;
+		}
+		
+		public String format(String pattern) {
+			return String.format(pattern, value);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof TextState && value.equals(((TextState) obj).value);
+		}
+		
+		@Override
+		public int hashCode() {
+			return value.hashCode();
+		}
+		
+		@Override
+		public String toString() {
+			return value;
+		}
+		
+	}
+	
+	static class SpecialTextState extends TextState {
+		
+		public SpecialTextState(String value) {
+			super(value);
+		}
+		
+	}
+	
+	class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return Collections.<Class<? extends State>>singletonList(TextState.class);
+		}
+
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return Collections.emptyList();
+		}
+		
+	}
+
+}
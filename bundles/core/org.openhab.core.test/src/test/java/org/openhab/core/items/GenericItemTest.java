@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.items;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+
+/**
+ * @since 1.9.0
+ */
+public class GenericItemTest {
+
+	@Test
+	public void testStateChangeListenerRegistration() {
+		TestItem item = new TestItem("listened");
+		CountingListener listener = new CountingListener();
+		item.addStateChangeListener(listener);
+		item.addStateChangeListener(listener);
+
+		item.setState(UnDefType.NULL);
+		item.setState(UnDefType.UNDEF);
+		assertEquals(1, listener.changes);
+		assertEquals(2, listener.updates);
+
+		item.removeStateChangeListener(listener);
+		item.setState(UnDefType.NULL);
+		assertEquals(1, listener.changes);
+		assertEquals(2, listener.updates);
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testListenerSetView() {
+		TestItem item = new TestItem("listened");
+		CountingListener listener = new CountingListener();
+		CountingListener other = new CountingListener();
+
+		assertTrue(item.listeners.add(listener));
+		assertFalse(item.listeners.add(listener));
+		item.addStateChangeListener(other);
+		assertEquals(2, item.listeners.size());
+		assertTrue(item.listeners.contains(other));
+
+		item.setState(UnDefType.UNDEF);
+		assertEquals(1, listener.changes);
+		assertEquals(1, other.changes);
+
+		Iterator<StateChangeListener> iterator = item.listeners.iterator();
+		assertTrue(iterator.next() == listener);
+		iterator.remove();
+		assertTrue(item.listeners.remove(other));
+		assertFalse(item.listeners.remove(other));
+		assertTrue(item.listeners.isEmpty());
+
+		item.setState(UnDefType.NULL);
+		assertEquals(1, listener.changes);
+		assertEquals(1, other.changes);
+	}
+
+	private static class CountingListener implements StateChangeListener {
+
+		private int changes;
+		private int updates;
+
+		public void stateChanged(Item item, State oldState, State newState) {
+			changes++;
+		}
+
+		public void stateUpdated(Item item, State state) {
+			updates++;
+		}
+	}
+
+	private static class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return null;
+		}
+
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return null;
+		}
+
+	}
+
+}
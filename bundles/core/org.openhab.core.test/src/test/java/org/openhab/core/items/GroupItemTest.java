@@ -27,13 +27,15 @@ public class GroupItemTest {
 	
 	private GroupItem rootGroupItem;
 	
+	private GroupItem subGroup;
+	
 	@Before
 	public void setup() {
 		rootGroupItem = new GroupItem("root");
 		rootGroupItem.addMember(new TestItem("member1"));
 		rootGroupItem.addMember(new TestItem("member2"));
 		rootGroupItem.addMember(new TestItem("member2"));
-		GroupItem subGroup = new GroupItem("subGroup1");
+		subGroup = new GroupItem("subGroup1");
 		subGroup.addMember(new TestItem("subGroup member 1"));
 		subGroup.addMember(new TestItem("subGroup member 2"));
 		subGroup.addMember(new TestItem("subGroup member 3"));
@@ -53,6 +55,28 @@ public class GroupItemTest {
 		}
 	}
 	
+	@Test
+	public void testGetAllMembersAfterNestedChange() {
+		Item newMember = new TestItem("subGroup member 4");
+		Assert.assertEquals(5, rootGroupItem.getAllMembers().size());
+		
+		subGroup.addMember(newMember);
+		Assert.assertEquals(6, rootGroupItem.getAllMembers().size());
+		Assert.assertTrue(rootGroupItem.getAllMembers().contains(newMember));
+		
+		subGroup.removeMember(newMember);
+		Assert.assertEquals(5, rootGroupItem.getAllMembers().size());
+		
+		rootGroupItem.removeMember(subGroup);
+		subGroup.addMember(newMember);
+		Assert.assertEquals(2, rootGroupItem.getAllMembers().size());
+	}
+	
+	@Test(expected=UnsupportedOperationException.class)
+	public void testGetAllMembersIsUnmodifiable() {
+		rootGroupItem.getAllMembers().clear();
+	}
+	
 	
 	class TestItem extends GenericItem {
 
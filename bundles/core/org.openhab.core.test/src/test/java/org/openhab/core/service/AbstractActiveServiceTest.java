@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openhab.core.service.AbstractActiveService.SchedulingMode;
+
+
+/**
+ * @since 1.9.0
+ */
+public class AbstractActiveServiceTest {
+	
+	@Test
+	public void testScheduledExecution() throws InterruptedException {
+		TestService service = new TestService(SchedulingMode.FIXED_RATE, 10, 0);
+		service.setProperlyConfigured(true);
+		assertTrue(service.isRunning());
+		
+		waitForExecutions(service, 3);
+		service.shutdown();
+		assertFalse(service.isRunning());
+		
+		long executions = service.getExecutionCount();
+		Thread.sleep(50);
+		assertEquals(executions, service.getExecutionCount());
+		assertEquals(0, service.getOverrunCount());
+	}
+	
+	@Test
+	public void testOverrunsAreSkipped() throws InterruptedException {
+		TestService service = new TestService(SchedulingMode.FIXED_RATE, 10, 25);
+		service.setProperlyConfigured(true);
+		
+		waitForExecutions(service, 3);
+		service.shutdown();
+		
+		assertTrue(service.getOverrunCount() >= 3);
+		assertTrue(service.getSkippedExecutionCount() >= 3);
+		assertTrue(service.getMaxExecutionTime() >= 25);
+	}
+
+	private void waitForExecutions(TestService service, int executions) throws InterruptedException {
+		long timeout = System.currentTimeMillis() + 5000;
+		while (service.getExecutionCount() < executions && System.currentTimeMillis() < timeout) {
+			Thread.sleep(5);
+		}
+		assertTrue(service.getExecutionCount() >= executions);
+	}
+	
+	class TestService extends AbstractActiveService {
+		
+		private final SchedulingMode mode;
+		private final long refreshInterval;
+		private final long executionTime;
+		
+		public TestService(SchedulingMode mode, long refreshInterval, long executionTime) {
+			this.mode = mode;
+			this.refreshInterval = refreshInterval;
+			this.executionTime = executionTime;
+		}
+
+		@Override
+		protected void execute() {
+			try {
+				Thread.sleep(executionTime);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		protected long getRefreshInterval() {
+			return refreshInterval;
+		}
+
+		@Override
+		protected String getName() {
+			return "Test Service";
+		}
+		
+		@Override
+		protected SchedulingMode getSchedulingMode() {
+			return mode;
+		}
+		
+	}
+
+}
@@ -9,6 +9,7 @@
 package org.openhab.core.binding;
 
 import org.openhab.core.service.AbstractActiveService;
+import org.openhab.core.service.AbstractActiveService.SchedulingMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -127,6 +128,55 @@ public abstract class AbstractActiveBinding<P extends BindingProvider> extends A
 	 */
 	protected abstract String getName();
 	
+	/**
+	 * Returns the way in which the <code>execute</code> method is to be invoked.
+	 * Bindings can override this method to be run by the shared scheduler instead 
+	 * of a dedicated refresh thread. Bindings which do blocking I/O in 
+	 * <code>execute</code> must keep their own thread, as the shared scheduler
+	 * only has a few threads for all services.
+	 * 
+	 * @return the scheduling mode, {@link SchedulingMode#THREAD} by default
+	 */
+	protected SchedulingMode getSchedulingMode() {
+		return SchedulingMode.THREAD;
+	}
+	
+	/**
+	 * @return the number of executions since the binding has been created
+	 */
+	public long getExecutionCount() {
+		return activeService.getExecutionCount();
+	}
+	
+	/**
+	 * @return the average duration of an execution in milliseconds
+	 */
+	public long getAverageExecutionTime() {
+		return activeService.getAverageExecutionTime();
+	}
+	
+	/**
+	 * @return the longest duration of an execution in milliseconds
+	 */
+	public long getMaxExecutionTime() {
+		return activeService.getMaxExecutionTime();
+	}
+	
+	/**
+	 * @return the number of executions which took longer than the refresh interval
+	 */
+	public long getOverrunCount() {
+		return activeService.getOverrunCount();
+	}
+	
+	/**
+	 * @return the number of executions which have been skipped because the previous
+	 * one was still running
+	 */
+	public long getSkippedExecutionCount() {
+		return activeService.getSkippedExecutionCount();
+	}
+	
 	
 	/** private inner class, which delegates method calls to the outer binding instance */
 	private class BindingActiveService extends AbstractActiveService {
@@ -166,6 +216,11 @@ public abstract class AbstractActiveBinding<P extends BindingProvider> extends A
 			return AbstractActiveBinding.this.getName();
 		}
 
+		@Override
+		protected SchedulingMode getSchedulingMode() {
+			return AbstractActiveBinding.this.getSchedulingMode();
+		}
+
 	}
 	
 }
\ No newline at end of file
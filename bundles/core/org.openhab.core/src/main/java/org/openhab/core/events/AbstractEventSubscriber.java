@@ -11,6 +11,7 @@ package org.openhab.core.events;
 import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
 import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
 
+import org.openhab.core.internal.events.EventStatistics;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
 import org.openhab.core.types.EventType;
@@ -19,28 +20,60 @@ import org.osgi.service.event.EventHandler;
 
 abstract public class AbstractEventSubscriber implements EventSubscriber, EventHandler {
 	
+	private static final EventType[] EVENT_TYPES = EventType.values();
+	
 	/**
 	 * {@inheritDoc}
+	 * 
+	 * The time that the subscriber needs to process the event is recorded for the
+	 * {@link EventBusMetrics}.
 	 */
 	public void handleEvent(Event event) {  
-		String itemName = (String) event.getProperty("item");
+		long start = System.nanoTime();
+		try {
+			String itemName = (String) event.getProperty("item");
 		
-		String topic = event.getTopic();
-		String[] topicParts = topic.split(TOPIC_SEPERATOR);
+			String topic = event.getTopic();
+			EventType operation = getOperation(topic);
 		
-		if(!(topicParts.length > 2) || !topicParts[0].equals(TOPIC_PREFIX)) {
-			return; // we have received an event with an invalid topic
+			if(operation==EventType.UPDATE) {
+				State newState = (State) event.getProperty("state");
+				if(newState!=null) receiveUpdate(itemName, newState);
+			}
+			if(operation==EventType.COMMAND) {
+				Command command = (Command) event.getProperty("command");
+				if(command!=null) receiveCommand(itemName, command);
+			}
+		} finally {
+			EventStatistics.getInstance().recordProcessing(this, start);
 		}
-		String operation = topicParts[1];
-		
-		if(operation.equals(EventType.UPDATE.toString())) {
-			State newState = (State) event.getProperty("state");
-			if(newState!=null) receiveUpdate(itemName, newState);
+	}
+	
+	/**
+	 * Determines the operation of an openHAB event from its topic, which has the
+	 * form <code>openhab/&lt;operation&gt;/&lt;item name&gt;</code>. The topic is 
+	 * examined in place, so that no regular expression and no array is needed for
+	 * every single event.
+	 * 
+	 * @param topic the topic of the event
+	 * @return the operation of the event or <code>null</code>, if the topic is not a valid openHAB topic
+	 */
+	public static EventType getOperation(String topic) {
+		int operationStart = TOPIC_PREFIX.length() + TOPIC_SEPERATOR.length();
+		if(topic==null || !topic.startsWith(TOPIC_PREFIX) || !topic.startsWith(TOPIC_SEPERATOR, TOPIC_PREFIX.length())) {
+			return null;
+		}
+		int operationEnd = topic.indexOf(TOPIC_SEPERATOR, operationStart);
+		if(operationEnd < 0 || operationEnd + TOPIC_SEPERATOR.length() >= topic.length()) {
+			return null; // we have received an event with an invalid topic
 		}
-		if(operation.equals(EventType.COMMAND.toString())) {
-			Command command = (Command) event.getProperty("command");
-			if(command!=null) receiveCommand(itemName, command);
+		for(EventType type : EVENT_TYPES) {
+			String operation = type.toString();
+			if(operation.length()==operationEnd-operationStart && topic.startsWith(operation, operationStart)) {
+				return type;
+			}
 		}
+		return null;
 	}
 	
 	/**
@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+import java.util.Map;
+
+import org.openhab.core.types.State;
+
+/**
+ * A BatchEventPublisher is an {@link EventPublisher}, which is able to post several status
+ * updates at once. It is a separate interface, so that existing implementations of the
+ * {@link EventPublisher} remain valid. Callers should check whether the publisher they
+ * have been given implements this interface and otherwise post the updates one by one
+ * through {@link EventPublisher#postUpdate(String, State)}.
+ * 
+ * @since 1.9.0
+ */
+public interface BatchEventPublisher extends EventPublisher {
+
+	/**
+	 * Initiate asynchronous sending of several status updates at once.
+	 * This method returns immediately to the caller.
+	 * 
+	 * Bindings which read many values per cycle should prefer this method over
+	 * calling {@link #postUpdate(String, State)} for every single value, as the
+	 * updates are then passed to the subscribers as a whole.
+	 * 
+	 * @param updates the new states to send by item name
+	 */
+	public void postUpdates(Map<String, State> updates);
+
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+import java.util.Map;
+
+import org.openhab.core.types.State;
+
+/**
+ * A BatchEventSubscriber is an {@link EventSubscriber} of the {@link ItemEventBus}, which
+ * is able to process the state updates posted through {@link BatchEventPublisher#postUpdates(Map)} 
+ * at once. Subscribers which do not implement this interface receive the updates of a batch
+ * one by one through {@link EventSubscriber#receiveUpdate(String, State)}.
+ * 
+ * @since 1.9.0
+ */
+public interface BatchEventSubscriber extends EventSubscriber {
+
+	/**
+	 * Callback method if a batch of state updates was sent on the event bus
+	 * 
+	 * @param updates the new states by item name, in the order in which they have been posted
+	 */
+	public void receiveUpdates(Map<String, State> updates);
+	
+}
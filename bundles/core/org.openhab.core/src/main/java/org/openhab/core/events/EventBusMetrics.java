@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+import java.util.Map;
+
+/**
+ * Provides statistics about the events which are passed through openHAB, so that
+ * bottlenecks and noisy items can be identified. All figures are collected since
+ * the start of openHAB or since the last call of {@link #reset()}.
+ * 
+ * @since 1.9.0
+ */
+public interface EventBusMetrics {
+
+	/**
+	 * @return the time in milliseconds since the epoch, at which the collection of
+	 * the current figures has been started
+	 */
+	long getStartTime();
+	
+	/**
+	 * @return the number of state updates that have been published
+	 */
+	long getUpdateCount();
+	
+	/**
+	 * @return the number of commands that have been published
+	 */
+	long getCommandCount();
+	
+	/**
+	 * @return the number of asynchronous events, which still wait for being delivered
+	 * to the subscribers of the {@link ItemEventBus}
+	 */
+	int getPendingDeliveries();
+	
+	/**
+	 * @return the number of asynchronous events, which have not been delivered to the
+	 * optional subscribers of the {@link ItemEventBus}, because the queue of pending deliveries
+	 * was full and dropping events has been enabled
+	 */
+	long getDroppedDeliveries();
+	
+	/**
+	 * Returns the state updates, which have not been applied to the items, because 
+	 * their type is not accepted by the item. This helps to find misconfigured bindings.
+	 * 
+	 * @return the number of rejected updates per item name
+	 */
+	Map<String, Long> getRejectedUpdates();
+	
+	/**
+	 * Returns the time the subscribers needed to process the events. Subscribers of the
+	 * {@link ItemEventBus} as well as subclasses of {@link AbstractEventSubscriber}, like
+	 * the bindings, which receive the events from the EventAdmin, are covered.
+	 * 
+	 * @return the processing times per subscriber class name
+	 */
+	Map<String, LatencyHistogram> getSubscriberLatencies();
+	
+	/**
+	 * Returns the time between posting an event and its delivery by the EventAdmin.
+	 * An increasing delay indicates that the EventAdmin falls behind with the delivery
+	 * of asynchronous events. The delay is only measured, if the system property 
+	 * <code>openhab.eventbus.measureEventAdminDelay</code> is set to <code>true</code>.
+	 * 
+	 * @return the delivery delays of asynchronous EventAdmin events, which is empty
+	 * if the delay is not measured
+	 */
+	LatencyHistogram getEventAdminDelays();
+	
+	/**
+	 * Returns the items for which the most updates and commands have been published.
+	 * 
+	 * @param count the maximum number of items to return
+	 * @return the number of events per item name, ordered by descending number of events
+	 */
+	Map<String, Long> getTopItems(int count);
+	
+	/**
+	 * Discards all figures and starts collecting them anew.
+	 */
+	void reset();
+	
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+/**
+ * The ItemEventBus delivers commands and status updates directly to registered
+ * {@link EventSubscriber}s, without creating OSGi events and passing them through
+ * the EventAdmin service. It is meant for core subscribers, which are interested
+ * in (nearly) all events on the bus, so that they do not need to decode topics
+ * and event properties for every single event.
+ * 
+ * Commands which are sent synchronously are delivered on the thread of the sender,
+ * everything else is delivered asynchronously by a single dispatcher thread in the
+ * order in which it has been posted. No event is lost for the subscribers: if the
+ * queue of the dispatcher is full, the posting thread waits.
+ * 
+ * Optional subscribers, which can do without some events, get their own dispatcher
+ * thread, so that they cannot hold up the others. Their events are only dropped
+ * while their queue is full, if the system property
+ * <code>openhab.eventbus.overflowPolicy</code> is set to <code>drop</code>.
+ * 
+ * Subscribers which are registered here must not additionally be registered as
+ * an EventAdmin handler for openHAB topics, as they would receive events twice.
+ * 
+ * @since 1.9.0
+ */
+public interface ItemEventBus {
+
+	/**
+	 * Registers a subscriber for the direct delivery of all commands and status updates.
+	 * 
+	 * @param subscriber the subscriber to register
+	 */
+	public void addEventSubscriber(EventSubscriber subscriber);
+
+	/**
+	 * Registers a subscriber for the direct delivery of all commands and status updates,
+	 * which may miss asynchronous events if it cannot keep up with them.
+	 * 
+	 * @param subscriber the subscriber to register
+	 */
+	public void addOptionalEventSubscriber(EventSubscriber subscriber);
+
+	/**
+	 * Unregisters a subscriber, so that it does not receive any further events.
+	 * 
+	 * @param subscriber the subscriber to unregister
+	 */
+	public void removeEventSubscriber(EventSubscriber subscriber);
+
+}
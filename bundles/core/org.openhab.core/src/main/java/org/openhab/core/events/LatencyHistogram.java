@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A simple histogram of durations with fixed, decimal bucket limits. Recording a
+ * duration is lock-free, so that it can be done for every single event.
+ * 
+ * @since 1.9.0
+ */
+public class LatencyHistogram {
+
+	/** the upper limits of the buckets in microseconds; the last bucket has no upper limit */
+	private static final long[] BUCKET_LIMITS = { 100, 1000, 10000, 100000, 1000000 };
+	
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_LIMITS.length + 1);
+	
+	private final AtomicLong count = new AtomicLong();
+	
+	private final AtomicLong totalTime = new AtomicLong();
+	
+	private final AtomicLong maxTime = new AtomicLong();
+	
+	/**
+	 * Records a single duration.
+	 * 
+	 * @param micros the duration in microseconds
+	 */
+	public void record(long micros) {
+		int bucket = 0;
+		while(bucket < BUCKET_LIMITS.length && micros >= BUCKET_LIMITS[bucket]) {
+			bucket++;
+		}
+		buckets.incrementAndGet(bucket);
+		count.incrementAndGet();
+		totalTime.addAndGet(micros);
+		long max = maxTime.get();
+		while(micros > max && !maxTime.compareAndSet(max, micros)) {
+			max = maxTime.get();
+		}
+	}
+	
+	/**
+	 * @return the number of recorded durations
+	 */
+	public long getCount() {
+		return count.get();
+	}
+	
+	/**
+	 * @return the average duration in microseconds
+	 */
+	public long getAverageTime() {
+		long count = this.count.get();
+		return count > 0 ? totalTime.get() / count : 0;
+	}
+	
+	/**
+	 * @return the longest duration in microseconds
+	 */
+	public long getMaxTime() {
+		return maxTime.get();
+	}
+	
+	/**
+	 * Returns the number of durations per bucket. The bucket with index <code>i</code>
+	 * holds the durations below the limit <code>getBucketLimits()[i]</code> (and not
+	 * in a bucket before); the last bucket holds all durations above the last limit. 
+	 * 
+	 * @return the number of recorded durations per bucket
+	 */
+	public long[] getBucketCounts() {
+		long[] counts = new long[buckets.length()];
+		for(int i=0; i<counts.length; i++) {
+			counts[i] = buckets.get(i);
+		}
+		return counts;
+	}
+	
+	/**
+	 * @return the upper limits of the buckets in microseconds
+	 */
+	public static long[] getBucketLimits() {
+		return BUCKET_LIMITS.clone();
+	}
+	
+	/**
+	 * Returns a short label for a bucket, such as <code>&lt;10ms</code>.
+	 * 
+	 * @param bucket the index of the bucket
+	 * @return the label of the bucket
+	 */
+	public static String getBucketLabel(int bucket) {
+		if(bucket < BUCKET_LIMITS.length) {
+			return "<" + formatMicros(BUCKET_LIMITS[bucket]);
+		} else {
+			return ">=" + formatMicros(BUCKET_LIMITS[BUCKET_LIMITS.length - 1]);
+		}
+	}
+	
+	private static String formatMicros(long micros) {
+		if(micros >= 1000000) {
+			return (micros / 1000000) + "s";
+		} else if(micros >= 1000) {
+			return (micros / 1000) + "ms";
+		} else {
+			return (micros / 1000.0) + "ms";
+		}
+	}
+	
+}
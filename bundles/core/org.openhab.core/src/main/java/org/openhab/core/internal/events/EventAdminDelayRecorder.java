@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.events;
+
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * Receives all openHAB events from the EventAdmin and records the time between
+ * posting and delivery in the {@link EventStatistics}. It is only registered by
+ * the {@link EventPublisherImpl}, if the measurement has been enabled, because
+ * any handler for openHAB topics causes the events to be created and passed
+ * through the EventAdmin.
+ *
+ * @since 1.9.0
+ */
+class EventAdminDelayRecorder implements EventHandler {
+
+	private final EventStatistics statistics;
+
+	EventAdminDelayRecorder(EventStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void handleEvent(Event event) {
+		Object postedTime = event.getProperty(EventConstants.TIMESTAMP);
+		if(postedTime instanceof Long) {
+			statistics.recordEventAdminDelay((Long) postedTime);
+		}
+	}
+
+}
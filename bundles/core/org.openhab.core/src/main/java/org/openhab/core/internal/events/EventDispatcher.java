@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.events;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openhab.core.events.BatchEventSubscriber;
+import org.openhab.core.events.EventSubscriber;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers asynchronous events to a set of {@link EventSubscriber}s on a single thread in
+ * the order in which they have been posted.
+ *
+ * The events wait in a ring of preallocated slots, which are reused for every event, so
+ * that posting an event does not create any objects. If all slots are taken, the
+ * {@link OverflowPolicy} decides whether the posting thread waits for a free slot or
+ * whether the event is dropped for the subscribers of this dispatcher.
+ *
+ * @since 1.9.0
+ */
+class EventDispatcher implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(EventDispatcher.class);
+
+	private static final EventSubscriber[] NO_SUBSCRIBERS = new EventSubscriber[0];
+
+	/** what happens to an asynchronous event, if all slots of the dispatcher are taken */
+	enum OverflowPolicy {
+		/** the posting thread waits until the event can be queued */
+		BLOCK,
+		/** the event is not delivered to the subscribers of the dispatcher */
+		DROP
+	}
+
+	private static final int UPDATE = 0;
+	private static final int COMMAND = 1;
+	private static final int BATCH = 2;
+
+	private final String name;
+
+	private final OverflowPolicy overflowPolicy;
+
+	private final EventStatistics statistics;
+
+	private final Slot[] slots;
+
+	/** the index of the oldest queued event */
+	private int head;
+
+	/** the number of queued events */
+	private int count;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	/** the subscribers; the array is replaced on every change, so it can be iterated without locking */
+	private volatile EventSubscriber[] subscribers = NO_SUBSCRIBERS;
+
+	/** the dispatcher thread, or <code>null</code> if there is none */
+	private Thread thread;
+
+	private boolean running;
+
+	/**
+	 * @param name the name of the dispatcher thread
+	 * @param queueSize the maximum number of queued events
+	 * @param overflowPolicy the handling of events which do not fit into the queue
+	 * @param statistics the statistics which record the processing times and dropped events
+	 */
+	EventDispatcher(String name, int queueSize, OverflowPolicy overflowPolicy, EventStatistics statistics) {
+		this.name = name;
+		this.overflowPolicy = overflowPolicy;
+		this.statistics = statistics;
+		slots = new Slot[queueSize];
+		for(int i=0; i<queueSize; i++) {
+			slots[i] = new Slot();
+		}
+	}
+
+	/**
+	 * Starts the dispatcher thread, unless it is running already.
+	 */
+	void start() {
+		lock.lock();
+		try {
+			running = true;
+			if(thread==null) {
+				// a thread which is still delivering the events after a shutdown just carries on
+				thread = new Thread(this, name);
+				thread.setDaemon(true);
+				thread.start();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the dispatcher thread after it has delivered the queued events. Threads waiting
+	 * for a free slot deliver their events themselves.
+	 */
+	void shutdown() {
+		lock.lock();
+		try {
+			running = false;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	synchronized void addSubscriber(EventSubscriber subscriber) {
+		for(EventSubscriber existing : subscribers) {
+			if(existing==subscriber) {
+				return;
+			}
+		}
+		EventSubscriber[] newSubscribers = Arrays.copyOf(subscribers, subscribers.length + 1);
+		newSubscribers[subscribers.length] = subscriber;
+		subscribers = newSubscribers;
+	}
+
+	synchronized void removeSubscriber(EventSubscriber subscriber) {
+		for(int i=0; i<subscribers.length; i++) {
+			if(subscribers[i]==subscriber) {
+				EventSubscriber[] newSubscribers = new EventSubscriber[subscribers.length - 1];
+				System.arraycopy(subscribers, 0, newSubscribers, 0, i);
+				System.arraycopy(subscribers, i + 1, newSubscribers, i, subscribers.length - i - 1);
+				subscribers = newSubscribers;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code>, if there are subscribers which receive the events of this dispatcher
+	 */
+	boolean hasSubscribers() {
+		return subscribers.length > 0;
+	}
+
+	/**
+	 * @return the number of queued events
+	 */
+	int getPendingDeliveries() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void postUpdate(String itemName, State newState) {
+		post(UPDATE, itemName, newState, null);
+	}
+
+	void postCommand(String itemName, Command command) {
+		post(COMMAND, itemName, command, null);
+	}
+
+	void postUpdates(Map<String, State> updates) {
+		post(BATCH, null, null, updates);
+	}
+
+	private void post(int type, String itemName, Object value, Map<String, State> updates) {
+		lock.lock();
+		try {
+			while(count==slots.length) {
+				if(!running || Thread.currentThread()==thread) {
+					// nobody would free a slot, so the event is delivered right away
+					break;
+				}
+				if(overflowPolicy==OverflowPolicy.DROP) {
+					long dropped = statistics.countDroppedDelivery();
+					if(dropped==1 || dropped % 1000==0) {
+						logger.warn("Event dispatcher queue is full, {} events have been dropped for optional subscribers so far.", dropped);
+					}
+					return;
+				}
+				try {
+					notFull.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			if(count < slots.length && running) {
+				slots[(head + count) % slots.length].set(type, itemName, value, updates);
+				count++;
+				notEmpty.signal();
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+		deliver(type, itemName, value, updates);
+	}
+
+	/**
+	 * Takes the queued events one after the other and delivers them.
+	 */
+	public void run() {
+		while(true) {
+			int type;
+			String itemName;
+			Object value;
+			Map<String, State> updates;
+			lock.lock();
+			try {
+				while(count==0 && running) {
+					notEmpty.awaitUninterruptibly();
+				}
+				if(count==0) {
+					thread = null;
+					return;
+				}
+				Slot slot = slots[head];
+				type = slot.type;
+				itemName = slot.itemName;
+				value = slot.value;
+				updates = slot.updates;
+				slot.set(UPDATE, null, null, null);
+				head = (head + 1) % slots.length;
+				count--;
+				notFull.signal();
+			} finally {
+				lock.unlock();
+			}
+			deliver(type, itemName, value, updates);
+		}
+	}
+
+	private void deliver(int type, String itemName, Object value, Map<String, State> updates) {
+		switch(type) {
+			case COMMAND: deliverCommand(itemName, (Command) value); break;
+			case BATCH: deliverUpdates(updates); break;
+			default: deliverUpdate(itemName, (State) value);
+		}
+	}
+
+	/**
+	 * Delivers a command to all subscribers on the calling thread.
+	 */
+	void deliverCommand(String itemName, Command command) {
+		for(EventSubscriber subscriber : subscribers) {
+			long start = System.nanoTime();
+			try {
+				subscriber.receiveCommand(itemName, command);
+			} catch (RuntimeException e) {
+				logger.error("Subscriber '" + subscriber.getClass().getName() +
+						"' failed to process command for item '" + itemName + "'", e);
+			}
+			statistics.recordProcessing(subscriber, start);
+		}
+	}
+
+	private void deliverUpdate(String itemName, State newState) {
+		for(EventSubscriber subscriber : subscribers) {
+			long start = System.nanoTime();
+			try {
+				subscriber.receiveUpdate(itemName, newState);
+			} catch (RuntimeException e) {
+				logger.error("Subscriber '" + subscriber.getClass().getName() +
+						"' failed to process update for item '" + itemName + "'", e);
+			}
+			statistics.recordProcessing(subscriber, start);
+		}
+	}
+
+	private void deliverUpdates(Map<String, State> updates) {
+		for(EventSubscriber subscriber : subscribers) {
+			long start = System.nanoTime();
+			try {
+				if(subscriber instanceof BatchEventSubscriber) {
+					((BatchEventSubscriber) subscriber).receiveUpdates(updates);
+				} else {
+					for(Map.Entry<String, State> update : updates.entrySet()) {
+						subscriber.receiveUpdate(update.getKey(), update.getValue());
+					}
+				}
+			} catch (RuntimeException e) {
+				logger.error("Subscriber '" + subscriber.getClass().getName() +
+						"' failed to process a batch of " + updates.size() + " updates", e);
+			}
+			statistics.recordProcessing(subscriber, start);
+		}
+	}
+
+	/**
+	 * A reusable place for a queued event.
+	 */
+	private static class Slot {
+		int type;
+		String itemName;
+		Object value;
+		Map<String, State> updates;
+
+		void set(int type, String itemName, Object value, Map<String, State> updates) {
+			this.type = type;
+			this.itemName = itemName;
+			this.value = value;
+			this.updates = updates;
+		}
+	}
+
+}
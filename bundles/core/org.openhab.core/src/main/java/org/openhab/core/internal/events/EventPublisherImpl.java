@@ -11,15 +11,32 @@ package org.openhab.core.internal.events;
 import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
 import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Dictionary;
+import java.util.Collections;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.openhab.core.events.BatchEventPublisher;
+import org.openhab.core.events.EventBusMetrics;
 import org.openhab.core.events.EventPublisher;
+import org.openhab.core.events.EventSubscriber;
+import org.openhab.core.events.ItemEventBus;
+import org.openhab.core.events.LatencyHistogram;
+import org.openhab.core.internal.events.EventDispatcher.OverflowPolicy;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.EventType;
 import org.openhab.core.types.State;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.component.ComponentContext;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,16 +45,110 @@ import org.slf4j.LoggerFactory;
  * Through it, openHAB events can be sent to the OSGi EventAdmin service
  * in order to broadcast them.
  * 
+ * It also implements the {@link ItemEventBus}, which delivers the events 
+ * directly to the registered core subscribers. Asynchronous events are
+ * passed to them by a single dispatcher thread. Its queue is bounded by the
+ * system property <code>openhab.eventbus.queueSize</code> (default 10000);
+ * if it is full, the posting thread waits, so that no event is lost. Optional
+ * subscribers are served by a second dispatcher thread with a queue of the same
+ * size. The system property <code>openhab.eventbus.overflowPolicy</code> decides
+ * whether the posting thread waits for it as well (<code>block</code>, the default)
+ * or the event is dropped for the optional subscribers (<code>drop</code>).
+ * 
+ * Events for the EventAdmin are only created while there are event handlers
+ * registered for openHAB topics.
+ * 
+ * Finally, it provides the {@link EventBusMetrics} about all events, which 
+ * are collected by the {@link EventStatistics}. The processing times are measured
+ * for the subscribers of the item event bus and for the subclasses of 
+ * {@link org.openhab.core.events.AbstractEventSubscriber}. The delivery delay of the EventAdmin
+ * is only measured, if the system property <code>openhab.eventbus.measureEventAdminDelay</code>
+ * is set to <code>true</code>, as this requires every posted event to be timestamped
+ * and received by an additional event handler.
+ * 
  * @author Kai Kreuzer
  *
  */
-public class EventPublisherImpl implements EventPublisher {
+public class EventPublisherImpl implements BatchEventPublisher, ItemEventBus, EventBusMetrics {
 
 	private static final Logger logger = 
 		LoggerFactory.getLogger(EventPublisherImpl.class);
 		
+	private static final String QUEUE_SIZE_PROPERTY = "openhab.eventbus.queueSize";
+	
+	private static final String OVERFLOW_POLICY_PROPERTY = "openhab.eventbus.overflowPolicy";
+	
+	private static final int DEFAULT_QUEUE_SIZE = 10000;
+	
+	private static final String MEASURE_EVENTADMIN_DELAY_PROPERTY = "openhab.eventbus.measureEventAdminDelay";
+	
 	private EventAdmin eventAdmin;
 	
+	/** the number of registered event handlers which receive openHAB events from the EventAdmin */
+	private final AtomicInteger eventHandlerCount = new AtomicInteger();
+	
+	/** the dispatcher of the subscribers of the item event bus, which do not miss any events */
+	private final EventDispatcher dispatcher;
+	
+	/** the dispatcher of the optional subscribers of the item event bus */
+	private final EventDispatcher optionalDispatcher;
+	
+	/** whether asynchronous events are passed to the dispatchers */
+	private volatile boolean active;
+	
+	private final EventStatistics statistics = EventStatistics.getInstance();
+	
+	/** the registration of the handler which measures the EventAdmin delay, or <code>null</code> if it is not measured */
+	private ServiceRegistration<?> delayRecorderRegistration;
+	
+	/** whether posted events carry a timestamp to measure the EventAdmin delay */
+	private volatile boolean timestamping;
+	
+	/** the topics are cached per item, so that they do not need to be created for every single event */
+	private final Map<String, String> updateTopics = new ConcurrentHashMap<String, String>();
+	private final Map<String, String> commandTopics = new ConcurrentHashMap<String, String>();
+	
+	
+	public EventPublisherImpl() {
+		int queueSize = getQueueSize();
+		dispatcher = new EventDispatcher("openHAB-EventDispatcher", queueSize, OverflowPolicy.BLOCK, statistics);
+		optionalDispatcher = new EventDispatcher("openHAB-OptionalEventDispatcher", queueSize, 
+				getOverflowPolicy(), statistics);
+	}
+	
+	public void activate(ComponentContext componentContext) {
+		activate();
+		if(Boolean.getBoolean(MEASURE_EVENTADMIN_DELAY_PROPERTY)) {
+			Dictionary<String, Object> properties = new Hashtable<String, Object>();
+			properties.put(EventConstants.EVENT_TOPIC, TOPIC_PREFIX + TOPIC_SEPERATOR + "*");
+			delayRecorderRegistration = componentContext.getBundleContext().registerService(
+					EventHandler.class.getName(), new EventAdminDelayRecorder(statistics), properties);
+			timestamping = true;
+		}
+	}
+	
+	public void deactivate(ComponentContext componentContext) {
+		timestamping = false;
+		if(delayRecorderRegistration!=null) {
+			delayRecorderRegistration.unregister();
+			delayRecorderRegistration = null;
+		}
+		deactivate();
+	}
+	
+	public void activate() {
+		dispatcher.start();
+		optionalDispatcher.start();
+		active = true;
+	}
+	
+	public void deactivate() {
+		active = false;
+		dispatcher.shutdown();
+		optionalDispatcher.shutdown();
+		updateTopics.clear();
+		commandTopics.clear();
+	}
 	
 	public void setEventAdmin(EventAdmin eventAdmin) {
 		this.eventAdmin = eventAdmin;
@@ -47,13 +158,82 @@ public class EventPublisherImpl implements EventPublisher {
 		this.eventAdmin = null;
 	}
 	
+	public void addEventHandler(EventHandler eventHandler, Map<String, Object> properties) {
+		if(isOpenHABTopic(properties.get(EventConstants.EVENT_TOPIC))) {
+			eventHandlerCount.incrementAndGet();
+		}
+	}
+	
+	public void removeEventHandler(EventHandler eventHandler, Map<String, Object> properties) {
+		if(isOpenHABTopic(properties.get(EventConstants.EVENT_TOPIC))) {
+			eventHandlerCount.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * Checks whether an event handler with the given topics receives openHAB events.
+	 * 
+	 * @param topics the value of the {@link EventConstants#EVENT_TOPIC} property of the handler
+	 * @return <code>true</code>, if any of the topics matches openHAB events
+	 */
+	static boolean isOpenHABTopic(Object topics) {
+		if(topics instanceof String) {
+			String topic = (String) topics;
+			return topic.equals("*") || topic.startsWith(TOPIC_PREFIX) 
+					|| (topic.endsWith("*") && TOPIC_PREFIX.startsWith(topic.substring(0, topic.length() - 1)));
+		}
+		if(topics instanceof String[]) {
+			topics = Arrays.asList((String[]) topics);
+		}
+		if(topics instanceof Collection) {
+			for(Object topic : (Collection<?>) topics) {
+				if(isOpenHABTopic(topic)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @return the EventAdmin, if there are event handlers which receive openHAB events, otherwise <code>null</code>
+	 */
+	private EventAdmin getEventAdmin() {
+		return eventHandlerCount.get() > 0 ? eventAdmin : null;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void addEventSubscriber(EventSubscriber subscriber) {
+		dispatcher.addSubscriber(subscriber);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void addOptionalEventSubscriber(EventSubscriber subscriber) {
+		optionalDispatcher.addSubscriber(subscriber);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void removeEventSubscriber(EventSubscriber subscriber) {
+		dispatcher.removeSubscriber(subscriber);
+		optionalDispatcher.removeSubscriber(subscriber);
+	}
 
 	/* (non-Javadoc)
 	 * @see org.openhab.core.internal.events.EventPublisher#sendCommand(org.openhab.core.items.GenericItem, org.openhab.core.datatypes.DataType)
 	 */
 	public void sendCommand(String itemName, Command command) {
 		if (command != null) {
-			if(eventAdmin!=null) eventAdmin.sendEvent(createCommandEvent(itemName, command));
+			statistics.countCommand(itemName);
+			dispatcher.deliverCommand(itemName, command);
+			optionalDispatcher.deliverCommand(itemName, command);
+			EventAdmin eventAdmin = getEventAdmin();
+			if(eventAdmin!=null) eventAdmin.sendEvent(createCommandEvent(itemName, command, false));
 		} else {
 			logger.warn("given command is NULL, couldn't send command to '{}'", itemName);
 		}
@@ -64,7 +244,13 @@ public class EventPublisherImpl implements EventPublisher {
 	 */
 	public void postCommand(String itemName, Command command) {
 		if (command != null) {
-			if(eventAdmin!=null) eventAdmin.postEvent(createCommandEvent(itemName, command));
+			statistics.countCommand(itemName);
+			if(active) {
+				if(dispatcher.hasSubscribers()) dispatcher.postCommand(itemName, command);
+				if(optionalDispatcher.hasSubscribers()) optionalDispatcher.postCommand(itemName, command);
+			}
+			EventAdmin eventAdmin = getEventAdmin();
+			if(eventAdmin!=null) eventAdmin.postEvent(createCommandEvent(itemName, command, true));
 		} else {
 			logger.warn("given command is NULL, couldn't post command to '{}'", itemName);
 		}
@@ -75,29 +261,176 @@ public class EventPublisherImpl implements EventPublisher {
 	 */
 	public void postUpdate(String itemName, State newState) {
 		if (newState != null) {
-			if(eventAdmin!=null) eventAdmin.postEvent(createUpdateEvent(itemName, newState));
+			statistics.countUpdate(itemName);
+			if(active) {
+				if(dispatcher.hasSubscribers()) dispatcher.postUpdate(itemName, newState);
+				if(optionalDispatcher.hasSubscribers()) optionalDispatcher.postUpdate(itemName, newState);
+			}
+			EventAdmin eventAdmin = getEventAdmin();
+			if(eventAdmin!=null) eventAdmin.postEvent(createUpdateEvent(itemName, newState, true));
 		} else {
 			logger.warn("given new state is NULL, couldn't post update for '{}'", itemName);
 		}
 	}
 	
-	private Event createUpdateEvent(String itemName, State newState) {
-		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The subscribers of the item event bus receive the updates in a single delivery. 
+	 * The EventAdmin still receives an event per update, as its handlers expect the
+	 * events of single items.
+	 */
+	public void postUpdates(Map<String, State> updates) {
+		if (updates != null && !updates.isEmpty()) {
+			Map<String, State> batch = new LinkedHashMap<String, State>(updates.size() * 4 / 3 + 1);
+			for (Map.Entry<String, State> update : updates.entrySet()) {
+				if (update.getValue() != null) {
+					batch.put(update.getKey(), update.getValue());
+					statistics.countUpdate(update.getKey());
+				} else {
+					logger.warn("given new state is NULL, couldn't post update for '{}'", update.getKey());
+				}
+			}
+			if(active) {
+				Map<String, State> unmodifiableBatch = Collections.unmodifiableMap(batch);
+				if(dispatcher.hasSubscribers()) dispatcher.postUpdates(unmodifiableBatch);
+				if(optionalDispatcher.hasSubscribers()) optionalDispatcher.postUpdates(unmodifiableBatch);
+			}
+			EventAdmin eventAdmin = getEventAdmin();
+			if(eventAdmin!=null) {
+				for (Map.Entry<String, State> update : batch.entrySet()) {
+					eventAdmin.postEvent(createUpdateEvent(update.getKey(), update.getValue(), true));
+				}
+			}
+		}
+	}
+	
+	private Event createUpdateEvent(String itemName, State newState, boolean posted) {
+		Dictionary<String, Object> properties = new Hashtable<String, Object>(4);
 		properties.put("item", itemName);
 		properties.put("state", newState);
-		return new Event(createTopic(EventType.UPDATE, itemName), properties);
+		if(posted && timestamping) properties.put(EventConstants.TIMESTAMP, System.currentTimeMillis());
+		return new Event(getTopic(updateTopics, EventType.UPDATE, itemName), properties);
 	}
 
-	private Event createCommandEvent(String itemName, Command command) {
-		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+	private Event createCommandEvent(String itemName, Command command, boolean posted) {
+		Dictionary<String, Object> properties = new Hashtable<String, Object>(4);
 		properties.put("item", itemName);
 		properties.put("command", command);
-		return new Event(createTopic(EventType.COMMAND, itemName) , properties);
+		if(posted && timestamping) properties.put(EventConstants.TIMESTAMP, System.currentTimeMillis());
+		return new Event(getTopic(commandTopics, EventType.COMMAND, itemName) , properties);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getStartTime() {
+		return statistics.getStartTime();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getUpdateCount() {
+		return statistics.getUpdateCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getCommandCount() {
+		return statistics.getCommandCount();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getPendingDeliveries() {
+		return dispatcher.getPendingDeliveries() + optionalDispatcher.getPendingDeliveries();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getDroppedDeliveries() {
+		return statistics.getDroppedDeliveries();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<String, Long> getRejectedUpdates() {
+		return statistics.getRejectedUpdates();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<String, LatencyHistogram> getSubscriberLatencies() {
+		return statistics.getSubscriberLatencies();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public LatencyHistogram getEventAdminDelays() {
+		return statistics.getEventAdminDelays();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<String, Long> getTopItems(int count) {
+		return statistics.getTopItems(count);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void reset() {
+		statistics.reset();
+	}
+
+	private static int getQueueSize() {
+		String value = System.getProperty(QUEUE_SIZE_PROPERTY);
+		if(value!=null) {
+			try {
+				return Math.max(1, Integer.parseInt(value.trim()));
+			} catch (NumberFormatException e) {
+				logger.warn("Invalid value '{}' for system property '{}' - using {}.", 
+						new Object[] { value, QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE });
+			}
+		}
+		return DEFAULT_QUEUE_SIZE;
+	}
+	
+	private static OverflowPolicy getOverflowPolicy() {
+		String value = System.getProperty(OVERFLOW_POLICY_PROPERTY);
+		if(value!=null) {
+			try {
+				return OverflowPolicy.valueOf(value.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				logger.warn("Invalid value '{}' for system property '{}' - using '{}'.", 
+						new Object[] { value, OVERFLOW_POLICY_PROPERTY, OverflowPolicy.BLOCK });
+			}
+		}
+		return OverflowPolicy.BLOCK;
+	}
+
+	private String getTopic(Map<String, String> topics, EventType type, String itemName) {
+		if(itemName==null) {
+			return createTopic(type, itemName);
+		}
+		String topic = topics.get(itemName);
+		if(topic==null) {
+			topic = createTopic(type, itemName);
+			topics.put(itemName, topic);
+		}
+		return topic;
 	}
 
 	private String createTopic(EventType type, String itemName) {
 		return TOPIC_PREFIX + TOPIC_SEPERATOR + type + TOPIC_SEPERATOR + itemName;
 	}
 	
-	
 }
@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.events;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.core.events.EventBusMetrics;
+import org.openhab.core.events.LatencyHistogram;
+
+/**
+ * Collects the figures which are provided through the {@link EventBusMetrics} service.
+ * There is only a single instance, as the figures are recorded by the event publisher
+ * as well as by internal components like the item updater, which survive restarts of
+ * the event publisher.
+ * 
+ * @since 1.9.0
+ */
+public final class EventStatistics {
+	
+	private static final EventStatistics INSTANCE = new EventStatistics();
+	
+	private volatile Figures figures = new Figures();
+	
+	private EventStatistics() {
+	}
+	
+	public static EventStatistics getInstance() {
+		return INSTANCE;
+	}
+	
+	public void countUpdate(String itemName) {
+		Figures figures = this.figures;
+		figures.updates.incrementAndGet();
+		countItemEvent(figures, itemName);
+	}
+	
+	public void countCommand(String itemName) {
+		Figures figures = this.figures;
+		figures.commands.incrementAndGet();
+		countItemEvent(figures, itemName);
+	}
+	
+	private void countItemEvent(Figures figures, String itemName) {
+		if(itemName==null) {
+			return;
+		}
+		count(figures.itemEvents, itemName);
+	}
+	
+	/**
+	 * Counts a state update which has not been applied, because its type is not accepted by the item.
+	 * 
+	 * @param itemName the name of the item
+	 */
+	public void countRejectedUpdate(String itemName) {
+		count(figures.rejectedUpdates, itemName);
+	}
+	
+	private static void count(ConcurrentMap<String, AtomicLong> counters, String itemName) {
+		AtomicLong counter = counters.get(itemName);
+		if(counter==null) {
+			counter = new AtomicLong();
+			AtomicLong existing = counters.putIfAbsent(itemName, counter);
+			if(existing!=null) {
+				counter = existing;
+			}
+		}
+		counter.incrementAndGet();
+	}
+	
+	/**
+	 * Counts an asynchronous event which has been dropped, because the queue of the dispatcher was full.
+	 * 
+	 * @return the number of dropped events
+	 */
+	public long countDroppedDelivery() {
+		return figures.droppedDeliveries.incrementAndGet();
+	}
+	
+	/**
+	 * Records the time a subscriber needed to process an event.
+	 * 
+	 * @param subscriber the subscriber
+	 * @param startNanos the value of {@link System#nanoTime()} before the subscriber has been called
+	 */
+	public void recordProcessing(Object subscriber, long startNanos) {
+		long micros = (System.nanoTime() - startNanos) / 1000;
+		String name = subscriber.getClass().getName();
+		ConcurrentMap<String, LatencyHistogram> latencies = figures.subscriberLatencies;
+		LatencyHistogram histogram = latencies.get(name);
+		if(histogram==null) {
+			histogram = new LatencyHistogram();
+			LatencyHistogram existing = latencies.putIfAbsent(name, histogram);
+			if(existing!=null) {
+				histogram = existing;
+			}
+		}
+		histogram.record(micros);
+	}
+	
+	/**
+	 * Records the time between posting an event to the EventAdmin and its arrival.
+	 * 
+	 * @param postedMillis the time in milliseconds at which the event has been posted
+	 */
+	public void recordEventAdminDelay(long postedMillis) {
+		figures.eventAdminDelays.record(Math.max(0, System.currentTimeMillis() - postedMillis) * 1000);
+	}
+	
+	public long getStartTime() {
+		return figures.startTime;
+	}
+	
+	public long getUpdateCount() {
+		return figures.updates.get();
+	}
+
+	public long getCommandCount() {
+		return figures.commands.get();
+	}
+	
+	public long getDroppedDeliveries() {
+		return figures.droppedDeliveries.get();
+	}
+	
+	public Map<String, Long> getRejectedUpdates() {
+		Map<String, Long> counts = new HashMap<String, Long>();
+		for(Map.Entry<String, AtomicLong> entry : figures.rejectedUpdates.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().get());
+		}
+		return counts;
+	}
+	
+	public Map<String, LatencyHistogram> getSubscriberLatencies() {
+		return new HashMap<String, LatencyHistogram>(figures.subscriberLatencies);
+	}
+	
+	public LatencyHistogram getEventAdminDelays() {
+		return figures.eventAdminDelays;
+	}
+	
+	public Map<String, Long> getTopItems(int count) {
+		List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>();
+		for(Map.Entry<String, AtomicLong> entry : figures.itemEvents.entrySet()) {
+			entries.add(new AbstractMap.SimpleImmutableEntry<String, Long>(entry.getKey(), entry.getValue().get()));
+		}
+		Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+			public int compare(Map.Entry<String, Long> entry1, Map.Entry<String, Long> entry2) {
+				return entry2.getValue().compareTo(entry1.getValue());
+			}
+		});
+		Map<String, Long> topItems = new LinkedHashMap<String, Long>();
+		for(Map.Entry<String, Long> entry : entries) {
+			if(topItems.size() >= count) {
+				break;
+			}
+			topItems.put(entry.getKey(), entry.getValue());
+		}
+		return topItems;
+	}
+	
+	public void reset() {
+		figures = new Figures();
+	}
+	
+	/**
+	 * The figures collected since a certain point of time; they are replaced as a whole on reset.
+	 */
+	private static class Figures {
+		final long startTime = System.currentTimeMillis();
+		final AtomicLong updates = new AtomicLong();
+		final AtomicLong commands = new AtomicLong();
+		final AtomicLong droppedDeliveries = new AtomicLong();
+		final ConcurrentMap<String, AtomicLong> itemEvents = new ConcurrentHashMap<String, AtomicLong>();
+		final ConcurrentMap<String, AtomicLong> rejectedUpdates = new ConcurrentHashMap<String, AtomicLong>();
+		final ConcurrentMap<String, LatencyHistogram> subscriberLatencies = new ConcurrentHashMap<String, LatencyHistogram>();
+		final LatencyHistogram eventAdminDelays = new LatencyHistogram();
+	}
+	
+}
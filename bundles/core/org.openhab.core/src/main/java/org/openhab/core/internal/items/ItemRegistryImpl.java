@@ -10,11 +10,18 @@ package org.openhab.core.internal.items;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.regex.Pattern;
 
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.items.GenericItem;
@@ -44,12 +51,26 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	
 	private static final Logger logger = LoggerFactory.getLogger(ItemRegistryImpl.class);
 
+	private static final Pattern VALID_ITEM_NAME_PATTERN = Pattern.compile("[a-zA-Z0-9_]*");
+	
+	/** the maximum number of compiled search patterns that are kept in the pattern cache */
+	private static final int MAX_CACHED_PATTERNS = 100;
+
 	/** if an EventPublisher service is available, we provide it to all items, so that they can communicate over the bus */
 	protected EventPublisher eventPublisher;
 	
 	/** this is our local map in which we store all our items */
 	protected Map<ItemProvider, Collection<Item>> itemMap = new ConcurrentHashMap<ItemProvider, Collection<Item>>();
 	
+	/** an index of all items by their name, kept in sync with the itemMap for fast lookups */
+	protected ConcurrentMap<String, Item> itemsByName = new ConcurrentHashMap<String, Item>();
+	
+	/** the names of items that are provided more than once, only the first of them is kept in the index */
+	protected Set<String> duplicateItemNames = new CopyOnWriteArraySet<String>();
+	
+	/** caches the compiled regular expressions of the search patterns passed to {@link #getItems(String)} */
+	protected Map<String, Pattern> compiledPatterns = new ConcurrentHashMap<String, Pattern>();
+	
 	/** to keep track of all item change listeners */
 	protected Collection<ItemRegistryChangeListener> listeners = new CopyOnWriteArraySet<ItemRegistryChangeListener>();
 
@@ -63,6 +84,9 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		}
 		// then release all items
 		itemMap.clear();
+		itemsByName.clear();
+		duplicateItemNames.clear();
+		compiledPatterns.clear();
     }
 
 	/* (non-Javadoc)
@@ -70,14 +94,11 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	 */
     @Override
 	public Item getItem(String name) throws ItemNotFoundException {
-		for(Collection<Item> items : itemMap.values()) {
-			for(Item item : items) {
-				if(item.getName().equals(name)) {
-					return item;
-				}
-			}
+		Item item = name!=null ? itemsByName.get(name) : null;
+		if(item==null) {
+			throw new ItemNotFoundException(name);
 		}
-		throw new ItemNotFoundException(name);
+		return item;
 	}
 
 	/* (non-Javadoc)
@@ -116,17 +137,45 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	 */
     @Override
 	public Collection<Item> getItems(String pattern) {
-		String regex = pattern.replace("?", ".?").replace("*", ".*?");
 		Collection<Item> matchedItems = new ArrayList<Item>();
+		if(isValidItemName(pattern)) {
+			// the pattern does not contain any wildcards, so a simple lookup is sufficient
+			Item item = itemsByName.get(pattern);
+			if(item!=null) {
+				matchedItems.add(item);
+			}
+			return matchedItems;
+		}
+		Pattern regex = getCompiledPattern(pattern);
 		for(Collection<Item> items : itemMap.values()) {
 			for(Item item : items) {
-				if(item.getName().matches(regex)) {
+				if(regex.matcher(item.getName()).matches()) {
 					matchedItems.add(item);
 				}
 			}
 		}
         return matchedItems;
 	}
+	
+	/**
+	 * Returns the compiled regular expression for the given search pattern. 
+	 * Compiled patterns are cached, so that repeated searches (e.g. from the
+	 * UI or the console) do not need to recompile them over and over again.
+	 * 
+	 * @param pattern the search pattern, which may contain the wildcards '?' and '*'
+	 * @return the compiled regular expression for the search pattern
+	 */
+	private Pattern getCompiledPattern(String pattern) {
+		Pattern regex = compiledPatterns.get(pattern);
+		if(regex==null) {
+			regex = Pattern.compile(pattern.replace("?", ".?").replace("*", ".*?"));
+			if(compiledPatterns.size() >= MAX_CACHED_PATTERNS) {
+				compiledPatterns.clear();
+			}
+			compiledPatterns.put(pattern, regex);
+		}
+		return regex;
+	}
 
 	public void addItemProvider(ItemProvider itemProvider) {
 		// only add this provider if it does not already exist
@@ -141,19 +190,20 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 
     @Override
 	public boolean isValidItemName(String name) {
-		return name.matches("[a-zA-Z0-9_]*");
+		return name!=null && VALID_ITEM_NAME_PATTERN.matcher(name).matches();
 	}
 
 	public void removeItemProvider(ItemProvider itemProvider) {
 		if(itemMap.containsKey(itemProvider)) {
 			allItemsChanged(itemProvider, null);
 
-			for(Item item : itemMap.get(itemProvider)) {
+			Collection<Item> items = itemMap.remove(itemProvider);
+			for(Item item : items) {
 				if(item instanceof GenericItem) {
 					((GenericItem) item).dispose();
 				}
+				removeFromIndex(item);
 			}
-			itemMap.remove(itemProvider);
 
 			itemProvider.removeItemChangeListener(this);
 			logger.debug("Item provider '{}' has been removed.", itemProvider.getClass().getSimpleName());
@@ -189,13 +239,29 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 			}
 		}
 
-		Collection<Item> items = new CopyOnWriteArrayList<Item>();
-    	itemMap.put(provider, items);
+		long startTime = System.currentTimeMillis();
+		
+		// initialize all items first, so that the item collection can be created in one go
+		List<Item> newItems = new ArrayList<Item>();
 		for(Item item : provider.getItems()) {
 			if(initializeItem(item)) {
-				items.add(item);
+				newItems.add(item);
 			}
 		}
+		
+		Collection<Item> oldItems = itemMap.put(provider, new CopyOnWriteArrayList<Item>(newItems));
+		if(oldItems!=null) {
+			for(Item oldItem : oldItems) {
+				removeFromIndex(oldItem);
+			}
+		}
+		for(Item item : newItems) {
+			addToIndex(item);
+		}
+		addToGroups(newItems);
+		
+		logger.debug("Loaded {} items of item provider '{}' in {}ms.", 
+				new Object[] { newItems.size(), provider.getClass().getSimpleName(), System.currentTimeMillis() - startTime });
 
 		for(ItemRegistryChangeListener listener : listeners) {
 			listener.allItemsChanged(oldItemNames);
@@ -209,6 +275,8 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		if(items!=null) {
 			if(initializeItem(item)) {
 				items.add(item);
+				addToIndex(item);
+				addToGroups(Collections.singletonList(item));
 			} else {
 				return;
 			}
@@ -224,6 +292,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
         items = itemMap.get(provider);
 		if(items!=null) {
 			items.remove(item);
+			removeFromIndex(item);
 		}
 		for(ItemRegistryChangeListener listener : listeners) {
 			listener.itemRemoved(item);
@@ -240,6 +309,95 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		listeners.remove(listener);
 	}
 
+	/**
+	 * Adds the given item to the name index. If there is already an item with 
+	 * the same name (provided by another item provider), the first one is kept.
+	 * 
+	 * @param item the item to add to the index
+	 */
+	private void addToIndex(Item item) {
+		Item existing = itemsByName.putIfAbsent(item.getName(), item);
+		if(existing!=null && existing!=item) {
+			duplicateItemNames.add(item.getName());
+		}
+	}
+
+	/**
+	 * Removes the given item from the name index. If another item provider 
+	 * provides an item with the same name, this one takes its place.
+	 * 
+	 * @param item the item to remove from the index
+	 */
+	private void removeFromIndex(Item item) {
+		String name = item.getName();
+		if(itemsByName.get(name)==item && itemsByName.remove(name, item)) {
+			if(duplicateItemNames.remove(name)) {
+				for(Collection<Item> items : itemMap.values()) {
+					for(Item other : items) {
+						if(other!=item && name.equals(other.getName())) {
+							addToIndex(other);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Wires the group memberships of newly registered items. The new group items
+	 * are filled with all their members and all new items are added to the groups 
+	 * they belong to. The members of all groups are collected in a single pass over 
+	 * the registered items, so that bulk loads do not become quadratic.
+	 * 
+	 * @param newItems the items that have just been registered
+	 */
+	private void addToGroups(Collection<Item> newItems) {
+		// the new groups, which are filled from the member index below
+		Set<Item> newGroups = Collections.newSetFromMap(new IdentityHashMap<Item, Boolean>());
+		for(Item item : newItems) {
+			if(item instanceof GroupItem) {
+				newGroups.add(item);
+			}
+		}
+		
+		if(!newGroups.isEmpty()) {
+			Map<String, List<Item>> membersByGroupName = new HashMap<String, List<Item>>();
+			for(Collection<Item> items : itemMap.values()) {
+				for(Item item : items) {
+					for(String groupName : item.getGroupNames()) {
+						List<Item> members = membersByGroupName.get(groupName);
+						if(members==null) {
+							members = new ArrayList<Item>();
+							membersByGroupName.put(groupName, members);
+						}
+						members.add(item);
+					}
+				}
+			}
+			for(Item group : newGroups) {
+				List<Item> members = membersByGroupName.get(group.getName());
+				if(members!=null) {
+					for(Item member : members) {
+						if(member!=group) {
+							((GroupItem) group).addMember(member);
+						}
+					}
+				}
+			}
+		}
+
+		// add the new items to all relevant groups, which have not been filled above;
+		// a group might not yet be registered, in which case we ignore it
+		for(Item item : newItems) {
+			for(String groupName : item.getGroupNames()) {
+				Item groupItem = itemsByName.get(groupName);
+				if(groupItem instanceof GroupItem && !newGroups.contains(groupItem)) {
+					((GroupItem) groupItem).addMember(item);
+				}
+			}
+		}
+	}
+
 	/**
 	 * an item should be initialized, which means that the event publisher is
 	 * injected and its implementation is notified that it has just been created,
@@ -255,26 +413,6 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 				genericItem.setEventPublisher(eventPublisher);
 				genericItem.initialize();
 			}
-			
-			if(item instanceof GroupItem) {
-				// fill group with its members 
-				for(Item i : getItems()) {
-					if(i.getGroupNames().contains(item.getName())) {
-						((GroupItem)item).addMember(i);
-					}
-				}
-			}
-			// add the item to all relevant groups
-			for(String groupName : item.getGroupNames()) {
-				try {
-					Item groupItem = getItem(groupName);
-					if(groupItem instanceof GroupItem) {
-						((GroupItem)groupItem).addMember(item);
-					}
-				} catch (ItemNotFoundException e) {
-					// the group might not yet be registered, let's ignore this
-				}
-			}
 			return true;
 		} else {
 			logger.warn("Ignoring item '{}' as it does not comply with" +
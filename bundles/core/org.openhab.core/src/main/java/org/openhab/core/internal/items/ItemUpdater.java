@@ -8,7 +8,16 @@
  */
 package org.openhab.core.internal.items;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.openhab.core.events.AbstractEventSubscriber;
+import org.openhab.core.events.BatchEventSubscriber;
+import org.openhab.core.events.EventBusMetrics;
+import org.openhab.core.events.ItemEventBus;
+import org.openhab.core.internal.events.EventStatistics;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
@@ -21,18 +30,29 @@ import org.slf4j.LoggerFactory;
 
 /**
  * The ItemUpdater listens on the event bus and passes any received status update
- * to the item registry.
+ * to the item registry. The events are received directly through the {@link ItemEventBus}.
+ * Batches of updates are applied at once, so that every affected group publishes its new
+ * state only once per batch. Updates of a type, which is not accepted by the item, are
+ * counted in the {@link EventBusMetrics}.
  * 
  * @author Kai Kreuzer
  * @since 0.1.0
  *
  */
-public class ItemUpdater extends AbstractEventSubscriber {
+public class ItemUpdater extends AbstractEventSubscriber implements BatchEventSubscriber {
 
 	private static final Logger logger = LoggerFactory.getLogger(ItemUpdater.class);
 	
 	protected ItemRegistry itemRegistry;
 	
+	/** 
+	 * caches per item class and state class whether updates are accepted; the accepted 
+	 * data types the decision was based on are kept to detect item classes whose 
+	 * accepted data types differ between instances
+	 */
+	private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, Acceptance>> acceptanceCache = 
+			new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, Acceptance>>();
+	
 	public void setItemRegistry(ItemRegistry itemRegistry) {
 		this.itemRegistry = itemRegistry;
 	}
@@ -41,6 +61,14 @@ public class ItemUpdater extends AbstractEventSubscriber {
 		this.itemRegistry = null;
 	}
 
+	public void setItemEventBus(ItemEventBus itemEventBus) {
+		itemEventBus.addEventSubscriber(this);
+	}
+
+	public void unsetItemEventBus(ItemEventBus itemEventBus) {
+		itemEventBus.removeEventSubscriber(this);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -49,27 +77,11 @@ public class ItemUpdater extends AbstractEventSubscriber {
 		if (itemRegistry != null) {
 			try {
 				GenericItem item = (GenericItem) itemRegistry.getItem(itemName);
-				boolean isAccepted = false;
-				if (item.getAcceptedDataTypes().contains(newStatus.getClass())) {
-					isAccepted = true;
-				} else {
-					// Look for class hierarchy
-					for (Class<? extends State> state : item.getAcceptedDataTypes()) {
-						try {
-							if (!state.isEnum() && state.newInstance().getClass().isAssignableFrom(newStatus.getClass())) {
-								isAccepted = true;
-								break;
-							}
-						} catch (InstantiationException e) {
-							logger.warn("InstantiationException on {}", e.getMessage()); // Should never happen
-						} catch (IllegalAccessException e) {
-							logger.warn("IllegalAccessException on {}", e.getMessage()); // Should never happen
-						}
-					}
-				}				
+				boolean isAccepted = isAccepted(item, newStatus.getClass());
 				if (isAccepted) {
 					item.setState(newStatus);
 				} else {
+					EventStatistics.getInstance().countRejectedUpdate(itemName);
 					logger.debug("Received update of a not accepted type ("	+ newStatus.getClass().getSimpleName() + ") for item " + itemName);
 				}
 			} catch (ItemNotFoundException e) {
@@ -78,6 +90,65 @@ public class ItemUpdater extends AbstractEventSubscriber {
 		}
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void receiveUpdates(Map<String, State> updates) {
+		boolean deferring = GroupItem.deferRecalculations();
+		try {
+			for (Map.Entry<String, State> update : updates.entrySet()) {
+				receiveUpdate(update.getKey(), update.getValue());
+			}
+		} finally {
+			if (deferring) {
+				GroupItem.recalculateDeferred();
+			}
+		}
+	}
+	
+	/**
+	 * Checks whether the given item accepts states of the given class, which is the case
+	 * if the state class is or extends one of the accepted data types of the item.
+	 * 
+	 * @param item the item to check
+	 * @param stateClass the class of the state
+	 * @return <code>true</code> if the item accepts the state
+	 */
+	protected boolean isAccepted(GenericItem item, Class<? extends State> stateClass) {
+		List<Class<? extends State>> acceptedDataTypes = item.getAcceptedDataTypes();
+		if (item instanceof GroupItem) {
+			// the accepted data types of groups depend on their base items and members
+			return isAccepted(acceptedDataTypes, stateClass);
+		}
+		
+		ConcurrentMap<Class<?>, Acceptance> acceptances = acceptanceCache.get(item.getClass());
+		if (acceptances == null) {
+			acceptances = new ConcurrentHashMap<Class<?>, Acceptance>();
+			ConcurrentMap<Class<?>, Acceptance> existing = acceptanceCache.putIfAbsent(item.getClass(), acceptances);
+			if (existing != null) {
+				acceptances = existing;
+			}
+		}
+		Acceptance acceptance = acceptances.get(stateClass);
+		if (acceptance == null || acceptance.acceptedDataTypes != acceptedDataTypes) {
+			acceptance = new Acceptance(acceptedDataTypes, isAccepted(acceptedDataTypes, stateClass));
+			acceptances.put(stateClass, acceptance);
+		}
+		return acceptance.accepted;
+	}
+	
+	private static boolean isAccepted(List<Class<? extends State>> acceptedDataTypes, Class<? extends State> stateClass) {
+		if (acceptedDataTypes == null) {
+			return false;
+		}
+		for (Class<? extends State> acceptedDataType : acceptedDataTypes) {
+			if (acceptedDataType.isAssignableFrom(stateClass)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -96,5 +167,21 @@ public class ItemUpdater extends AbstractEventSubscriber {
 			}
 		}
 	}
+	
+	/**
+	 * Cached decision whether a state class is accepted by an item class.
+	 */
+	private static class Acceptance {
+		
+		final List<Class<? extends State>> acceptedDataTypes;
+		
+		final boolean accepted;
+		
+		Acceptance(List<Class<? extends State>> acceptedDataTypes, boolean accepted) {
+			this.acceptedDataTypes = acceptedDataTypes;
+			this.accepted = accepted;
+		}
+		
+	}
 
 }
@@ -8,12 +8,13 @@
  */
 package org.openhab.core.items;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.WeakHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.types.Command;
@@ -29,11 +30,32 @@ import org.openhab.core.types.UnDefType;
  * @since 0.1.0
  *
  */
-abstract public class GenericItem implements Item {
+abstract public class GenericItem implements Item, Cloneable {
+	
+	private static final StateChangeListener[] NO_LISTENERS = new StateChangeListener[0];
 	
 	protected EventPublisher eventPublisher;
 
-	protected Set<StateChangeListener> listeners = new CopyOnWriteArraySet<StateChangeListener>(Collections.newSetFromMap(new WeakHashMap<StateChangeListener, Boolean>()));
+	/** 
+	 * the registered listeners; the array is never modified, but replaced on every 
+	 * registration change, so that it can be iterated on every state update without
+	 * any locking or copying
+	 */
+	private volatile StateChangeListener[] listenerArray = NO_LISTENERS;
+	
+	private final Object listenersLock = new Object();
+	
+	/**
+	 * A view of the registered listeners, which is kept for subclasses that used to access
+	 * the listener set directly. Adding and removing listeners through it is the same as
+	 * calling {@link #addStateChangeListener(StateChangeListener)} and 
+	 * {@link #removeStateChangeListener(StateChangeListener)}.
+	 * 
+	 * @deprecated use {@link #addStateChangeListener(StateChangeListener)} and
+	 * {@link #removeStateChangeListener(StateChangeListener)} instead
+	 */
+	@Deprecated
+	protected Set<StateChangeListener> listeners = new ListenerSet();
 	
 	protected List<String> groupNames = new ArrayList<String>();
 	
@@ -63,6 +85,30 @@ abstract public class GenericItem implements Item {
 		}
 	}
 	
+	/**
+	 * Creates a copy of this item, which keeps the current state even if the state
+	 * of this item changes later on. The copy is of the same class as this item, but 
+	 * it has no listeners and does not publish any events. This allows to process
+	 * the state of an item asynchronously, e.g. for persisting it.
+	 * <p>
+	 * Subclasses whose state depends on other items than themselves must override 
+	 * this method, so that the snapshot does not read the live state of these items.
+	 * 
+	 * @return a snapshot of this item
+	 */
+	public GenericItem snapshot() {
+		try {
+			GenericItem snapshot = (GenericItem) super.clone();
+			snapshot.listenerArray = NO_LISTENERS;
+			snapshot.listeners = snapshot.new ListenerSet();
+			snapshot.eventPublisher = null;
+			return snapshot;
+		} catch (CloneNotSupportedException e) {
+			// cannot happen as the class implements Cloneable
+			throw new IllegalStateException(e);
+		}
+	}
+	
 	public void initialize() {}
 	
 	public void dispose() {
@@ -101,14 +147,13 @@ abstract public class GenericItem implements Item {
 	}
 
 	private void notifyListeners(State oldState, State newState) {
-		// if nothing has changed, we send update notifications
-		Set<StateChangeListener> clonedListeners = null;
-		clonedListeners = new CopyOnWriteArraySet<StateChangeListener>(listeners);
-		for(StateChangeListener listener : clonedListeners) {
+		// all notifications of this update go to the same snapshot of listeners
+		StateChangeListener[] listeners = this.listenerArray;
+		for(StateChangeListener listener : listeners) {
 			listener.stateUpdated(this, newState);
 		}
 		if(!oldState.equals(newState)) {
-			for(StateChangeListener listener : clonedListeners) {
+			for(StateChangeListener listener : listeners) {
 				listener.stateChanged(this, oldState, newState);
 			}
 		}
@@ -125,14 +170,92 @@ abstract public class GenericItem implements Item {
 	}
 
 	public void addStateChangeListener(StateChangeListener listener) {
-		synchronized(listeners) {
-			listeners.add(listener);
+		synchronized(listenersLock) {
+			if(listener!=null && indexOfListener(listener) < 0) {
+				StateChangeListener[] newListeners = Arrays.copyOf(listenerArray, listenerArray.length + 1);
+				newListeners[listenerArray.length] = listener;
+				listenerArray = newListeners;
+			}
 		}
 	}
 	
 	public void removeStateChangeListener(StateChangeListener listener) {
-		synchronized(listeners) {
-			listeners.remove(listener);
+		synchronized(listenersLock) {
+			int index = indexOfListener(listener);
+			if(index >= 0) {
+				if(listenerArray.length==1) {
+					listenerArray = NO_LISTENERS;
+				} else {
+					StateChangeListener[] newListeners = new StateChangeListener[listenerArray.length - 1];
+					System.arraycopy(listenerArray, 0, newListeners, 0, index);
+					System.arraycopy(listenerArray, index + 1, newListeners, index, listenerArray.length - index - 1);
+					listenerArray = newListeners;
+				}
+			}
+		}
+	}
+	
+	private int indexOfListener(StateChangeListener listener) {
+		for(int i=0; i<listenerArray.length; i++) {
+			if(listenerArray[i].equals(listener)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * The set view of the listener array. Iterators work on the listeners registered
+	 * at the time of their creation.
+	 */
+	private class ListenerSet extends AbstractSet<StateChangeListener> {
+		
+		@Override
+		public Iterator<StateChangeListener> iterator() {
+			final StateChangeListener[] snapshot = listenerArray;
+			return new Iterator<StateChangeListener>() {
+				private int index = 0;
+				
+				public boolean hasNext() {
+					return index < snapshot.length;
+				}
+				
+				public StateChangeListener next() {
+					if(index >= snapshot.length) {
+						throw new NoSuchElementException();
+					}
+					return snapshot[index++];
+				}
+				
+				public void remove() {
+					if(index==0) {
+						throw new IllegalStateException();
+					}
+					removeStateChangeListener(snapshot[index - 1]);
+				}
+			};
+		}
+		
+		@Override
+		public int size() {
+			return listenerArray.length;
+		}
+		
+		@Override
+		public boolean add(StateChangeListener listener) {
+			int size = size();
+			addStateChangeListener(listener);
+			return size() != size;
+		}
+		
+		@Override
+		public boolean remove(Object listener) {
+			if(listener instanceof StateChangeListener) {
+				int size = size();
+				removeStateChangeListener((StateChangeListener) listener);
+				return size() != size;
+			}
+			return false;
 		}
 	}
 	
@@ -9,12 +9,22 @@
 package org.openhab.core.items;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.collections.ListUtils;
+import org.openhab.core.items.IncrementalGroupFunction.Aggregation;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
 import org.slf4j.Logger;
@@ -24,11 +34,41 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	
 	private static final Logger logger = LoggerFactory.getLogger(GroupItem.class);
 	
+	/** 
+	 * the time window in milliseconds in which member updates are coalesced into a single 
+	 * recalculation of the group state; if it is 0, the group state is recalculated on every update
+	 */
+	private static final long RECALCULATION_WINDOW = Long.getLong("openhab.group.recalculationWindow", 0);
+	
+	/** the scheduler for the coalesced recalculations, which is shared by all groups */
+	private static ScheduledExecutorService recalculationScheduler;
+	
+	/** the groups whose recalculation has been deferred on the current thread, see {@link #deferRecalculations()} */
+	private static final ThreadLocal<Set<GroupItem>> deferredGroups = new ThreadLocal<Set<GroupItem>>();
+	
 	protected final GenericItem baseItem;
 	
 	protected final List<Item> members;
 	
 	protected GroupFunction function;
+	
+	/** the aggregation of the member states, if the group function supports incremental updates */
+	private Aggregation aggregation;
+	
+	/** true, if a coalesced recalculation of the group state is already scheduled */
+	private final AtomicBoolean recalculationScheduled = new AtomicBoolean(false);
+	
+	/** the groups which contain this group as a direct member */
+	private final Set<GroupItem> parentGroups = 
+			Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<GroupItem, Boolean>()));
+	
+	/** is incremented whenever the members of this group or of a nested group change */
+	private int membershipVersion = 0;
+	
+	/** the cached results of getAllMembers(), getAcceptedDataTypes() and getAcceptedCommandTypes() */
+	private volatile List<Item> allMembers;
+	private volatile List<Class<? extends State>> acceptedDataTypes;
+	private volatile List<Class<? extends Command>> acceptedCommandTypes;
 
 	public GroupItem(String name) {
 		this(name, null);
@@ -71,12 +111,25 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	 * members of the potentially contained {@link GroupItem}s as well. The 
 	 * {@link GroupItem}s itself aren't contained. The returned items are unique.
 	 * 
+	 * The returned list must not be modified. It is cached until the members of
+	 * this or any contained {@link GroupItem} change.
+	 * 
 	 * @return all members of this and all contained {@link GroupItem}s
 	 */
 	public List<Item> getAllMembers() {
-		Set<Item> allMembers = new HashSet<Item>();
-		collectMembers(allMembers, members);
-		return new ArrayList<Item>(allMembers);
+		List<Item> allMembers = this.allMembers;
+		if(allMembers==null) {
+			int version = getMembershipVersion();
+			Set<Item> memberSet = new LinkedHashSet<Item>();
+			collectMembers(memberSet, members);
+			allMembers = Collections.unmodifiableList(new ArrayList<Item>(memberSet));
+			synchronized (this) {
+				if(version==membershipVersion) {
+					this.allMembers = allMembers;
+				}
+			}
+		}
+		return allMembers;
 	}
 	
 	private void collectMembers(Set<Item> allMembers, List<Item> members) {
@@ -92,6 +145,10 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 
 	public void addMember(Item item) {
 		members.add(item);
+		if (item instanceof GroupItem) {
+			((GroupItem) item).parentGroups.add(this);
+		}
+		membersChanged();
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.addStateChangeListener(this);
@@ -100,12 +157,57 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	
 	public void removeMember(Item item) {
 		members.remove(item);
+		if (item instanceof GroupItem && !isDirectMember(item)) {
+			((GroupItem) item).parentGroups.remove(this);
+		}
+		membersChanged();
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.removeStateChangeListener(this);
 		}
 	}
 	
+	private boolean isDirectMember(Item item) {
+		for (Item member : members) {
+			if (member==item) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Resets all cached information that depends on the members of this group,
+	 * both for this group and for all groups that contain it.
+	 */
+	private void membersChanged() {
+		resetAggregation();
+		invalidateMemberCaches(Collections.newSetFromMap(new IdentityHashMap<GroupItem, Boolean>()));
+	}
+	
+	private void invalidateMemberCaches(Set<GroupItem> invalidatedGroups) {
+		// the set of already invalidated groups protects us against cyclic group definitions
+		if (invalidatedGroups.add(this)) {
+			synchronized (this) {
+				membershipVersion++;
+				allMembers = null;
+				acceptedDataTypes = null;
+				acceptedCommandTypes = null;
+			}
+			GroupItem[] parents;
+			synchronized (parentGroups) {
+				parents = parentGroups.toArray(new GroupItem[parentGroups.size()]);
+			}
+			for (GroupItem parent : parents) {
+				parent.invalidateMemberCaches(invalidatedGroups);
+			}
+		}
+	}
+	
+	private synchronized int getMembershipVersion() {
+		return membershipVersion;
+	}
+	
 	/** 
 	 * The accepted data types of a group item is the same as of the underlying base item.
 	 * If none is defined, the intersection of all sets of accepted data types of all group
@@ -118,7 +220,11 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 		if(baseItem!=null) {
 			return baseItem.getAcceptedDataTypes();
 		} else {
-			List<Class<? extends State>> acceptedDataTypes = null;
+			List<Class<? extends State>> acceptedDataTypes = this.acceptedDataTypes;
+			if(acceptedDataTypes!=null) {
+				return acceptedDataTypes;
+			}
+			int version = getMembershipVersion();
 			
 			for(Item item : members) {
 				if(acceptedDataTypes==null) {
@@ -127,7 +233,13 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 					acceptedDataTypes = ListUtils.intersection(acceptedDataTypes, item.getAcceptedDataTypes());
 				}
 			}
-			return acceptedDataTypes == null ? ListUtils.EMPTY_LIST : acceptedDataTypes;
+			acceptedDataTypes = acceptedDataTypes == null ? ListUtils.EMPTY_LIST : acceptedDataTypes;
+			synchronized (this) {
+				if(version==membershipVersion) {
+					this.acceptedDataTypes = acceptedDataTypes;
+				}
+			}
+			return acceptedDataTypes;
 		}
 	}
 
@@ -143,7 +255,11 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 		if(baseItem!=null) {
 			return baseItem.getAcceptedCommandTypes();
 		} else {
-			List<Class<? extends Command>> acceptedCommandTypes = null;
+			List<Class<? extends Command>> acceptedCommandTypes = this.acceptedCommandTypes;
+			if(acceptedCommandTypes!=null) {
+				return acceptedCommandTypes;
+			}
+			int version = getMembershipVersion();
 			
 			for(Item item : members) {
 				if(acceptedCommandTypes==null) {
@@ -152,7 +268,13 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 					acceptedCommandTypes = ListUtils.intersection(acceptedCommandTypes, item.getAcceptedCommandTypes());
 				}
 			}
-			return acceptedCommandTypes == null ? ListUtils.EMPTY_LIST : acceptedCommandTypes;
+			acceptedCommandTypes = acceptedCommandTypes == null ? ListUtils.EMPTY_LIST : acceptedCommandTypes;
+			synchronized (this) {
+				if(version==membershipVersion) {
+					this.acceptedCommandTypes = acceptedCommandTypes;
+				}
+			}
+			return acceptedCommandTypes;
 		}
 	}
 	
@@ -194,6 +316,19 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 		return newState;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The snapshot of a group does not refer to the members of the group, but keeps
+	 * its state as well as the conversions of the state into all accepted data types 
+	 * (see {@link #getStateAs(Class)}) as they are at the time the snapshot is taken.
+	 * The snapshot has no members.
+	 */
+	@Override
+	public GenericItem snapshot() {
+		return new Snapshot(this);
+	}
+	
 	/**
 	 * @{inheritDoc
 	 */
@@ -210,13 +345,170 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	 * @{inheritDoc
 	 */
 	public void stateChanged(Item item, State oldState, State newState) {
-		setState(function.calculate(members));
+		// the group state has already been recalculated by stateUpdated(), 
+		// which is always called before on every state update of a member
 	}
 
 	/**
 	 * @{inheritDoc
 	 */
 	public void stateUpdated(Item item, State state) {
-		setState(function.calculate(members));
+		Set<GroupItem> deferred = deferredGroups.get();
+		if(deferred!=null) {
+			deferred.add(this);
+		} else if(RECALCULATION_WINDOW > 0) {
+			scheduleRecalculation();
+		} else {
+			setState(calculateState(item));
+		}
+	}
+	
+	/**
+	 * Calculates the group state after a member has been updated. If the group function 
+	 * supports it, the group state is updated incrementally from the state of the member,
+	 * otherwise it is calculated from the states of all members.
+	 * 
+	 * @param member the member whose state has been updated or <code>null</code>
+	 * @return the new group state
+	 */
+	private State calculateState(Item member) {
+		if(function instanceof IncrementalGroupFunction) {
+			synchronized (this) {
+				if(aggregation==null || !aggregation.update(member)) {
+					aggregation = ((IncrementalGroupFunction) function).createAggregation(members);
+				}
+				if(aggregation!=null) {
+					return aggregation.getState();
+				}
+			}
+		}
+		return function.calculate(members);
+	}
+	
+	/**
+	 * Defers the recalculation of group states on the current thread until 
+	 * {@link #recalculateDeferred()} is called. This is meant for updating the 
+	 * states of many items at once, so that every affected group calculates 
+	 * and publishes its new state only once.
+	 * 
+	 * @return <code>true</code> if the deferral has been started by this call, 
+	 * <code>false</code> if recalculations are already deferred on this thread
+	 */
+	public static boolean deferRecalculations() {
+		if(deferredGroups.get()!=null) {
+			return false;
+		}
+		deferredGroups.set(Collections.newSetFromMap(new IdentityHashMap<GroupItem, Boolean>()));
+		return true;
+	}
+	
+	/**
+	 * Ends the deferral started by {@link #deferRecalculations()} and recalculates 
+	 * the states of all groups, whose members have been updated in the meantime.
+	 */
+	public static void recalculateDeferred() {
+		Set<GroupItem> groups = deferredGroups.get();
+		deferredGroups.remove();
+		if(groups!=null) {
+			for(GroupItem group : groups) {
+				try {
+					group.resetAggregation();
+					group.setState(group.calculateState(null));
+				} catch (RuntimeException e) {
+					logger.error("Failed to recalculate the state of group '" + group.getName() + "'", e);
+				}
+			}
+		}
+	}
+	
+	private synchronized void resetAggregation() {
+		aggregation = null;
+	}
+	
+	/**
+	 * Schedules a recalculation of the group state at the end of the recalculation
+	 * window, unless one is already scheduled. All member updates within the window
+	 * are thus covered by a single calculation.
+	 */
+	private void scheduleRecalculation() {
+		if(recalculationScheduled.compareAndSet(false, true)) {
+			getRecalculationScheduler().schedule(new Runnable() {
+				public void run() {
+					recalculationScheduled.set(false);
+					try {
+						setState(function.calculate(members));
+					} catch (RuntimeException e) {
+						logger.error("Failed to recalculate the state of group '" + getName() + "'", e);
+					}
+				}
+			}, RECALCULATION_WINDOW, TimeUnit.MILLISECONDS);
+		}
 	}
+	
+	private static synchronized ScheduledExecutorService getRecalculationScheduler() {
+		if(recalculationScheduler==null) {
+			recalculationScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "openHAB-GroupRecalculation");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return recalculationScheduler;
+	}
+	
+	/**
+	 * A copy of a group, which keeps the state of the group at the time it has been taken.
+	 */
+	private static class Snapshot extends GroupItem {
+		
+		private final List<Class<? extends State>> acceptedDataTypes;
+		private final List<Class<? extends Command>> acceptedCommandTypes;
+		
+		/** the state of the group converted into its accepted data types */
+		private final Map<Class<? extends State>, State> convertedStates = new HashMap<Class<? extends State>, State>();
+		
+		Snapshot(GroupItem group) {
+			super(group.getName(), group.baseItem!=null ? group.baseItem.snapshot() : null, group.function);
+			this.state = group.getState();
+			this.groupNames = group.groupNames;
+			this.acceptedDataTypes = group.getAcceptedDataTypes();
+			this.acceptedCommandTypes = group.getAcceptedCommandTypes();
+			if(acceptedDataTypes!=null) {
+				for(Class<? extends State> type : acceptedDataTypes) {
+					State convertedState = group.getStateAs(type);
+					if(convertedState!=null) {
+						convertedStates.put(type, convertedState);
+					}
+				}
+			}
+		}
+		
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return acceptedDataTypes;
+		}
+		
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return acceptedCommandTypes;
+		}
+		
+		@Override
+		public State getStateAs(Class<? extends State> typeClass) {
+			State convertedState = convertedStates.get(typeClass);
+			if(convertedState==null && typeClass!=null && typeClass.isInstance(state)) {
+				convertedState = state;
+			}
+			return convertedState;
+		}
+		
+		@Override
+		public GenericItem snapshot() {
+			return this;
+		}
+		
+	}
+	
 }
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.items;
+
+import java.util.List;
+
+import org.openhab.core.types.State;
+
+/**
+ * Group functions implementing this interface are able to update the group state
+ * incrementally, when the state of a single member has been updated. This saves
+ * a full calculation over all members of the group for every single update.
+ * 
+ * @since 1.9.0
+ */
+public interface IncrementalGroupFunction extends GroupFunction {
+
+	/**
+	 * Creates a new aggregation over the current states of the given items.
+	 * 
+	 * @param items the items to calculate a group state for
+	 * @return the aggregation or <code>null</code>, if the items cannot be aggregated 
+	 * incrementally, in which case {@link #calculate(List)} has to be used instead
+	 */
+	public Aggregation createAggregation(List<Item> items);
+	
+	/**
+	 * An aggregation keeps the contributions of all items of a group and the
+	 * resulting group state. It is not thread-safe, callers have to synchronize
+	 * access to it.
+	 */
+	public interface Aggregation {
+		
+		/**
+		 * Updates the aggregation with the current state of the given item.
+		 * 
+		 * @param item the item whose state has been updated
+		 * @return false, if the aggregation does not know the item and thus has to be recreated
+		 */
+		public boolean update(Item item);
+		
+		/**
+		 * Returns the group state calculated from the current contributions of all items.
+		 * 
+		 * @return the calculated group state
+		 */
+		public State getState();
+		
+	}
+
+}
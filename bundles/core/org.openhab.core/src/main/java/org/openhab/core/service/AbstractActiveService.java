@@ -8,6 +8,14 @@
  */
 package org.openhab.core.service;
 
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,6 +23,11 @@ import org.slf4j.LoggerFactory;
 /**
  * Base class for services that frequently run some action in a separate thread in the 
  * background.
+ * <p>
+ * By default every service gets its own refresh thread. Services can opt in to be run
+ * by a shared scheduler instead by overriding {@link #getSchedulingMode()}. The size of
+ * the shared thread pool can be configured through the system property
+ * <code>openhab.activeservice.threads</code>.
  * 
  * @author Kai Kreuzer
  * @since 0.7.0
@@ -23,6 +36,26 @@ public abstract class AbstractActiveService {
 
 	private static final Logger logger = LoggerFactory.getLogger(AbstractActiveService.class);
 	
+	/** the system property to configure the number of threads of the shared scheduler */
+	private static final String SCHEDULER_THREADS_PROPERTY = "openhab.activeservice.threads";
+	
+	/** the shared scheduler, which is created lazily when the first service uses it */
+	private static ScheduledExecutorService scheduler;
+	
+	/**
+	 * The ways in which the <code>execute</code> method of a service can be invoked.
+	 */
+	public enum SchedulingMode {
+		/** a dedicated thread which pauses for the refresh interval after every execution */
+		THREAD,
+		/** the shared scheduler starts an execution every refresh interval; executions 
+		 * that would have to start while the previous one is still running are skipped */
+		FIXED_RATE,
+		/** the shared scheduler starts an execution one refresh interval after the 
+		 * previous one has finished */
+		FIXED_DELAY
+	}
+	
 	/** <code>true</code> if this binding is configured properly which means that all necessary data is available */
 	private boolean properlyConfigured = false;
 
@@ -38,6 +71,18 @@ public abstract class AbstractActiveService {
 	 */
 	private Thread refreshThread;
 	
+	/**
+	 * holds the next scheduled execution if the service is run by the shared scheduler
+	 * or is <code>null</code> if there is no execution scheduled at the moment
+	 */
+	private volatile ScheduledExecution scheduledExecution;
+	
+	private final AtomicLong executionCount = new AtomicLong();
+	private final AtomicLong totalExecutionTime = new AtomicLong();
+	private final AtomicLong maxExecutionTime = new AtomicLong();
+	private final AtomicLong overrunCount = new AtomicLong();
+	private final AtomicLong skippedExecutionCount = new AtomicLong();
+	
 	
 	public AbstractActiveService() {
 		super();
@@ -64,19 +109,33 @@ public abstract class AbstractActiveService {
 				
 		shutdown = false;
 		if (!isRunning()) {
-			this.refreshThread = new RefreshThread(getName(), getRefreshInterval());
-			this.refreshThread.start();
+			SchedulingMode mode = getSchedulingMode();
+			if (mode == null || mode == SchedulingMode.THREAD) {
+				this.refreshThread = new RefreshThread(getName(), getRefreshInterval());
+				this.refreshThread.start();
+			} else {
+				startScheduledExecution(mode);
+			}
 		} else {
 			logger.trace("{} is already started > calling start() changed nothing.", getName());
 		}
 	}
 
+	private synchronized void startScheduledExecution(SchedulingMode mode) {
+		if (scheduledExecution == null) {
+			scheduledExecution = new ScheduledExecution(mode, getRefreshInterval());
+			scheduledExecution.schedule(System.currentTimeMillis());
+			logger.info("{} has been scheduled ({})", getName(), mode);
+		}
+	}
+	
 	/**
 	 * Gracefully shuts down the refresh background thread. It will shuts down
 	 * after the current execution cycle.
 	 */
 	public void shutdown() {
 		this.shutdown = true;
+		cancelScheduledExecution(false);
 	}
 	
 	/**
@@ -84,11 +143,22 @@ public abstract class AbstractActiveService {
 	 */
 	public void interrupt() {
 		if (isRunning()) {
-			this.refreshThread.interrupt();
+			if (this.refreshThread != null) {
+				this.refreshThread.interrupt();
+			}
+			cancelScheduledExecution(true);
 			logger.trace("{} has been interrupted.", getName());
 		}
 	}
 	
+	private synchronized void cancelScheduledExecution(boolean mayInterrupt) {
+		if (scheduledExecution != null) {
+			scheduledExecution.cancel(mayInterrupt);
+			scheduledExecution = null;
+			logger.info("{} has been shut down", getName());
+		}
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -96,7 +166,7 @@ public abstract class AbstractActiveService {
 		if (this.refreshThread != null) {
 			return this.refreshThread.isAlive();
 		}
-		return false;
+		return this.scheduledExecution != null;
 	}
 	
 	/**
@@ -146,6 +216,164 @@ public abstract class AbstractActiveService {
 	 */
 	protected abstract String getName();
 	
+	/**
+	 * Returns the way in which the <code>execute</code> method is to be invoked.
+	 * Services that do not block for long inside <code>execute</code> should
+	 * return one of the shared scheduler modes in order to save a thread.
+	 * 
+	 * @return the scheduling mode, {@link SchedulingMode#THREAD} by default
+	 */
+	protected SchedulingMode getSchedulingMode() {
+		return SchedulingMode.THREAD;
+	}
+	
+	/**
+	 * @return the number of executions since the service has been created
+	 */
+	public long getExecutionCount() {
+		return executionCount.get();
+	}
+	
+	/**
+	 * @return the average duration of an execution in milliseconds
+	 */
+	public long getAverageExecutionTime() {
+		long count = executionCount.get();
+		return count > 0 ? totalExecutionTime.get() / count : 0;
+	}
+	
+	/**
+	 * @return the longest duration of an execution in milliseconds
+	 */
+	public long getMaxExecutionTime() {
+		return maxExecutionTime.get();
+	}
+	
+	/**
+	 * @return the number of executions which took longer than the refresh interval
+	 */
+	public long getOverrunCount() {
+		return overrunCount.get();
+	}
+	
+	/**
+	 * @return the number of executions which have been skipped because the previous
+	 * one was still running (only applies to {@link SchedulingMode#FIXED_RATE})
+	 */
+	public long getSkippedExecutionCount() {
+		return skippedExecutionCount.get();
+	}
+	
+	/**
+	 * Calls the <code>execute</code> method and records its duration.
+	 * 
+	 * @param refreshInterval the refresh interval used to detect overruns
+	 */
+	private void executeAndMeasure(long refreshInterval) {
+		long start = System.currentTimeMillis();
+		try {
+			execute();
+		} catch(RuntimeException e) {
+			logger.error("Error while executing background thread " + getName(), e);
+		}
+		long duration = System.currentTimeMillis() - start;
+		executionCount.incrementAndGet();
+		totalExecutionTime.addAndGet(duration);
+		long max = maxExecutionTime.get();
+		while (duration > max && !maxExecutionTime.compareAndSet(max, duration)) {
+			max = maxExecutionTime.get();
+		}
+		if (duration > refreshInterval) {
+			overrunCount.incrementAndGet();
+			logger.debug("Execution of {} took {}ms, which exceeds the refresh interval of {}ms", 
+					new Object[] { getName(), duration, refreshInterval });
+		}
+	}
+	
+	private static synchronized ScheduledExecutorService getScheduler() {
+		if (scheduler == null) {
+			int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+			String configuredThreads = System.getProperty(SCHEDULER_THREADS_PROPERTY);
+			if (configuredThreads != null) {
+				try {
+					threads = Math.max(1, Integer.parseInt(configuredThreads.trim()));
+				} catch (NumberFormatException e) {
+					logger.warn("Invalid value '{}' for system property '{}' - using {} threads.", 
+							new Object[] { configuredThreads, SCHEDULER_THREADS_PROPERTY, threads });
+				}
+			}
+			ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, new ThreadFactory() {
+				private final AtomicInteger threadNumber = new AtomicInteger(1);
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "openHAB-ActiveService-" + threadNumber.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			executor.setRemoveOnCancelPolicy(true);
+			scheduler = executor;
+		}
+		return scheduler;
+	}
+	
+	/**
+	 * Execution of a service by the shared scheduler. Every execution schedules
+	 * the next one, so that an execution never overlaps with the previous one
+	 * and missed slots can be skipped instead of being caught up in a burst.
+	 */
+	private class ScheduledExecution implements Runnable {
+		
+		private final SchedulingMode mode;
+		
+		private final long refreshInterval;
+		
+		/** the time at which the current execution was planned to start */
+		private long plannedStart;
+		
+		private ScheduledFuture<?> future;
+		
+		private boolean cancelled = false;
+		
+		public ScheduledExecution(SchedulingMode mode, long refreshInterval) {
+			this.mode = mode;
+			this.refreshInterval = Math.max(1, refreshInterval);
+		}
+		
+		public synchronized void schedule(long start) {
+			if (!cancelled) {
+				plannedStart = start;
+				long delay = Math.max(0, start - System.currentTimeMillis());
+				future = getScheduler().schedule(this, delay, TimeUnit.MILLISECONDS);
+			}
+		}
+		
+		public synchronized void cancel(boolean mayInterrupt) {
+			cancelled = true;
+			if (future != null) {
+				future.cancel(mayInterrupt);
+			}
+		}
+		
+		public void run() {
+			executeAndMeasure(refreshInterval);
+			
+			long now = System.currentTimeMillis();
+			long nextStart;
+			if (mode == SchedulingMode.FIXED_RATE) {
+				nextStart = plannedStart + refreshInterval;
+				if (nextStart < now) {
+					long missed = (now - nextStart) / refreshInterval + 1;
+					skippedExecutionCount.addAndGet(missed);
+					nextStart += missed * refreshInterval;
+				}
+			} else {
+				nextStart = now + refreshInterval;
+			}
+			schedule(nextStart);
+		}
+		
+	}
+	
 	/**
 	 * Worker thread which calls the execute method frequently.
 	 *  
@@ -169,11 +397,7 @@ public abstract class AbstractActiveService {
 			logger.info(getName() + " has been started");
 			
 			while (!shutdown) {
-				try {
-					execute();
-				} catch(RuntimeException e) {
-					logger.error("Error while executing background thread " + getName(), e);
-				}
+				executeAndMeasure(refreshInterval);
 				pause(refreshInterval);
 			}
 			
@@ -10,17 +10,86 @@ package org.openhab.core.types;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This is a helper class that helps parsing a string into an openHAB type (state or command).
  * 
+ * <p>The parser of every type is resolved only once: enum types are parsed by a lookup of
+ * their constants, types with a registered {@link TypeValueParser} by that parser, and all
+ * other types by calling their static <code>valueOf(String)</code> method.</p>
+ * 
  * @author Kai Kreuzer
  * @since 0.1.0
  *
  */
 public class TypeParser {
 
+	/** the explicitly registered parsers */
+	private static final ConcurrentMap<Class<? extends Type>, TypeValueParser<?>> registeredParsers = 
+			new ConcurrentHashMap<Class<? extends Type>, TypeValueParser<?>>();
+
+	/** the parsers resolved for types without a registered parser; does not prevent unloading the types */
+	private static final ClassValue<TypeValueParser<?>> resolvedParsers = new ClassValue<TypeValueParser<?>>() {
+		@Override
+		protected TypeValueParser<?> computeValue(Class<?> type) {
+			if(type.isEnum()) {
+				return new EnumParser(type);
+			}
+			try {
+				Method valueOf = type.getMethod("valueOf", String.class);
+				if(Modifier.isStatic(valueOf.getModifiers())) {
+					return new ValueOfParser(valueOf);
+				}
+			} catch (NoSuchMethodException e) {
+			}
+			return new ValueOfParser(null);
+		}
+	};
+
+	/**
+	 * Registers a parser for a type, which is used instead of the <code>valueOf(String)</code>
+	 * method of the type.
+	 * 
+	 * @param type the type to parse
+	 * @param parser the parser for the type
+	 * @since 1.9.0
+	 */
+	public static <T extends Type> void registerParser(Class<T> type, TypeValueParser<? extends T> parser) {
+		registeredParsers.put(type, parser);
+	}
+
+	/**
+	 * Removes the registered parser of a type.
+	 * 
+	 * @param type the type whose parser is removed
+	 * @since 1.9.0
+	 */
+	public static void unregisterParser(Class<? extends Type> type) {
+		registeredParsers.remove(type);
+	}
+
+	/**
+	 * Parses a string into a value of a single type.
+	 * 
+	 * @param type the type of the value
+	 * @param s the string to parse
+	 * @return the value or <code>null</code>, if the string is not a valid value of the type
+	 * @since 1.9.0
+	 */
+	public static Type parse(Class<? extends Type> type, String s) {
+		TypeValueParser<?> parser = registeredParsers.get(type);
+		if(parser==null) {
+			parser = resolvedParsers.get(type);
+		}
+		return parser.parse(s);
+	}
+
 	/**
 	 * <p>Determines a state from a string. Possible state types are passed as a parameter.
 	 * Note that the order matters here; the first type that accepts the string as a valid
@@ -34,16 +103,9 @@ public class TypeParser {
 	 * @return the corresponding State instance or <code>null</code>
 	 */
 	public static State parseState(List<Class<? extends State>> types, String s) {
-		for(Class<? extends Type> type : types) {
-			try {									
-				Method valueOf = type.getMethod("valueOf", String.class);
-				State state = (State) valueOf.invoke(type, s);
-				if(state!=null) return state;
-			} catch (NoSuchMethodException e) {
-			} catch (IllegalArgumentException e) {
-			} catch (IllegalAccessException e) {
-			} catch (InvocationTargetException e) {
-			}
+		for(Class<? extends State> type : types) {
+			State state = (State) parse(type, s);
+			if(state!=null) return state;
 		}
 		return null;
 	}
@@ -63,17 +125,56 @@ public class TypeParser {
 	public static Command parseCommand(List<Class<? extends Command>> types, String s) {
 		if(s!=null) {
 			for(Class<? extends Command> type : types) {
-				try {									
-					Method valueOf = type.getMethod("valueOf", String.class);
-					Command value = (Command) valueOf.invoke(type, s);
-					if(value!=null) return value;
-				} catch (NoSuchMethodException e) {
+				Command value = (Command) parse(type, s);
+				if(value!=null) return value;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Parses the name of a constant of an enum type, like <code>Enum.valueOf()</code>.
+	 */
+	private static class EnumParser implements TypeValueParser<Type> {
+
+		private final Map<String, Type> constants = new HashMap<String, Type>();
+
+		public EnumParser(Class<?> type) {
+			for(Object constant : type.getEnumConstants()) {
+				if(constant instanceof Type) {
+					constants.put(((Enum<?>) constant).name(), (Type) constant);
+				}
+			}
+		}
+
+		public Type parse(String value) {
+			return value!=null ? constants.get(value) : null;
+		}
+
+	}
+
+	/**
+	 * Parses a string by calling the <code>valueOf(String)</code> method of a type.
+	 */
+	private static class ValueOfParser implements TypeValueParser<Type> {
+
+		private final Method valueOf;
+
+		public ValueOfParser(Method valueOf) {
+			this.valueOf = valueOf;
+		}
+
+		public Type parse(String value) {
+			if(valueOf!=null) {
+				try {
+					return (Type) valueOf.invoke(null, value);
 				} catch (IllegalArgumentException e) {
 				} catch (IllegalAccessException e) {
 				} catch (InvocationTargetException e) {
-				}		
+				}
 			}
+			return null;
 		}
-		return null;
+
 	}
 }
@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.types;
+
+/**
+ * Parses a string into a value of a single type. Parsers can be registered with the
+ * {@link TypeParser} for types that would otherwise be parsed by calling their static
+ * <code>valueOf(String)</code> method through reflection.
+ *
+ * @param <T> the type of the values
+ * @since 1.9.0
+ */
+public interface TypeValueParser<T extends Type> {
+
+	/**
+	 * Parses a string. It must accept exactly the strings that are accepted by the
+	 * <code>valueOf(String)</code> method of the type, but should reject other strings
+	 * without throwing exceptions wherever possible.
+	 *
+	 * @param value the string to parse
+	 * @return the parsed value or <code>null</code>, if the string is not a valid value of the type
+	 */
+	T parse(String value);
+
+}
@@ -9,15 +9,20 @@
 package org.openhab.io.console;
 
 import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
 
 import javax.script.ScriptEngine;
 
 import org.apache.commons.lang.ArrayUtils;
+import org.openhab.core.events.EventBusMetrics;
 import org.openhab.core.events.EventPublisher;
+import org.openhab.core.events.LatencyHistogram;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemNotUniqueException;
 import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.scriptengine.RuleExecutor;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
 import org.openhab.core.types.TypeParser;
@@ -59,6 +64,8 @@ public class ConsoleInterpreter {
             ConsoleInterpreter.handleSay(args, console);
         } else if (arg.equals(">")) {
             ConsoleInterpreter.handleScript(args, console);
+        } else if (arg.equals("metrics")) {
+            ConsoleInterpreter.handleMetrics(args, console);
         } else {
             console.printUsage(getUsage());
         }
@@ -286,6 +293,90 @@ public class ConsoleInterpreter {
         }
     }
 
+    /**
+     * This method handles a metrics command.
+     * 
+     * @param args array which contains the arguments for the metrics command
+     * @param console the console for printing messages for the user
+     */
+    public static void handleMetrics(String[] args, Console console) {
+        EventBusMetrics metrics = ConsoleActivator.eventBusMetricsTracker.getService();
+        if (metrics != null) {
+            int topItemCount = 10;
+            if (args.length > 0) {
+                if (args[0].equals("reset")) {
+                    metrics.reset();
+                    RuleExecutor.getInstance().reset();
+                    console.println("Event bus and rule metrics have been reset.");
+                    return;
+                }
+                try {
+                    topItemCount = Integer.parseInt(args[0]);
+                } catch (NumberFormatException e) {
+                    console.printUsage(getMetricsUsage());
+                    return;
+                }
+            }
+
+            double seconds = Math.max(1, System.currentTimeMillis() - metrics.getStartTime()) / 1000.0;
+            console.println("Events since " + new Date(metrics.getStartTime()) + ":");
+            console.println("  updates: " + metrics.getUpdateCount() + " ("
+                    + String.format("%.2f", metrics.getUpdateCount() / seconds) + "/s)");
+            console.println("  commands: " + metrics.getCommandCount() + " ("
+                    + String.format("%.2f", metrics.getCommandCount() / seconds) + "/s)");
+            console.println("  pending deliveries: " + metrics.getPendingDeliveries());
+            console.println("  dropped deliveries: " + metrics.getDroppedDeliveries());
+            Map<String, Long> rejectedUpdates = metrics.getRejectedUpdates();
+            if (!rejectedUpdates.isEmpty()) {
+                console.println("Rejected updates of not accepted types:");
+                for (Map.Entry<String, Long> entry : rejectedUpdates.entrySet()) {
+                    console.println("  " + entry.getKey() + ": " + entry.getValue());
+                }
+            }
+            console.println("EventAdmin delivery delay:");
+            console.println("  " + formatHistogram(metrics.getEventAdminDelays()));
+            console.println("Processing time per subscriber:");
+            for (Map.Entry<String, LatencyHistogram> entry : metrics.getSubscriberLatencies().entrySet()) {
+                console.println("  " + entry.getKey() + ": " + formatHistogram(entry.getValue()));
+            }
+            console.println("Top " + topItemCount + " items:");
+            for (Map.Entry<String, Long> entry : metrics.getTopItems(topItemCount).entrySet()) {
+                console.println("  " + entry.getKey() + ": " + entry.getValue() + " ("
+                        + String.format("%.2f", entry.getValue() / seconds) + "/s)");
+            }
+            printRuleMetrics(console);
+        } else {
+            console.println("Sorry, no event bus metrics service available!");
+        }
+    }
+
+    private static void printRuleMetrics(Console console) {
+        RuleExecutor ruleExecutor = RuleExecutor.getInstance();
+        console.println("Rule executions (serialization " + ruleExecutor.getSerializationMode() + "):");
+        console.println("  active: " + ruleExecutor.getActiveCount());
+        console.println("  queued: " + ruleExecutor.getQueueSize());
+        console.println("  rejected: " + ruleExecutor.getRejectedCount());
+        console.println("  dropped: " + ruleExecutor.getDroppedCount());
+        console.println("Processing time per rule:");
+        for (Map.Entry<String, LatencyHistogram> entry : ruleExecutor.getRuleLatencies().entrySet()) {
+            console.println("  " + entry.getKey() + ": " + formatHistogram(entry.getValue()));
+        }
+    }
+
+    private static String formatHistogram(LatencyHistogram histogram) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(histogram.getCount() + " events, avg " + histogram.getAverageTime() + "us, max "
+                + histogram.getMaxTime() + "us [");
+        long[] counts = histogram.getBucketCounts();
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(LatencyHistogram.getBucketLabel(i) + ": " + counts[i]);
+        }
+        return sb.append("]").toString();
+    }
+
     /** returns a CR-separated list of usage texts for all available commands */
     private static String getUsage() {
         StringBuilder sb = new StringBuilder();
@@ -298,7 +389,7 @@ public class ConsoleInterpreter {
     /** returns an array of the usage texts for all available commands */
     static public String[] getUsages() {
         return new String[] { getUpdateUsage(), getCommandUsage(), getStatusUsage(), getItemsUsage(), getSayUsage(),
-                getScriptUsage() };
+                getScriptUsage(), getMetricsUsage() };
     }
 
     static public String getUpdateUsage() {
@@ -325,4 +416,8 @@ public class ConsoleInterpreter {
         return "> <script to execute> - Executes a script";
     }
 
+    public static String getMetricsUsage() {
+        return "metrics [<number of top items>|reset] - shows statistics about the events on the event bus and the rule executions";
+    }
+
 }
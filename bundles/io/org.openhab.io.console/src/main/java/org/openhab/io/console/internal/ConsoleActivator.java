@@ -10,6 +10,7 @@ package org.openhab.io.console.internal;
 
 import javax.script.ScriptEngine;
 
+import org.openhab.core.events.EventBusMetrics;
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.items.ItemRegistry;
 import org.osgi.framework.BundleActivator;
@@ -24,6 +25,7 @@ public final class ConsoleActivator implements BundleActivator {
     public static ServiceTracker<ItemRegistry, ItemRegistry> itemRegistryTracker;
     public static ServiceTracker<EventPublisher, EventPublisher> eventPublisherTracker;
     public static ServiceTracker<ScriptEngine, ScriptEngine> scriptEngineTracker;
+    public static ServiceTracker<EventBusMetrics, EventBusMetrics> eventBusMetricsTracker;
 
     /**
      * Called whenever the OSGi framework starts our bundle
@@ -38,6 +40,9 @@ public final class ConsoleActivator implements BundleActivator {
 
         scriptEngineTracker = new ServiceTracker<ScriptEngine, ScriptEngine>(bc, ScriptEngine.class, null);
         scriptEngineTracker.open();
+
+        eventBusMetricsTracker = new ServiceTracker<EventBusMetrics, EventBusMetrics>(bc, EventBusMetrics.class, null);
+        eventBusMetricsTracker.open();
     }
 
     /**
@@ -47,5 +52,6 @@ public final class ConsoleActivator implements BundleActivator {
     public void stop(BundleContext bc) throws Exception {
         itemRegistryTracker.close();
         eventPublisherTracker.close();
+        eventBusMetricsTracker.close();
     }
 }
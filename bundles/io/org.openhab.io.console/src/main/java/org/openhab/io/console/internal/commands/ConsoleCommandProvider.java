@@ -87,7 +87,8 @@ public class ConsoleCommandProvider implements CommandProvider {
         buffer.append("openhab " + ConsoleInterpreter.getStatusUsage() + "\n\t");
         buffer.append("openhab " + ConsoleInterpreter.getItemsUsage() + "\n\t");
         buffer.append("openhab " + ConsoleInterpreter.getSayUsage() + "\n\t");
-        buffer.append("openhab " + ConsoleInterpreter.getScriptUsage() + "\n");
+        buffer.append("openhab " + ConsoleInterpreter.getScriptUsage() + "\n\t");
+        buffer.append("openhab " + ConsoleInterpreter.getMetricsUsage() + "\n");
         return buffer.toString();
     }
 
@@ -20,10 +20,12 @@ import javax.ws.rs.core.Application;
 
 import org.apache.commons.lang.StringUtils;
 import org.atmosphere.cpr.AtmosphereServlet;
+import org.openhab.core.events.EventBusMetrics;
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.io.net.http.SecureHttpContext;
 import org.openhab.io.rest.internal.resources.ItemResource;
+import org.openhab.io.rest.internal.resources.MetricsResource;
 import org.openhab.io.rest.internal.resources.RootResource;
 import org.openhab.io.rest.internal.resources.SitemapResource;
 import org.openhab.io.servicediscovery.DiscoveryService;
@@ -69,6 +71,8 @@ public class RESTApplication extends Application {
 
 	static private ModelRepository modelRepository;
 
+	static private EventBusMetrics eventBusMetrics;
+
 	public void setHttpService(HttpService httpService) {
 		this.httpService = httpService;
 	}
@@ -113,6 +117,18 @@ public class RESTApplication extends Application {
 		return modelRepository;
 	}
 
+	public void setEventBusMetrics(EventBusMetrics eventBusMetrics) {
+		RESTApplication.eventBusMetrics = eventBusMetrics;
+	}
+	
+	public void unsetEventBusMetrics(EventBusMetrics eventBusMetrics) {
+		RESTApplication.eventBusMetrics = null;
+	}
+
+	static public EventBusMetrics getEventBusMetrics() {
+		return eventBusMetrics;
+	}
+
 	public void setDiscoveryService(DiscoveryService discoveryService) {
 		this.discoveryService = discoveryService;
 	}
@@ -182,6 +198,7 @@ public class RESTApplication extends Application {
         result.add(RootResource.class);
         result.add(ItemResource.class);
         result.add(SitemapResource.class);
+        result.add(MetricsResource.class);
         return result;
     }
 
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.resources;
+
+import java.util.Map;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.openhab.core.events.EventBusMetrics;
+import org.openhab.core.events.LatencyHistogram;
+import org.openhab.core.scriptengine.RuleExecutor;
+import org.openhab.io.rest.RESTApplication;
+import org.openhab.io.rest.internal.resources.beans.MetricsBean;
+import org.openhab.io.rest.internal.resources.beans.MetricsBean.BucketBean;
+import org.openhab.io.rest.internal.resources.beans.MetricsBean.ItemEventsBean;
+import org.openhab.io.rest.internal.resources.beans.MetricsBean.LatencyBean;
+import org.openhab.io.rest.internal.resources.beans.MetricsBean.RulesBean;
+
+/**
+ * <p>This class acts as a REST resource for the event bus metrics, which show how
+ * many events are passed through openHAB, how long the subscribers need to process
+ * them and which items are the most active ones, and for the metrics of the
+ * {@link RuleExecutor}.</p>
+ * 
+ * <p>The result is returned as XML or JSON</p>
+ * 
+ * <p>This resource is registered with the Jersey servlet.</p>
+ *
+ * @since 1.9.0
+ */
+@Path(MetricsResource.PATH_METRICS)
+public class MetricsResource {
+
+	/** The URI path to this resource */
+    public static final String PATH_METRICS = "metrics";
+
+    @GET 
+    @Produces( { MediaType.WILDCARD })
+    public Response getMetrics(
+    		@Context HttpHeaders headers,
+    		@QueryParam("type") String type, 
+    		@QueryParam("top") @DefaultValue("10") int topItemCount, 
+    		@QueryParam("jsoncallback") @DefaultValue("callback") String callback) {
+    	EventBusMetrics metrics = RESTApplication.getEventBusMetrics();
+    	if(metrics==null) {
+    		return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+    	}
+    	final String responseType = MediaTypeHelper.getResponseMediaType(headers.getAcceptableMediaTypes(), type);
+    	if(responseType!=null) {
+	    	final Object responseObject = ResponseHelper.wrapContentIfNeccessary(callback, responseType, 
+	    			getMetricsBean(metrics, topItemCount)); 
+	    	return Response.ok(responseObject, responseType).build();
+    	} else {
+			return Response.notAcceptable(null).build();
+    	}
+    }
+
+	private MetricsBean getMetricsBean(EventBusMetrics metrics, int topItemCount) {
+		double seconds = Math.max(1, System.currentTimeMillis() - metrics.getStartTime()) / 1000.0;
+		
+		MetricsBean bean = new MetricsBean();
+		bean.startTime = metrics.getStartTime();
+		bean.updates = metrics.getUpdateCount();
+		bean.updatesPerSecond = bean.updates / seconds;
+		bean.commands = metrics.getCommandCount();
+		bean.commandsPerSecond = bean.commands / seconds;
+		bean.pendingDeliveries = metrics.getPendingDeliveries();
+		bean.droppedDeliveries = metrics.getDroppedDeliveries();
+		bean.eventAdminDelay = createLatencyBean("EventAdmin", metrics.getEventAdminDelays());
+		for(Map.Entry<String, LatencyHistogram> entry : metrics.getSubscriberLatencies().entrySet()) {
+			bean.subscribers.add(createLatencyBean(entry.getKey(), entry.getValue()));
+		}
+		for(Map.Entry<String, Long> entry : metrics.getTopItems(topItemCount).entrySet()) {
+			ItemEventsBean itemBean = new ItemEventsBean();
+			itemBean.name = entry.getKey();
+			itemBean.events = entry.getValue();
+			itemBean.eventsPerSecond = itemBean.events / seconds;
+			bean.topItems.add(itemBean);
+		}
+		for(Map.Entry<String, Long> entry : metrics.getRejectedUpdates().entrySet()) {
+			ItemEventsBean itemBean = new ItemEventsBean();
+			itemBean.name = entry.getKey();
+			itemBean.events = entry.getValue();
+			itemBean.eventsPerSecond = itemBean.events / seconds;
+			bean.rejectedUpdates.add(itemBean);
+		}
+		bean.rules = getRulesBean(RuleExecutor.getInstance());
+		return bean;
+	}
+	
+	private RulesBean getRulesBean(RuleExecutor ruleExecutor) {
+		RulesBean bean = new RulesBean();
+		bean.serialization = ruleExecutor.getSerializationMode().toString();
+		bean.active = ruleExecutor.getActiveCount();
+		bean.queued = ruleExecutor.getQueueSize();
+		bean.rejected = ruleExecutor.getRejectedCount();
+		bean.dropped = ruleExecutor.getDroppedCount();
+		for(Map.Entry<String, LatencyHistogram> entry : ruleExecutor.getRuleLatencies().entrySet()) {
+			bean.latencies.add(createLatencyBean(entry.getKey(), entry.getValue()));
+		}
+		return bean;
+	}
+	
+	private LatencyBean createLatencyBean(String name, LatencyHistogram histogram) {
+		LatencyBean bean = new LatencyBean();
+		bean.name = name;
+		bean.count = histogram.getCount();
+		bean.average = histogram.getAverageTime();
+		bean.max = histogram.getMaxTime();
+		long[] counts = histogram.getBucketCounts();
+		for(int i=0; i<counts.length; i++) {
+			BucketBean bucket = new BucketBean();
+			bucket.limit = LatencyHistogram.getBucketLabel(i);
+			bucket.count = counts[i];
+			bean.buckets.add(bucket);
+		}
+		return bean;
+	}
+
+}
@@ -57,6 +57,7 @@ public class RootResource {
 	    
 	    bean.links.put("items", uriInfo.getBaseUriBuilder().path(ItemResource.PATH_ITEMS).build().toASCIIString());
 	    bean.links.put("sitemaps", uriInfo.getBaseUriBuilder().path(SitemapResource.PATH_SITEMAPS).build().toASCIIString());
+	    bean.links.put("metrics", uriInfo.getBaseUriBuilder().path(MetricsResource.PATH_METRICS).build().toASCIIString());
 	    
 	    return bean;
 	}
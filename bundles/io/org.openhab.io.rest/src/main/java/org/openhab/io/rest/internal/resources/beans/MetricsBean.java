@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.resources.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlValue;
+
+/**
+ * This is a java bean that is used with JAXB to serialize the event bus
+ * and rule execution metrics to XML or JSON.
+ *  
+ * @since 1.9.0
+ *
+ */
+@XmlRootElement(name="metrics")
+public class MetricsBean {
+
+	/** the time since which the metrics are collected (in milliseconds since the epoch) */
+	public long startTime;
+	public long updates;
+	public double updatesPerSecond;
+	public long commands;
+	public double commandsPerSecond;
+	public int pendingDeliveries;
+	public long droppedDeliveries;
+	
+	public LatencyBean eventAdminDelay;
+	
+	@XmlElementWrapper(name="subscribers")
+	@XmlElement(name="subscriber")
+	public final List<LatencyBean> subscribers = new ArrayList<LatencyBean>();
+	
+	@XmlElementWrapper(name="topItems")
+	@XmlElement(name="item")
+	public final List<ItemEventsBean> topItems = new ArrayList<ItemEventsBean>();
+	
+	@XmlElementWrapper(name="rejectedUpdates")
+	@XmlElement(name="item")
+	public final List<ItemEventsBean> rejectedUpdates = new ArrayList<ItemEventsBean>();
+	
+	public RulesBean rules;
+	
+	public MetricsBean() {}
+	
+	/** the distribution of durations in microseconds */
+	public static class LatencyBean {
+		public String name;
+		public long count;
+		public long average;
+		public long max;
+		@XmlElement(name="bucket")
+		public final List<BucketBean> buckets = new ArrayList<BucketBean>();
+	}
+	
+	public static class BucketBean {
+		@XmlAttribute
+		public String limit;
+		@XmlValue
+		public long count;
+	}
+	
+	public static class RulesBean {
+		public String serialization;
+		public int active;
+		public int queued;
+		public long rejected;
+		public long dropped;
+		@XmlElement(name="rule")
+		public final List<LatencyBean> latencies = new ArrayList<LatencyBean>();
+	}
+	
+	public static class ItemEventsBean {
+		public String name;
+		public long events;
+		public double eventsPerSecond;
+	}
+	
+}
@@ -8,8 +8,6 @@
  */
 package org.openhab.model.rule.internal.engine;
 
-import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
-import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
 import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes.CHANGE;
 import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes.COMMAND;
 import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes.SHUTDOWN;
@@ -18,29 +16,38 @@ import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerT
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.xtext.naming.QualifiedName;
+import org.openhab.core.events.EventSubscriber;
+import org.openhab.core.events.ItemEventBus;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.items.ItemRegistryChangeListener;
 import org.openhab.core.items.StateChangeListener;
+import org.openhab.core.scriptengine.RuleExecutor;
 import org.openhab.core.scriptengine.Script;
 import org.openhab.core.scriptengine.ScriptEngine;
 import org.openhab.core.scriptengine.ScriptExecutionException;
-import org.openhab.core.scriptengine.ScriptExecutionThread;
+import org.openhab.core.scriptengine.ScriptExecutionRunnable;
 import org.openhab.core.types.Command;
-import org.openhab.core.types.EventType;
 import org.openhab.core.types.State;
 import org.openhab.model.core.ModelRepository;
 import org.openhab.model.core.ModelRepositoryChangeListener;
 import org.openhab.model.rule.rules.Rule;
 import org.openhab.model.rule.rules.RuleModel;
-import org.osgi.service.event.Event;
-import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,24 +57,55 @@ import com.google.common.collect.Lists;
  * This class is the core of the openHAB rule engine. It listens to changes to the rules folder, evaluates the trigger
  * conditions of the rules and schedules them for execution dependent on their triggering conditions.
  * 
+ * <p>Startup rules are executed synchronously when the engine is activated and when a rule file is added or
+ * modified, i.e. before any event can trigger the other rules of the file. A startup rule that fails because an item
+ * does not exist yet is not tried again on every single item that is added, but once the items have settled, i.e.
+ * when no item has been added for the delay given by the system property <code>openhab.rules.startupDelay</code>
+ * (in milliseconds, default 1000), and only if the missing item has been added by then.</p>
+ * 
  * @author Kai Kreuzer
  * @since 0.9.0
  * 
  */
 @SuppressWarnings("restriction")
-public class RuleEngine implements EventHandler, ItemRegistryChangeListener, StateChangeListener,
+public class RuleEngine implements EventSubscriber, ItemRegistryChangeListener, StateChangeListener,
 		ModelRepositoryChangeListener {
 
 	static private final Logger logger = LoggerFactory.getLogger(RuleEngine.class);
 
+	private static final String STARTUP_DELAY_PROPERTY = "openhab.rules.startupDelay";
+
+	private static final long DEFAULT_STARTUP_DELAY = 1000;
+
+	/** matches the quoted item name in the messages of missing items */
+	private static final Pattern MISSING_ITEM_PATTERN = Pattern.compile("'([^']+)'");
+
 	private ItemRegistry itemRegistry;
 	private ModelRepository modelRepository;
 	private ScriptEngine scriptEngine;
 
 	private RuleTriggerManager triggerManager;
 
+	private final long startupDelay = getStartupDelay();
+
+	private ScheduledExecutorService startupRuleScheduler;
+
+	private ScheduledFuture<?> startupRuleRun;
+
+	/** the startup rules that have failed because of a missing item, with the name of that item or null if unknown */
+	private final Map<Rule, String> missingStartupItems = new HashMap<Rule, String>();
+
+	private final Object startupRuleLock = new Object();
+
 	public void activate() {
 		triggerManager = new RuleTriggerManager();
+		startupRuleScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "openHAB-StartupRules");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 
 		if (!isEnabled()) {
 			logger.info("Rule engine is disabled.");
@@ -95,6 +133,12 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 	}
 
 	public void deactivate() {
+		synchronized (missingStartupItems) {
+			startupRuleScheduler.shutdownNow();
+			startupRuleScheduler = null;
+			startupRuleRun = null;
+			missingStartupItems.clear();
+		}
 		// execute all scripts that were registered for system shutdown
 		executeRules(triggerManager.getRules(SHUTDOWN));
 		triggerManager.clearAll();
@@ -121,6 +165,14 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		this.modelRepository = null;
 	}
 
+	public void setItemEventBus(ItemEventBus itemEventBus) {
+		itemEventBus.addEventSubscriber(this);
+	}
+
+	public void unsetItemEventBus(ItemEventBus itemEventBus) {
+		itemEventBus.removeEventSubscriber(this);
+	}
+
 	public void setScriptEngine(ScriptEngine scriptEngine) {
 		this.scriptEngine = scriptEngine;
 	}
@@ -138,7 +190,7 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		for (Item item : items) {
 			internalItemAdded(item);
 		}
-		runStartupRules();
+		scheduleStartupRules();
 	}
 
 	/**
@@ -146,7 +198,7 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 	 */
 	public void itemAdded(Item item) {
 		internalItemAdded(item);
-		runStartupRules();
+		scheduleStartupRules();
 	}
 
 	/**
@@ -185,6 +237,16 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void receiveUpdate(String itemName, State newState) {
+		// update rules are triggered through the state change listener of the items
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
 	public void receiveCommand(String itemName, Command command) {
 		if (triggerManager != null && itemRegistry != null) {
 			try {
@@ -210,27 +272,6 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		}
 	}
 
-	/**
-	 * {@inheritDoc}
-	 */
-	public void handleEvent(Event event) {
-		String itemName = (String) event.getProperty("item");
-
-		String topic = event.getTopic();
-		String[] topicParts = topic.split(TOPIC_SEPERATOR);
-
-		if (!(topicParts.length > 2) || !topicParts[0].equals(TOPIC_PREFIX)) {
-			return; // we have received an event with an invalid topic
-		}
-		String operation = topicParts[1];
-
-		if (operation.equals(EventType.COMMAND.toString())) {
-			Command command = (Command) event.getProperty("command");
-			if (command != null)
-				receiveCommand(itemName, command);
-		}
-	}
-
 	public void modelChanged(String modelName, org.openhab.model.core.EventType type) {
 		if (triggerManager != null) {
 			if (isEnabled() && modelName.endsWith("rules")) {
@@ -253,12 +294,50 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		}
 	}
 
+	/**
+	 * Schedules a retry of the startup rules that have failed because of a missing item after the startup delay. If
+	 * a retry is already scheduled, it is postponed, so that the rules are only tried once while many items are added.
+	 */
+	private void scheduleStartupRules() {
+		synchronized (missingStartupItems) {
+			if (startupRuleScheduler == null || missingStartupItems.isEmpty()) {
+				return;
+			}
+			if (startupRuleRun != null) {
+				// a run which has already started is not interrupted
+				startupRuleRun.cancel(false);
+			}
+			startupRuleRun = startupRuleScheduler.schedule(new Runnable() {
+				public void run() {
+					runStartupRules();
+				}
+			}, startupDelay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Executes the pending startup rules. Runs at activation, on rule file changes and retries do not overlap, so
+	 * that no startup rule is executed twice.
+	 */
 	private void runStartupRules() {
+		synchronized (startupRuleLock) {
+			internalRunStartupRules();
+		}
+	}
+
+	private void internalRunStartupRules() {
+		RuleTriggerManager triggerManager = this.triggerManager;
 		if (triggerManager != null) {
-			Iterable<Rule> startupRules = triggerManager.getRules(STARTUP);
+			List<Rule> startupRules;
+			synchronized (triggerManager) {
+				startupRules = Lists.newArrayList(triggerManager.getRules(STARTUP));
+			}
 			List<Rule> executedRules = Lists.newArrayList();
 
 			for (Rule rule : startupRules) {
+				if (!isMissingItemAvailable(rule)) {
+					continue;
+				}
 				try {
 					Script script = scriptEngine.newScriptFromXExpression(rule.getScript());
 					logger.debug("Executing startup rule '{}'", rule.getName());
@@ -273,7 +352,10 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 						logger.debug("Not all required items in place yet for rule {}, trying again later: {}",
 								new Object[] { rule.getName(), causeMessage });
 						// we do not seem to have all required items in place yet
-						// so we keep the rule in the list and try it again later
+						// so we keep the rule in the list and try it again once the item is there
+						synchronized (missingStartupItems) {
+							missingStartupItems.put(rule, getMissingItemName(causeMessage));
+						}
 					} else {
 						logger.error("Error during the execution of startup rule '{}': {}",
 								new Object[] { rule.getName(), causeMessage });
@@ -281,10 +363,52 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 					}
 				}
 			}
-			for (Rule rule : executedRules) {
-				triggerManager.removeRule(STARTUP, rule);
+			synchronized (triggerManager) {
+				for (Rule rule : executedRules) {
+					triggerManager.removeRule(STARTUP, rule);
+				}
+			}
+			startupRules.removeAll(executedRules);
+			synchronized (missingStartupItems) {
+				// forget about rules that have been executed or removed in the meantime
+				missingStartupItems.keySet().retainAll(startupRules);
+			}
+		}
+	}
+
+	/**
+	 * Checks whether a startup rule should be tried, i.e. whether it has not failed yet or the item that was
+	 * missing when it failed is available now.
+	 */
+	private boolean isMissingItemAvailable(Rule rule) {
+		String itemName;
+		synchronized (missingStartupItems) {
+			if (!missingStartupItems.containsKey(rule)) {
+				return true;
 			}
+			itemName = missingStartupItems.get(rule);
+		}
+		ItemRegistry itemRegistry = this.itemRegistry;
+		if (itemName == null || itemRegistry == null) {
+			return true;
 		}
+		try {
+			itemRegistry.getItem(itemName);
+			return true;
+		} catch (ItemNotFoundException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Extracts the name of the missing item from the message of an {@link ItemNotFoundException} or of the
+	 * interpreter, if it cannot resolve a name.
+	 * 
+	 * @return the item name or <code>null</code>, if the message does not contain it
+	 */
+	private String getMissingItemName(String causeMessage) {
+		Matcher matcher = MISSING_ITEM_PATTERN.matcher(causeMessage);
+		return matcher.find() ? matcher.group(1) : null;
 	}
 
 	private String getCauseMessage(Throwable t) {
@@ -295,27 +419,51 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		return message;
 	}
 
-	protected synchronized void executeRule(Rule rule) {
+	protected void executeRule(Rule rule) {
 		executeRule(rule, new RuleEvaluationContext());
 	}
 
-	protected synchronized void executeRule(Rule rule, RuleEvaluationContext context) {
+	protected void executeRule(Rule rule, RuleEvaluationContext context) {
 		Script script = scriptEngine.newScriptFromXExpression(rule.getScript());
 
 		logger.debug("Executing rule '{}'", rule.getName());
 
 		context.setGlobalContext(RuleContextHelper.getContext(rule));
 
-		ScriptExecutionThread thread = new ScriptExecutionThread(rule.getName(), script, context);
-		thread.start();
+		RuleExecutor.getInstance().execute(getRuleId(rule),
+				new ScriptExecutionRunnable(rule.getName(), script, context));
 	}
 
-	protected synchronized void executeRules(Iterable<Rule> rules) {
+	/**
+	 * @return the name of the rule qualified by the name of its model, as rules
+	 * of different models may have the same name
+	 */
+	private static String getRuleId(Rule rule) {
+		if (rule.eResource() != null) {
+			return rule.eResource().getURI().lastSegment() + "#" + rule.getName();
+		}
+		return rule.getName();
+	}
+
+	protected void executeRules(Iterable<Rule> rules) {
 		for (Rule rule : rules) {
 			executeRule(rule);
 		}
 	}
 
+	private static long getStartupDelay() {
+		String value = System.getProperty(STARTUP_DELAY_PROPERTY);
+		if (value != null) {
+			try {
+				return Math.max(0, Long.parseLong(value.trim()));
+			} catch (NumberFormatException e) {
+				logger.warn("Invalid value '{}' for system property '{}' - using {}.",
+						new Object[] { value, STARTUP_DELAY_PROPERTY, DEFAULT_STARTUP_DELAY });
+			}
+		}
+		return DEFAULT_STARTUP_DELAY;
+	}
+
 	/**
 	 * we need to be able to deactivate the rule execution, otherwise the openHAB designer would also execute the rules.
 	 * 
@@ -23,6 +23,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.openhab.core.items.Item;
@@ -86,6 +88,11 @@ public class RuleTriggerManager {
 	private List<Rule> systemShutdownTriggeredRules = Lists.newArrayList();
 	private List<Rule> timerEventTriggeredRules = Lists.newArrayList();
 
+	// the triggers per item with their parsed states and commands, built on demand from the maps above
+	private ConcurrentMap<String, TriggerIndex<Rule>> updateTriggerIndexes = new ConcurrentHashMap<String, TriggerIndex<Rule>>();
+	private ConcurrentMap<String, TriggerIndex<Rule>> changedTriggerIndexes = new ConcurrentHashMap<String, TriggerIndex<Rule>>();
+	private ConcurrentMap<String, TriggerIndex<Rule>> commandTriggerIndexes = new ConcurrentHashMap<String, TriggerIndex<Rule>>();
+
 	// the scheduler used for timer events
 	private Scheduler scheduler;
 	
@@ -166,83 +173,101 @@ public class RuleTriggerManager {
 	}
 
 	private Iterable<Rule> internalGetRules(TriggerTypes triggerType, Item item, Type oldType, Type newType) {
-		List<Rule> result = Lists.newArrayList();
-		Iterable<Rule> rules = getAllRules(triggerType, item.getName());
-		if(rules==null) {
-			rules = Lists.newArrayList();
-		}
 		switch(triggerType) {
 		case STARTUP:  return systemStartupTriggeredRules;
 		case SHUTDOWN: return systemShutdownTriggeredRules;
 		case TIMER :   return timerEventTriggeredRules;
 		case UPDATE:   
 			if(newType instanceof State) {
-				State state = (State) newType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof UpdateEventTrigger) {
-							UpdateEventTrigger ut = (UpdateEventTrigger) t;
-							if(ut.getItem().equals(item.getName())) {
-								if(ut.getState()!=null) {
-									State triggerState = TypeParser.parseState(item.getAcceptedDataTypes(), ut.getState());
-									if(!state.equals(triggerState)) {
-										continue;
-									}
-								}
-								result.add(rule);
-							}
-						}
-					}
-				}
+				return getTriggerIndex(UPDATE, item, item.getAcceptedDataTypes()).getRules(newType, null);
 			}
 			break;
 		case CHANGE:
 			if(newType instanceof State && oldType instanceof State) {
-				State newState = (State) newType;
-				State oldState = (State) oldType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof ChangedEventTrigger) {
-							ChangedEventTrigger ct = (ChangedEventTrigger) t;						
-							if(ct.getItem().equals(item.getName())) {
-								if(ct.getOldState()!=null) {
-									State triggerOldState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getOldState());
-									if(!oldState.equals(triggerOldState)) {
-										continue;
-									}								
-								}
-								if(ct.getNewState()!=null) {
-									State triggerNewState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getNewState());
-									if(!newState.equals(triggerNewState)) {
-										continue;
-									}								
-								}
-								result.add(rule);
-							}
-						}
-					}
-				}
+				return getTriggerIndex(CHANGE, item, item.getAcceptedDataTypes()).getRules(newType, oldType);
 			}
 			break;
 		case COMMAND:  
 			if(newType instanceof Command) {
-				Command command = (Command) newType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof CommandEventTrigger) {
-							CommandEventTrigger ct = (CommandEventTrigger) t;
-							Command triggerCommand = TypeParser.parseCommand(item.getAcceptedCommandTypes(), ct.getCommand());
-							if(ct.getItem().equals(item.getName()) &&
-									(triggerCommand==null || command.equals(triggerCommand))) {
-								result.add(rule);
+				return getTriggerIndex(COMMAND, item, item.getAcceptedCommandTypes()).getRules(newType, null);
+			}
+			break;
+		}
+		return Lists.newArrayList();
+	}
+
+	private ConcurrentMap<String, TriggerIndex<Rule>> getTriggerIndexes(TriggerTypes type) {
+		switch(type) {
+			case UPDATE:   return updateTriggerIndexes;
+			case CHANGE:   return changedTriggerIndexes;
+			default:       return commandTriggerIndexes;
+		}
+	}
+
+	/**
+	 * Returns the triggers of a given type for an item. They are parsed again if the item
+	 * accepts other types than at the time of the last parsing.
+	 */
+	private TriggerIndex<Rule> getTriggerIndex(TriggerTypes type, Item item, List<? extends Class<? extends Type>> acceptedTypes) {
+		TriggerIndex<Rule> index = getTriggerIndexes(type).get(item.getName());
+		if(index==null || !index.isParsedFor(acceptedTypes)) {
+			index = createTriggerIndex(type, item, acceptedTypes);
+		}
+		return index;
+	}
+
+	@SuppressWarnings("unchecked")
+	private synchronized TriggerIndex<Rule> createTriggerIndex(TriggerTypes type, Item item, List<? extends Class<? extends Type>> acceptedTypes) {
+		TriggerIndex<Rule> index = new TriggerIndex<Rule>(acceptedTypes);
+		Iterable<Rule> rules = getAllRules(type, item.getName());
+		if(rules!=null) {
+			for(Rule rule : rules) {
+				for(EventTrigger t : rule.getEventtrigger()) {
+					if(type==UPDATE && t instanceof UpdateEventTrigger) {
+						UpdateEventTrigger ut = (UpdateEventTrigger) t;
+						if(ut.getItem().equals(item.getName())) {
+							State triggerState = null;
+							if(ut.getState()!=null) {
+								triggerState = TypeParser.parseState((List<Class<? extends State>>) acceptedTypes, ut.getState());
+								if(triggerState==null) {
+									// the trigger can never match
+									continue;
+								}
 							}
+							index.add(rule, triggerState, null);
+						}
+					} else if(type==CHANGE && t instanceof ChangedEventTrigger) {
+						ChangedEventTrigger ct = (ChangedEventTrigger) t;
+						if(ct.getItem().equals(item.getName())) {
+							State triggerOldState = null;
+							State triggerNewState = null;
+							if(ct.getOldState()!=null) {
+								triggerOldState = TypeParser.parseState((List<Class<? extends State>>) acceptedTypes, ct.getOldState());
+								if(triggerOldState==null) {
+									continue;
+								}
+							}
+							if(ct.getNewState()!=null) {
+								triggerNewState = TypeParser.parseState((List<Class<? extends State>>) acceptedTypes, ct.getNewState());
+								if(triggerNewState==null) {
+									continue;
+								}
+							}
+							index.add(rule, triggerNewState, triggerOldState);
+						}
+					} else if(type==COMMAND && t instanceof CommandEventTrigger) {
+						CommandEventTrigger ct = (CommandEventTrigger) t;
+						if(ct.getItem().equals(item.getName())) {
+							// a command which cannot be parsed matches any command, as it always did
+							Command triggerCommand = TypeParser.parseCommand((List<Class<? extends Command>>) acceptedTypes, ct.getCommand());
+							index.add(rule, triggerCommand, null);
 						}
 					}
 				}
 			}
-			break;
 		}
-		return result;
+		getTriggerIndexes(type).put(item.getName(), index);
+		return index;
 	}
 
 	/**
@@ -250,13 +275,16 @@ public class RuleTriggerManager {
 	 * 
 	 * @param type the trigger type 
 	 */
-	public void clear(TriggerTypes type) {
+	public synchronized void clear(TriggerTypes type) {
 		switch(type) {
 			case STARTUP:  	systemStartupTriggeredRules.clear(); break;
 			case SHUTDOWN: 	systemShutdownTriggeredRules.clear(); break;
-			case UPDATE:   	updateEventTriggeredRules.clear(); break;
-			case CHANGE:   	changedEventTriggeredRules.clear(); break;
-			case COMMAND:  	commandEventTriggeredRules.clear(); break;
+			case UPDATE:   	updateEventTriggeredRules.clear();
+							updateTriggerIndexes.clear(); break;
+			case CHANGE:   	changedEventTriggeredRules.clear();
+							changedTriggerIndexes.clear(); break;
+			case COMMAND:  	commandEventTriggeredRules.clear();
+							commandTriggerIndexes.clear(); break;
 			case TIMER:    	for(Rule rule : timerEventTriggeredRules) {
 								removeTimerRule(rule);
 							}
@@ -296,6 +324,7 @@ public class RuleTriggerManager {
 					commandEventTriggeredRules.put(ceTrigger.getItem(), rules);
 				}
 				rules.add(rule);
+				commandTriggerIndexes.remove(ceTrigger.getItem());
 			} else if(t instanceof UpdateEventTrigger) {
 				UpdateEventTrigger ueTrigger = (UpdateEventTrigger) t;
 				Set<Rule> rules = updateEventTriggeredRules.get(ueTrigger.getItem());
@@ -304,6 +333,7 @@ public class RuleTriggerManager {
 					updateEventTriggeredRules.put(ueTrigger.getItem(), rules);
 				}
 				rules.add(rule);
+				updateTriggerIndexes.remove(ueTrigger.getItem());
 			} else if(t instanceof ChangedEventTrigger) {
 				ChangedEventTrigger ceTrigger = (ChangedEventTrigger) t;
 				Set<Rule> rules = changedEventTriggeredRules.get(ceTrigger.getItem());
@@ -312,6 +342,7 @@ public class RuleTriggerManager {
 					changedEventTriggeredRules.put(ceTrigger.getItem(), rules);
 				}
 				rules.add(rule);
+				changedTriggerIndexes.remove(ceTrigger.getItem());
 			} else if(t instanceof TimerTrigger) {
 				timerEventTriggeredRules.add(rule);
 				try {
@@ -358,10 +389,13 @@ public class RuleTriggerManager {
 	 * 
 	 * @param ruleModel the rule model
 	 */
-	public void removeRuleModel(RuleModel ruleModel) {
+	public synchronized void removeRuleModel(RuleModel ruleModel) {
 		removeRules(UPDATE, updateEventTriggeredRules.values(), ruleModel);
 		removeRules(CHANGE, changedEventTriggeredRules.values(), ruleModel);
 		removeRules(COMMAND, commandEventTriggeredRules.values(), ruleModel);
+		updateTriggerIndexes.clear();
+		changedTriggerIndexes.clear();
+		commandTriggerIndexes.clear();
 		removeRules(STARTUP, Collections.singletonList(systemStartupTriggeredRules), ruleModel);
 		removeRules(SHUTDOWN, Collections.singletonList(systemShutdownTriggeredRules), ruleModel);		
 		removeRules(TIMER, Collections.singletonList(timerEventTriggeredRules), ruleModel);		
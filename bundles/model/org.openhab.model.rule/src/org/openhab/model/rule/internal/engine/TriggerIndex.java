@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.types.Type;
+
+/**
+ * Holds the triggers of one kind for a single item, with their state or command literals already
+ * parsed for the types accepted by the item. Triggers on enum and string values are indexed by
+ * that value, so that the rules for an event are found by a lookup instead of parsing and comparing
+ * every trigger of the item.
+ *
+ * <p>Other values such as numbers are compared one by one, as the hash code of a
+ * {@link org.openhab.core.library.types.DecimalType} depends on the scale of its value,
+ * while equality does not.</p>
+ *
+ * @param <R> the type of the rules
+ * @since 1.9.0
+ */
+class TriggerIndex<R> {
+
+	private final List<? extends Class<? extends Type>> acceptedTypes;
+
+	/** the triggers whose condition on the new value is an enum or string value, indexed by that value */
+	private final Map<Type, List<Entry<R>>> indexedEntries = new HashMap<Type, List<Entry<R>>>();
+
+	/** the triggers without a condition on the new value, or with a value that is not indexed */
+	private final List<Entry<R>> otherEntries = new ArrayList<Entry<R>>();
+
+	/**
+	 * @param acceptedTypes the types for which the literals of the triggers have been parsed
+	 */
+	TriggerIndex(List<? extends Class<? extends Type>> acceptedTypes) {
+		this.acceptedTypes = acceptedTypes;
+	}
+
+	/**
+	 * @return <code>true</code>, if the literals of the triggers have been parsed for the given types
+	 */
+	boolean isParsedFor(List<? extends Class<? extends Type>> acceptedTypes) {
+		return this.acceptedTypes.equals(acceptedTypes);
+	}
+
+	/**
+	 * Adds a trigger.
+	 *
+	 * @param rule the rule to execute
+	 * @param value the required new state or command, or <code>null</code> for any
+	 * @param oldValue the required previous state, or <code>null</code> for any
+	 */
+	void add(R rule, Type value, Type oldValue) {
+		Entry<R> entry = new Entry<R>(rule, value, oldValue);
+		if (value instanceof Enum || value instanceof StringType) {
+			List<Entry<R>> entries = indexedEntries.get(value);
+			if (entries == null) {
+				entries = new ArrayList<Entry<R>>(1);
+				indexedEntries.put(value, entries);
+			}
+			entries.add(entry);
+		} else {
+			otherEntries.add(entry);
+		}
+	}
+
+	/**
+	 * Returns the rules of all triggers whose conditions are met. A rule is returned once per
+	 * matching trigger.
+	 *
+	 * @param value the new state or the command
+	 * @param oldValue the previous state, or <code>null</code> if there is none
+	 * @return the rules to execute
+	 */
+	List<R> getRules(Type value, Type oldValue) {
+		List<R> result = new ArrayList<R>();
+		List<Entry<R>> entries = indexedEntries.get(value);
+		if (entries != null) {
+			collectRules(entries, value, oldValue, result);
+		}
+		collectRules(otherEntries, value, oldValue, result);
+		return result;
+	}
+
+	private static <R> void collectRules(List<Entry<R>> entries, Type value, Type oldValue, List<R> result) {
+		for (Entry<R> entry : entries) {
+			if ((entry.value == null || value.equals(entry.value))
+					&& (entry.oldValue == null || (oldValue != null && oldValue.equals(entry.oldValue)))) {
+				result.add(entry.rule);
+			}
+		}
+	}
+
+	private static class Entry<R> {
+
+		private final R rule;
+		private final Type value;
+		private final Type oldValue;
+
+		public Entry(R rule, Type value, Type oldValue) {
+			this.rule = rule;
+			this.value = value;
+			this.oldValue = oldValue;
+		}
+
+	}
+
+}
@@ -11,7 +11,10 @@ package org.openhab.model.script.internal.engine;
 import static com.google.common.collect.Iterables.filter;
 
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.URI;
@@ -32,7 +35,12 @@ import org.openhab.core.scriptengine.Script;
 import org.openhab.core.scriptengine.ScriptEngine;
 import org.openhab.core.scriptengine.ScriptExecutionException;
 import org.openhab.core.scriptengine.ScriptParsingException;
+import org.openhab.model.core.EventType;
+import org.openhab.model.core.ModelRepository;
+import org.openhab.model.core.ModelRepositoryChangeListener;
 import org.openhab.model.script.ScriptStandaloneSetup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Predicate;
 import com.google.inject.Injector;
@@ -40,16 +48,57 @@ import com.google.inject.Injector;
 /**
  * This is the implementation of a {@link ScriptEngine} which is made available as an OSGi service.
  * 
+ * <p>Prepared scripts are cached per expression, so that rules which fire often reuse the same
+ * {@link ScriptImpl} together with the method lookups that its interpreter has already resolved
+ * for the feature calls of the rule. Scripts parsed from strings are cached per source string.
+ * Both caches are bounded by the system property <code>openhab.scripts.cacheSize</code> (default
+ * 500, 0 disables caching) and are cleared whenever a model changes, as the cached expressions
+ * may refer to rules and items that have been replaced.</p>
+ * 
  * @author Kai Kreuzer
  * @since 0.9.0
  *
  */
 @SuppressWarnings("restriction")
-public class ScriptEngineImpl implements ScriptEngine {
+public class ScriptEngineImpl implements ScriptEngine, ModelRepositoryChangeListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(ScriptEngineImpl.class);
+
+	private static final String CACHE_SIZE_PROPERTY = "openhab.scripts.cacheSize";
+
+	private static final int DEFAULT_CACHE_SIZE = 500;
 
 	protected Injector guiceInjector;
 	protected XtextResourceSet resourceSet;
 
+	protected ModelRepository modelRepository;
+
+	private final int cacheSize = getCacheSize();
+
+	/** the prepared scripts, least recently used first */
+	private final Map<XExpression, Script> expressionScripts = new LinkedHashMap<XExpression, Script>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<XExpression, Script> eldest) {
+			return size() > cacheSize;
+		}
+	};
+
+	/** the expressions parsed from strings, least recently used first */
+	private final Map<String, XExpression> stringExpressions = new LinkedHashMap<String, XExpression>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, XExpression> eldest) {
+			if (size() > cacheSize) {
+				removeResource(eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+	};
+
 	public ScriptEngineImpl() {}
 	
 	public void activate() {
@@ -59,27 +108,101 @@ public class ScriptEngineImpl implements ScriptEngine {
 	}
 	
 	public void deactivate() {
+		clearCaches();
 		this.guiceInjector = null;
 		this.resourceSet = null;
 	}
-		
+
+	public void setModelRepository(ModelRepository modelRepository) {
+		this.modelRepository = modelRepository;
+		modelRepository.addModelRepositoryChangeListener(this);
+	}
+
+	public void unsetModelRepository(ModelRepository modelRepository) {
+		modelRepository.removeModelRepositoryChangeListener(this);
+		this.modelRepository = null;
+		clearCaches();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void modelChanged(String modelName, EventType type) {
+		clearCaches();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	public Script newScriptFromString(String scriptAsString)
 			throws ScriptParsingException {
-		return newScriptFromXExpression(parseScriptIntoXTextEObject(scriptAsString));
+		XExpression expression;
+		synchronized (stringExpressions) {
+			expression = stringExpressions.get(scriptAsString);
+			if (expression == null) {
+				expression = parseScriptIntoXTextEObject(scriptAsString);
+				if (expression != null && cacheSize > 0) {
+					stringExpressions.put(scriptAsString, expression);
+				} else {
+					removeResource(expression);
+				}
+			}
+		}
+		return newScriptFromXExpression(expression);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public Script newScriptFromXExpression(XExpression expression) {
+		if (expression == null) {
+			return createScript(null);
+		}
+		synchronized (expressionScripts) {
+			Script script = expressionScripts.get(expression);
+			if (script == null) {
+				script = createScript(expression);
+				if (cacheSize > 0) {
+					expressionScripts.put(expression, script);
+				}
+			}
+			return script;
+		}
+	}
+
+	private Script createScript(XExpression expression) {
 		ScriptImpl script = guiceInjector.getInstance(ScriptImpl.class);
 		script.setXExpression(expression);
 		return script;
 	}
 
+	/**
+	 * Removes all prepared scripts and parsed expressions from the caches.
+	 */
+	protected void clearCaches() {
+		synchronized (expressionScripts) {
+			expressionScripts.clear();
+		}
+		synchronized (stringExpressions) {
+			Iterator<XExpression> expressions = stringExpressions.values().iterator();
+			while (expressions.hasNext()) {
+				removeResource(expressions.next());
+				expressions.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes the resource of an expression parsed from a string from the resource set, so that
+	 * it can be garbage collected once no script refers to it anymore. The resource is not
+	 * unloaded, as a script of the expression might still be executing.
+	 */
+	private void removeResource(XExpression expression) {
+		if (expression != null && expression.eResource() != null && resourceSet != null) {
+			resourceSet.getResources().remove(expression.eResource());
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -93,11 +216,13 @@ public class ScriptEngineImpl implements ScriptEngine {
 		try {
 			resource.load(new StringInputStream(scriptAsString), resourceSet.getLoadOptions());
 		} catch (IOException e) {
+			resourceSet.getResources().remove(resource);
 			throw new ScriptParsingException("Unexpected IOException; from close() of a String-based ByteArrayInputStream, no real I/O; how is that possible???", scriptAsString, e);
 		}
 		
 		List<Diagnostic> errors = resource.getErrors();
 		if (errors.size() != 0) {
+			resourceSet.getResources().remove(resource);
 			throw new ScriptParsingException("Failed to parse expression (due to managed SyntaxError/s)", scriptAsString).addDiagnosticErrors(errors);
 		}
 		
@@ -108,13 +233,28 @@ public class ScriptEngineImpl implements ScriptEngine {
 			if(!validationErrors.iterator().hasNext()) {
 				return (XExpression) contents.get(0);
 			} else {
+				resourceSet.getResources().remove(resource);
 				throw new ScriptParsingException("Failed to parse expression (due to managed ValidationError/s)", scriptAsString).addValidationIssues(validationErrors);
 			}
 		} else {
+			resourceSet.getResources().remove(resource);
 			return null;
 		}
 	}
 
+	private static int getCacheSize() {
+		String value = System.getProperty(CACHE_SIZE_PROPERTY);
+		if (value != null) {
+			try {
+				return Math.max(0, Integer.parseInt(value.trim()));
+			} catch (NumberFormatException e) {
+				logger.warn("Invalid value '{}' for system property '{}' - using {}.",
+						new Object[] { value, CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE });
+			}
+		}
+		return DEFAULT_CACHE_SIZE;
+	}
+
 	protected URI computeUnusedUri(ResourceSet resourceSet) {
 		String name = "__synthetic";
 		final int MAX_TRIES=1000;
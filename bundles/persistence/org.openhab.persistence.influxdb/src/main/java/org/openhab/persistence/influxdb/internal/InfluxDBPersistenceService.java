@@ -13,8 +13,10 @@ import static org.apache.commons.lang.StringUtils.isBlank;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -26,6 +28,7 @@ import org.influxdb.dto.Pong;
 import org.influxdb.dto.Query;
 import org.influxdb.dto.QueryResult.Result;
 import org.influxdb.dto.QueryResult.Series;
+import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
@@ -45,9 +48,12 @@ import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.PointType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PagedQueryResult;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.State;
@@ -68,11 +74,15 @@ import retrofit.RetrofitError;
  * The defaults for the database name, the database user and the database url are "openhab",
  * "openhab" and "http://127.0.0.1:8086".
  *
+ * Aggregates are calculated by InfluxQL functions like MEAN or MAX, for intervals the values are
+ * grouped by time. The most recent values of several items are selected with LAST in a single query.
+ *
  * @author Theo Weiss - Initial Contribution, rewrite of org.openhab.persistence.influxdb > 0.9
  *         support
  * @since 1.8.0
  */
-public class InfluxDBPersistenceService implements QueryablePersistenceService {
+public class InfluxDBPersistenceService
+        implements QueryablePersistenceService, AggregatingPersistenceService, BulkQueryablePersistenceService {
 
     private static final String DEFAULT_URL = "http://127.0.0.1:8086";
     private static final String DEFAULT_DB = "openhab";
@@ -80,6 +90,8 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
     private static final String DIGITAL_VALUE_OFF = "0";
     private static final String DIGITAL_VALUE_ON = "1";
     private static final String VALUE_COLUMN_NAME = "value";
+    /** the maximum number of series which are selected in a query for the most recent values */
+    private static final int LATEST_VALUES_BATCH_SIZE = 100;
     private ItemRegistry itemRegistry;
     private InfluxDB influxDB;
     private static final Logger logger = LoggerFactory.getLogger(InfluxDBPersistenceService.class);
@@ -257,6 +269,11 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Queries without a page size are fetched page by page while the result is iterated.
+     */
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
         logger.debug("got a query");
@@ -271,6 +288,10 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
             return Collections.emptyList();
         }
 
+        if (filter.getPageSize() == Integer.MAX_VALUE) {
+            return new PagedQueryResult(this, filter);
+        }
+
         List<HistoricItem> historicItems = new ArrayList<HistoricItem>();
 
         StringBuffer query = new StringBuffer();
@@ -337,13 +358,13 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
             logger.debug("descending ordering ");
         }
 
-        int limit = (filter.getPageNumber() + 1) * filter.getPageSize();
-        query.append(" limit " + limit);
-        logger.trace("appending limit {}", limit);
+        query.append(" limit " + filter.getPageSize());
+        logger.trace("appending limit {}", filter.getPageSize());
 
-        int totalEntriesAffected = ((filter.getPageNumber() + 1) * filter.getPageSize());
-        int startEntryNum = totalEntriesAffected
-                - (totalEntriesAffected - (filter.getPageSize() * filter.getPageNumber()));
+        int startEntryNum = filter.getPageSize() * filter.getPageNumber();
+        if (startEntryNum > 0) {
+            query.append(" offset " + startEntryNum);
+        }
         logger.trace("startEntryNum {}", startEntryNum);
 
         logger.debug("query string: {}", query.toString());
@@ -396,6 +417,193 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService {
         return historicItems;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HistoricItem aggregate(FilterCriteria filter, AggregateFunction function) {
+        List<HistoricItem> historicItems = queryAggregate(filter, function, 0);
+        return historicItems.isEmpty() ? null : historicItems.get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<HistoricItem> aggregate(FilterCriteria filter, AggregateFunction function, long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The interval must be positive");
+        }
+        return queryAggregate(filter, function, interval);
+    }
+
+    private List<HistoricItem> queryAggregate(FilterCriteria filter, AggregateFunction function, long interval) {
+        if (!isProperlyConfigured) {
+            logger.warn("Configuration for influxdb not yet loaded or broken.");
+            return Collections.emptyList();
+        }
+
+        if (!isConnected()) {
+            logger.warn("InfluxDB is not yet connected");
+            return Collections.emptyList();
+        }
+
+        String itemName = filter.getItemName();
+        boolean numeric = isNumericItem(itemName);
+        if (!numeric && function != AggregateFunction.COUNT && function != AggregateFunction.FIRST
+                && function != AggregateFunction.LAST) {
+            throw new UnsupportedOperationException("influxdb cannot aggregate the string values of " + itemName);
+        }
+
+        StringBuffer query = new StringBuffer();
+        query.append("select ");
+        query.append(function == AggregateFunction.AVG ? "MEAN" : function.toString());
+        query.append("(");
+        query.append(VALUE_COLUMN_NAME);
+        query.append(") from ");
+        query.append(itemName);
+        // influxdb requires a time range for grouping by time, which ends now by default
+        query.append(" where ");
+        query.append(TIME_COLUMN_NAME);
+        query.append(" > ");
+        query.append(filter.getBeginDate() != null ? getTimeFilter(filter.getBeginDate()) : "0s");
+        if (filter.getEndDate() != null) {
+            query.append(" and ");
+            query.append(TIME_COLUMN_NAME);
+            query.append(" < ");
+            query.append(getTimeFilter(filter.getEndDate()));
+        }
+        if (interval > 0) {
+            query.append(" group by time(" + interval + "ms) fill(none)");
+        }
+
+        logger.debug("query string: {}", query.toString());
+        Query influxdbQuery = new Query(query.toString(), dbName);
+
+        List<HistoricItem> historicItems = new ArrayList<HistoricItem>();
+        List<Result> results = influxDB.query(influxdbQuery, timeUnit).getResults();
+        for (Result result : results) {
+            if (result.getError() != null) {
+                logger.error(result.getError());
+                continue;
+            }
+            if (result.getSeries() == null) {
+                continue;
+            }
+            for (Series series : result.getSeries()) {
+                if (series.getValues() == null) {
+                    continue;
+                }
+                // the value column is named after the function
+                int timestampColumn = series.getColumns().indexOf(TIME_COLUMN_NAME);
+                int valueColumn = timestampColumn == 0 ? 1 : 0;
+                for (List<Object> values : series.getValues()) {
+                    Object value = values.get(valueColumn);
+                    if (value == null) {
+                        continue;
+                    }
+                    Date time = new Date(((Double) values.get(timestampColumn)).longValue());
+                    if (interval == 0 && time.getTime() == 0) {
+                        // older versions of influxdb do not return the time of the selected value
+                        time = filter.getEndDate() != null ? filter.getEndDate() : new Date();
+                    }
+                    State state;
+                    if (function == AggregateFunction.AVG || function == AggregateFunction.SUM
+                            || function == AggregateFunction.COUNT) {
+                        state = new DecimalType(new BigDecimal(String.valueOf(value)));
+                    } else {
+                        state = objectToState(value, series.getName());
+                    }
+                    historicItems.add(new InfluxdbItem(series.getName(), state, time));
+                }
+            }
+        }
+        return historicItems;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The series of the items are selected together, the LAST selector returns a series per item.
+     */
+    @Override
+    public Map<String, HistoricItem> queryLatest(Collection<String> itemNames) {
+        if (!isProperlyConfigured) {
+            logger.warn("Configuration for influxdb not yet loaded or broken.");
+            return Collections.emptyMap();
+        }
+
+        if (!isConnected()) {
+            logger.warn("InfluxDB is not yet connected");
+            return Collections.emptyMap();
+        }
+
+        Map<String, HistoricItem> historicItems = new HashMap<String, HistoricItem>();
+        List<String> names = new ArrayList<String>(itemNames);
+        for (int from = 0; from < names.size(); from += LATEST_VALUES_BATCH_SIZE) {
+            StringBuffer query = new StringBuffer();
+            query.append("select last(");
+            query.append(VALUE_COLUMN_NAME);
+            query.append(") from ");
+            for (int i = from; i < Math.min(from + LATEST_VALUES_BATCH_SIZE, names.size()); i++) {
+                if (i > from) {
+                    query.append(", ");
+                }
+                query.append(names.get(i));
+            }
+
+            logger.debug("query string: {}", query.toString());
+            Query influxdbQuery = new Query(query.toString(), dbName);
+            for (Result result : influxDB.query(influxdbQuery, timeUnit).getResults()) {
+                if (result.getError() != null) {
+                    logger.error(result.getError());
+                    continue;
+                }
+                if (result.getSeries() == null) {
+                    continue;
+                }
+                for (Series series : result.getSeries()) {
+                    if (series.getValues() == null || series.getValues().isEmpty()) {
+                        continue;
+                    }
+                    int timestampColumn = series.getColumns().indexOf(TIME_COLUMN_NAME);
+                    int valueColumn = timestampColumn == 0 ? 1 : 0;
+                    List<Object> values = series.getValues().get(0);
+                    Object value = values.get(valueColumn);
+                    if (value == null) {
+                        continue;
+                    }
+                    Date time = new Date(((Double) values.get(timestampColumn)).longValue());
+                    State state = objectToState(value, series.getName());
+                    historicItems.put(series.getName(), new InfluxdbItem(series.getName(), state, time));
+                }
+            }
+        }
+        return historicItems;
+    }
+
+    /**
+     * Checks if the values of an item are stored as numbers, see {@link #stateToObject(State)}.
+     *
+     * @param itemName the name of the item to check
+     * @return true, if the values can be aggregated by numeric functions
+     */
+    private boolean isNumericItem(String itemName) {
+        if (itemRegistry != null) {
+            try {
+                Item item = itemRegistry.getItem(itemName);
+                if (item instanceof ColorItem || item instanceof GroupItem) {
+                    return false;
+                }
+                return item instanceof NumberItem || item instanceof DimmerItem || item instanceof SwitchItem
+                        || item instanceof ContactItem || item instanceof RollershutterItem;
+            } catch (ItemNotFoundException e) {
+                logger.warn("Could not find item '{}' in registry", itemName);
+            }
+        }
+        return false;
+    }
+
     private String getTimeFilter(Date time) {
         // for some reason we need to query using 'seconds' only
         // passing milli seconds causes no results to be returned
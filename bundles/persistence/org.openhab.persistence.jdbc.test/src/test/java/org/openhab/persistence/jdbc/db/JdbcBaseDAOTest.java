@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.jdbc.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.persistence.AggregatingPersistenceService.AggregateFunction;
+import org.openhab.core.persistence.FilterCriteria;
+
+/**
+ * Checks that the aggregates, which are pushed down to the database, aggregate the same
+ * values as the fallback, which aggregates the values returned by the filter query.
+ *
+ * @since 1.9.0
+ */
+public class JdbcBaseDAOTest {
+
+    private static final Pattern SELECTED_VALUE = Pattern.compile("^SELECT time, ?(.+?) FROM item0001");
+
+    @Test
+    public void testAggregatesRoundedValues() {
+        assertAggregatesFilteredValues(new JdbcBaseDAO(), "ROUND(value,2)");
+    }
+
+    @Test
+    public void testAggregatesRoundedValuesInPostgresql() {
+        assertAggregatesFilteredValues(new JdbcPostgresqlDAO(), "ROUND(CAST (value AS numeric),2)");
+    }
+
+    @Test
+    public void testAggregatesRoundedValuesInDerby() {
+        assertAggregatesFilteredValues(new JdbcDerbyDAO(), "CAST(value + 0.005 AS DECIMAL(31,2))");
+    }
+
+    @Test
+    public void testDoesNotRoundWithoutDecimalCount() {
+        JdbcBaseDAO dao = new JdbcBaseDAO();
+        Item item = new NumberItem("Temperature");
+
+        assertEquals("SELECT AVG(value) FROM item0001",
+                dao.histItemAggregateQuery(item, new FilterCriteria(), AggregateFunction.AVG, -1, "item0001", "value"));
+    }
+
+    @Test
+    public void testCountsUnroundedValues() {
+        JdbcBaseDAO dao = new JdbcBaseDAO();
+
+        assertEquals("SELECT COUNT(value) FROM item0001", dao.histItemAggregateQuery(new NumberItem("Temperature"),
+                new FilterCriteria(), AggregateFunction.COUNT, 2, "item0001", "value"));
+        assertEquals("SELECT COUNT(value) FROM item0001", dao.histItemAggregateQuery(new SwitchItem("Light"),
+                new FilterCriteria(), AggregateFunction.COUNT, 2, "item0001", "value"));
+    }
+
+    private void assertAggregatesFilteredValues(JdbcBaseDAO dao, String expectedValue) {
+        Item item = new NumberItem("Temperature");
+        FilterCriteria filter = new FilterCriteria();
+        String filterQuery = dao.histItemFilterQueryProvider(filter, 2, "item0001", dao.getItemType(item));
+        Matcher matcher = SELECTED_VALUE.matcher(filterQuery);
+        assertTrue(filterQuery, matcher.find());
+        String value = matcher.group(1);
+        assertEquals(expectedValue, value);
+
+        assertEquals("SELECT AVG(" + value + ") FROM item0001",
+                dao.histItemAggregateQuery(item, filter, AggregateFunction.AVG, 2, "item0001", "value"));
+        assertEquals("SELECT SUM(" + value + ") FROM item0001",
+                dao.histItemAggregateQuery(item, filter, AggregateFunction.SUM, 2, "item0001", "value"));
+        assertEquals(
+                "SELECT MIN(time), " + value + " FROM item0001 WHERE " + value + "=(SELECT MAX(" + value
+                        + ") FROM item0001) GROUP BY " + value,
+                dao.histItemAggregateQuery(item, filter, AggregateFunction.MAX, 2, "item0001", "value"));
+        assertEquals(
+                "SELECT MIN(time), " + value + " FROM item0001 WHERE " + value + "=(SELECT MIN(" + value
+                        + ") FROM item0001) GROUP BY " + value,
+                dao.histItemAggregateQuery(item, filter, AggregateFunction.MIN, 2, "item0001", "value"));
+    }
+
+}
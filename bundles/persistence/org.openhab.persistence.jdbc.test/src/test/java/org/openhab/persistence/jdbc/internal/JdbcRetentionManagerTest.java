@@ -0,0 +1,417 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.items.ItemRegistryChangeListener;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.AggregatingPersistenceService.AggregateFunction;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.persistence.jdbc.db.JdbcBaseDAO;
+import org.openhab.persistence.jdbc.model.ItemVO;
+import org.openhab.persistence.jdbc.model.ItemsVO;
+import org.openhab.persistence.jdbc.model.JdbcItem;
+import org.openhab.persistence.jdbc.model.RollupVO;
+
+/**
+ * @since 1.9.0
+ */
+public class JdbcRetentionManagerTest {
+
+    private static final long MINUTE = 60000;
+    private static final long HOUR = 3600000;
+
+    private final long now = System.currentTimeMillis();
+
+    /** three full hours before now */
+    private final long start = now / HOUR * HOUR - 3 * HOUR;
+
+    private JdbcPersistenceService service;
+    private JdbcRetentionManager retentionManager;
+    private MemoryDAO dao;
+
+    @Before
+    public void setUp() {
+        dao = new MemoryDAO();
+        service = new JdbcPersistenceService();
+        service.itemRegistry = new SingleItemRegistry(new NumberItem("Temperature"));
+        service.sqlTables.put("Temperature", "item0001");
+        service.initialized = true;
+        retentionManager = new JdbcRetentionManager(service);
+    }
+
+    @Test
+    public void testRollsUpValuesOfEndedIntervals() {
+        configure("1d,5m");
+        addValues(150);
+
+        retentionManager.run();
+
+        TreeMap<Long, RollupVO> rollups = dao.rollups.get("item0001_r300");
+        assertEquals(30, rollups.size());
+        // the values 0.25 to 4.25 are rounded to 0.3 to 4.3
+        RollupVO rollup = rollups.get(start);
+        assertEquals(5, rollup.getCount());
+        assertEquals(11.5, rollup.getSum(), 0.000001);
+        assertEquals(2.3, (Double) rollup.getAverage(), 0.000001);
+        assertEquals(0.3, (Double) rollup.getMinimum(), 0.000001);
+        assertEquals(4.3, (Double) rollup.getMaximum(), 0.000001);
+    }
+
+    @Test
+    public void testRollsUpLateValues() {
+        configure("1d,5m");
+        addValues(150);
+        retentionManager.run();
+
+        // a value which is written after its interval has been rolled up
+        dao.values.get("item0001").put(start + 147 * MINUTE + 30000, 10.0);
+        retentionManager.run();
+
+        TreeMap<Long, RollupVO> rollups = dao.rollups.get("item0001_r300");
+        assertEquals(30, rollups.size());
+        RollupVO rollup = rollups.get(start + 145 * MINUTE);
+        assertEquals(6, rollup.getCount());
+        assertEquals(10.0, (Double) rollup.getMaximum(), 0.000001);
+    }
+
+    @Test
+    public void testKeepsRollupsOfDeletedValues() {
+        configure("1h,5m");
+        addValues(150);
+        retentionManager.run();
+        retentionManager.run();
+
+        // the raw values before the last hour are deleted except for the latest one, but their
+        // roll-ups are not replaced
+        long rawCutoff = Math.min(now - HOUR, start + 149 * MINUTE);
+        assertEquals(rawCutoff, dao.values.get("item0001").firstKey(), MINUTE);
+        TreeMap<Long, RollupVO> rollups = dao.rollups.get("item0001_r300");
+        assertEquals(30, rollups.size());
+        for (RollupVO rollup : rollups.values()) {
+            assertEquals(5, rollup.getCount());
+        }
+    }
+
+    @Test
+    public void testAggregatesRollupsBeyondRawRetention() {
+        configure("1h,5m:1d,1h");
+        retentionManager.run();
+
+        FilterCriteria filter = new FilterCriteria().setBeginDate(new Date(now - 3 * HOUR));
+        for (AggregateFunction function : new AggregateFunction[] { AggregateFunction.MIN, AggregateFunction.MAX,
+                AggregateFunction.AVG, AggregateFunction.SUM, AggregateFunction.COUNT }) {
+            assertEquals("item0001_r300", retentionManager.getAggregateTable("Temperature", "item0001", filter,
+                    function));
+        }
+        assertNull(retentionManager.getAggregateTable("Temperature", "item0001", filter, AggregateFunction.FIRST));
+
+        filter.setBeginDate(new Date(now - 2 * 86400000L));
+        assertEquals("item0001_r3600",
+                retentionManager.getAggregateTable("Temperature", "item0001", filter, AggregateFunction.SUM));
+
+        filter.setBeginDate(new Date(now - 30 * MINUTE));
+        assertNull(retentionManager.getAggregateTable("Temperature", "item0001", filter, AggregateFunction.SUM));
+    }
+
+    @Test
+    public void testQueriesCoarsestRollupsWithFullPage() {
+        configure("1h,5m:1d,1h");
+        retentionManager.run();
+
+        FilterCriteria filter = new FilterCriteria().setBeginDate(new Date(now - 10 * HOUR)).setEndDate(new Date(now));
+        filter.setPageSize(5);
+        assertEquals("item0001_r3600", retentionManager.getQueryTable("Temperature", "item0001", filter));
+        filter.setPageSize(50);
+        assertEquals("item0001_r300", retentionManager.getQueryTable("Temperature", "item0001", filter));
+        filter.setPageSize(1000);
+        assertEquals("item0001_r300", retentionManager.getQueryTable("Temperature", "item0001", filter));
+
+        filter.setBeginDate(new Date(now - 30 * MINUTE));
+        assertEquals("item0001", retentionManager.getQueryTable("Temperature", "item0001", filter));
+    }
+
+    @Test
+    public void testRoutesQueriesWithoutBeginDateByEndDate() {
+        configure("1h,5m:1d,1h");
+        retentionManager.run();
+
+        // historicState and deltaSince look up the last value before a time
+        FilterCriteria filter = new FilterCriteria().setEndDate(new Date(now - 3 * HOUR))
+                .setOrdering(Ordering.DESCENDING).setPageSize(1);
+        assertEquals("item0001_r300", retentionManager.getQueryTable("Temperature", "item0001", filter));
+        filter.setEndDate(new Date(now - 2 * 86400000L));
+        assertEquals("item0001_r3600", retentionManager.getQueryTable("Temperature", "item0001", filter));
+    }
+
+    @Test
+    public void testLoadsExistingRollupTables() {
+        configure("1h,5m");
+        dao.rollups.put("ITEM0001_R300", new TreeMap<Long, RollupVO>());
+
+        FilterCriteria filter = new FilterCriteria().setBeginDate(new Date(now - 3 * HOUR));
+        assertNull(retentionManager.getAggregateTable("Temperature", "item0001", filter, AggregateFunction.SUM));
+        retentionManager.loadRollupTables();
+        assertEquals("item0001_r300",
+                retentionManager.getAggregateTable("Temperature", "item0001", filter, AggregateFunction.SUM));
+    }
+
+    @Test
+    public void testQueriesValuesAfterLastRollup() {
+        configure("1h,5m");
+        addValues(150);
+        retentionManager.run();
+        retentionManager.run();
+        // a value of an interval which has not been rolled up yet
+        long lastValue = now / 1000 * 1000 - 30000;
+        dao.values.get("item0001").put(lastValue, 7.0);
+
+        FilterCriteria filter = new FilterCriteria().setItemName("Temperature").setOrdering(Ordering.DESCENDING)
+                .setPageSize(3);
+        String table = retentionManager.getQueryTable("Temperature", "item0001", filter);
+        Date rollupEnd = retentionManager.getRollupEnd(table);
+        assertEquals(start + 150 * MINUTE, rollupEnd.getTime());
+
+        List<HistoricItem> items = service.getRollupFilterQuery(filter, 1, table, rollupEnd, "item0001",
+                service.itemRegistry.getItems().iterator().next());
+        assertTimes(items, lastValue, start + 145 * MINUTE, start + 140 * MINUTE);
+        assertEquals(new DecimalType(7.0), items.get(0).getState());
+
+        filter.setPageNumber(1);
+        items = service.getRollupFilterQuery(filter, 1, table, rollupEnd, "item0001",
+                service.itemRegistry.getItems().iterator().next());
+        assertTimes(items, start + 135 * MINUTE, start + 130 * MINUTE, start + 125 * MINUTE);
+
+        filter.setPageNumber(0).setOrdering(Ordering.ASCENDING).setBeginDate(new Date(start + 139 * MINUTE));
+        items = service.getRollupFilterQuery(filter, 1, table, rollupEnd, "item0001",
+                service.itemRegistry.getItems().iterator().next());
+        assertTimes(items, start + 140 * MINUTE, start + 145 * MINUTE, lastValue);
+    }
+
+    private void assertTimes(List<HistoricItem> items, long... times) {
+        assertEquals(times.length, items.size());
+        for (int i = 0; i < times.length; i++) {
+            assertEquals(times[i], items.get(i).getTimestamp().getTime());
+        }
+    }
+
+    private void configure(String levels) {
+        Map<Object, Object> configuration = new HashMap<Object, Object>();
+        configuration.put("url", "jdbc:h2:./test");
+        configuration.put("numberDecimalcount", "1");
+        configuration.put("retention.temperatures.items", "Temperature");
+        configuration.put("retention.temperatures.levels", levels);
+        service.conf = new JdbcConfiguration(configuration) {
+            @Override
+            public JdbcBaseDAO getDBDAO() {
+                return dao;
+            }
+        };
+    }
+
+    /**
+     * Adds one value per minute from the start on, which repeat 0.25, 1.25 ... 4.25.
+     */
+    private void addValues(int count) {
+        TreeMap<Long, Object> values = new TreeMap<Long, Object>();
+        for (int i = 0; i < count; i++) {
+            values.put(start + i * MINUTE, i % 5 + 0.25);
+        }
+        dao.values.put("item0001", values);
+    }
+
+    /**
+     * Keeps the tables in memory instead of a database.
+     */
+    private static class MemoryDAO extends JdbcBaseDAO {
+
+        final Map<String, TreeMap<Long, Object>> values = new HashMap<String, TreeMap<Long, Object>>();
+        final Map<String, TreeMap<Long, RollupVO>> rollups = new HashMap<String, TreeMap<Long, RollupVO>>();
+
+        @Override
+        public List<ItemsVO> doGetItemTables(ItemsVO vo) {
+            List<ItemsVO> tables = new ArrayList<ItemsVO>();
+            for (String table : rollups.keySet()) {
+                ItemsVO tableVO = new ItemsVO();
+                tableVO.setTable_name(table);
+                tables.add(tableVO);
+            }
+            return tables;
+        }
+
+        @Override
+        public List<HistoricItem> doGetHistItemFilterQuery(Item item, FilterCriteria filter, int numberDecimalcount,
+                String table, String name) {
+            List<HistoricItem> result = new ArrayList<HistoricItem>();
+            for (Map.Entry<Long, ?> entry : getRange(table, filter).entrySet()) {
+                Object value = entry.getValue() instanceof RollupVO ? ((RollupVO) entry.getValue()).getAverage()
+                        : entry.getValue();
+                result.add(new JdbcItem(item.getName(), new DecimalType(((Number) value).doubleValue()),
+                        new Date(entry.getKey())));
+            }
+            if (filter.getOrdering() == Ordering.DESCENDING) {
+                Collections.reverse(result);
+            }
+            if (filter.getPageSize() != Integer.MAX_VALUE) {
+                int from = Math.min(filter.getPageNumber() * filter.getPageSize(), result.size());
+                result = result.subList(from, Math.min(from + filter.getPageSize(), result.size()));
+            }
+            return result;
+        }
+
+        @Override
+        public HistoricItem doGetHistItemAggregate(Item item, FilterCriteria filter, AggregateFunction function,
+                int numberDecimalcount, String table) {
+            if (function != AggregateFunction.COUNT) {
+                throw new UnsupportedOperationException();
+            }
+            return new JdbcItem(item.getName(), new DecimalType(getRange(table, filter).size()), new Date());
+        }
+
+        /**
+         * Selects the time range of the filter like the SQL queries, by whole seconds and without the boundaries.
+         */
+        private NavigableMap<Long, ?> getRange(String table, FilterCriteria filter) {
+            long begin = filter.getBeginDate() != null ? filter.getBeginDate().getTime() / 1000 * 1000
+                    : Long.MIN_VALUE;
+            long end = filter.getEndDate() != null ? filter.getEndDate().getTime() / 1000 * 1000 : Long.MAX_VALUE;
+            return getTimes(table).subMap(begin, false, end, false);
+        }
+
+        @Override
+        public void doCreateRollupTable(ItemVO vo) {
+            if (!rollups.containsKey(vo.getTableName())) {
+                rollups.put(vo.getTableName(), new TreeMap<Long, RollupVO>());
+            }
+        }
+
+        @Override
+        public Date doGetFirstTime(String table, Date from) {
+            Long time = getTimes(table).ceilingKey(from.getTime());
+            return time != null ? new Date(time) : null;
+        }
+
+        @Override
+        public Date doGetLastTime(String table) {
+            TreeMap<Long, ?> times = getTimes(table);
+            return times.isEmpty() ? null : new Date(times.lastKey());
+        }
+
+        @Override
+        public List<ItemVO> doGetItemValues(String table, Date from, Date to) {
+            List<ItemVO> result = new ArrayList<ItemVO>();
+            for (Map.Entry<Long, Object> entry : values.get(table).subMap(from.getTime(), to.getTime()).entrySet()) {
+                ItemVO vo = new ItemVO(table, null);
+                vo.setTime(new Date(entry.getKey()));
+                vo.setValue(entry.getValue());
+                result.add(vo);
+            }
+            return result;
+        }
+
+        @Override
+        public void doStoreRollupValues(ItemVO vo, List<RollupVO> rollupValues) {
+            for (RollupVO rollup : rollupValues) {
+                if (rollups.get(vo.getTableName()).put(rollup.getTime().getTime(), rollup) != null) {
+                    throw new IllegalStateException("duplicate roll-up " + rollup);
+                }
+            }
+        }
+
+        @Override
+        public void doDeleteItemValues(String table, Date from, Date to) {
+            getTimes(table).subMap(from.getTime(), to.getTime()).clear();
+        }
+
+        @Override
+        public void doDeleteItemValues(String table, Date before) {
+            getTimes(table).headMap(before.getTime()).clear();
+        }
+
+        private TreeMap<Long, ?> getTimes(String table) {
+            if (rollups.containsKey(table)) {
+                return rollups.get(table);
+            }
+            if (!values.containsKey(table)) {
+                values.put(table, new TreeMap<Long, Object>());
+            }
+            return values.get(table);
+        }
+
+    }
+
+    private static class SingleItemRegistry implements ItemRegistry {
+
+        private final Item item;
+
+        SingleItemRegistry(Item item) {
+            this.item = item;
+        }
+
+        @Override
+        public Item getItem(String name) throws ItemNotFoundException {
+            if (!item.getName().equals(name)) {
+                throw new ItemNotFoundException(name);
+            }
+            return item;
+        }
+
+        @Override
+        public Item getItemByPattern(String name) throws ItemNotFoundException {
+            return getItem(name);
+        }
+
+        @Override
+        public Collection<Item> getItems() {
+            List<Item> items = new ArrayList<Item>();
+            items.add(item);
+            return items;
+        }
+
+        @Override
+        public Collection<Item> getItems(String pattern) {
+            return getItems();
+        }
+
+        @Override
+        public boolean isValidItemName(String itemName) {
+            return true;
+        }
+
+        @Override
+        public void addItemRegistryChangeListener(ItemRegistryChangeListener listener) {
+        }
+
+        @Override
+        public void removeItemRegistryChangeListener(ItemRegistryChangeListener listener) {
+        }
+
+    }
+
+}
@@ -9,11 +9,13 @@
 package org.openhab.persistence.jdbc.db;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -39,13 +41,16 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.AggregatingPersistenceService.AggregateFunction;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PersistenceRecord;
 import org.openhab.core.types.State;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.model.ItemsVO;
 import org.openhab.persistence.jdbc.model.JdbcItem;
+import org.openhab.persistence.jdbc.model.RollupVO;
 import org.openhab.persistence.jdbc.utils.StringUtilsExt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,6 +72,9 @@ public class JdbcBaseDAO {
     protected String SQL_GET_ITEM_TABLES;
     protected String SQL_CREATE_ITEM_TABLE;
     protected String SQL_INSERT_ITEM_VALUE;
+    protected String SQL_INSERT_ITEM_VALUES;
+    protected String SQL_CREATE_ROLLUP_TABLE;
+    protected String SQL_INSERT_ROLLUP_VALUES;
 
     /********
      * INIT *
@@ -99,6 +107,12 @@ public class JdbcBaseDAO {
         SQL_GET_ITEM_TABLES = "SELECT table_name FROM information_schema.tables WHERE table_type='BASE TABLE' AND table_schema=#jdbcUriDatabaseName# AND NOT table_name=#itemsManageTable#";
         SQL_CREATE_ITEM_TABLE = "CREATE TABLE IF NOT EXISTS #tableName# (time TIMESTAMP NOT NULL, value #dbType#, PRIMARY KEY(time))";
         SQL_INSERT_ITEM_VALUE = "INSERT INTO #tableName# (TIME, VALUE) VALUES( NOW(), ? ) ON DUPLICATE KEY UPDATE VALUE= ?";
+        // batched inserts with the time at which the state has been queued, params: time, value
+        SQL_INSERT_ITEM_VALUES = "INSERT INTO #tableName# (TIME, VALUE) VALUES( ?, ? ) ON DUPLICATE KEY UPDATE VALUE= VALUES(VALUE)";
+        // roll-ups of the values of an item table: the average in value, as in the item tables
+        SQL_CREATE_ROLLUP_TABLE = "CREATE TABLE IF NOT EXISTS #tableName# (time TIMESTAMP NOT NULL, value #dbType#, minvalue #dbType#, maxvalue #dbType#, sumvalue DOUBLE, countvalue INTEGER, PRIMARY KEY(time))";
+        // params: time, average, minimum, maximum
+        SQL_INSERT_ROLLUP_VALUES = "INSERT INTO #tableName# (TIME, VALUE, MINVALUE, MAXVALUE, SUMVALUE, COUNTVALUE) VALUES( ?, ?, ?, ?, ?, ? )";
     }
 
     /**
@@ -276,6 +290,42 @@ public class JdbcBaseDAO {
         Yank.execute(sql, params);
     }
 
+    /**
+     * Stores several states of an item with one batch of a prepared statement.
+     * If the batch fails, e.g. because one of the times is in the table already and
+     * the database has no form of the statement which ignores or updates duplicates,
+     * the states are inserted one by one, so that only the failing ones are lost.
+     *
+     * @param tableName the table of the item
+     * @param records the states to store with the time at which the item had them
+     */
+    public void doStoreItemValues(String tableName, List<PersistenceRecord> records) {
+        String sql = null;
+        Object[][] params = new Object[records.size()][];
+        for (int i = 0; i < records.size(); i++) {
+            ItemVO vo = storeItemValueProvider(records.get(i).getItem(), new ItemVO(tableName, null));
+            vo.setTime(records.get(i).getTimestamp());
+            if (sql == null) {
+                sql = insertItemValuesProvider(vo);
+            }
+            params[i] = insertItemValuesParams(vo);
+        }
+        logger.debug("JDBC::doStoreItemValues sql={} values={}", sql, records.size());
+        if (Yank.executeBatch(sql, params) == null) {
+            logger.debug("JDBC::doStoreItemValues batch failed, inserting {} values one by one", params.length);
+            int failed = 0;
+            for (Object[] param : params) {
+                if (Yank.execute(sql, param) <= 0) {
+                    failed++;
+                }
+            }
+            if (failed > 0) {
+                logger.warn("JDBC::doStoreItemValues: Unable to store {} of {} values into table '{}'.",
+                        new Object[] { failed, params.length, tableName });
+            }
+        }
+    }
+
     public List<HistoricItem> doGetHistItemFilterQuery(Item item, FilterCriteria filter, int numberDecimalcount,
             String table, String name) {
         String sql = histItemFilterQueryProvider(filter, numberDecimalcount, table, name);
@@ -289,12 +339,236 @@ public class JdbcBaseDAO {
         return items;
     }
 
+    /**
+     * Lets the database aggregate the values of an item within the time range of the filter.
+     *
+     * @return the aggregate or <code>null</code> if there are no values within the range
+     * @throws UnsupportedOperationException if the function needs numbers, but the item does not store numbers
+     */
+    public HistoricItem doGetHistItemAggregate(Item item, FilterCriteria filter, AggregateFunction function,
+            int numberDecimalcount, String table) {
+        return doGetHistItemAggregate(item, filter, function, numberDecimalcount, table, "value");
+    }
+
+    /**
+     * Lets the database aggregate a column of a table, e.g. the minimums of a roll-up table.
+     * The values of number items are rounded to <code>numberDecimalcount</code> decimals before
+     * they are aggregated, in the same way as they are rounded by
+     * {@link #doGetHistItemFilterQuery(Item, FilterCriteria, int, String, String)}.
+     *
+     * @see #doGetHistItemAggregate(Item, FilterCriteria, AggregateFunction, int, String)
+     */
+    public HistoricItem doGetHistItemAggregate(Item item, FilterCriteria filter, AggregateFunction function,
+            int numberDecimalcount, String table, String column) {
+        if (function != AggregateFunction.COUNT && !isNumericItemType(item)) {
+            throw new UnsupportedOperationException("JDBC: cannot aggregate the values of item " + item.getName());
+        }
+        String sql = histItemAggregateQuery(item, filter, function, numberDecimalcount, table, column);
+        logger.debug("JDBC::doGetHistItemAggregate sql={}", sql);
+        List<Object[]> m = Yank.queryObjectArrays(sql, null);
+        if (m.isEmpty() || m.get(0)[0] == null) {
+            return null;
+        }
+        Object[] row = m.get(0);
+        if (function == AggregateFunction.MIN || function == AggregateFunction.MAX) {
+            return new JdbcItem(item.getName(), getState(item, row[1]), objectAsDate(row[0]));
+        }
+        Date time = filter.getEndDate() != null ? filter.getEndDate() : new Date();
+        return new JdbcItem(item.getName(), new DecimalType(new BigDecimal(row[0].toString())), time);
+    }
+
+    /**
+     * Aggregates the roll-ups of a roll-up table together with the values of the item table, which
+     * have not been rolled up yet. Minimum and maximum are selected from the minimums and maximums
+     * of the intervals and from the values, while sum, count and average are calculated from the
+     * sums and counts of the intervals and of the values.
+     *
+     * @param rollupFilter the time range of the roll-ups, or <code>null</code> to aggregate none
+     * @param valueFilter the time range of the values of the item table, or <code>null</code> to aggregate none
+     * @return the aggregate or <code>null</code> if there are neither roll-ups nor values within the ranges
+     * @throws UnsupportedOperationException if the function cannot be calculated from roll-ups
+     */
+    public HistoricItem doGetRollupAggregate(Item item, FilterCriteria rollupFilter, FilterCriteria valueFilter,
+            AggregateFunction function, int numberDecimalcount, String rollupTable, String table) {
+        switch (function) {
+            case MIN:
+            case MAX:
+                String column = function == AggregateFunction.MIN ? "minvalue" : "maxvalue";
+                HistoricItem rollupResult = rollupFilter == null ? null
+                        : doGetHistItemAggregate(item, rollupFilter, function, numberDecimalcount, rollupTable, column);
+                HistoricItem valueResult = valueFilter == null ? null
+                        : doGetHistItemAggregate(item, valueFilter, function, numberDecimalcount, table);
+                if (rollupResult == null || valueResult == null) {
+                    return rollupResult != null ? rollupResult : valueResult;
+                }
+                // the roll-ups are older, so they win a tie like the first occurrence of a value
+                int comparison = ((DecimalType) valueResult.getState())
+                        .compareTo((DecimalType) rollupResult.getState());
+                boolean valueWins = function == AggregateFunction.MIN ? comparison < 0 : comparison > 0;
+                return valueWins ? valueResult : rollupResult;
+            case SUM:
+            case COUNT:
+            case AVG:
+                break;
+            default:
+                throw new UnsupportedOperationException("JDBC: cannot aggregate roll-ups with " + function);
+        }
+        List<String> queries = new ArrayList<String>(2);
+        if (rollupFilter != null) {
+            queries.add(histRollupAggregateProvider(rollupFilter, rollupTable));
+        }
+        if (valueFilter != null) {
+            queries.add(histSumAndCountProvider(item, valueFilter, numberDecimalcount, table));
+        }
+        BigDecimal sum = BigDecimal.ZERO;
+        BigDecimal count = BigDecimal.ZERO;
+        for (String sql : queries) {
+            logger.debug("JDBC::doGetRollupAggregate sql={}", sql);
+            List<Object[]> m = Yank.queryObjectArrays(sql, null);
+            if (!m.isEmpty() && m.get(0)[0] != null && m.get(0)[1] != null) {
+                sum = sum.add(new BigDecimal(m.get(0)[0].toString()));
+                count = count.add(new BigDecimal(m.get(0)[1].toString()));
+            }
+        }
+        if (count.signum() == 0) {
+            return null;
+        }
+        BigDecimal value;
+        if (function == AggregateFunction.SUM) {
+            value = sum;
+        } else if (function == AggregateFunction.COUNT) {
+            value = count;
+        } else {
+            value = sum.divide(count, MathContext.DECIMAL64);
+        }
+        FilterCriteria lastFilter = valueFilter != null ? valueFilter : rollupFilter;
+        Date time = lastFilter.getEndDate() != null ? lastFilter.getEndDate() : new Date();
+        return new JdbcItem(item.getName(), new DecimalType(value), time);
+    }
+
+    /**
+     * Looks up the most recent values of several items with a single query, which unites the
+     * queries of their tables. The values of all items have to be stored in the same column type.
+     *
+     * @param items the items to query by the name under which their values are returned, for groups their base item
+     * @param tables the tables of the items by name
+     * @return the most recent values by item name
+     */
+    public Map<String, HistoricItem> doGetLatestItemValues(Map<String, Item> items, Map<String, String> tables) {
+        List<String> names = new ArrayList<String>(items.keySet());
+        List<String> tableNames = new ArrayList<String>(names.size());
+        for (String name : names) {
+            tableNames.add(tables.get(name));
+        }
+        String sql = latestItemValuesProvider(tableNames);
+        logger.debug("JDBC::doGetLatestItemValues sql={}", sql);
+        List<Object[]> m = Yank.queryObjectArrays(sql, null);
+
+        Map<String, HistoricItem> result = new LinkedHashMap<String, HistoricItem>();
+        for (Object[] row : m) {
+            String name = names.get(((Number) row[0]).intValue());
+            if (row[2] != null && !result.containsKey(name)) {
+                result.put(name, new JdbcItem(name, getState(items.get(name), row[2]), objectAsDate(row[1])));
+            }
+        }
+        return result;
+    }
+
+    /************************
+     * RETENTION AND ROLLUP *
+     ************************/
+    public void doCreateRollupTable(ItemVO vo) {
+        String sql = SQL_CREATE_ROLLUP_TABLE.replace("#tableName#", vo.getTableName()).replace("#dbType#",
+                vo.getDbType());
+        logger.debug("JDBC::doCreateRollupTable sql={}", sql);
+        Yank.execute(sql, null);
+    }
+
+    /**
+     * @return the time of the first value at or after <code>from</code>, or <code>null</code> if there is none
+     */
+    public Date doGetFirstTime(String table, Date from) {
+        String sql = "SELECT MIN(time) FROM " + table + " WHERE TIME>='" + jdbcDateFormat.print(new DateTime(from))
+                + "'";
+        logger.debug("JDBC::doGetFirstTime sql={}", sql);
+        List<Object[]> m = Yank.queryObjectArrays(sql, null);
+        return m == null || m.isEmpty() || m.get(0)[0] == null ? null : objectAsDate(m.get(0)[0]);
+    }
+
+    /**
+     * @return the time of the last value, or <code>null</code> if the table is empty
+     */
+    public Date doGetLastTime(String table) {
+        String sql = "SELECT MAX(time) FROM " + table;
+        logger.debug("JDBC::doGetLastTime sql={}", sql);
+        List<Object[]> m = Yank.queryObjectArrays(sql, null);
+        return m == null || m.isEmpty() || m.get(0)[0] == null ? null : objectAsDate(m.get(0)[0]);
+    }
+
+    /**
+     * @return the values of a table from <code>from</code> (inclusive) to <code>to</code> (exclusive) in
+     *         ascending order, with their time and value
+     */
+    public List<ItemVO> doGetItemValues(String table, Date from, Date to) {
+        String sql = "SELECT time, value FROM " + table + " WHERE TIME>='" + jdbcDateFormat.print(new DateTime(from))
+                + "' AND TIME<'" + jdbcDateFormat.print(new DateTime(to)) + "' ORDER BY time ASC";
+        logger.debug("JDBC::doGetItemValues sql={}", sql);
+        List<Object[]> m = Yank.queryObjectArrays(sql, null);
+
+        List<ItemVO> values = new ArrayList<ItemVO>();
+        if (m != null) {
+            for (Object[] row : m) {
+                ItemVO vo = new ItemVO(table, null);
+                vo.setTime(objectAsDate(row[0]));
+                vo.setValue(row[1]);
+                values.add(vo);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Stores roll-ups with one batch of a prepared statement.
+     *
+     * @param vo the roll-up table with the column type of the values
+     * @param rollups the roll-ups to store, whose values have the java type of the column
+     */
+    public void doStoreRollupValues(ItemVO vo, List<RollupVO> rollups) {
+        String sql = SQL_INSERT_ROLLUP_VALUES.replace("#tableName#", vo.getTableName()).replace("#dbType#",
+                vo.getDbType());
+        Object[][] params = new Object[rollups.size()][];
+        for (int i = 0; i < rollups.size(); i++) {
+            params[i] = insertRollupValuesParams(rollups.get(i));
+        }
+        logger.debug("JDBC::doStoreRollupValues sql={} values={}", sql, rollups.size());
+        Yank.executeBatch(sql, params);
+    }
+
+    /**
+     * Deletes the values of a table from <code>from</code> (inclusive) to <code>to</code> (exclusive).
+     */
+    public void doDeleteItemValues(String table, Date from, Date to) {
+        String sql = "DELETE FROM " + table + " WHERE TIME>='" + jdbcDateFormat.print(new DateTime(from))
+                + "' AND TIME<'" + jdbcDateFormat.print(new DateTime(to)) + "'";
+        logger.debug("JDBC::doDeleteItemValues sql={}", sql);
+        Yank.execute(sql, null);
+    }
+
+    /**
+     * Deletes the values of a table which are older than <code>before</code>.
+     */
+    public void doDeleteItemValues(String table, Date before) {
+        String sql = "DELETE FROM " + table + " WHERE TIME<'" + jdbcDateFormat.print(new DateTime(before)) + "'";
+        logger.debug("JDBC::doDeleteItemValues sql={}", sql);
+        Yank.execute(sql, null);
+    }
+
     /*************
      * Providers *
      *************/
     static final DateTimeFormatter jdbcDateFormat = DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss");
 
-    private String histItemFilterQueryProvider(FilterCriteria filter, int numberDecimalcount, String table,
+    /* default */ String histItemFilterQueryProvider(FilterCriteria filter, int numberDecimalcount, String table,
             String simpleName) {
         logger.debug(
                 "JDBC::getHistItemFilterQueryProvider filter = {}, numberDecimalcount = {}, table = {}, simpleName = {}",
@@ -316,7 +590,7 @@ public class JdbcBaseDAO {
         // SELECT time, ROUND(value,3) FROM number_item_0114 ORDER BY time DESC LIMIT 0,1
         // rounding HALF UP
         String queryString = "NUMBERITEM".equalsIgnoreCase(simpleName) && numberDecimalcount > -1
-                ? "SELECT time, ROUND(value," + numberDecimalcount + ") FROM " + table
+                ? "SELECT time, " + roundedValueProvider("value", numberDecimalcount) + " FROM " + table
                 : "SELECT time, value FROM " + table;
         if (!filterString.isEmpty()) {
             queryString += filterString;
@@ -325,6 +599,102 @@ public class JdbcBaseDAO {
         return queryString;
     }
 
+    /**
+     * Rounds the values of a column, rounding HALF UP.
+     *
+     * @param column the column or expression to round
+     * @param numberDecimalcount the number of decimals to keep
+     * @return the SQL expression of the rounded values
+     */
+    protected String roundedValueProvider(String column, int numberDecimalcount) {
+        return "ROUND(" + column + "," + numberDecimalcount + ")";
+    }
+
+    /**
+     * Builds the aggregate query of a column, whose values are rounded like the values returned by
+     * {@link #histItemFilterQueryProvider(FilterCriteria, int, String, String)}.
+     */
+    /* default */ String histItemAggregateQuery(Item item, FilterCriteria filter, AggregateFunction function,
+            int numberDecimalcount, String table, String column) {
+        String value = function != AggregateFunction.COUNT && "NUMBERITEM".equals(getItemType(item))
+                && numberDecimalcount > -1 ? roundedValueProvider(column, numberDecimalcount) : column;
+        return histItemAggregateProvider(filter, function, table, value);
+    }
+
+    /**
+     * Aggregates with a standard SQL function. Minimum and maximum are looked up together with
+     * the time of their first occurrence. The column can also be an expression of a column,
+     * e.g. its rounded values.
+     */
+    /* default */ String histItemAggregateProvider(FilterCriteria filter, AggregateFunction function, String table,
+            String column) {
+        String filterString = timeRangeFilterProvider(filter);
+        String queryString;
+        if (function == AggregateFunction.MIN || function == AggregateFunction.MAX) {
+            // SELECT MIN(time), value FROM number_item_0114 WHERE value=(SELECT MAX(value) FROM number_item_0114)
+            // GROUP BY value
+            queryString = "SELECT MIN(time), " + column + " FROM " + table
+                    + (filterString.isEmpty() ? " WHERE" : filterString + " AND") + " " + column + "=(SELECT "
+                    + function + "(" + column + ") FROM " + table + filterString + ")" + " GROUP BY " + column;
+        } else {
+            queryString = "SELECT " + function + "(" + column + ") FROM " + table + filterString;
+        }
+        logger.debug("JDBC::query queryString = {}", queryString);
+        return queryString;
+    }
+
+    /**
+     * Sums up the sums and counts of the intervals of a roll-up table.
+     */
+    /* default */ String histRollupAggregateProvider(FilterCriteria filter, String table) {
+        String queryString = "SELECT SUM(sumvalue), SUM(countvalue) FROM " + table + timeRangeFilterProvider(filter);
+        logger.debug("JDBC::query queryString = {}", queryString);
+        return queryString;
+    }
+
+    /**
+     * Sums up and counts the values of an item table, which are rounded like the values summed up
+     * by {@link #histItemAggregateQuery(Item, FilterCriteria, AggregateFunction, int, String, String)}.
+     */
+    /* default */ String histSumAndCountProvider(Item item, FilterCriteria filter, int numberDecimalcount,
+            String table) {
+        String value = "NUMBERITEM".equals(getItemType(item)) && numberDecimalcount > -1
+                ? roundedValueProvider("value", numberDecimalcount) : "value";
+        String queryString = "SELECT SUM(" + value + "), COUNT(value) FROM " + table + timeRangeFilterProvider(filter);
+        logger.debug("JDBC::query queryString = {}", queryString);
+        return queryString;
+    }
+
+    private String timeRangeFilterProvider(FilterCriteria filter) {
+        String filterString = "";
+        if (filter.getBeginDate() != null) {
+            filterString += filterString.isEmpty() ? " WHERE" : " AND";
+            filterString += " TIME>'" + jdbcDateFormat.print(new DateTime(filter.getBeginDate().getTime())) + "'";
+        }
+        if (filter.getEndDate() != null) {
+            filterString += filterString.isEmpty() ? " WHERE" : " AND";
+            filterString += " TIME<'" + jdbcDateFormat.print(new DateTime(filter.getEndDate().getTime())) + "'";
+        }
+        return filterString;
+    }
+
+    /**
+     * Unites the queries for the most recent value of each table, numbered by the position of the table.
+     */
+    private String latestItemValuesProvider(List<String> tables) {
+        // SELECT 0, time, value FROM item0001 WHERE time=(SELECT MAX(time) FROM item0001) UNION ALL SELECT 1, ...
+        StringBuilder queryString = new StringBuilder();
+        for (int i = 0; i < tables.size(); i++) {
+            if (i > 0) {
+                queryString.append(" UNION ALL ");
+            }
+            String table = tables.get(i);
+            queryString.append("SELECT ").append(i).append(", time, value FROM ").append(table)
+                    .append(" WHERE time=(SELECT MAX(time) FROM ").append(table).append(")");
+        }
+        return queryString.toString();
+    }
+
     private String updateItemTableNamesProvider(List<ItemVO> namesList) {
         logger.debug("JDBC::updateItemTableNamesProvider namesList.size = {}", namesList.size());
         String queryString = "";
@@ -336,6 +706,19 @@ public class JdbcBaseDAO {
         return queryString;
     }
 
+    protected String insertItemValuesProvider(ItemVO vo) {
+        return SQL_INSERT_ITEM_VALUES.replace("#tableName#", vo.getTableName()).replace("#dbType#", vo.getDbType());
+    }
+
+    protected Object[] insertItemValuesParams(ItemVO vo) {
+        return new Object[] { new Timestamp(vo.getTime().getTime()), vo.getValue() };
+    }
+
+    protected Object[] insertRollupValuesParams(RollupVO vo) {
+        return new Object[] { new Timestamp(vo.getTime().getTime()), vo.getAverage(), vo.getMinimum(),
+                vo.getMaximum(), vo.getSum(), vo.getCount() };
+    }
+
     protected ItemVO storeItemValueProvider(Item item, ItemVO vo) {
         String itemType = getItemType(item);
 
@@ -478,6 +861,40 @@ public class JdbcBaseDAO {
         return ((Integer) v).intValue();
     }
 
+    /**
+     * Converts a number to the java type in which values of the item are stored, as in
+     * {@link #storeItemValueProvider(Item, ItemVO)}.
+     */
+    public Object getRollupValue(Item item, double value) {
+        String itemType = getItemType(item);
+        if ("NUMBERITEM".equals(itemType)) {
+            String it = getSqlTypes().get(itemType).toUpperCase();
+            if (it.contains("DOUBLE")) {
+                return value;
+            } else if (it.contains("DECIMAL") || it.contains("NUMERIC")) {
+                return BigDecimal.valueOf(value);
+            } else if (it.contains("INT")) {
+                return (int) Math.round(value);
+            }
+            return value;
+        }
+        return (int) Math.round(value);
+    }
+
+    /**
+     * @return true, if the values of the item are stored in a numeric column
+     */
+    public boolean isNumericItemType(Item item) {
+        String itemType = getItemType(item);
+        if ("ROLLERSHUTTERITEM".equals(itemType) || "DIMMERITEM".equals(itemType)) {
+            return true;
+        } else if ("NUMBERITEM".equals(itemType)) {
+            String it = getSqlTypes().get(itemType).toUpperCase();
+            return it.contains("DOUBLE") || it.contains("DECIMAL") || it.contains("NUMERIC") || it.contains("INT");
+        }
+        return false;
+    }
+
     public String getItemType(Item i) {
         Item item = i;
         String def = "STRINGITEM";
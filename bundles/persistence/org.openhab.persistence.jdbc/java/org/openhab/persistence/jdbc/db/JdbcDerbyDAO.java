@@ -56,6 +56,8 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
         // Prevent error against duplicate time value (seldom): No powerful Merge found:
         // http://www.codeproject.com/Questions/162627/how-to-insert-new-record-in-my-table-if-not-exists
         SQL_INSERT_ITEM_VALUE = "INSERT INTO #tableName# (TIME, VALUE) VALUES( CURRENT_TIMESTAMP, CAST( ? as #dbType#) )";
+        SQL_INSERT_ITEM_VALUES = "INSERT INTO #tableName# (TIME, VALUE) VALUES( ?, CAST( ? as #dbType#) )";
+        SQL_CREATE_ROLLUP_TABLE = "CREATE TABLE #tableName# (time TIMESTAMP NOT NULL, value #dbType#, minvalue #dbType#, maxvalue #dbType#, sumvalue DOUBLE, countvalue INTEGER, PRIMARY KEY(time))";
     }
 
     private void initSqlTypes() {
@@ -116,6 +118,15 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
         Yank.execute(sql, null);
     }
 
+    @Override
+    public void doCreateRollupTable(ItemVO vo) {
+        // Derby does not know CREATE TABLE IF NOT EXISTS
+        String table = vo.getTableName().toUpperCase();
+        if (Yank.queryScalar(SQL_IF_TABLE_EXISTS.replace("#searchTable#", table), String.class, null) == null) {
+            super.doCreateRollupTable(vo);
+        }
+    }
+
     @Override
     public void doStoreItemValue(Item item, ItemVO vo) {
         vo = storeItemValueProvider(item, vo);
@@ -143,6 +154,12 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
     /****************************
      * SQL generation Providers *
      ****************************/
+    @Override
+    protected String insertItemValuesProvider(ItemVO vo) {
+        return SQL_INSERT_ITEM_VALUES.replace("#tableName#", vo.getTableName().toUpperCase()).replace("#dbType#",
+                vo.getDbType());
+    }
+
     static final DateTimeFormatter jdbcDateFormat = DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss");
 
     /**
@@ -151,7 +168,8 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
      * @param table
      * @return
      */
-    private String histItemFilterQueryProvider(FilterCriteria filter, int numberDecimalcount, String table,
+    @Override
+    /* default */ String histItemFilterQueryProvider(FilterCriteria filter, int numberDecimalcount, String table,
             String simpleName) {
         logger.debug(
                 "JDBC::getHistItemFilterQueryProvider filter = {}, numberDecimalcount = {}, table = {}, simpleName = {}",
@@ -164,7 +182,7 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
         }
         if (filter.getEndDate() != null) {
             filterString += filterString.isEmpty() ? " WHERE" : " AND";
-            filterString += " TIME>'" + jdbcDateFormat.print(new DateTime(filter.getEndDate().getTime())) + "'";
+            filterString += " TIME<'" + jdbcDateFormat.print(new DateTime(filter.getEndDate().getTime())) + "'";
         }
         filterString += (filter.getOrdering() == Ordering.ASCENDING) ? " ORDER BY time ASC" : " ORDER BY time DESC";
         if (filter.getPageSize() != 0x7fffffff) {
@@ -176,25 +194,15 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
             // filterString += " OFFSET " + filter.getPageSize() +" ROWS FETCH
             // FIRST||NEXT " + filter.getPageNumber() * filter.getPageSize() + "
             // ROWS ONLY";
-            filterString += " OFFSET " + filter.getPageSize() + " ROWS FETCH FIRST "
-                    + (filter.getPageNumber() * filter.getPageSize() + 1) + " ROWS ONLY";
+            filterString += " OFFSET " + filter.getPageNumber() * filter.getPageSize() + " ROWS FETCH NEXT "
+                    + filter.getPageSize() + " ROWS ONLY";
         }
 
-        // http://www.seemoredata.com/en/showthread.php?132-Round-function-in-Apache-Derby
-        // simulated round function in Derby: CAST(value 0.0005 AS DECIMAL(15,3))
-        // simulated round function in Derby: "CAST(value 0.0005 AS DECIMAL(15,"+numberDecimalcount+"))"
-
         String queryString = "SELECT time,";
         if ("NUMBERITEM".equalsIgnoreCase(simpleName) && numberDecimalcount > -1) {
-            // rounding HALF UP
-            queryString += "CAST(value 0.";
-            for (int i = 0; i < numberDecimalcount; i++) {
-                queryString += "0";
-            }
-            queryString += "5 AS DECIMAL(31," + numberDecimalcount + "))"; // 31 is DECIMAL max precision
-                                                                           // https://db.apache.org/derby/docs/10.0/manuals/develop/develop151.html
+            queryString += " " + roundedValueProvider("value", numberDecimalcount) + " FROM " + table;
         } else {
-            queryString += "SELECT time, value FROM " + table;
+            queryString += " value FROM " + table;
         }
 
         if (!filterString.isEmpty()) {
@@ -204,6 +212,21 @@ public class JdbcDerbyDAO extends JdbcBaseDAO {
         return queryString;
     }
 
+    /**
+     * Derby has no ROUND function, so the value is rounded HALF UP by adding half of the last
+     * decimal place before casting it.
+     * http://www.seemoredata.com/en/showthread.php?132-Round-function-in-Apache-Derby
+     */
+    @Override
+    protected String roundedValueProvider(String column, int numberDecimalcount) {
+        String half = "0.";
+        for (int i = 0; i < numberDecimalcount; i++) {
+            half += "0";
+        }
+        // 31 is DECIMAL max precision https://db.apache.org/derby/docs/10.0/manuals/develop/develop151.html
+        return "CAST(" + column + " + " + half + "5 AS DECIMAL(31," + numberDecimalcount + "))";
+    }
+
     /*****************
      * H E L P E R S *
      *****************/
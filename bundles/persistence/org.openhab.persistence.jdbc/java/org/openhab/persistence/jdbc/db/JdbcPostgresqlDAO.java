@@ -58,6 +58,8 @@ public class JdbcPostgresqlDAO extends JdbcBaseDAO {
         // SQL_INSERT_ITEM_VALUE = "INSERT INTO #tableName# (TIME, VALUE) VALUES( NOW(), CAST( ? as #dbType#) ) ON
         // CONFLICT DO NOTHING";
         SQL_INSERT_ITEM_VALUE = "INSERT INTO #tableName# (TIME, VALUE) VALUES( NOW(), CAST( ? as #dbType#) )";
+        SQL_INSERT_ITEM_VALUES = "INSERT INTO #tableName# (TIME, VALUE) VALUES( ?, CAST( ? as #dbType#) )";
+        SQL_CREATE_ROLLUP_TABLE = "CREATE TABLE IF NOT EXISTS #tableName# (time TIMESTAMP NOT NULL, value #dbType#, minvalue #dbType#, maxvalue #dbType#, sumvalue DOUBLE PRECISION, countvalue INTEGER, PRIMARY KEY(time))";
     }
 
     /**
@@ -164,7 +166,8 @@ public class JdbcPostgresqlDAO extends JdbcBaseDAO {
      * @param table
      * @return
      */
-    private String histItemFilterQueryProvider(FilterCriteria filter, int numberDecimalcount, String table,
+    @Override
+    /* default */ String histItemFilterQueryProvider(FilterCriteria filter, int numberDecimalcount, String table,
             String simpleName) {
         logger.debug(
                 "JDBC::getHistItemFilterQueryProvider filter = {}, numberDecimalcount = {}, table = {}, simpleName = {}",
@@ -187,7 +190,7 @@ public class JdbcPostgresqlDAO extends JdbcBaseDAO {
                     + filter.getPageSize();
         }
         String queryString = "NUMBERITEM".equalsIgnoreCase(simpleName) && numberDecimalcount > -1
-                ? "SELECT time, ROUND(CAST (value AS numeric)," + numberDecimalcount + ") FROM " + table
+                ? "SELECT time, " + roundedValueProvider("value", numberDecimalcount) + " FROM " + table
                 : "SELECT time, value FROM " + table;
         if (!filterString.isEmpty()) {
             queryString += filterString;
@@ -196,6 +199,11 @@ public class JdbcPostgresqlDAO extends JdbcBaseDAO {
         return queryString;
     }
 
+    @Override
+    protected String roundedValueProvider(String column, int numberDecimalcount) {
+        return "ROUND(CAST (" + column + " AS numeric)," + numberDecimalcount + ")";
+    }
+
     /*****************
      * H E L P E R S *
      *****************/
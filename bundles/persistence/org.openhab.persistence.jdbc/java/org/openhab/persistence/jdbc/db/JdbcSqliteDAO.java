@@ -12,6 +12,7 @@ import org.knowm.yank.Yank;
 import org.openhab.core.items.Item;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.model.ItemsVO;
+import org.openhab.persistence.jdbc.model.RollupVO;
 import org.openhab.persistence.jdbc.utils.StringUtilsExt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +43,9 @@ public class JdbcSqliteDAO extends JdbcBaseDAO {
         SQL_IF_TABLE_EXISTS = "SELECT name FROM sqlite_master WHERE type='table' AND name='#searchTable#'";
         SQL_CREATE_ITEMS_TABLE_IF_NOT = "CREATE TABLE IF NOT EXISTS #itemsManageTable# (ItemId INTEGER PRIMARY KEY AUTOINCREMENT, #colname# #coltype# NOT NULL)";
         SQL_INSERT_ITEM_VALUE = "INSERT OR IGNORE INTO #tableName# (TIME, VALUE) VALUES( DATETIME('now'), CAST( ? as #dbType#) )";
+        // the time is passed as seconds since the epoch to get the same text format as DATETIME('now')
+        SQL_INSERT_ITEM_VALUES = "INSERT OR IGNORE INTO #tableName# (TIME, VALUE) VALUES( DATETIME(?, 'unixepoch'), CAST( ? as #dbType#) )";
+        SQL_INSERT_ROLLUP_VALUES = "INSERT OR IGNORE INTO #tableName# (TIME, VALUE, MINVALUE, MAXVALUE, SUMVALUE, COUNTVALUE) VALUES( DATETIME(?, 'unixepoch'), ?, ?, ?, ?, ? )";
     }
 
     /**
@@ -90,6 +94,16 @@ public class JdbcSqliteDAO extends JdbcBaseDAO {
     /****************************
      * SQL generation Providers *
      ****************************/
+    @Override
+    protected Object[] insertItemValuesParams(ItemVO vo) {
+        return new Object[] { vo.getTime().getTime() / 1000, vo.getValue() };
+    }
+
+    @Override
+    protected Object[] insertRollupValuesParams(RollupVO vo) {
+        return new Object[] { vo.getTime().getTime() / 1000, vo.getAverage(), vo.getMinimum(), vo.getMaximum(),
+                vo.getSum(), vo.getCount() };
+    }
 
     /*****************
      * H E L P E R S *
@@ -8,15 +8,19 @@
  */
 package org.openhab.persistence.jdbc.internal;
 
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.collections.iterators.IteratorEnumeration;
 import org.apache.commons.lang.StringUtils;
 import org.openhab.persistence.jdbc.db.JdbcBaseDAO;
+import org.openhab.persistence.jdbc.model.RetentionPolicy;
 import org.openhab.persistence.jdbc.utils.MovingAverage;
 import org.openhab.persistence.jdbc.utils.StringUtilsExt;
 import org.slf4j.Logger;
@@ -31,6 +35,7 @@ public class JdbcConfiguration {
     private static final Logger logger = LoggerFactory.getLogger(JdbcConfiguration.class);
 
     private static final Pattern EXTRACT_CONFIG_PATTERN = Pattern.compile("^(.*?)\\.([0-9.a-zA-Z]+)$");
+    private static final Pattern RETENTION_CONFIG_PATTERN = Pattern.compile("^retention\\.(.+)\\.levels$");
     private static final String DB_DAO_PACKAGE = "org.openhab.persistence.jdbc.db.Jdbc";
 
     private JdbcBaseDAO dBDAO = null;
@@ -49,6 +54,9 @@ public class JdbcConfiguration {
     private String tableNamePrefix = "item";
     private int tableIdDigitCount = 4;
     private boolean rebuildTableNames = false;
+    private List<RetentionPolicy> retentionPolicies = new ArrayList<RetentionPolicy>();
+    // minutes
+    private int retentionInterval = 60;
 
     private int errReconnectThreshold = 0;
 
@@ -194,6 +202,33 @@ public class JdbcConfiguration {
             rebuildTableNames = "true".equals(rt) ? Boolean.parseBoolean(rt) : false;
             logger.debug("JDBC::updateConfig: rebuildTableNames={}", rebuildTableNames);
         }
+        // retention policies by name, e.g. retention.temperatures.levels=7d,5m:365d,1h and
+        // retention.temperatures.items=gTemperatures
+        Map<String, RetentionPolicy> policies = new TreeMap<String, RetentionPolicy>();
+        for (Object key : configuration.keySet()) {
+            Matcher matcher = RETENTION_CONFIG_PATTERN.matcher(key.toString());
+            if (!matcher.matches()) {
+                continue;
+            }
+            String policyName = matcher.group(1);
+            try {
+                RetentionPolicy policy = RetentionPolicy.parse(policyName,
+                        (String) configuration.get("retention." + policyName + ".items"),
+                        (String) configuration.get(key));
+                policies.put(policyName, policy);
+                logger.debug("JDBC::updateConfig: {}", policy);
+            } catch (IllegalArgumentException e) {
+                logger.error("JDBC::updateConfig: invalid retention policy '{}': {}", policyName, e.getMessage());
+            }
+        }
+        retentionPolicies = new ArrayList<RetentionPolicy>(policies.values());
+
+        String ri = (String) configuration.get("retentionInterval");
+        if (StringUtils.isNotBlank(ri)) {
+            retentionInterval = Integer.parseInt(ri);
+            logger.debug("JDBC::updateConfig: retentionInterval={}", retentionInterval);
+        }
+
         // undocumented
         String ac = (String) configuration.get("maximumPoolSize");
         if (StringUtils.isNotBlank(ac)) {
@@ -305,6 +340,20 @@ public class JdbcConfiguration {
         return tableIdDigitCount;
     }
 
+    /**
+     * @return the retention policies ordered by name
+     */
+    public List<RetentionPolicy> getRetentionPolicies() {
+        return retentionPolicies;
+    }
+
+    /**
+     * @return the minutes between the runs of the retention and roll-up job
+     */
+    public int getRetentionInterval() {
+        return retentionInterval;
+    }
+
     public JdbcBaseDAO getDBDAO() {
         return dBDAO;
     }
@@ -9,14 +9,24 @@
 package org.openhab.persistence.jdbc.internal;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.knowm.yank.Yank;
 import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.AggregatingPersistenceService.AggregateFunction;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PersistenceRecord;
+import org.openhab.core.types.UnDefType;
 import org.openhab.persistence.jdbc.model.ItemVO;
 import org.openhab.persistence.jdbc.model.ItemsVO;
 import org.slf4j.Logger;
@@ -29,10 +39,15 @@ public class JdbcMapper {
     protected int errCnt;
     protected boolean initialized = false;
     protected JdbcConfiguration conf = null;
-    protected Map<String, String> sqlTables = new HashMap<String, String>();
+    // also read by the retention manager
+    protected Map<String, String> sqlTables = new ConcurrentHashMap<String, String>();
     private long afterAccessMin = 10000;
     private long afterAccessMax = 0;
     private static final String ITEM_NAME_PATTERN = "[^a-zA-Z_0-9\\-]";
+    /** the maximum number of tables which are united in a query for the most recent values */
+    protected static final int LATEST_VALUES_BATCH_SIZE = 100;
+    /** roll-up tables are named after their item table and interval, e.g. item0001_r300 */
+    static final Pattern ROLLUP_TABLE_PATTERN = Pattern.compile("^(.*)(_r[0-9]+)$", Pattern.CASE_INSENSITIVE);
 
     /*****************
      * MAPPER ITEMS *
@@ -137,6 +152,35 @@ public class JdbcMapper {
         return item;
     }
 
+    public void storeItemValues(List<PersistenceRecord> records) {
+        logger.debug("JDBC::storeItemValues: {} records", records.size());
+        long timerStart = System.currentTimeMillis();
+        // group the values by table, so that each table gets a single batch
+        Map<String, List<PersistenceRecord>> recordsByTable = new LinkedHashMap<String, List<PersistenceRecord>>();
+        for (PersistenceRecord record : records) {
+            Item item = record.getItem();
+            if (item.getState() instanceof UnDefType) {
+                continue;
+            }
+            String tableName = getTable(item);
+            if (tableName == null) {
+                logger.error("JDBC::storeItemValues: Unable to store item '{}'.", item.getName());
+                continue;
+            }
+            List<PersistenceRecord> tableRecords = recordsByTable.get(tableName);
+            if (tableRecords == null) {
+                tableRecords = new ArrayList<PersistenceRecord>();
+                recordsByTable.put(tableName, tableRecords);
+            }
+            tableRecords.add(record);
+        }
+        for (Map.Entry<String, List<PersistenceRecord>> entry : recordsByTable.entrySet()) {
+            conf.getDBDAO().doStoreItemValues(entry.getKey(), entry.getValue());
+        }
+        logTime("storeItemValues", timerStart, System.currentTimeMillis());
+        errCnt = 0;
+    }
+
     public List<HistoricItem> getHistItemFilterQuery(FilterCriteria filter, int numberDecimalcount, String table,
             Item item) {
         logger.debug(
@@ -145,7 +189,7 @@ public class JdbcMapper {
         if (table != null) {
             long timerStart = System.currentTimeMillis();
             List<HistoricItem> r = conf.getDBDAO().doGetHistItemFilterQuery(item, filter, numberDecimalcount, table,
-                    item.getName());
+                    conf.getDBDAO().getItemType(item));
             logTime("insertItemValue", timerStart, System.currentTimeMillis());
             return r;
         } else {
@@ -154,6 +198,155 @@ public class JdbcMapper {
         return null;
     }
 
+    /**
+     * Looks up the most recent values of the items, with one query for up to
+     * {@link #LATEST_VALUES_BATCH_SIZE} items of the same type.
+     *
+     * @param items the items to query by name, for groups their base item
+     * @return the most recent values by item name
+     */
+    public Map<String, HistoricItem> getLatestItemValues(Map<String, Item> items) {
+        long timerStart = System.currentTimeMillis();
+        // the values of the tables of a query must have the same type
+        Map<String, Map<String, Item>> itemsByType = new LinkedHashMap<String, Map<String, Item>>();
+        for (Map.Entry<String, Item> entry : items.entrySet()) {
+            if (sqlTables.get(entry.getKey()) == null) {
+                logger.debug("JDBC::getLatestItemValues: no Data in Database for Item '{}'", entry.getKey());
+                continue;
+            }
+            String itemType = conf.getDBDAO().getItemType(entry.getValue());
+            Map<String, Item> typeItems = itemsByType.get(itemType);
+            if (typeItems == null) {
+                typeItems = new LinkedHashMap<String, Item>();
+                itemsByType.put(itemType, typeItems);
+            }
+            typeItems.put(entry.getKey(), entry.getValue());
+        }
+
+        Map<String, HistoricItem> result = new HashMap<String, HistoricItem>();
+        for (Map<String, Item> typeItems : itemsByType.values()) {
+            Map<String, Item> batch = new LinkedHashMap<String, Item>();
+            for (Map.Entry<String, Item> entry : typeItems.entrySet()) {
+                batch.put(entry.getKey(), entry.getValue());
+                if (batch.size() == LATEST_VALUES_BATCH_SIZE) {
+                    result.putAll(conf.getDBDAO().doGetLatestItemValues(batch, sqlTables));
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                result.putAll(conf.getDBDAO().doGetLatestItemValues(batch, sqlTables));
+            }
+        }
+        logTime("getLatestItemValues", timerStart, System.currentTimeMillis());
+        return result;
+    }
+
+    public HistoricItem getHistItemAggregate(FilterCriteria filter, AggregateFunction function,
+            int numberDecimalcount, String table, Item item) {
+        logger.debug("JDBC::getHistItemAggregate function='{}' table='{}' itemName='{}'", function, table,
+                item.getName());
+        long timerStart = System.currentTimeMillis();
+        HistoricItem r = conf.getDBDAO().doGetHistItemAggregate(item, filter, function, numberDecimalcount, table);
+        logTime("getHistItemAggregate", timerStart, System.currentTimeMillis());
+        return r;
+    }
+
+    /**
+     * Queries the roll-ups of a roll-up table before the end of the last roll-up and the values of the
+     * item table after it, as if they were one table.
+     *
+     * @param rollupEnd the end of the last roll-up, from which on the values are only held by the item table
+     */
+    public List<HistoricItem> getRollupFilterQuery(FilterCriteria filter, int numberDecimalcount, String rollupTable,
+            Date rollupEnd, String table, Item item) {
+        logger.debug("JDBC::getRollupFilterQuery table='{}' rollupEnd='{}' itemName='{}'", rollupTable, rollupEnd,
+                item.getName());
+        long timerStart = System.currentTimeMillis();
+        boolean ascending = filter.getOrdering() == Ordering.ASCENDING;
+        FilterCriteria rollupFilter = getRollupFilter(filter, rollupEnd);
+        FilterCriteria valueFilter = getValueFilter(filter, rollupEnd);
+        FilterCriteria firstFilter = ascending ? rollupFilter : valueFilter;
+        FilterCriteria secondFilter = ascending ? valueFilter : rollupFilter;
+        String firstTable = ascending ? rollupTable : table;
+        String secondTable = ascending ? table : rollupTable;
+
+        List<HistoricItem> items = new ArrayList<HistoricItem>();
+        // the number of rows to skip of the second table
+        long skip = (long) filter.getPageNumber() * filter.getPageSize();
+        if (firstFilter != null) {
+            items.addAll(getHistItemFilterQuery(firstFilter, numberDecimalcount, firstTable, item));
+            if (items.isEmpty() && skip > 0) {
+                HistoricItem count = getHistItemAggregate(firstFilter, AggregateFunction.COUNT, numberDecimalcount,
+                        firstTable, item);
+                skip -= count != null ? ((DecimalType) count.getState()).longValue() : 0;
+            } else {
+                skip = 0;
+            }
+        }
+        if (secondFilter != null && items.size() < filter.getPageSize()) {
+            // pages are counted in page sizes, so the skipped rows are fetched and dropped
+            secondFilter.setPageNumber(0);
+            secondFilter.setPageSize((int) Math.min(skip + filter.getPageSize() - items.size(), Integer.MAX_VALUE));
+            List<HistoricItem> secondItems = getHistItemFilterQuery(secondFilter, numberDecimalcount, secondTable,
+                    item);
+            items.addAll(secondItems.subList((int) Math.min(skip, secondItems.size()), secondItems.size()));
+        }
+        logTime("getRollupFilterQuery", timerStart, System.currentTimeMillis());
+        return items;
+    }
+
+    /**
+     * Aggregates the roll-ups of a roll-up table before the end of the last roll-up together with the
+     * values of the item table after it.
+     *
+     * @param rollupEnd the end of the last roll-up, from which on the values are only held by the item table
+     */
+    public HistoricItem getRollupAggregate(FilterCriteria filter, AggregateFunction function, int numberDecimalcount,
+            String rollupTable, Date rollupEnd, String table, Item item) {
+        logger.debug("JDBC::getRollupAggregate function='{}' table='{}' rollupEnd='{}' itemName='{}'",
+                new Object[] { function, rollupTable, rollupEnd, item.getName() });
+        long timerStart = System.currentTimeMillis();
+        HistoricItem r = conf.getDBDAO().doGetRollupAggregate(item, getRollupFilter(filter, rollupEnd),
+                getValueFilter(filter, rollupEnd), function, numberDecimalcount, rollupTable, table);
+        logTime("getRollupAggregate", timerStart, System.currentTimeMillis());
+        return r;
+    }
+
+    /**
+     * @return the filter of the roll-ups before the end of the last roll-up, or <code>null</code> if
+     *         the filter ends before them
+     */
+    private static FilterCriteria getRollupFilter(FilterCriteria filter, Date rollupEnd) {
+        Date end = filter.getEndDate() == null || filter.getEndDate().after(rollupEnd) ? rollupEnd
+                : filter.getEndDate();
+        return copyFilter(filter, filter.getBeginDate(), end);
+    }
+
+    /**
+     * @return the filter of the values of the item table after the end of the last roll-up, or
+     *         <code>null</code> if the filter ends before them
+     */
+    private static FilterCriteria getValueFilter(FilterCriteria filter, Date rollupEnd) {
+        // the begin date is excluded and compared by whole seconds
+        Date begin = new Date(rollupEnd.getTime() - 1000);
+        if (filter.getBeginDate() != null && filter.getBeginDate().after(begin)) {
+            begin = filter.getBeginDate();
+        }
+        return copyFilter(filter, begin, filter.getEndDate());
+    }
+
+    /**
+     * @return a copy of the filter for another time range, or <code>null</code> if the range is empty
+     */
+    private static FilterCriteria copyFilter(FilterCriteria filter, Date begin, Date end) {
+        if (begin != null && end != null && !begin.before(end)) {
+            return null;
+        }
+        return new FilterCriteria().setItemName(filter.getItemName()).setBeginDate(begin).setEndDate(end)
+                .setOperator(filter.getOperator()).setState(filter.getState()).setOrdering(filter.getOrdering())
+                .setPageNumber(filter.getPageNumber()).setPageSize(filter.getPageSize());
+    }
+
     /***********************
      * DATABASE CONNECTION *
      ***********************/
@@ -300,17 +493,26 @@ public class JdbcMapper {
             oldName = al.get(i).getTable_name();
             logger.warn("JDBC::formatTableNames: found Table Name= {}", oldName);
 
-            if (oldName.startsWith(conf.getTableNamePrefix()) && !oldName.contains("_")) {
-                id = Integer.parseInt(oldName.substring(conf.getTableNamePrefix().length()));
+            // roll-up tables are renamed with their item table
+            String itemTableName = oldName;
+            String rollupSuffix = "";
+            Matcher matcher = ROLLUP_TABLE_PATTERN.matcher(oldName);
+            if (matcher.matches()) {
+                itemTableName = matcher.group(1);
+                rollupSuffix = matcher.group(2).toLowerCase();
+            }
+
+            if (itemTableName.startsWith(conf.getTableNamePrefix()) && !itemTableName.contains("_")) {
+                id = Integer.parseInt(itemTableName.substring(conf.getTableNamePrefix().length()));
                 logger.warn("JDBC::formatTableNames: found Table with Prefix '{}' Name= {} id={}",
                         conf.getTableNamePrefix(), oldName, (id));
-            } else if (oldName.contains("_")) {
-                id = Integer.parseInt(oldName.substring(oldName.lastIndexOf("_") + 1));
+            } else if (itemTableName.contains("_")) {
+                id = Integer.parseInt(itemTableName.substring(itemTableName.lastIndexOf("_") + 1));
                 logger.warn("JDBC::formatTableNames: found Table Name= {} id={}", oldName, (id));
             }
             logger.warn("JDBC::formatTableNames: found Table id= {}", id);
 
-            newName = tableIds.get(id);
+            newName = tableIds.get(id) != null ? tableIds.get(id) + rollupSuffix : null;
             logger.warn("JDBC::formatTableNames: found Table newName= {}", newName);
 
             if (newName != null) {
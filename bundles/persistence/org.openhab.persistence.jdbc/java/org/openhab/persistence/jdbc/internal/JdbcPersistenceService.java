@@ -9,7 +9,11 @@
 package org.openhab.persistence.jdbc.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,8 +21,14 @@ import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PagedQueryResult;
+import org.openhab.core.persistence.PersistenceRecord;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.UnDefType;
@@ -32,11 +42,15 @@ import org.slf4j.LoggerFactory;
  *
  *
  */
-public class JdbcPersistenceService extends JdbcMapper implements QueryablePersistenceService {
+public class JdbcPersistenceService extends JdbcMapper
+        implements QueryablePersistenceService, BatchPersistenceService, AggregatingPersistenceService,
+        BulkQueryablePersistenceService {
     static final Logger logger = LoggerFactory.getLogger(JdbcPersistenceService.class);
 
     protected ItemRegistry itemRegistry;
 
+    private final JdbcRetentionManager retentionManager = new JdbcRetentionManager(this);
+
     /**
      * The BundleContext. This is only valid when the bundle is ACTIVE. It is
      * set in the activate() method and must not be accessed anymore once the
@@ -81,6 +95,7 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
     public void deactivate(final int reason) {
         logger.debug("JDBC::deactivate:  persistence bundle stopping. Disconnecting from database. reason={}", reason);
         // closeConnection();
+        retentionManager.stop();
         this.bundleContext = null;
         initialized = false;
     }
@@ -135,9 +150,27 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
                 item.getState().toString(), (new java.util.Date()).toString(), System.currentTimeMillis() - timerStart);
     }
 
+    /**
+     * Stores the records with one batched insert per item table.
+     */
+    @Override
+    public void store(List<PersistenceRecord> records) {
+        if (!checkDBAcessability()) {
+            logger.warn(
+                    "JDBC::store:  No connection to database. Can not persist {} items! Will retry connecting to database when error count:{} equals errReconnectThreshold:{}",
+                    records.size(), errCnt, conf.getErrReconnectThreshold());
+            return;
+        }
+        long timerStart = System.currentTimeMillis();
+        storeItemValues(records);
+        logger.debug("JDBC: Stored {} items in SQL database in {}ms.", records.size(),
+                System.currentTimeMillis() - timerStart);
+    }
+
     /**
      * Queries the {@link PersistenceService} for data with a given filter
-     * criteria
+     * criteria. Queries without a page size are fetched page by page while
+     * the result is iterated.
      *
      * @param filter
      *            the filter to apply to the query
@@ -154,33 +187,19 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
             logger.error("JDBC::query: itemRegistry == null Ignore and Give up!");
             return Collections.emptyList();
         }
+        if (filter.getPageSize() == Integer.MAX_VALUE) {
+            return new PagedQueryResult(this, filter);
+        }
 
         // Get the item name from the filter
         // Also get the Item object so we can determine the type
-        Item item = null;
         String itemName = filter.getItemName();
         logger.debug("JDBC::query: item is {}", itemName);
-        try {
-            item = itemRegistry.getItem(itemName);
-        } catch (ItemNotFoundException e1) {
-            logger.error("JDBC::query: unable to get item for itemName: '{}'. Ignore and Give up!", itemName);
+        Item item = getQueryItem(itemName);
+        if (item == null) {
             return Collections.emptyList();
         }
 
-        if (item instanceof GroupItem) {
-            // For Group Item is BaseItem needed to get correct Type of Value.
-            item = GroupItem.class.cast(item).getBaseItem();
-            logger.debug("JDBC::query: item is instanceof GroupItem '{}'", itemName);
-            if (item == null) {
-                logger.debug("JDBC::query: BaseItem of GroupItem is null. Ignore and Give up!");
-                return Collections.emptyList();
-            }
-            if (item instanceof GroupItem) {
-                logger.debug("JDBC::query: BaseItem of GroupItem is a GroupItem too. Ignore and Give up!");
-                return Collections.emptyList();
-            }
-        }
-
         String table = sqlTables.get(itemName);
         if (table == null) {
             logger.warn("JDBC::query: unable to find table for query, no Data in Database for Item '{}'", itemName);
@@ -194,9 +213,17 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
             }
         }
 
+        // older values may only be available as roll-ups
+        String queryTable = retentionManager.getQueryTable(itemName, table, filter);
+        Date rollupEnd = queryTable.equals(table) ? null : retentionManager.getRollupEnd(queryTable);
+
         long timerStart = System.currentTimeMillis();
         List<HistoricItem> items = new ArrayList<HistoricItem>();
-        items = getHistItemFilterQuery(filter, conf.getNumberDecimalcount(), table, item);
+        if (rollupEnd != null) {
+            items = getRollupFilterQuery(filter, conf.getNumberDecimalcount(), queryTable, rollupEnd, table, item);
+        } else {
+            items = getHistItemFilterQuery(filter, conf.getNumberDecimalcount(), table, item);
+        }
 
         logger.debug("JDBC::query: query for {} returned {} rows in {}ms", item.getName(), items.size(),
                 System.currentTimeMillis() - timerStart);
@@ -206,6 +233,122 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
         return items;
     }
 
+    /**
+     * Aggregates the values of an item with an SQL aggregate function, first and last value are
+     * queried with a single row query.
+     */
+    @Override
+    public HistoricItem aggregate(FilterCriteria filter, AggregateFunction function) {
+        if (function == AggregateFunction.FIRST || function == AggregateFunction.LAST) {
+            FilterCriteria rowFilter = new FilterCriteria().setItemName(filter.getItemName())
+                    .setBeginDate(filter.getBeginDate()).setEndDate(filter.getEndDate()).setPageSize(1)
+                    .setOrdering(function == AggregateFunction.FIRST ? Ordering.ASCENDING : Ordering.DESCENDING);
+            Iterator<HistoricItem> it = query(rowFilter).iterator();
+            return it.hasNext() ? it.next() : null;
+        }
+
+        if (!checkDBAcessability()) {
+            logger.warn("JDBC::aggregate: db not connected, query aborted for item '{}'", filter.getItemName());
+            return null;
+        }
+        if (itemRegistry == null) {
+            logger.error("JDBC::aggregate: itemRegistry == null Ignore and Give up!");
+            return null;
+        }
+
+        String itemName = filter.getItemName();
+        Item item = getQueryItem(itemName);
+        String table = item != null ? sqlTables.get(itemName) : null;
+        if (table == null) {
+            logger.debug("JDBC::aggregate: no Data in Database for Item '{}'", itemName);
+            return null;
+        }
+
+        long timerStart = System.currentTimeMillis();
+        HistoricItem result;
+        String rollupTable = retentionManager.getAggregateTable(itemName, table, filter, function);
+        Date rollupEnd = rollupTable != null ? retentionManager.getRollupEnd(rollupTable) : null;
+        if (rollupEnd != null) {
+            result = getRollupAggregate(filter, function, conf.getNumberDecimalcount(), rollupTable, rollupEnd, table,
+                    item);
+        } else {
+            result = getHistItemAggregate(filter, function, conf.getNumberDecimalcount(), table, item);
+        }
+        logger.debug("JDBC::aggregate: {} of {} is {} in {}ms", function, itemName, result,
+                System.currentTimeMillis() - timerStart);
+
+        errCnt = 0;
+        return result;
+    }
+
+    /**
+     * Intervals are not supported, as the SQL dialects differ in how to group by time.
+     */
+    @Override
+    public Iterable<HistoricItem> aggregate(FilterCriteria filter, AggregateFunction function, long interval) {
+        throw new UnsupportedOperationException("JDBC: aggregates of intervals are not supported");
+    }
+
+    /**
+     * Queries the most recent values of the items with one query per batch of tables.
+     */
+    @Override
+    public Map<String, HistoricItem> queryLatest(Collection<String> itemNames) {
+        if (!checkDBAcessability()) {
+            logger.warn("JDBC::queryLatest: db not connected, query aborted for {} items", itemNames.size());
+            return Collections.emptyMap();
+        }
+        if (itemRegistry == null) {
+            logger.error("JDBC::queryLatest: itemRegistry == null Ignore and Give up!");
+            return Collections.emptyMap();
+        }
+
+        Map<String, Item> items = new LinkedHashMap<String, Item>();
+        for (String itemName : itemNames) {
+            Item item = getQueryItem(itemName);
+            if (item != null) {
+                items.put(itemName, item);
+            }
+        }
+        long timerStart = System.currentTimeMillis();
+        Map<String, HistoricItem> result = getLatestItemValues(items);
+        logger.debug("JDBC::queryLatest: query for {} items returned {} values in {}ms", items.size(), result.size(),
+                System.currentTimeMillis() - timerStart);
+
+        errCnt = 0;
+        return result;
+    }
+
+    /**
+     * Gets the item to query, for groups their base item, which determines the type of the values.
+     *
+     * @return the item or <code>null</code> if it cannot be queried
+     */
+    private Item getQueryItem(String itemName) {
+        Item item = null;
+        try {
+            item = itemRegistry.getItem(itemName);
+        } catch (ItemNotFoundException e1) {
+            logger.error("JDBC::query: unable to get item for itemName: '{}'. Ignore and Give up!", itemName);
+            return null;
+        }
+
+        if (item instanceof GroupItem) {
+            // For Group Item is BaseItem needed to get correct Type of Value.
+            item = GroupItem.class.cast(item).getBaseItem();
+            logger.debug("JDBC::query: item is instanceof GroupItem '{}'", itemName);
+            if (item == null) {
+                logger.debug("JDBC::query: BaseItem of GroupItem is null. Ignore and Give up!");
+                return null;
+            }
+            if (item instanceof GroupItem) {
+                logger.debug("JDBC::query: BaseItem of GroupItem is a GroupItem too. Ignore and Give up!");
+                return null;
+            }
+        }
+        return item;
+    }
+
     /**
      * @{inheritDoc
      */
@@ -221,6 +364,12 @@ public class JdbcPersistenceService extends JdbcMapper implements QueryablePersi
             initialized = false;
         }
 
+        if (conf.getRetentionPolicies().isEmpty()) {
+            retentionManager.stop();
+        } else {
+            retentionManager.start(conf.getRetentionInterval());
+        }
+
         logger.debug("JDBC::updateConfig: configuration complete for service={}.", getName());
     }
 }
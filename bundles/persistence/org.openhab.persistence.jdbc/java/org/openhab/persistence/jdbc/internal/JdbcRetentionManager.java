@@ -0,0 +1,465 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.jdbc.internal;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.persistence.AggregatingPersistenceService.AggregateFunction;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.persistence.jdbc.db.JdbcBaseDAO;
+import org.openhab.persistence.jdbc.model.ItemVO;
+import org.openhab.persistence.jdbc.model.ItemsVO;
+import org.openhab.persistence.jdbc.model.RetentionPolicy;
+import org.openhab.persistence.jdbc.model.RetentionPolicy.Level;
+import org.openhab.persistence.jdbc.model.RollupVO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies the {@link RetentionPolicy}s in the background: it rolls the values of numeric items up
+ * into one table per level, deletes the values which are older than their retention and decides
+ * which table answers a query.
+ *
+ * <p>The roll-ups are written incrementally, starting after the last roll-up of a table, and only
+ * for intervals which have ended. The intervals of the last hour before it are rolled up again, as
+ * long as their raw values are kept, so that values which are written late are included. Raw values
+ * are only deleted once they have been rolled up into every level, and the latest value of an item
+ * is always kept, so that its state can be restored.</p>
+ *
+ * <p>Queries which reach back beyond the raw values read the roll-ups until the end of the last
+ * roll-up and the raw values after it, so that the values which have not been rolled up yet are
+ * included.</p>
+ *
+ * @since 1.9.0
+ */
+public class JdbcRetentionManager implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcRetentionManager.class);
+
+    /** intervals are only rolled up when they have ended at least this long ago, to include late values */
+    private static final long ROLLUP_DELAY = 60000;
+    /** the intervals which ended this long before the last roll-up are rolled up again, to include late values */
+    private static final long LATE_VALUES_WINDOW = 3600000;
+    /** the maximum time range of raw values which is read at once */
+    private static final long MAX_READ_RANGE = 86400000;
+    /** the delay of the first run after the start in minutes */
+    private static final int INITIAL_DELAY = 1;
+
+    private final JdbcPersistenceService service;
+    /** the roll-up tables which exist, by their lower case name */
+    private final Set<String> rollupTables = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /** the end of the last roll-up of the roll-up tables by their lower case name, 0 if they are empty */
+    private final Map<String, Long> rollupEnds = new ConcurrentHashMap<String, Long>();
+    private ScheduledExecutorService scheduler;
+
+    public JdbcRetentionManager(JdbcPersistenceService service) {
+        this.service = service;
+    }
+
+    /**
+     * Starts to apply the policies periodically.
+     *
+     * @param interval the minutes between the runs
+     */
+    public synchronized void start(int interval) {
+        stop();
+        // queries are routed to the existing roll-ups right away, not only after the first run
+        loadRollupTables();
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "JDBC retention");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(this, INITIAL_DELAY, Math.max(interval, 1), TimeUnit.MINUTES);
+        logger.debug("JDBC::JdbcRetentionManager: started with an interval of {} minutes", interval);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Looks up the roll-up tables which have been created before, if the database is accessible.
+     */
+    void loadRollupTables() {
+        if (!service.initialized) {
+            return;
+        }
+        try {
+            List<ItemsVO> tables = service.getItemTables();
+            if (tables == null) {
+                return;
+            }
+            for (ItemsVO vo : tables) {
+                String name = vo.getTable_name();
+                if (name != null && JdbcMapper.ROLLUP_TABLE_PATTERN.matcher(name).matches()) {
+                    rollupTables.add(name.toLowerCase());
+                }
+            }
+            logger.debug("JDBC::JdbcRetentionManager: found {} roll-up tables", rollupTables.size());
+        } catch (RuntimeException e) {
+            logger.warn("JDBC::JdbcRetentionManager: unable to look up the roll-up tables: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (service.itemRegistry == null || !service.checkDBAcessability()) {
+                logger.debug("JDBC::JdbcRetentionManager: database not accessible, skipped");
+                return;
+            }
+            long timerStart = System.currentTimeMillis();
+            Map<Item, String> tables = new HashMap<Item, String>();
+            for (Map.Entry<String, String> entry : new HashMap<String, String>(service.sqlTables).entrySet()) {
+                Item item = getItem(entry.getKey());
+                if (item != null && getPolicy(item) != null) {
+                    tables.put(item, entry.getValue());
+                }
+            }
+            // create the roll-up tables first, so that queries can be routed to them while rolling up
+            for (Map.Entry<Item, String> entry : tables.entrySet()) {
+                for (Level level : getLevels(entry.getKey())) {
+                    createRollupTable(entry.getKey(), level.getTableName(entry.getValue()));
+                }
+            }
+            for (Map.Entry<Item, String> entry : tables.entrySet()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                applyPolicy(entry.getKey(), entry.getValue(), System.currentTimeMillis());
+            }
+            logger.debug("JDBC::JdbcRetentionManager: applied retention policies to {} items in {}ms",
+                    tables.size(), System.currentTimeMillis() - timerStart);
+        } catch (RuntimeException e) {
+            // must not escape, as it would cancel the periodic runs
+            logger.error("JDBC::JdbcRetentionManager: applying retention policies failed", e);
+        }
+    }
+
+    private void applyPolicy(Item item, String table, long now) {
+        JdbcBaseDAO dao = service.conf.getDBDAO();
+        RetentionPolicy policy = getPolicy(item);
+        Date lastValue = dao.doGetLastTime(table);
+        if (lastValue == null) {
+            return;
+        }
+
+        long rawCutoff = policy.getRawRetention() > 0 ? now - policy.getRawRetention() : 0;
+        for (Level level : getLevels(item)) {
+            String rollupTable = level.getTableName(table);
+            rollUp(item, table, level, rollupTable, now);
+            // raw values which have not been rolled up are kept
+            Date lastRollup = dao.doGetLastTime(rollupTable);
+            long rollupEnd = lastRollup != null ? lastRollup.getTime() + level.getInterval() : 0;
+            rollupEnds.put(rollupTable.toLowerCase(), rollupEnd);
+            rawCutoff = Math.min(rawCutoff, rollupEnd);
+            if (level.getRetention() > 0) {
+                dao.doDeleteItemValues(rollupTable, new Date(now - level.getRetention()));
+            }
+        }
+        rawCutoff = Math.min(rawCutoff, lastValue.getTime());
+        if (rawCutoff > 0) {
+            logger.debug("JDBC::JdbcRetentionManager: deleting values of '{}' before {}", item.getName(),
+                    new Date(rawCutoff));
+            dao.doDeleteItemValues(table, new Date(rawCutoff));
+        }
+    }
+
+    /**
+     * Rolls up the values of an item table from the interval after the last roll-up to the last
+     * interval which has ended. The intervals within the {@link #LATE_VALUES_WINDOW} before are
+     * replaced, unless their raw values may have been deleted already.
+     */
+    private void rollUp(Item item, String table, Level level, String rollupTable, long now) {
+        JdbcBaseDAO dao = service.conf.getDBDAO();
+        RetentionPolicy policy = getPolicy(item);
+        long interval = level.getInterval();
+        long end = (now - ROLLUP_DELAY) / interval * interval;
+        long readRange = Math.max(MAX_READ_RANGE / interval, 1) * interval;
+
+        Date lastRollup = dao.doGetLastTime(rollupTable);
+        long from = 0;
+        if (lastRollup != null) {
+            from = lastRollup.getTime() + interval - Math.max(LATE_VALUES_WINDOW / interval, 1) * interval;
+            if (policy.getRawRetention() > 0) {
+                // the first interval whose raw values are complete
+                long rawCutoff = now - policy.getRawRetention();
+                from = Math.max(from, (rawCutoff + interval - 1) / interval * interval);
+            }
+            from = Math.min(from, lastRollup.getTime() + interval);
+        }
+        ItemVO vo = new ItemVO(rollupTable, null);
+        vo.setDbType(dao.getDataType(item));
+        while (from < end && !Thread.currentThread().isInterrupted()) {
+            // skip the intervals without values
+            Date first = dao.doGetFirstTime(table, new Date(from));
+            if (first == null || first.getTime() >= end) {
+                break;
+            }
+            long start = first.getTime() / interval * interval;
+            long to = Math.min(start + readRange, end);
+            List<RollupVO> rollups = rollUp(item, dao.doGetItemValues(table, new Date(start), new Date(to)),
+                    interval);
+            if (!rollups.isEmpty()) {
+                // replaces the roll-ups of intervals which are rolled up again
+                dao.doDeleteItemValues(rollupTable, new Date(start), new Date(to));
+                dao.doStoreRollupValues(vo, rollups);
+            }
+            from = to;
+        }
+    }
+
+    /**
+     * @param values the values in ascending order
+     * @return the average, minimum, maximum, sum and number of the values per interval, which are
+     *         rounded like the values returned by queries
+     */
+    private List<RollupVO> rollUp(Item item, List<ItemVO> values, long interval) {
+        JdbcBaseDAO dao = service.conf.getDBDAO();
+        int numberDecimalcount = "NUMBERITEM".equals(dao.getItemType(item))
+                ? service.conf.getNumberDecimalcount() : -1;
+        List<RollupVO> rollups = new ArrayList<RollupVO>();
+        long bucket = Long.MIN_VALUE;
+        double sum = 0;
+        double min = 0;
+        double max = 0;
+        int count = 0;
+        for (ItemVO vo : values) {
+            if (!(vo.getValue() instanceof Number)) {
+                continue;
+            }
+            double value = ((Number) vo.getValue()).doubleValue();
+            if (numberDecimalcount > -1) {
+                value = BigDecimal.valueOf(value).setScale(numberDecimalcount, RoundingMode.HALF_UP).doubleValue();
+            }
+            long time = vo.getTime().getTime() / interval * interval;
+            if (time != bucket) {
+                if (count > 0) {
+                    rollups.add(new RollupVO(new Date(bucket), dao.getRollupValue(item, sum / count),
+                            dao.getRollupValue(item, min), dao.getRollupValue(item, max), sum, count));
+                }
+                bucket = time;
+                sum = 0;
+                min = value;
+                max = value;
+                count = 0;
+            }
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            count++;
+        }
+        if (count > 0) {
+            rollups.add(new RollupVO(new Date(bucket), dao.getRollupValue(item, sum / count),
+                    dao.getRollupValue(item, min), dao.getRollupValue(item, max), sum, count));
+        }
+        return rollups;
+    }
+
+    private void createRollupTable(Item item, String rollupTable) {
+        if (!rollupTables.contains(rollupTable.toLowerCase())) {
+            ItemVO vo = new ItemVO(rollupTable, null);
+            vo.setDbType(service.conf.getDBDAO().getDataType(item));
+            service.conf.getDBDAO().doCreateRollupTable(vo);
+            rollupTables.add(rollupTable.toLowerCase());
+        }
+    }
+
+    /**
+     * @param rollupTable a roll-up table returned by {@link #getQueryTable} or {@link #getAggregateTable}
+     * @return the end of the interval of the last roll-up of the table, from which on the values are only
+     *         held by the item table, or <code>null</code> if the table holds no roll-ups
+     */
+    public Date getRollupEnd(String rollupTable) {
+        Long rollupEnd = rollupEnds.get(rollupTable.toLowerCase());
+        if (rollupEnd == null) {
+            // tables which have not been rolled up since the start
+            Matcher matcher = JdbcMapper.ROLLUP_TABLE_PATTERN.matcher(rollupTable);
+            Date lastRollup = service.conf.getDBDAO().doGetLastTime(rollupTable);
+            rollupEnd = lastRollup != null && matcher.matches()
+                    ? lastRollup.getTime() + Long.parseLong(matcher.group(2).substring(2)) * 1000 : 0;
+            rollupEnds.put(rollupTable.toLowerCase(), rollupEnd);
+        }
+        return rollupEnd > 0 ? new Date(rollupEnd) : null;
+    }
+
+    /**
+     * Selects the table which answers a query. If the item table holds the values of the time range of
+     * the filter, it is used. Otherwise the coarsest roll-up table is used which holds the range and
+     * still has at least as many intervals within the range as the page size, or the finest one which
+     * holds the range, if there is none or if the filter has no begin date. The roll-up table is
+     * queried until {@link #getRollupEnd(String)}, the item table after it.
+     *
+     * @param itemName the name of the item
+     * @param table the item table
+     * @param filter the filter of the query
+     * @return the name of the table to query
+     */
+    public String getQueryTable(String itemName, String table, FilterCriteria filter) {
+        List<Level> levels = getCoveringLevels(itemName, table, filter);
+        if (levels.isEmpty()) {
+            return table;
+        }
+        if (filter.getBeginDate() == null) {
+            return levels.get(0).getTableName(table);
+        }
+        long end = filter.getEndDate() != null ? filter.getEndDate().getTime() : System.currentTimeMillis();
+        long range = end - filter.getBeginDate().getTime();
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            if (range / levels.get(i).getInterval() >= filter.getPageSize()) {
+                return levels.get(i).getTableName(table);
+            }
+        }
+        return levels.get(0).getTableName(table);
+    }
+
+    /**
+     * Selects the roll-up table which aggregates the values of the time range of the filter, if the
+     * item table does not hold them anymore. The minimum, maximum, sum, count and average can be
+     * aggregated from roll-ups, see {@link JdbcBaseDAO#doGetRollupAggregate}. The roll-up table is
+     * aggregated until {@link #getRollupEnd(String)}, the item table after it.
+     *
+     * @return the finest roll-up table which holds the range, or <code>null</code> to aggregate the item table
+     */
+    public String getAggregateTable(String itemName, String table, FilterCriteria filter, AggregateFunction function) {
+        if (function == AggregateFunction.FIRST || function == AggregateFunction.LAST) {
+            return null;
+        }
+        List<Level> levels = getCoveringLevels(itemName, table, filter);
+        return levels.isEmpty() ? null : levels.get(0).getTableName(table);
+    }
+
+    /**
+     * Filters without a begin date may reach back beyond the raw values, so they always use the roll-ups.
+     * Descending ones return the values before their end date first, which decides about the levels.
+     *
+     * @return the levels whose roll-up tables exist and hold the time range of the filter from the finest
+     *         to the coarsest, the coarsest level if none holds it, or nothing if the item table holds it
+     */
+    private List<Level> getCoveringLevels(String itemName, String table, FilterCriteria filter) {
+        if (rollupTables.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Item item = getItem(itemName);
+        RetentionPolicy policy = item != null ? getPolicy(item) : null;
+        long now = System.currentTimeMillis();
+        long begin;
+        if (filter.getBeginDate() != null) {
+            begin = filter.getBeginDate().getTime();
+        } else if (filter.getOrdering() == Ordering.DESCENDING) {
+            begin = filter.getEndDate() != null ? filter.getEndDate().getTime() : now;
+        } else {
+            begin = 0;
+        }
+        if (policy == null || policy.getRawRetention() == 0
+                || (filter.getBeginDate() != null && begin >= now - policy.getRawRetention())) {
+            return Collections.emptyList();
+        }
+
+        List<Level> existing = new ArrayList<Level>();
+        List<Level> covering = new ArrayList<Level>();
+        for (Level level : getLevels(item)) {
+            if (rollupTables.contains(level.getTableName(table).toLowerCase())) {
+                existing.add(level);
+                if (level.getRetention() == 0 || begin >= now - level.getRetention()) {
+                    covering.add(level);
+                }
+            }
+        }
+        if (covering.isEmpty() && !existing.isEmpty()) {
+            covering.add(existing.get(existing.size() - 1));
+        }
+        return covering;
+    }
+
+    /**
+     * @return the roll-up levels of the item, which are empty if its values are not numeric
+     */
+    private List<Level> getLevels(Item item) {
+        RetentionPolicy policy = getPolicy(item);
+        if (policy == null || !service.conf.getDBDAO().isNumericItemType(item)) {
+            return Collections.emptyList();
+        }
+        return policy.getLevels();
+    }
+
+    /**
+     * @return the policy which names the item, or else the first one which names one of its groups,
+     *         or <code>null</code> if none applies
+     */
+    private RetentionPolicy getPolicy(Item item) {
+        List<RetentionPolicy> policies = service.conf.getRetentionPolicies();
+        for (RetentionPolicy policy : policies) {
+            if (policy.getItemNames().contains(item.getName())) {
+                return policy;
+            }
+        }
+        for (RetentionPolicy policy : policies) {
+            for (String groupName : policy.getItemNames()) {
+                if (isMember(item, groupName, new HashSet<String>())) {
+                    return policy;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isMember(Item item, String groupName, Set<String> visited) {
+        for (String name : item.getGroupNames()) {
+            if (name.equals(groupName)) {
+                return true;
+            }
+            if (visited.add(name)) {
+                Item group = getItem(name);
+                if (group != null && isMember(group, groupName, visited)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Item getItem(String itemName) {
+        ItemRegistry itemRegistry = service.itemRegistry;
+        if (itemRegistry == null) {
+            return null;
+        }
+        try {
+            return itemRegistry.getItem(itemName);
+        } catch (ItemNotFoundException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.jdbc.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Defines how long the values of items are kept and at which resolutions they are rolled up.
+ *
+ * <p>The levels are configured like <code>7d,5m:365d,1h</code>: the first entry is the time for
+ * which the raw values are kept, every further entry the interval of a roll-up with the average,
+ * minimum, maximum, sum and number of the values, optionally followed by the time for which the
+ * roll-ups are kept. Times consist of a number and one of the units <code>s, m, h, d, w, y</code>;
+ * <code>forever</code> or a missing time keeps the values forever.</p>
+ *
+ * @since 1.9.0
+ */
+public class RetentionPolicy {
+
+    private static final Pattern DURATION_PATTERN = Pattern.compile("(\\d+)([smhdwy])");
+
+    private final String name;
+    private final Set<String> itemNames;
+    private final long rawRetention;
+    private final List<Level> levels;
+
+    public RetentionPolicy(String name, Set<String> itemNames, long rawRetention, List<Level> levels) {
+        this.name = name;
+        this.itemNames = itemNames;
+        this.rawRetention = rawRetention;
+        this.levels = levels;
+    }
+
+    /**
+     * Parses a policy from its configuration.
+     *
+     * @param name the name of the policy
+     * @param items the comma separated names of the items and groups the policy applies to
+     * @param levels the comma separated retention of the raw values and the roll-up levels
+     * @throws IllegalArgumentException if the configuration is not valid
+     */
+    public static RetentionPolicy parse(String name, String items, String levels) {
+        Set<String> itemNames = new LinkedHashSet<String>();
+        for (String itemName : StringUtils.split(StringUtils.defaultString(items), ',')) {
+            if (StringUtils.isNotBlank(itemName)) {
+                itemNames.add(itemName.trim());
+            }
+        }
+        if (itemNames.isEmpty()) {
+            throw new IllegalArgumentException("retention policy '" + name + "' has no items");
+        }
+
+        String[] entries = StringUtils.split(StringUtils.defaultString(levels), ',');
+        if (entries.length == 0) {
+            throw new IllegalArgumentException("retention policy '" + name + "' has no levels");
+        }
+        long rawRetention = parseDuration(entries[0]);
+        List<Level> levelList = new ArrayList<Level>();
+        for (int i = 1; i < entries.length; i++) {
+            String[] parts = StringUtils.split(entries[i], ':');
+            long interval = parseDuration(parts[0]);
+            if (interval <= 0) {
+                throw new IllegalArgumentException("roll-up interval '" + entries[i] + "' is not a time");
+            }
+            if (!levelList.isEmpty() && interval <= levelList.get(levelList.size() - 1).getInterval()) {
+                throw new IllegalArgumentException("roll-up intervals of policy '" + name + "' must increase");
+            }
+            long retention = parts.length > 1 ? parseDuration(parts[1]) : 0;
+            levelList.add(new Level(interval, retention));
+        }
+        return new RetentionPolicy(name, itemNames, rawRetention, Collections.unmodifiableList(levelList));
+    }
+
+    /**
+     * @return the duration in milliseconds, or 0 for <code>forever</code>
+     */
+    private static long parseDuration(String duration) {
+        String value = duration.trim().toLowerCase();
+        if ("forever".equals(value)) {
+            return 0;
+        }
+        Matcher matcher = DURATION_PATTERN.matcher(value);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("'" + duration + "' is not a valid time");
+        }
+        long number = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2).charAt(0)) {
+            case 's':
+                return number * 1000L;
+            case 'm':
+                return number * 60000L;
+            case 'h':
+                return number * 3600000L;
+            case 'd':
+                return number * 86400000L;
+            case 'w':
+                return number * 604800000L;
+            default:
+                return number * 31536000000L;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the names of the items and groups the policy applies to
+     */
+    public Set<String> getItemNames() {
+        return itemNames;
+    }
+
+    /**
+     * @return the time in milliseconds for which the raw values are kept, 0 for forever
+     */
+    public long getRawRetention() {
+        return rawRetention;
+    }
+
+    /**
+     * @return the roll-up levels from the finest to the coarsest
+     */
+    public List<Level> getLevels() {
+        return levels;
+    }
+
+    @Override
+    public String toString() {
+        return "RetentionPolicy [name=" + name + ", itemNames=" + itemNames + ", rawRetention=" + rawRetention
+                + ", levels=" + levels + "]";
+    }
+
+    /**
+     * A roll-up level, whose table holds the average, minimum, maximum, sum and number of the values per
+     * interval.
+     */
+    public static class Level {
+
+        private final long interval;
+        private final long retention;
+
+        public Level(long interval, long retention) {
+            this.interval = interval;
+            this.retention = retention;
+        }
+
+        /**
+         * @return the interval of the roll-ups in milliseconds
+         */
+        public long getInterval() {
+            return interval;
+        }
+
+        /**
+         * @return the time in milliseconds for which the roll-ups are kept, 0 for forever
+         */
+        public long getRetention() {
+            return retention;
+        }
+
+        /**
+         * @return the name of the roll-up table of the given item table
+         */
+        public String getTableName(String itemTable) {
+            return itemTable + "_r" + interval / 1000;
+        }
+
+        @Override
+        public String toString() {
+            return "Level [interval=" + interval + ", retention=" + retention + "]";
+        }
+
+    }
+
+}
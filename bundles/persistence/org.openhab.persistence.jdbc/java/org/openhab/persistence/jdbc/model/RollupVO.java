@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.jdbc.model;
+
+import java.util.Date;
+
+/**
+ * Represents a row of a roll-up table: the average, minimum, maximum, sum and number of the values
+ * of an item within the interval which starts at the time of the row.
+ *
+ * @since 1.9.0
+ */
+public class RollupVO {
+
+    private final Date time;
+    private final Object average;
+    private final Object minimum;
+    private final Object maximum;
+    private final double sum;
+    private final int count;
+
+    public RollupVO(Date time, Object average, Object minimum, Object maximum, double sum, int count) {
+        this.time = time;
+        this.average = average;
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.sum = sum;
+        this.count = count;
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    public Object getAverage() {
+        return average;
+    }
+
+    public Object getMinimum() {
+        return minimum;
+    }
+
+    public Object getMaximum() {
+        return maximum;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "RollupVO [time=" + time + ", average=" + average + ", minimum=" + minimum + ", maximum=" + maximum
+                + ", sum=" + sum + ", count=" + count + "]";
+    }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.types.UpDownType;
+import org.openhab.core.types.State;
+
+/**
+ * @since 1.9.0
+ */
+public class MapDBitemSerializerTest {
+
+    private final MapDBitemSerializer serializer = new MapDBitemSerializer();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        assertRoundTrip(new DecimalType("42.5"));
+        assertRoundTrip(new DecimalType("-0.000001"));
+        assertRoundTrip(new DecimalType(new BigDecimal("123456789012345678901234567890.5")));
+        assertRoundTrip(new PercentType(75));
+        assertRoundTrip(new HSBType("120,100,50.5"));
+        assertRoundTrip(OnOffType.ON);
+        assertRoundTrip(OpenClosedType.CLOSED);
+        assertRoundTrip(new StringType("some text"));
+
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("Europe/Berlin"));
+        calendar.setTimeInMillis(1456000000000L);
+        MapDBItem item = roundTrip(newItem(new DateTimeType(calendar)));
+        Calendar result = ((DateTimeType) item.getState()).getCalendar();
+        assertEquals(calendar.getTimeInMillis(), result.getTimeInMillis());
+        assertEquals(calendar.getTimeZone(), result.getTimeZone());
+    }
+
+    @Test
+    public void testOtherTypesAsString() throws IOException {
+        // as in the string format, states of other types are restored as strings
+        MapDBItem item = roundTrip(newItem(UpDownType.UP));
+        assertEquals(new StringType("UP"), item.getState());
+    }
+
+    @Test
+    public void testSizeIndependentOfValue() throws IOException {
+        assertEquals(serialize(newItem(new DecimalType(1))).length,
+                serialize(newItem(new DecimalType("-98765.4321"))).length);
+        assertEquals(serialize(newItem(OnOffType.ON)).length, serialize(newItem(OnOffType.OFF)).length);
+    }
+
+    @Test
+    public void testReadsStringFormat() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF("Test");
+        out.writeUTF("PercentType");
+        out.writeUTF("33");
+        out.writeLong(1000);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        MapDBItem item = serializer.deserialize(in, -1);
+        assertEquals("Test", item.getName());
+        assertEquals(new PercentType(33), item.getState());
+        assertEquals(1000, item.getTimestamp().getTime());
+    }
+
+    private void assertRoundTrip(State state) throws IOException {
+        MapDBItem item = newItem(state);
+        MapDBItem result = roundTrip(item);
+        assertEquals(item.getName(), result.getName());
+        assertEquals(state, result.getState());
+        assertEquals(state.getClass(), result.getState().getClass());
+        assertEquals(item.getTimestamp(), result.getTimestamp());
+    }
+
+    private MapDBItem roundTrip(MapDBItem item) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialize(item)));
+        return serializer.deserialize(in, -1);
+    }
+
+    private byte[] serialize(MapDBItem item) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        serializer.serialize(new DataOutputStream(bytes), item);
+        return bytes.toByteArray();
+    }
+
+    private static MapDBItem newItem(State state) {
+        MapDBItem item = new MapDBItem();
+        item.setName("Test");
+        item.setState(state);
+        item.setTimestamp(new Date(1456000000000L));
+        return item;
+    }
+
+}
@@ -15,10 +15,18 @@ import static org.quartz.impl.matchers.GroupMatcher.jobGroupEquals;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringUtils;
 import org.mapdb.DB;
@@ -30,6 +38,7 @@ import org.openhab.core.library.items.DimmerItem;
 import org.openhab.core.library.items.RollershutterItem;
 import org.openhab.core.library.types.HSBType;
 import org.openhab.core.library.types.PercentType;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
@@ -55,10 +64,15 @@ import org.slf4j.LoggerFactory;
  * more about MapDB please visit their <a
  * href="http://www.mapdb.org/">website</a>.
  *
+ * <p>The latest state of every item is kept in memory and updated in place. Changed items
+ * are only written to the database when the transaction is committed, which happens every
+ * <code>commitinterval</code> seconds or as soon as <code>commitcount</code> changes are
+ * pending, so that frequent updates of an item are coalesced into a single write.</p>
+ *
  * @author Jens Viebig
  * @since 1.7.0
  */
-public class MapDBPersistenceService implements QueryablePersistenceService {
+public class MapDBPersistenceService implements QueryablePersistenceService, BulkQueryablePersistenceService {
 
     private static final String SERVICE_NAME = "mapdb";
 
@@ -68,11 +82,20 @@ public class MapDBPersistenceService implements QueryablePersistenceService {
 
     private static final String SCHEDULER_GROUP = "MapDB_SchedulerGroup";
 
+    private static final String COMMIT_JOB = "Commit_Transaction";
+
     private static int commitInterval = 5;
 
+    /** the number of pending changes which causes an immediate commit */
+    private static int commitCount = 1000;
+
     private static boolean commitSameState = false;
 
-    private static boolean needsCommit = false;
+    /** the number of changes since the last commit */
+    private static final AtomicInteger pendingChanges = new AtomicInteger();
+
+    /** whether a commit has been triggered because of the number of pending changes and has not run yet */
+    private static final AtomicBoolean commitTriggered = new AtomicBoolean();
 
     private static final Logger logger = LoggerFactory.getLogger(MapDBPersistenceService.class);
 
@@ -80,6 +103,12 @@ public class MapDBPersistenceService implements QueryablePersistenceService {
     private static DB db;
     private static Map<String, MapDBItem> map;
 
+    /** the latest states of the items, which are updated in place */
+    private static final ConcurrentMap<String, MapDBItem> items = new ConcurrentHashMap<String, MapDBItem>();
+
+    /** the names of the items which have been updated since the last commit */
+    private static final Set<String> dirtyItems = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
     public void activate(final BundleContext bundleContext, final Map<String, Object> config) {
         logger.debug("mapdb persistence service activated");
 
@@ -91,6 +120,14 @@ public class MapDBPersistenceService implements QueryablePersistenceService {
                 logger.warn("couldn't parse '{}' to an integer");
             }
         }
+        String commitCountString = (String) config.get("commitcount");
+        if (StringUtils.isNotBlank(commitCountString)) {
+            try {
+                commitCount = Integer.valueOf(commitCountString);
+            } catch (IllegalArgumentException iae) {
+                logger.warn("couldn't parse '{}' to an integer", commitCountString);
+            }
+        }
         String commitSameStateString = (String) config.get("commitsamestate");
         if (StringUtils.isNotBlank(commitSameStateString)) {
             try {
@@ -109,15 +146,20 @@ public class MapDBPersistenceService implements QueryablePersistenceService {
         db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
         Serializer<MapDBItem> serializer = new MapDBitemSerializer();
         map = db.createTreeMap("itemStore").valueSerializer(serializer).makeOrGet();
+        items.clear();
+        dirtyItems.clear();
+        pendingChanges.set(0);
+        commitTriggered.set(false);
         scheduleJob();
     }
 
     public void deactivate(final int reason) {
         logger.debug("mapdb persistence service deactivated");
+        cancelAllJobs();
         if (db != null) {
+            commit();
             db.close();
         }
-        cancelAllJobs();
     }
 
     @Override
@@ -149,17 +191,36 @@ public class MapDBPersistenceService implements QueryablePersistenceService {
         } else if (item instanceof ColorItem) {
             state = item.getStateAs(HSBType.class);
         }
-        MapDBItem mItem = new MapDBItem();
-        mItem.setName(alias);
-        mItem.setState(state);
-        mItem.setTimestamp(new Date());
-        MapDBItem oldItem = map.put(alias, mItem);
-
-        if (!commitSameState) {
-            if (oldItem != null) {
-                if (!oldItem.getState().toString().equals(state.toString())) {
-                    needsCommit = true;
-                }
+        MapDBItem mItem = items.get(alias);
+        if (mItem == null) {
+            MapDBItem newItem = new MapDBItem();
+            newItem.setName(alias);
+            MapDBItem storedItem = map.get(alias);
+            if (storedItem != null) {
+                newItem.setState(storedItem.getState());
+                newItem.setTimestamp(new Date(storedItem.getTimestamp().getTime()));
+            }
+            mItem = items.putIfAbsent(alias, newItem);
+            if (mItem == null) {
+                mItem = newItem;
+            }
+        }
+
+        boolean changed;
+        synchronized (mItem) {
+            changed = mItem.getState() == null || !mItem.getState().equals(state);
+            mItem.setState(state);
+            if (mItem.getTimestamp() == null) {
+                mItem.setTimestamp(new Date());
+            } else {
+                mItem.getTimestamp().setTime(System.currentTimeMillis());
+            }
+        }
+        dirtyItems.add(alias);
+
+        if (changed || commitSameState) {
+            if (pendingChanges.incrementAndGet() >= commitCount && commitTriggered.compareAndSet(false, true)) {
+                triggerCommit();
             }
         }
         logger.debug("Stored '{}' with state '{}' in mapdb database", alias, state.toString());
@@ -167,13 +228,103 @@ public class MapDBPersistenceService implements QueryablePersistenceService {
 
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
-        HistoricItem item = map.get(filter.getItemName());
+        HistoricItem item = getItem(filter.getItemName());
         if (item != null) {
             return Collections.singletonList(item);
         }
         return Collections.emptyList();
     }
 
+    @Override
+    public Map<String, HistoricItem> queryLatest(Collection<String> itemNames) {
+        Map<String, HistoricItem> result = new HashMap<String, HistoricItem>();
+        for (String itemName : itemNames) {
+            HistoricItem item = getItem(itemName);
+            if (item != null) {
+                result.put(itemName, item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return a copy of the latest state of the item, or <code>null</code> if it has never been stored
+     */
+    private static MapDBItem getItem(String name) {
+        MapDBItem item = items.get(name);
+        if (item != null) {
+            synchronized (item) {
+                return copy(item);
+            }
+        }
+        return map.get(name);
+    }
+
+    private static MapDBItem copy(MapDBItem item) {
+        MapDBItem copy = new MapDBItem();
+        copy.setName(item.getName());
+        copy.setState(item.getState());
+        copy.setTimestamp(new Date(item.getTimestamp().getTime()));
+        return copy;
+    }
+
+    /**
+     * Writes the items which have been updated since the last commit to the database and commits
+     * the transaction, if any of them has changed. The pending changes are only reset if the
+     * commit succeeds.
+     */
+    private static synchronized void commit() {
+        // changes which are counted from now on trigger the next commit
+        commitTriggered.set(false);
+        int changes = pendingChanges.get();
+        if (changes == 0 || db.isClosed()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        List<String> names = new ArrayList<String>(dirtyItems.size());
+        try {
+            for (Iterator<String> it = dirtyItems.iterator(); it.hasNext();) {
+                String name = it.next();
+                it.remove();
+                names.add(name);
+                MapDBItem item = items.get(name);
+                MapDBItem storedItem;
+                synchronized (item) {
+                    // MapDB may keep the stored object, which must not change with the item
+                    storedItem = copy(item);
+                }
+                map.put(name, storedItem);
+            }
+            db.commit();
+            pendingChanges.addAndGet(-changes);
+            logger.trace("successfully commited {} items to mapdb in {}ms", names.size(),
+                    System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            try {
+                logger.warn("Error committing transaction : {}", e.getMessage());
+                if (!db.isClosed()) {
+                    db.rollback();
+                }
+            } catch (Exception re) {
+                logger.debug("Rollback Exception: {}", e.getMessage());
+            }
+            // retry with the next commit
+            dirtyItems.addAll(names);
+        }
+    }
+
+    /**
+     * Runs the commit job immediately, instead of waiting for the commit interval.
+     */
+    private static void triggerCommit() {
+        try {
+            StdSchedulerFactory.getDefaultScheduler().triggerJob(new JobKey(COMMIT_JOB, SCHEDULER_GROUP));
+        } catch (SchedulerException e) {
+            commitTriggered.set(false);
+            logger.debug("Could not trigger Commit-Job: {}", e.getMessage());
+        }
+    }
+
     /**
      * Schedules new quartz scheduler jobs for committing transactions and
      * backing up the database
@@ -183,9 +334,9 @@ public class MapDBPersistenceService implements QueryablePersistenceService {
             Scheduler sched = StdSchedulerFactory.getDefaultScheduler();
 
             // schedule commit-job
-            JobDetail job = newJob(CommitJob.class).withIdentity("Commit_Transaction", SCHEDULER_GROUP).build();
+            JobDetail job = newJob(CommitJob.class).withIdentity(COMMIT_JOB, SCHEDULER_GROUP).build();
 
-            SimpleTrigger trigger = newTrigger().withIdentity("Commit_Transaction", SCHEDULER_GROUP)
+            SimpleTrigger trigger = newTrigger().withIdentity(COMMIT_JOB, SCHEDULER_GROUP)
                     .withSchedule(repeatSecondlyForever(commitInterval)).build();
 
             sched.scheduleJob(job, trigger);
@@ -215,6 +366,7 @@ public class MapDBPersistenceService implements QueryablePersistenceService {
     /**
      * A quartz scheduler job to commit the mapdb transaction frequently. There
      * can be only one instance of a specific job type running at the same time.
+     * The job is also triggered when <code>commitcount</code> changes are pending.
      * 
      * @author Jens Viebig
      * @since 1.7.0
@@ -224,24 +376,7 @@ public class MapDBPersistenceService implements QueryablePersistenceService {
 
         @Override
         public void execute(JobExecutionContext context) throws JobExecutionException {
-            long startTime = System.currentTimeMillis();
-            try {
-                if (!db.isClosed() && (needsCommit || commitSameState)) {
-                    needsCommit = false;
-                    db.commit();
-                    logger.trace("successfully commited mapdb transaction in {}ms",
-                            System.currentTimeMillis() - startTime);
-                }
-            } catch (Exception e) {
-                try {
-                    logger.warn("Error committing transaction : {}", e.getMessage());
-                    if (!db.isClosed()) {
-                        db.rollback();
-                    }
-                } catch (Exception re) {
-                    logger.debug("Rollback Exception: {}", e.getMessage());
-                }
-            }
+            commit();
         }
 
     }
@@ -8,11 +8,17 @@
  */
 package org.openhab.persistence.mapdb.internal;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.TimeZone;
 
 import org.mapdb.Serializer;
 import org.openhab.core.library.types.DateTimeType;
@@ -27,6 +33,13 @@ import org.openhab.core.types.State;
 /**
  * Serializer to serialize items to and from Mapdb format
  *
+ * <p>Items are stored in a compact binary layout: a tag byte with the type of the state, the name,
+ * the timestamp and a primitive payload of the state, e.g. the scale and unscaled value of decimals or
+ * a single byte for switches and contacts. As these payloads have a fixed size, updates of an item
+ * which keep the type of its state do not change the size of its record, so that MapDB can overwrite
+ * it in place. Items stored by older versions, which start with the length of the name, are still
+ * read.</p>
+ *
  * @author Jens Viebig
  * @since 1.7.0
  *
@@ -35,21 +48,101 @@ public class MapDBitemSerializer implements Serializer<MapDBItem>, Serializable
 
     private static final long serialVersionUID = 1L;
 
+    /** the bit which distinguishes the tag of the binary format from the name length of the string format */
+    private static final int BINARY_FORMAT = 0x80;
+
+    private static final int DECIMAL = 1;
+    private static final int PERCENT = 2;
+    private static final int HSB = 3;
+    private static final int ON_OFF = 4;
+    private static final int OPEN_CLOSED = 5;
+    private static final int DATE_TIME = 6;
+    private static final int STRING = 7;
+
     public MapDBitemSerializer() {
     }
 
     @Override
     public void serialize(DataOutput out, MapDBItem item) throws IOException {
+        State state = item.getState();
+        out.writeByte(BINARY_FORMAT | getTypeCode(state));
         out.writeUTF(item.getName());
-        out.writeUTF(item.getState().getClass().getSimpleName());
-        out.writeUTF(item.getState().toString());
         out.writeLong(item.getTimestamp().getTime());
+
+        if (state instanceof HSBType) {
+            HSBType hsb = (HSBType) state;
+            writeDecimal(out, hsb.getHue().toBigDecimal());
+            writeDecimal(out, hsb.getSaturation().toBigDecimal());
+            writeDecimal(out, hsb.getBrightness().toBigDecimal());
+        } else if (state instanceof DecimalType) {
+            writeDecimal(out, ((DecimalType) state).toBigDecimal());
+        } else if (state instanceof OnOffType || state instanceof OpenClosedType) {
+            out.writeByte(((Enum<?>) state).ordinal());
+        } else if (state instanceof DateTimeType) {
+            Calendar calendar = ((DateTimeType) state).getCalendar();
+            out.writeLong(calendar.getTimeInMillis());
+            out.writeUTF(calendar.getTimeZone().getID());
+        } else {
+            out.writeUTF(state.toString());
+        }
     }
 
     @Override
     public MapDBItem deserialize(DataInput in, int available) throws IOException {
+        int tag = in.readUnsignedByte();
+        if ((tag & BINARY_FORMAT) == 0) {
+            return deserializeStrings(in, tag);
+        }
+
         MapDBItem item = new MapDBItem();
         item.setName(in.readUTF());
+        item.setTimestamp(new Date(in.readLong()));
+
+        State state;
+        switch (tag & ~BINARY_FORMAT) {
+            case DECIMAL:
+                state = new DecimalType(readDecimal(in));
+                break;
+            case PERCENT:
+                state = new PercentType(readDecimal(in));
+                break;
+            case HSB:
+                state = new HSBType(new DecimalType(readDecimal(in)), new PercentType(readDecimal(in)),
+                        new PercentType(readDecimal(in)));
+                break;
+            case ON_OFF:
+                state = OnOffType.values()[in.readByte()];
+                break;
+            case OPEN_CLOSED:
+                state = OpenClosedType.values()[in.readByte()];
+                break;
+            case DATE_TIME:
+                long time = in.readLong();
+                Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone(in.readUTF()));
+                calendar.setTimeInMillis(time);
+                state = new DateTimeType(calendar);
+                break;
+            default:
+                state = StringType.valueOf(in.readUTF());
+                break;
+        }
+        item.setState(state);
+        return item;
+    }
+
+    /**
+     * Reads an item in the string format of older versions, whose first byte has already been read.
+     */
+    private MapDBItem deserializeStrings(DataInput in, int firstByte) throws IOException {
+        // the first two bytes are the length of the name
+        int nameLength = (firstByte << 8) | in.readUnsignedByte();
+        byte[] name = new byte[nameLength + 2];
+        name[0] = (byte) (nameLength >> 8);
+        name[1] = (byte) nameLength;
+        in.readFully(name, 2, nameLength);
+
+        MapDBItem item = new MapDBItem();
+        item.setName(new DataInputStream(new ByteArrayInputStream(name)).readUTF());
         String stateType = in.readUTF();
 
         String stateStr = in.readUTF();
@@ -77,6 +170,50 @@ public class MapDBitemSerializer implements Serializer<MapDBItem>, Serializable
         return item;
     }
 
+    private static int getTypeCode(State state) {
+        // HSBType and PercentType are subclasses of DecimalType
+        if (state instanceof HSBType) {
+            return HSB;
+        } else if (state instanceof PercentType) {
+            return PERCENT;
+        } else if (state instanceof DecimalType) {
+            return DECIMAL;
+        } else if (state instanceof OnOffType) {
+            return ON_OFF;
+        } else if (state instanceof OpenClosedType) {
+            return OPEN_CLOSED;
+        } else if (state instanceof DateTimeType) {
+            return DATE_TIME;
+        } else {
+            return STRING;
+        }
+    }
+
+    /**
+     * Writes a decimal as its scale and unscaled value, or as a string if the unscaled value does not fit
+     * into a long.
+     */
+    private static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        BigInteger unscaledValue = value.unscaledValue();
+        if (unscaledValue.bitLength() < 64) {
+            out.writeBoolean(true);
+            out.writeInt(value.scale());
+            out.writeLong(unscaledValue.longValue());
+        } else {
+            out.writeBoolean(false);
+            out.writeUTF(value.toString());
+        }
+    }
+
+    private static BigDecimal readDecimal(DataInput in) throws IOException {
+        if (in.readBoolean()) {
+            int scale = in.readInt();
+            return BigDecimal.valueOf(in.readLong(), scale);
+        } else {
+            return new BigDecimal(in.readUTF());
+        }
+    }
+
     @Override
     public int fixedSize() {
         return -1;
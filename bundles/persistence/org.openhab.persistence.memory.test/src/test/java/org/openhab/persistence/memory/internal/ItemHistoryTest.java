@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.memory.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.AggregatingPersistenceService.AggregateFunction;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Operator;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+
+/**
+ * @since 1.9.0
+ */
+public class ItemHistoryTest {
+
+    @Test
+    public void testDropsOldestStatesWhenFull() {
+        ItemHistory history = new ItemHistory("Test", 20, 0);
+        for (int i = 1; i <= 50; i++) {
+            history.add(new DecimalType(i), i * 1000);
+        }
+
+        assertEquals(20, history.getSize());
+        assertEquals(30001, history.getCoveredSince());
+        List<HistoricItem> result = history.query(new FilterCriteria().setOrdering(Ordering.ASCENDING));
+        assertEquals(20, result.size());
+        assertEquals(new DecimalType(31), result.get(0).getState());
+        assertEquals(31000, result.get(0).getTimestamp().getTime());
+        assertEquals(new DecimalType(50), result.get(19).getState());
+    }
+
+    @Test
+    public void testDropsExpiredStates() {
+        ItemHistory history = new ItemHistory("Test", 100, 0);
+        for (int i = 1; i <= 10; i++) {
+            history.add(new DecimalType(i), i * 1000);
+        }
+        history.dropBefore(4000);
+
+        assertEquals(7, history.getSize());
+        assertEquals(3001, history.getCoveredSince());
+    }
+
+    @Test
+    public void testKeepsStatesOfOtherTypes() {
+        ItemHistory history = new ItemHistory("Test", 10, 0);
+        history.add(OnOffType.ON, 1000);
+        history.add(new StringType("unknown"), 2000);
+        history.add(OnOffType.OFF, 3000);
+
+        List<HistoricItem> result = history.query(new FilterCriteria());
+        assertEquals(OnOffType.OFF, result.get(0).getState());
+        assertEquals(new StringType("unknown"), result.get(1).getState());
+        assertEquals(OnOffType.ON, result.get(2).getState());
+    }
+
+    @Test
+    public void testQueryWithFilter() {
+        ItemHistory history = new ItemHistory("Test", 100, 0);
+        for (int i = 1; i <= 10; i++) {
+            history.add(new DecimalType(i % 3), i * 1000);
+        }
+
+        // begin and end date are inclusive
+        FilterCriteria filter = new FilterCriteria().setBeginDate(new Date(2000)).setEndDate(new Date(8000))
+                .setOperator(Operator.GT).setState(new DecimalType(0)).setPageSize(2).setPageNumber(1);
+        List<HistoricItem> result = history.query(filter);
+        assertEquals(2, result.size());
+        assertEquals(5000, result.get(0).getTimestamp().getTime());
+        assertEquals(4000, result.get(1).getTimestamp().getTime());
+
+        filter.setOrdering(Ordering.ASCENDING).setPageNumber(2);
+        result = history.query(filter);
+        assertEquals(1, result.size());
+        assertEquals(8000, result.get(0).getTimestamp().getTime());
+    }
+
+    @Test
+    public void testAggregate() {
+        ItemHistory history = new ItemHistory("Test", 100, 0);
+        for (int i = 1; i <= 10; i++) {
+            history.add(new DecimalType(i % 4), i * 1000);
+        }
+        FilterCriteria filter = new FilterCriteria().setBeginDate(new Date(1000)).setEndDate(new Date(10000));
+
+        HistoricItem maximum = history.aggregate(filter, AggregateFunction.MAX, 0).get(0);
+        assertEquals(new DecimalType(3), maximum.getState());
+        assertEquals(3000, maximum.getTimestamp().getTime());
+        assertEquals(new DecimalType(15), history.aggregate(filter, AggregateFunction.SUM, 0).get(0).getState());
+        assertEquals(new DecimalType(10), history.aggregate(filter, AggregateFunction.COUNT, 0).get(0).getState());
+
+        List<HistoricItem> buckets = history.aggregate(filter, AggregateFunction.COUNT, 4000);
+        assertEquals(3, buckets.size());
+        assertEquals(new DecimalType(4), buckets.get(0).getState());
+        assertEquals(5000, buckets.get(1).getTimestamp().getTime());
+        assertEquals(new DecimalType(2), buckets.get(2).getState());
+    }
+
+    @Test
+    public void testKeepsDecimalsOfStates() {
+        ItemHistory history = new ItemHistory("Test", 10, 0);
+        history.add(new DecimalType("21.1"), 1000);
+        history.add(new DecimalType("21.5"), 2000);
+
+        List<HistoricItem> result = history.query(new FilterCriteria().setOrdering(Ordering.ASCENDING));
+        assertEquals("21.1", result.get(0).getState().toString());
+        assertEquals("21.5", result.get(1).getState().toString());
+        FilterCriteria filter = new FilterCriteria();
+        assertEquals("21.1", history.aggregate(filter, AggregateFunction.MIN, 0).get(0).getState().toString());
+        assertEquals("42.6", history.aggregate(filter, AggregateFunction.SUM, 0).get(0).getState().toString());
+        assertEquals("21.3", history.aggregate(filter, AggregateFunction.AVG, 0).get(0).getState().toString());
+    }
+
+    @Test
+    public void testAggregateOfNonNumericStates() {
+        ItemHistory history = new ItemHistory("Test", 10, 0);
+        history.add(OnOffType.ON, 1000);
+        history.add(OnOffType.OFF, 2000);
+
+        List<HistoricItem> result = history.aggregate(new FilterCriteria(), AggregateFunction.LAST, 0);
+        assertEquals(OnOffType.OFF, result.get(0).getState());
+        assertEquals(2000, result.get(0).getTimestamp().getTime());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAverageOfNonNumericStates() {
+        ItemHistory history = new ItemHistory("Test", 10, 0);
+        history.add(OnOffType.ON, 1000);
+        history.aggregate(new FilterCriteria(), AggregateFunction.AVG, 0);
+    }
+
+}
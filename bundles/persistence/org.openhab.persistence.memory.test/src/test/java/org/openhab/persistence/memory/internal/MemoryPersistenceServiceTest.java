@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.memory.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.AggregatingPersistenceService.AggregateFunction;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PersistenceRecord;
+import org.openhab.core.persistence.QueryablePersistenceService;
+
+/**
+ * @since 1.9.0
+ */
+public class MemoryPersistenceServiceTest {
+
+    private MemoryPersistenceService service;
+
+    private BackendService backend;
+
+    private NumberItem item;
+
+    @Before
+    public void init() {
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put("maxsamples", "5");
+        config.put("backend", "backend");
+        backend = new BackendService();
+        service = new MemoryPersistenceService();
+        service.addPersistenceService(backend);
+        service.activate(null, config);
+
+        item = new NumberItem("Test");
+        long now = System.currentTimeMillis();
+        for (int i = 1; i <= 8; i++) {
+            item.setState(new DecimalType(i));
+            service.store(Collections.singletonList(new PersistenceRecord(item, null, new Date(now + i * 1000))));
+        }
+    }
+
+    @Test
+    public void testRecentStatesFromMemory() {
+        FilterCriteria filter = new FilterCriteria().setItemName("Test").setPageSize(3);
+        List<HistoricItem> result = toList(service.query(filter));
+
+        assertEquals(3, result.size());
+        assertEquals(new DecimalType(8), result.get(0).getState());
+        assertEquals(new DecimalType(6), result.get(2).getState());
+        assertTrue(backend.queries.isEmpty());
+    }
+
+    @Test
+    public void testOlderStatesFromBackend() {
+        FilterCriteria filter = new FilterCriteria().setItemName("Test").setPageSize(10);
+        Iterator<HistoricItem> it = service.query(filter).iterator();
+        for (int i = 8; i >= 4; i--) {
+            assertEquals(new DecimalType(i), it.next().getState());
+        }
+        // the backend is only queried when the states in memory have been iterated
+        assertTrue(backend.queries.isEmpty());
+
+        assertEquals(BackendService.STATE, it.next().getState());
+        assertEquals(1, backend.queries.size());
+        FilterCriteria olderFilter = backend.queries.get(0);
+        assertEquals(5, olderFilter.getPageSize());
+        assertTrue(olderFilter.getEndDate().before(oldestInMemory()));
+    }
+
+    @Test
+    public void testAggregateFromMemory() {
+        FilterCriteria filter = new FilterCriteria().setItemName("Test").setBeginDate(oldestInMemory());
+        HistoricItem minimum = service.aggregate(filter, AggregateFunction.MIN);
+
+        assertEquals(new DecimalType(4), minimum.getState());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAggregateOfOlderStates() {
+        // the backend cannot aggregate, so that the caller has to query the states
+        FilterCriteria filter = new FilterCriteria().setItemName("Test").setBeginDate(new Date(0));
+        service.aggregate(filter, AggregateFunction.MIN);
+    }
+
+    private Date oldestInMemory() {
+        List<HistoricItem> result = toList(service.query(new FilterCriteria().setItemName("Test").setPageSize(5)));
+        return result.get(4).getTimestamp();
+    }
+
+    private static List<HistoricItem> toList(Iterable<HistoricItem> result) {
+        List<HistoricItem> list = new ArrayList<HistoricItem>();
+        for (HistoricItem historicItem : result) {
+            list.add(historicItem);
+        }
+        return list;
+    }
+
+    /**
+     * A backend which returns a single older state and records its queries
+     */
+    private static class BackendService implements QueryablePersistenceService {
+
+        static final DecimalType STATE = new DecimalType(0);
+
+        final List<FilterCriteria> queries = new ArrayList<FilterCriteria>();
+
+        @Override
+        public String getName() {
+            return "backend";
+        }
+
+        @Override
+        public void store(Item item) {
+        }
+
+        @Override
+        public void store(Item item, String alias) {
+        }
+
+        @Override
+        public Iterable<HistoricItem> query(FilterCriteria filter) {
+            queries.add(filter);
+            HistoricItem historicItem = new MemoryItem("Test", STATE, new Date(0));
+            return Collections.singletonList(historicItem);
+        }
+
+    }
+
+}
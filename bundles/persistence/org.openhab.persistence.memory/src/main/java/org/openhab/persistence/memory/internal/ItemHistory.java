@@ -0,0 +1,419 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.memory.internal;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.persistence.AggregatingPersistenceService.AggregateFunction;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.types.State;
+
+/**
+ * The most recent states of an item, kept in a ring buffer of primitive arrays. Numeric states are
+ * stored as doubles and only turned into {@link State}s again when they are queried; other states are
+ * kept as they are.
+ *
+ * <p>The buffer grows up to its capacity, after that the oldest state is dropped for every new one.
+ * The time since which all states of the item are in the buffer is tracked, so that the caller can
+ * decide whether a query can be answered from memory.</p>
+ *
+ * @since 1.9.0
+ */
+public class ItemHistory {
+
+    private static final int INITIAL_SIZE = 16;
+
+    /** the types of states which can be stored as doubles */
+    private enum Kind {
+        DECIMAL,
+        PERCENT,
+        ON_OFF,
+        OPEN_CLOSED;
+
+        static Kind of(State state) {
+            if (state.getClass() == DecimalType.class) {
+                return DECIMAL;
+            } else if (state.getClass() == PercentType.class) {
+                return PERCENT;
+            } else if (state instanceof OnOffType) {
+                return ON_OFF;
+            } else if (state instanceof OpenClosedType) {
+                return OPEN_CLOSED;
+            }
+            return null;
+        }
+
+        double toDouble(State state) {
+            switch (this) {
+                case ON_OFF:
+                    return state == OnOffType.ON ? 1 : 0;
+                case OPEN_CLOSED:
+                    return state == OpenClosedType.OPEN ? 1 : 0;
+                default:
+                    return ((DecimalType) state).doubleValue();
+            }
+        }
+
+        State toState(double value) {
+            switch (this) {
+                case PERCENT:
+                    return new PercentType(BigDecimal.valueOf(value));
+                case ON_OFF:
+                    return value != 0 ? OnOffType.ON : OnOffType.OFF;
+                case OPEN_CLOSED:
+                    return value != 0 ? OpenClosedType.OPEN : OpenClosedType.CLOSED;
+                default:
+                    return new DecimalType(BigDecimal.valueOf(value));
+            }
+        }
+
+        boolean isNumber() {
+            return this == DECIMAL || this == PERCENT;
+        }
+    }
+
+    private final String name;
+
+    private final int capacity;
+
+    private long[] timestamps = new long[0];
+
+    private double[] values = new double[0];
+
+    /** the states which cannot be stored as doubles of the kind of this buffer, allocated on demand */
+    private State[] states;
+
+    /** the kind of the numeric states, determined by the first state */
+    private Kind kind;
+
+    /** the array index of the oldest state */
+    private int start;
+
+    private int size;
+
+    /** all states since this time are in the buffer */
+    private long coveredSince;
+
+    /**
+     * @param name the name of the item
+     * @param capacity the maximum number of states to keep
+     * @param coveredSince the time since which all states of the item will be stored
+     */
+    public ItemHistory(String name, int capacity, long coveredSince) {
+        this.name = name;
+        this.capacity = Math.max(1, capacity);
+        this.coveredSince = coveredSince;
+    }
+
+    /**
+     * Adds a state, which must not be older than the states in the buffer. If the buffer is full,
+     * its oldest state is dropped.
+     *
+     * @param state the state to add
+     * @param timestamp the time of the state in milliseconds
+     */
+    public synchronized void add(State state, long timestamp) {
+        if (size > 0 && timestamp < timestamps[index(size - 1)]) {
+            // keep the buffer sorted, e.g. if the clock has been set back
+            timestamp = timestamps[index(size - 1)];
+        }
+        if (size == capacity) {
+            drop();
+        } else if (size == timestamps.length) {
+            grow();
+        }
+        if (kind == null) {
+            kind = Kind.of(state);
+        }
+
+        int i = index(size);
+        timestamps[i] = timestamp;
+        if (kind != null && Kind.of(state) == kind) {
+            values[i] = kind.toDouble(state);
+            if (states != null) {
+                states[i] = null;
+            }
+        } else {
+            if (states == null) {
+                states = new State[timestamps.length];
+            }
+            values[i] = Double.NaN;
+            states[i] = state;
+        }
+        size++;
+    }
+
+    /**
+     * Drops the states which are older than the given time.
+     *
+     * @param time the time in milliseconds
+     */
+    public synchronized void dropBefore(long time) {
+        while (size > 0 && timestamps[start] < time) {
+            drop();
+        }
+    }
+
+    /**
+     * @return the time since which all states of the item are in the buffer
+     */
+    public synchronized long getCoveredSince() {
+        return coveredSince;
+    }
+
+    /**
+     * @return the number of states in the buffer
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * Queries the buffer for the states which match the filter. Begin and end date are inclusive.
+     *
+     * @param filter the filter to apply, its item name is ignored
+     * @return the matching states in the requested order and page
+     */
+    public synchronized List<HistoricItem> query(FilterCriteria filter) {
+        int from = lowerBound(filter.getBeginDate());
+        int to = upperBound(filter.getEndDate());
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+
+        long skip = (long) filter.getPageNumber() * filter.getPageSize();
+        List<HistoricItem> result = new ArrayList<HistoricItem>(Math.min(to - from, filter.getPageSize()));
+        boolean ascending = filter.getOrdering() == Ordering.ASCENDING;
+        for (int n = 0; n < to - from && result.size() < filter.getPageSize(); n++) {
+            int i = ascending ? from + n : to - 1 - n;
+            State state = getState(i);
+            if (matches(state, filter)) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    result.add(new MemoryItem(name, state, new Date(timestamps[index(i)])));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Aggregates the states within the time range of the filter.
+     *
+     * @param filter the filter with the time range, begin and end date are inclusive
+     * @param function the function to apply
+     * @param interval the length of the intervals to aggregate in milliseconds, or 0 for a single aggregate
+     * @return the aggregates, which are empty if there are no states within the range
+     * @throws UnsupportedOperationException if the function needs numbers, but the states are not numbers
+     */
+    public synchronized List<HistoricItem> aggregate(FilterCriteria filter, AggregateFunction function,
+            long interval) {
+        boolean numeric = function != AggregateFunction.COUNT && function != AggregateFunction.FIRST
+                && function != AggregateFunction.LAST;
+        if (numeric && (kind == null || !kind.isNumber())) {
+            throw new UnsupportedOperationException("The states of " + name + " are not numbers");
+        }
+
+        int from = lowerBound(filter.getBeginDate());
+        int to = upperBound(filter.getEndDate());
+        long end = filter.getEndDate() != null ? filter.getEndDate().getTime() : System.currentTimeMillis();
+        long begin = filter.getBeginDate() != null ? filter.getBeginDate().getTime()
+                : from < to ? timestamps[index(from)] : end;
+
+        List<HistoricItem> result = new ArrayList<HistoricItem>();
+        Aggregate aggregate = null;
+        for (int i = from; i < to; i++) {
+            double value = values[index(i)];
+            if (numeric && Double.isNaN(value)) {
+                // the state is not a number of the kind of the buffer
+                continue;
+            }
+            long timestamp = timestamps[index(i)];
+            long time = interval > 0 ? begin + (timestamp - begin) / interval * interval : end;
+            if (aggregate == null || aggregate.time != time) {
+                if (aggregate != null) {
+                    result.add(aggregate.toHistoricItem());
+                }
+                aggregate = new Aggregate(function, time);
+            }
+            aggregate.add(i, value, timestamp);
+        }
+        if (aggregate != null) {
+            result.add(aggregate.toHistoricItem());
+        }
+        return result;
+    }
+
+    private boolean matches(State state, FilterCriteria filter) {
+        if (filter.getState() == null || filter.getOperator() == null) {
+            return true;
+        }
+        switch (filter.getOperator()) {
+            case EQ:
+                return state.equals(filter.getState());
+            case NEQ:
+                return !state.equals(filter.getState());
+            default:
+                if (!(state instanceof DecimalType) || !(filter.getState() instanceof DecimalType)) {
+                    return false;
+                }
+                int comparison = ((DecimalType) state).compareTo((DecimalType) filter.getState());
+                switch (filter.getOperator()) {
+                    case GT:
+                        return comparison > 0;
+                    case LT:
+                        return comparison < 0;
+                    case GTE:
+                        return comparison >= 0;
+                    default:
+                        return comparison <= 0;
+                }
+        }
+    }
+
+    /**
+     * @return the state at the given position, counted from the oldest one
+     */
+    private State getState(int i) {
+        int index = index(i);
+        if (states != null && states[index] != null) {
+            return states[index];
+        }
+        return kind.toState(values[index]);
+    }
+
+    /**
+     * @return the position of the first state at or after the given time
+     */
+    private int lowerBound(Date date) {
+        if (date == null) {
+            return 0;
+        }
+        long time = date.getTime();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[index(mid)] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the position after the last state at or before the given time
+     */
+    private int upperBound(Date date) {
+        if (date == null) {
+            return size;
+        }
+        long time = date.getTime();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[index(mid)] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int index(int i) {
+        int index = start + i;
+        return index < timestamps.length ? index : index - timestamps.length;
+    }
+
+    private void drop() {
+        coveredSince = Math.max(coveredSince, timestamps[start] + 1);
+        if (states != null) {
+            states[start] = null;
+        }
+        start = index(1);
+        size--;
+    }
+
+    private void grow() {
+        int length = Math.min(capacity, Math.max(INITIAL_SIZE, timestamps.length * 2));
+        long[] newTimestamps = new long[length];
+        double[] newValues = new double[length];
+        State[] newStates = states != null ? new State[length] : null;
+        for (int i = 0; i < size; i++) {
+            int index = index(i);
+            newTimestamps[i] = timestamps[index];
+            newValues[i] = values[index];
+            if (states != null) {
+                newStates[i] = states[index];
+            }
+        }
+        timestamps = newTimestamps;
+        values = newValues;
+        states = newStates;
+        start = 0;
+    }
+
+    /**
+     * The aggregate of the states of an interval.
+     */
+    private class Aggregate {
+        private final AggregateFunction function;
+        private final long time;
+        private int count;
+        private double sum;
+        /** the position of the state which is selected by the minimum, maximum, first and last function */
+        private int selected = -1;
+        private double selectedValue;
+
+        public Aggregate(AggregateFunction function, long time) {
+            this.function = function;
+            this.time = time;
+        }
+
+        public void add(int i, double value, long timestamp) {
+            if (selected < 0 || function == AggregateFunction.LAST
+                    || (function == AggregateFunction.MIN && value < selectedValue)
+                    || (function == AggregateFunction.MAX && value > selectedValue)) {
+                selected = i;
+                selectedValue = value;
+            }
+            sum += value;
+            count++;
+        }
+
+        public HistoricItem toHistoricItem() {
+            switch (function) {
+                case AVG:
+                    return new MemoryItem(name, new DecimalType(BigDecimal.valueOf(sum / count)), new Date(time));
+                case SUM:
+                    return new MemoryItem(name, new DecimalType(BigDecimal.valueOf(sum)), new Date(time));
+                case COUNT:
+                    return new MemoryItem(name, new DecimalType(count), new Date(time));
+                default:
+                    return new MemoryItem(name, getState(selected), new Date(timestamps[index(selected)]));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,318 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.memory.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.items.ColorItem;
+import org.openhab.core.library.items.DimmerItem;
+import org.openhab.core.library.items.RollershutterItem;
+import org.openhab.core.library.types.HSBType;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PersistenceRecord;
+import org.openhab.core.persistence.PersistenceService;
+import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+import org.osgi.framework.BundleContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This is a {@link PersistenceService} which keeps the recent states of every item in memory,
+ * so that the persistence extensions which rules typically use, like the previous state or the
+ * average of the last minutes, do not need to access a database.
+ *
+ * <p>The number of states per item is limited by <code>maxsamples</code>, their age in minutes by
+ * <code>maxage</code>. If the name of another queryable service is configured as <code>backend</code>,
+ * the queries which reach beyond the states in memory are answered by that service, so that the
+ * memory service can be used as a read-through cache in front of it. Both services have to be
+ * configured with the same persistence strategies for the results to be consistent.</p>
+ *
+ * @since 1.9.0
+ */
+public class MemoryPersistenceService implements QueryablePersistenceService, AggregatingPersistenceService,
+        BatchPersistenceService, BulkQueryablePersistenceService {
+
+    private static final String SERVICE_NAME = "memory";
+
+    private static final int DEFAULT_MAX_SAMPLES = 1000;
+
+    private static final int DEFAULT_MAX_AGE = 60;
+
+    private static final Logger logger = LoggerFactory.getLogger(MemoryPersistenceService.class);
+
+    private final ConcurrentMap<String, ItemHistory> histories = new ConcurrentHashMap<String, ItemHistory>();
+
+    private final Map<String, PersistenceService> services = new ConcurrentHashMap<String, PersistenceService>();
+
+    private int maxSamples = DEFAULT_MAX_SAMPLES;
+
+    /** the maximum age of the states in minutes, 0 for no limit */
+    private int maxAge = DEFAULT_MAX_AGE;
+
+    private String backendName;
+
+    /** the time since which all states are stored */
+    private long activated;
+
+    public void addPersistenceService(PersistenceService service) {
+        services.put(service.getName(), service);
+    }
+
+    public void removePersistenceService(PersistenceService service) {
+        services.remove(service.getName());
+    }
+
+    public void activate(final BundleContext bundleContext, final Map<String, Object> config) {
+        maxSamples = parseInt(config, "maxsamples", DEFAULT_MAX_SAMPLES);
+        maxAge = parseInt(config, "maxage", DEFAULT_MAX_AGE);
+        backendName = StringUtils.trimToNull((String) config.get("backend"));
+        if (SERVICE_NAME.equals(backendName)) {
+            logger.warn("The memory persistence service cannot be its own backend");
+            backendName = null;
+        }
+        activated = System.currentTimeMillis();
+        logger.debug("memory persistence service activated (maxsamples={}, maxage={}, backend={})",
+                new Object[] { maxSamples, maxAge, backendName });
+    }
+
+    public void deactivate(final int reason) {
+        logger.debug("memory persistence service deactivated");
+        histories.clear();
+    }
+
+    @Override
+    public String getName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void store(Item item) {
+        store(item, null);
+    }
+
+    @Override
+    public void store(Item item, String alias) {
+        store(item, alias, System.currentTimeMillis());
+    }
+
+    @Override
+    public void store(List<PersistenceRecord> records) {
+        for (PersistenceRecord record : records) {
+            store(record.getItem(), record.getAlias(), record.getTimestamp().getTime());
+        }
+    }
+
+    private void store(Item item, String alias, long timestamp) {
+        if (item.getState() instanceof UnDefType) {
+            return;
+        }
+        State state = item.getState();
+        if (item instanceof DimmerItem || item instanceof RollershutterItem) {
+            state = item.getStateAs(PercentType.class);
+        } else if (item instanceof ColorItem) {
+            state = item.getStateAs(HSBType.class);
+        }
+
+        String name = alias != null ? alias : item.getName();
+        ItemHistory history = histories.get(name);
+        if (history == null) {
+            ItemHistory newHistory = new ItemHistory(name, maxSamples, activated);
+            history = histories.putIfAbsent(name, newHistory);
+            if (history == null) {
+                history = newHistory;
+            }
+        }
+        history.add(state, timestamp);
+        dropExpired(history);
+        logger.trace("Stored '{}' with state '{}' in memory", name, state);
+    }
+
+    @Override
+    public Iterable<HistoricItem> query(FilterCriteria filter) {
+        ItemHistory history = getHistory(filter);
+        QueryablePersistenceService backend = getBackend();
+        if (backend == null || isCovered(history, filter)) {
+            return history != null ? history.query(filter) : Collections.<HistoricItem> emptyList();
+        }
+        if (history == null
+                || (filter.getEndDate() != null && filter.getEndDate().getTime() < history.getCoveredSince())) {
+            return backend.query(filter);
+        }
+        long coveredSince = history.getCoveredSince();
+
+        // the recent part of the range is read from memory, the older part from the backend
+        List<HistoricItem> recent = history.query(copy(filter));
+        boolean ascending = filter.getOrdering() == Ordering.ASCENDING;
+        long skip = (long) filter.getPageNumber() * filter.getPageSize();
+        long needed = skip + filter.getPageSize();
+        if (!ascending && recent.size() >= needed) {
+            return recent.subList((int) skip, (int) needed);
+        }
+        if (!ascending) {
+            needed -= recent.size();
+        }
+        FilterCriteria olderFilter = copy(filter).setEndDate(new Date(coveredSince - 1))
+                .setPageSize((int) Math.min(needed, Integer.MAX_VALUE));
+        return new ReadThroughResult(recent, backend, olderFilter, ascending, skip, filter.getPageSize());
+    }
+
+    @Override
+    public HistoricItem aggregate(FilterCriteria filter, AggregateFunction function) {
+        ItemHistory history = getHistory(filter);
+        if (isCovered(history, filter) || getBackend() == null) {
+            if (history == null) {
+                return null;
+            }
+            List<HistoricItem> result = history.aggregate(filter, function, 0);
+            return result.isEmpty() ? null : result.get(0);
+        }
+        return getAggregatingBackend().aggregate(filter, function);
+    }
+
+    @Override
+    public Iterable<HistoricItem> aggregate(FilterCriteria filter, AggregateFunction function, long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The interval must be positive");
+        }
+        ItemHistory history = getHistory(filter);
+        if (isCovered(history, filter) || getBackend() == null) {
+            if (history == null) {
+                return Collections.emptyList();
+            }
+            return history.aggregate(filter, function, interval);
+        }
+        return getAggregatingBackend().aggregate(filter, function, interval);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The items without any state in memory are looked up in the backend, if there is one.
+     */
+    @Override
+    public Map<String, HistoricItem> queryLatest(Collection<String> itemNames) {
+        Map<String, HistoricItem> result = new HashMap<String, HistoricItem>();
+        List<String> missingItemNames = new ArrayList<String>();
+        for (String itemName : itemNames) {
+            List<HistoricItem> latest = Collections.emptyList();
+            ItemHistory history = histories.get(itemName);
+            if (history != null) {
+                dropExpired(history);
+                latest = history.query(new FilterCriteria().setPageSize(1));
+            }
+            if (!latest.isEmpty()) {
+                result.put(itemName, latest.get(0));
+            } else {
+                missingItemNames.add(itemName);
+            }
+        }
+
+        QueryablePersistenceService backend = getBackend();
+        if (backend instanceof BulkQueryablePersistenceService) {
+            result.putAll(((BulkQueryablePersistenceService) backend).queryLatest(missingItemNames));
+        } else if (backend != null) {
+            for (String itemName : missingItemNames) {
+                FilterCriteria filter = new FilterCriteria().setItemName(itemName).setPageSize(1);
+                Iterator<HistoricItem> it = backend.query(filter).iterator();
+                if (it.hasNext()) {
+                    result.put(itemName, it.next());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the history of the item of the filter with the expired states dropped, or <code>null</code>
+     *         if no state of the item has been stored
+     */
+    private ItemHistory getHistory(FilterCriteria filter) {
+        if (filter.getItemName() == null) {
+            throw new UnsupportedOperationException("The memory persistence service requires an item name");
+        }
+        ItemHistory history = histories.get(filter.getItemName());
+        if (history != null) {
+            dropExpired(history);
+        }
+        return history;
+    }
+
+    /**
+     * @return <code>true</code> if all states within the time range of the filter are in memory
+     */
+    private boolean isCovered(ItemHistory history, FilterCriteria filter) {
+        long coveredSince = history != null ? history.getCoveredSince() : activated;
+        return filter.getBeginDate() != null && filter.getBeginDate().getTime() >= coveredSince;
+    }
+
+    private void dropExpired(ItemHistory history) {
+        if (maxAge > 0) {
+            history.dropBefore(System.currentTimeMillis() - maxAge * 60000L);
+        }
+    }
+
+    private QueryablePersistenceService getBackend() {
+        if (backendName == null) {
+            return null;
+        }
+        PersistenceService service = services.get(backendName);
+        if (service instanceof QueryablePersistenceService) {
+            return (QueryablePersistenceService) service;
+        }
+        logger.debug("The backend '{}' is not available or not queryable", backendName);
+        return null;
+    }
+
+    private AggregatingPersistenceService getAggregatingBackend() {
+        QueryablePersistenceService backend = getBackend();
+        if (backend instanceof AggregatingPersistenceService) {
+            return (AggregatingPersistenceService) backend;
+        }
+        // let the caller query the states, which are then read from the backend
+        throw new UnsupportedOperationException("The backend '" + backendName + "' cannot aggregate states");
+    }
+
+    private static FilterCriteria copy(FilterCriteria filter) {
+        return new FilterCriteria().setItemName(filter.getItemName()).setBeginDate(filter.getBeginDate())
+                .setEndDate(filter.getEndDate()).setOperator(filter.getOperator()).setState(filter.getState())
+                .setOrdering(filter.getOrdering());
+    }
+
+    private static int parseInt(Map<String, Object> config, String key, int defaultValue) {
+        String value = (String) config.get(key);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                logger.warn("couldn't parse '{}' of '{}' to an integer", value, key);
+            }
+        }
+        return defaultValue;
+    }
+
+}
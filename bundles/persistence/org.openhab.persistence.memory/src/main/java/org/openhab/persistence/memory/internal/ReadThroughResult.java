@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.memory.internal;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.QueryablePersistenceService;
+
+/**
+ * The result of a query which is only partly covered by the states in memory. The states which
+ * are older than the ones in memory are queried from the backend service, but only when the
+ * iteration reaches them, so that callers which stop at the first match, e.g. to find the
+ * previous state of an item, do not query the backend at all.
+ *
+ * @since 1.9.0
+ */
+public class ReadThroughResult implements Iterable<HistoricItem> {
+
+    private final List<HistoricItem> recent;
+
+    private final QueryablePersistenceService backend;
+
+    private final FilterCriteria olderFilter;
+
+    private final boolean olderFirst;
+
+    private final long skip;
+
+    private final int limit;
+
+    /**
+     * @param recent the states from memory, unpaged
+     * @param backend the service to query the older states from
+     * @param olderFilter the filter for the older states
+     * @param olderFirst whether the older states precede the ones from memory, i.e. if the result is ascending
+     * @param skip the number of states to skip before the requested page
+     * @param limit the page size
+     */
+    public ReadThroughResult(List<HistoricItem> recent, QueryablePersistenceService backend,
+            FilterCriteria olderFilter, boolean olderFirst, long skip, int limit) {
+        this.recent = recent;
+        this.backend = backend;
+        this.olderFilter = olderFilter;
+        this.olderFirst = olderFirst;
+        this.skip = skip;
+        this.limit = limit;
+    }
+
+    @Override
+    public Iterator<HistoricItem> iterator() {
+        return new ReadThroughIterator();
+    }
+
+    private class ReadThroughIterator implements Iterator<HistoricItem> {
+
+        /** the number of parts of the result which have been started */
+        private int parts = 0;
+
+        private Iterator<HistoricItem> current;
+
+        private long skipped = 0;
+
+        private int returned = 0;
+
+        @Override
+        public boolean hasNext() {
+            if (returned >= limit) {
+                return false;
+            }
+            while (true) {
+                if (current == null) {
+                    if (parts == 2) {
+                        return false;
+                    }
+                    boolean older = (parts == 0) == olderFirst;
+                    current = older ? queryOlder() : recent.iterator();
+                    parts++;
+                }
+                while (skipped < skip && current.hasNext()) {
+                    current.next();
+                    skipped++;
+                }
+                if (current.hasNext()) {
+                    return true;
+                }
+                current = null;
+            }
+        }
+
+        @Override
+        public HistoricItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            returned++;
+            return current.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private Iterator<HistoricItem> queryOlder() {
+            Iterable<HistoricItem> result = backend.query(olderFilter);
+            return result != null ? result.iterator() : Collections.<HistoricItem> emptyList().iterator();
+        }
+
+    }
+
+}
@@ -14,13 +14,16 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Formatter;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -45,9 +48,13 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PagedQueryResult;
+import org.openhab.core.persistence.PersistenceRecord;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.State;
@@ -77,18 +84,26 @@ import org.slf4j.LoggerFactory;
  * keep the best resolution, we store as a number in SQL and convert to
  * DecimalType before persisting to MySQL.
  *
+ * If several states are passed at once, they are inserted with one batch per
+ * item table within a single transaction. The most recent states of several
+ * items are looked up with one query per batch of tables of the same type.
+ *
  * @author Henrik Sjöstrand
  * @author Thomas.Eichstaedt-Engelen
  * @author Chris Jackson
  * @author Helmut Lehmeyer
  * @since 1.1.0
  */
-public class MysqlPersistenceService implements QueryablePersistenceService {
+public class MysqlPersistenceService
+        implements QueryablePersistenceService, BatchPersistenceService, BulkQueryablePersistenceService {
 
     private static final Pattern EXTRACT_CONFIG_PATTERN = Pattern.compile("^(.*?)\\.([0-9.a-zA-Z]+)$");
 
     private static final Logger logger = LoggerFactory.getLogger(MysqlPersistenceService.class);
 
+    /** the maximum number of tables which are united in a query for the most recent states */
+    private static final int LATEST_STATES_BATCH_SIZE = 100;
+
     private String driverClass = "com.mysql.jdbc.Driver";
     private String url;
     private String user;
@@ -389,34 +404,7 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
             return;
         }
 
-        // Do some type conversion to ensure we know the data type.
-        // This is necessary for items that have multiple types and may return their
-        // state in a format that's not preferred or compatible with the MySQL type.
-        // eg. DimmerItem can return OnOffType (ON, OFF), or PercentType (0-100).
-        // We need to make sure we cover the best type for serialisation.
-        String value;
-        if (item instanceof ColorItem) {
-            value = item.getStateAs(HSBType.class).toString();
-        } else if (item instanceof RollershutterItem) {
-            value = item.getStateAs(PercentType.class).toString();
-        } else {
-            /*
-             * !!ATTENTION!!
-             * 
-             * 1.
-             * DimmerItem.getStateAs(PercentType.class).toString() always returns 0
-             * RollershutterItem.getStateAs(PercentType.class).toString() works as expected
-             * 
-             * 2.
-             * (item instanceof ColorItem) == (item instanceof DimmerItem) = true
-             * Therefore for instance tests ColorItem always has to be tested before DimmerItem
-             * 
-             * !!ATTENTION!!
-             */
-
-            // All other items should return the best format by default
-            value = item.getState().toString();
-        }
+        String value = getValue(item);
 
         String sqlCmd = null;
         PreparedStatement statement = null;
@@ -457,6 +445,137 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
         store(item, null);
     }
 
+    /**
+     * Stores the records with one batch per item table within a single transaction.
+     */
+    @Override
+    public void store(List<PersistenceRecord> records) {
+        // If we've not initialised the bundle, then return
+        if (initialized == false) {
+            return;
+        }
+
+        // Connect to mySQL server if we're not already connected
+        if (!isConnected()) {
+            connectToDatabase();
+        }
+
+        // If we still didn't manage to connect, then return!
+        if (!isConnected()) {
+            logger.warn(
+                    "mySQL: No connection to database. Can not persist {} items! "
+                            + "Will retry connecting to database when error count:{} equals errReconnectThreshold:{}",
+                    records.size(), errCnt, errReconnectThreshold);
+            return;
+        }
+
+        // group the records by table, so that each table gets a single batch
+        Map<String, List<PersistenceRecord>> recordsByTable = new LinkedHashMap<String, List<PersistenceRecord>>();
+        for (PersistenceRecord record : records) {
+            Item item = record.getItem();
+            // Don't log undefined/uninitialised data
+            if (item.getState() instanceof UnDefType) {
+                continue;
+            }
+            String tableName = getTable(item);
+            if (tableName == null) {
+                logger.error("Unable to store item '{}'.", item.getName());
+                continue;
+            }
+            List<PersistenceRecord> tableRecords = recordsByTable.get(tableName);
+            if (tableRecords == null) {
+                tableRecords = new ArrayList<PersistenceRecord>();
+                recordsByTable.put(tableName, tableRecords);
+            }
+            tableRecords.add(record);
+        }
+        if (recordsByTable.isEmpty()) {
+            return;
+        }
+
+        String sqlCmd = null;
+        PreparedStatement statement = null;
+        try {
+            connection.setAutoCommit(false);
+            for (Map.Entry<String, List<PersistenceRecord>> entry : recordsByTable.entrySet()) {
+                sqlCmd = "INSERT INTO " + entry.getKey()
+                        + " (TIME, VALUE) VALUES(?,?) ON DUPLICATE KEY UPDATE VALUE=VALUES(VALUE);";
+                statement = connection.prepareStatement(sqlCmd);
+                for (PersistenceRecord record : entry.getValue()) {
+                    statement.setTimestamp(1, new Timestamp(record.getTimestamp().getTime()));
+                    statement.setString(2, getValue(record.getItem()));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                statement.close();
+                statement = null;
+            }
+            connection.commit();
+
+            logger.debug("mySQL: Stored {} items in {} tables in SQL database.", records.size(),
+                    recordsByTable.size());
+
+            // Success
+            errCnt = 0;
+        } catch (Exception e) {
+            errCnt++;
+            try {
+                connection.rollback();
+            } catch (Exception hidden) {
+            }
+
+            logger.error("mySQL: Could not store {} items in database with statement '{}': {}", records.size(),
+                    sqlCmd, e.getMessage());
+        } finally {
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (Exception hidden) {
+                }
+            }
+            try {
+                connection.setAutoCommit(true);
+            } catch (Exception hidden) {
+            }
+        }
+    }
+
+    /**
+     * Converts the state of an item to the value to store.
+     * 
+     * @param item the item to persist
+     * @return the value to store
+     */
+    private String getValue(Item item) {
+        // Do some type conversion to ensure we know the data type.
+        // This is necessary for items that have multiple types and may return their
+        // state in a format that's not preferred or compatible with the MySQL type.
+        // eg. DimmerItem can return OnOffType (ON, OFF), or PercentType (0-100).
+        // We need to make sure we cover the best type for serialisation.
+        if (item instanceof ColorItem) {
+            return item.getStateAs(HSBType.class).toString();
+        } else if (item instanceof RollershutterItem) {
+            return item.getStateAs(PercentType.class).toString();
+        } else {
+            /*
+             * !!ATTENTION!!
+             * 
+             * 1.
+             * DimmerItem.getStateAs(PercentType.class).toString() always returns 0
+             * RollershutterItem.getStateAs(PercentType.class).toString() works as expected
+             * 
+             * 2.
+             * (item instanceof ColorItem) == (item instanceof DimmerItem) = true
+             * Therefore for instance tests ColorItem always has to be tested before DimmerItem
+             * 
+             * !!ATTENTION!!
+             */
+
+            // All other items should return the best format by default
+            return item.getState().toString();
+        }
+    }
+
     /**
      * Checks if we have a database connection
      * 
@@ -564,6 +683,11 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
         return String.format(alias, values);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Queries without a page size are fetched page by page while the result is iterated.
+     */
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
         if (!initialized) {
@@ -580,6 +704,10 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
             return Collections.emptyList();
         }
 
+        if (filter.getPageSize() == Integer.MAX_VALUE) {
+            return new PagedQueryResult(this, filter);
+        }
+
         SimpleDateFormat mysqlDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
         // Get the item name from the filter
@@ -659,30 +787,10 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
 
             long count = 0;
             List<HistoricItem> items = new ArrayList<HistoricItem>();
-            State state;
             while (rs.next()) {
                 count++;
 
-                if (item instanceof NumberItem) {
-                    state = new DecimalType(rs.getDouble(2));
-                } else if (item instanceof ColorItem) {
-                    state = new HSBType(rs.getString(2));
-                } else if (item instanceof DimmerItem) {
-                    state = new PercentType(rs.getInt(2));
-                } else if (item instanceof SwitchItem) {
-                    state = OnOffType.valueOf(rs.getString(2));
-                } else if (item instanceof ContactItem) {
-                    state = OpenClosedType.valueOf(rs.getString(2));
-                } else if (item instanceof RollershutterItem) {
-                    state = new PercentType(rs.getInt(2));
-                } else if (item instanceof DateTimeItem) {
-                    Calendar calendar = Calendar.getInstance();
-                    calendar.setTimeInMillis(rs.getTimestamp(2).getTime());
-                    state = new DateTimeType(calendar);
-                } else {
-                    state = new StringType(rs.getString(2));
-                }
-
+                State state = getState(item, rs, 2);
                 MysqlItem mysqlItem = new MysqlItem(itemName, state, rs.getTimestamp(1));
                 items.add(mysqlItem);
             }
@@ -703,4 +811,138 @@ public class MysqlPersistenceService implements QueryablePersistenceService {
         }
         return null;
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The tables of the items are queried together, with one query per batch of tables
+     * which store their values in the same type.
+     */
+    @Override
+    public Map<String, HistoricItem> queryLatest(Collection<String> itemNames) {
+        if (!initialized) {
+            logger.debug("Query aborted on {} items - mySQL not initialised!", itemNames.size());
+            return Collections.emptyMap();
+        }
+
+        if (!isConnected()) {
+            connectToDatabase();
+        }
+
+        if (!isConnected()) {
+            logger.debug("Query aborted on {} items - mySQL not connected!", itemNames.size());
+            return Collections.emptyMap();
+        }
+
+        // the values of the tables of a query must have the same type
+        Map<String, List<String>> itemNamesByType = new LinkedHashMap<String, List<String>>();
+        Map<String, Item> items = new HashMap<String, Item>();
+        for (String itemName : itemNames) {
+            if (sqlTables.get(itemName) == null) {
+                logger.debug("mySQL: Unable to find table for query '{}'.", itemName);
+                continue;
+            }
+            Item item = null;
+            try {
+                if (itemRegistry != null) {
+                    item = itemRegistry.getItem(itemName);
+                }
+            } catch (ItemNotFoundException e) {
+                logger.error("Unable to get item type for {}", itemName);
+            }
+            if (item == null) {
+                continue;
+            }
+            String type = getItemType(item);
+            if (item instanceof GroupItem) {
+                item = GroupItem.class.cast(item).getBaseItem();
+            }
+            items.put(itemName, item);
+            List<String> typeItemNames = itemNamesByType.get(type);
+            if (typeItemNames == null) {
+                typeItemNames = new ArrayList<String>();
+                itemNamesByType.put(type, typeItemNames);
+            }
+            typeItemNames.add(itemName);
+        }
+
+        long timerStart = System.currentTimeMillis();
+        Map<String, HistoricItem> result = new HashMap<String, HistoricItem>();
+        try {
+            for (List<String> typeItemNames : itemNamesByType.values()) {
+                for (int from = 0; from < typeItemNames.size(); from += LATEST_STATES_BATCH_SIZE) {
+                    List<String> batch = typeItemNames.subList(from,
+                            Math.min(from + LATEST_STATES_BATCH_SIZE, typeItemNames.size()));
+                    queryLatest(batch, items, result);
+                }
+            }
+        } catch (SQLException e) {
+            errCnt++;
+            logger.error("mySQL: Error querying the latest states: {}", e.getMessage());
+            return result;
+        }
+
+        logger.debug("mySQL: query for {} items returned {} states in {}ms", itemNames.size(), result.size(),
+                System.currentTimeMillis() - timerStart);
+        errCnt = 0;
+        return result;
+    }
+
+    /**
+     * Queries the most recent states of a batch of items, whose values have the same type, with a single query.
+     */
+    private void queryLatest(List<String> itemNames, Map<String, Item> items, Map<String, HistoricItem> result)
+            throws SQLException {
+        // SELECT 0, Time, Value FROM Item1 WHERE Time=(SELECT MAX(Time) FROM Item1) UNION ALL SELECT 1, ...
+        StringBuilder queryString = new StringBuilder();
+        for (int i = 0; i < itemNames.size(); i++) {
+            if (i > 0) {
+                queryString.append(" UNION ALL ");
+            }
+            String table = sqlTables.get(itemNames.get(i));
+            queryString.append("SELECT ").append(i).append(", Time, Value FROM ").append(table)
+                    .append(" WHERE Time=(SELECT MAX(Time) FROM ").append(table).append(")");
+        }
+        logger.debug("mySQL: query:" + queryString);
+
+        Statement st = connection.createStatement();
+        try {
+            ResultSet rs = st.executeQuery(queryString.toString());
+            while (rs.next()) {
+                String itemName = itemNames.get(rs.getInt(1));
+                if (!result.containsKey(itemName)) {
+                    State state = getState(items.get(itemName), rs, 3);
+                    result.put(itemName, new MysqlItem(itemName, state, rs.getTimestamp(2)));
+                }
+            }
+            rs.close();
+        } finally {
+            st.close();
+        }
+    }
+
+    /**
+     * Reads the value of a column as the state of an item.
+     */
+    private State getState(Item item, ResultSet rs, int column) throws SQLException {
+        if (item instanceof NumberItem) {
+            return new DecimalType(rs.getDouble(column));
+        } else if (item instanceof ColorItem) {
+            return new HSBType(rs.getString(column));
+        } else if (item instanceof DimmerItem) {
+            return new PercentType(rs.getInt(column));
+        } else if (item instanceof SwitchItem) {
+            return OnOffType.valueOf(rs.getString(column));
+        } else if (item instanceof ContactItem) {
+            return OpenClosedType.valueOf(rs.getString(column));
+        } else if (item instanceof RollershutterItem) {
+            return new PercentType(rs.getInt(column));
+        } else if (item instanceof DateTimeItem) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.setTimeInMillis(rs.getTimestamp(column).getTime());
+            return new DateTimeType(calendar);
+        } else {
+            return new StringType(rs.getString(column));
+        }
+    }
 }
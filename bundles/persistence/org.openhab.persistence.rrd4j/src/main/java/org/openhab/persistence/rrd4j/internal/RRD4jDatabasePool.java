@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2010-2016, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.rrd4j.core.RrdBackendFactory;
+import org.rrd4j.core.RrdDb;
+import org.rrd4j.core.RrdDef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the most recently used rrd4j databases open, so that they do not have to be
+ * reopened for every store and query. A database is locked for the thread which
+ * acquired it until it is released again, so that accesses to different files do
+ * not block each other. If more than the given number of databases are open, the
+ * least recently used ones which are not in use are closed.
+ *
+ * @since 1.9.0
+ */
+public class RRD4jDatabasePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(RRD4jDatabasePool.class);
+
+    private final int capacity;
+
+    private final RrdBackendFactory backendFactory;
+
+    /** the pooled databases by their path in the order of their last access */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    /**
+     * @param capacity the maximum number of databases which are kept open while they are not in use
+     * @param backendFactory the backend to open the databases with
+     */
+    public RRD4jDatabasePool(int capacity, RrdBackendFactory backendFactory) {
+        this.capacity = Math.max(1, capacity);
+        this.backendFactory = backendFactory;
+    }
+
+    /**
+     * Opens a database or takes it from the pool and locks it for the calling thread.
+     * Every successful call must be followed by a call of {@link #release(String)}.
+     *
+     * @param path the path of the database file
+     * @param rrdDef the definition to create the database with, if the file does not exist yet
+     * @return the database
+     * @throws IOException if the database cannot be opened or created
+     */
+    public RrdDb acquire(String path, RrdDef rrdDef) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(path);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(path, entry);
+            }
+            entry.users++;
+        }
+        entry.lock.lock();
+        boolean acquired = false;
+        try {
+            if (entry.db == null || entry.db.isClosed()) {
+                if (rrdDef != null && !new File(path).exists()) {
+                    entry.db = new RrdDb(rrdDef, backendFactory);
+                } else {
+                    entry.db = new RrdDb(path, backendFactory);
+                }
+            }
+            acquired = true;
+            return entry.db;
+        } finally {
+            if (!acquired) {
+                release(path, entry);
+            }
+        }
+    }
+
+    /**
+     * Unlocks a database which has been acquired before. It is kept open until it
+     * becomes the least recently used one of the pool.
+     *
+     * @param path the path of the database file
+     */
+    public void release(String path) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(path);
+        }
+        if (entry != null) {
+            release(path, entry);
+        }
+    }
+
+    private void release(String path, Entry entry) {
+        entry.lock.unlock();
+        List<RrdDb> evicted = new ArrayList<RrdDb>();
+        synchronized (this) {
+            entry.users--;
+            if (entry.db == null && entry.users == 0) {
+                entries.remove(path);
+            }
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (entries.size() > capacity && it.hasNext()) {
+                Entry eldest = it.next().getValue();
+                // nobody holds or waits for the lock of an unused entry
+                if (eldest.users == 0) {
+                    if (eldest.db != null) {
+                        evicted.add(eldest.db);
+                    }
+                    it.remove();
+                }
+            }
+        }
+        for (RrdDb db : evicted) {
+            close(db);
+        }
+    }
+
+    /**
+     * @return the number of databases in the pool
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Closes all databases of the pool.
+     */
+    public void close() {
+        List<Entry> closed;
+        synchronized (this) {
+            closed = new ArrayList<Entry>(entries.values());
+            entries.clear();
+        }
+        for (Entry entry : closed) {
+            entry.lock.lock();
+            try {
+                if (entry.db != null) {
+                    close(entry.db);
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    private void close(RrdDb db) {
+        try {
+            db.close();
+        } catch (IOException e) {
+            logger.debug("Error closing rrd4j database: {}", e.getMessage());
+        }
+    }
+
+    private static class Entry {
+
+        final ReentrantLock lock = new ReentrantLock();
+
+        /** the number of threads which hold or wait for the lock, guarded by the pool */
+        int users;
+
+        /** the open database, guarded by the lock */
+        RrdDb db;
+
+    }
+
+}
@@ -13,14 +13,17 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.items.Item;
@@ -33,6 +36,7 @@ import org.openhab.core.library.items.SwitchItem;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
@@ -44,8 +48,10 @@ import org.rrd4j.ConsolFun;
 import org.rrd4j.DsType;
 import org.rrd4j.core.FetchData;
 import org.rrd4j.core.FetchRequest;
+import org.rrd4j.core.RrdBackendFactory;
 import org.rrd4j.core.RrdDb;
 import org.rrd4j.core.RrdDef;
+import org.rrd4j.core.RrdNioBackendFactory;
 import org.rrd4j.core.Sample;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,12 +59,21 @@ import org.slf4j.LoggerFactory;
 /**
  * This is the implementation of the RRD4j {@link PersistenceService}. To learn
  * more about RRD4j please visit their <a href="https://github.com/rrd4j/rrd4j">website</a>.
+ * <p>
+ * The databases are kept open in a {@link RRD4jDatabasePool}, whose size can be set with the
+ * <code>poolsize</code> option. The rrd4j backend to use can be chosen with the <code>backend</code>
+ * option (e.g. <code>NIO</code> for memory-mapped files, which is the default, or <code>FILE</code>);
+ * the <code>syncperiod</code> option sets the seconds after which the NIO backend writes
+ * the changes of open databases to disk.
+ * <p>
+ * Aggregates are calculated from the rows of the archive which is chosen by rrd4j for the
+ * requested time range and interval, so they are the same as for the rows of a query.
  *
  * @author Kai Kreuzer
  * @author Jan N. Klug
  * @since 1.0.0
  */
-public class RRD4jService implements QueryablePersistenceService {
+public class RRD4jService implements QueryablePersistenceService, AggregatingPersistenceService {
 
     private ConcurrentHashMap<String, RrdDefConfig> rrdDefs = new ConcurrentHashMap<String, RrdDefConfig>();
 
@@ -68,7 +83,14 @@ public class RRD4jService implements QueryablePersistenceService {
 
     private static final Logger logger = LoggerFactory.getLogger(RRD4jService.class);
 
-    private Map<String, Timer> timers = new HashMap<String, Timer>();
+    private static final int DEFAULT_POOL_SIZE = 100;
+
+    /** the deferred stores of values which came in less than a second after the previous one */
+    private Map<String, ScheduledFuture<?>> pendingStores = new ConcurrentHashMap<String, ScheduledFuture<?>>();
+
+    private ScheduledExecutorService scheduler;
+
+    private RRD4jDatabasePool pool;
 
     protected ItemRegistry itemRegistry;
 
@@ -92,75 +114,77 @@ public class RRD4jService implements QueryablePersistenceService {
      * @{inheritDoc}
      */
     @Override
-    public synchronized void store(final Item item, final String alias) {
+    public void store(final Item item, final String alias) {
         final String name = alias == null ? item.getName() : alias;
         RrdDb db = getDB(name);
         if (db != null) {
-            ConsolFun function = getConsolidationFunction(db);
-            long now = System.currentTimeMillis() / 1000;
-            if (function != ConsolFun.AVERAGE) {
-                try {
-                    // we store the last value again, so that the value change in the database is not interpolated, but
-                    // happens right at this spot
-                    if (now - 1 > db.getLastUpdateTime()) {
-                        // only do it if there is not already a value
-                        double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
-                        if (!Double.isNaN(lastValue)) {
-                            Sample sample = db.createSample();
-                            sample.setTime(now - 1);
-                            sample.setValue(DATASOURCE_STATE, lastValue);
-                            sample.update();
-                            logger.debug("Stored '{}' with state '{}' in rrd4j database (again)", name,
-                                    mapToState(lastValue, item.getName()));
+            try {
+                ConsolFun function = getConsolidationFunction(db);
+                long now = System.currentTimeMillis() / 1000;
+                if (function != ConsolFun.AVERAGE) {
+                    try {
+                        // we store the last value again, so that the value change in the database is not
+                        // interpolated, but happens right at this spot
+                        if (now - 1 > db.getLastUpdateTime()) {
+                            // only do it if there is not already a value
+                            double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
+                            if (!Double.isNaN(lastValue)) {
+                                Sample sample = db.createSample();
+                                sample.setTime(now - 1);
+                                sample.setValue(DATASOURCE_STATE, lastValue);
+                                sample.update();
+                                logger.debug("Stored '{}' with state '{}' in rrd4j database (again)", name,
+                                        mapToState(lastValue, item.getName()));
+                            }
                         }
+                    } catch (IOException e) {
+                        logger.debug("Error storing last value (again): {}", e.getMessage());
                     }
-                } catch (IOException e) {
-                    logger.debug("Error storing last value (again): {}", e.getMessage());
                 }
-            }
-            try {
-                Sample sample = db.createSample();
-                sample.setTime(now);
-
-                DecimalType state = (DecimalType) item.getStateAs(DecimalType.class);
-                if (state != null) {
-                    double value = state.toBigDecimal().doubleValue();
-                    if (db.getDatasource(DATASOURCE_STATE).getType() == DsType.COUNTER) { // counter values must be
-                                                                                          // adjusted by stepsize
-                        value = value * db.getRrdDef().getStep();
+                try {
+                    Sample sample = db.createSample();
+                    sample.setTime(now);
+
+                    DecimalType state = (DecimalType) item.getStateAs(DecimalType.class);
+                    if (state != null) {
+                        double value = state.toBigDecimal().doubleValue();
+                        if (db.getDatasource(DATASOURCE_STATE).getType() == DsType.COUNTER) { // counter values must be
+                                                                                              // adjusted by stepsize
+                            value = value * db.getRrdDef().getStep();
+                        }
+                        sample.setValue(DATASOURCE_STATE, value);
+                        sample.update();
+                        logger.debug("Stored '{}' with state '{}' in rrd4j database", name, state);
                     }
-                    sample.setValue(DATASOURCE_STATE, value);
-                    sample.update();
-                    logger.debug("Stored '{}' with state '{}' in rrd4j database", name, state);
-                }
-            } catch (IllegalArgumentException e) {
-                if (e.getMessage().contains("at least one second step is required")) {
-
-                    // we try to store the value one second later
-                    TimerTask task = new TimerTask() {
-                        @Override
-                        public void run() {
-                            store(item, name);
+                } catch (IllegalArgumentException e) {
+                    if (e.getMessage().contains("at least one second step is required")) {
+
+                        // we try to store the value one second later
+                        Runnable task = new Runnable() {
+                            @Override
+                            public void run() {
+                                pendingStores.remove(name);
+                                store(item, name);
+                            }
+                        };
+                        ScheduledFuture<?> pendingStore = pendingStores.remove(name);
+                        if (pendingStore != null) {
+                            pendingStore.cancel(false);
                         }
-                    };
-                    Timer timer = timers.get(name);
-                    if (timer != null) {
-                        timer.cancel();
-                        timers.remove(name);
+                        try {
+                            pendingStores.put(name, scheduler.schedule(task, 1, TimeUnit.SECONDS));
+                        } catch (RejectedExecutionException ree) {
+                            logger.debug("Could not persist '{}' to rrd4j database as the service is stopped", name);
+                        }
+                    } else {
+                        logger.warn("Could not persist '{}' to rrd4j database: {}",
+                                new String[] { name, e.getMessage() });
                     }
-                    timer = new Timer();
-                    timers.put(name, timer);
-                    timer.schedule(task, 1000);
-                } else {
+                } catch (Exception e) {
                     logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
                 }
-            } catch (Exception e) {
-                logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
-            }
-            try {
-                db.close();
-            } catch (IOException e) {
-                logger.debug("Error closing rrd4j database: {}", e.getMessage());
+            } finally {
+                releaseDB(db);
             }
         }
     }
@@ -213,43 +237,106 @@ public class RRD4jService implements QueryablePersistenceService {
                     start = filter.getBeginDate().getTime() / 1000;
                 }
                 FetchRequest request = db.createFetchRequest(consolidationFunction, start, end, 1);
-
-                List<HistoricItem> items = new ArrayList<HistoricItem>();
-                FetchData result = request.fetchData();
-                long ts = result.getFirstTimestamp();
-                long step = result.getRowCount() > 1 ? result.getStep() : 0;
-                for (double value : result.getValues(DATASOURCE_STATE)) {
-                    if (!Double.isNaN(value)) {
-                        RRD4jItem rrd4jItem = new RRD4jItem(itemName, mapToState(value, itemName), new Date(ts * 1000));
-                        items.add(rrd4jItem);
-                    }
-                    ts += step;
-                }
-                return items;
+                return new FetchDataResult(itemName, request.fetchData());
             } catch (IOException e) {
                 logger.warn("Could not query rrd4j database for item '{}': {}",
                         new String[] { itemName, e.getMessage() });
+            } finally {
+                releaseDB(db);
             }
         }
         return Collections.emptyList();
     }
 
-    protected synchronized RrdDb getDB(String alias) {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public HistoricItem aggregate(FilterCriteria filter, AggregateFunction function) {
+        List<HistoricItem> items = fetchAggregates(filter, function, 0);
+        return items.isEmpty() ? null : items.get(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<HistoricItem> aggregate(FilterCriteria filter, AggregateFunction function, long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The interval must be positive");
+        }
+        return fetchAggregates(filter, function, interval);
+    }
+
+    private List<HistoricItem> fetchAggregates(FilterCriteria filter, AggregateFunction function, long interval) {
+        if (filter.getBeginDate() == null) {
+            throw new UnsupportedOperationException("rrd4j does not allow aggregates without a begin date");
+        }
+        String itemName = filter.getItemName();
+        RrdDb db = getDB(itemName);
+        if (db == null) {
+            return Collections.emptyList();
+        }
+        try {
+            long start = filter.getBeginDate().getTime() / 1000;
+            long end = filter.getEndDate() == null ? System.currentTimeMillis() / 1000
+                    : filter.getEndDate().getTime() / 1000;
+            long resolution = Math.max(1, interval / 1000);
+            FetchData result = db.createFetchRequest(getConsolidationFunction(db), start, end, resolution).fetchData();
+
+            // the rows are folded into the aggregates without creating a historic item for each of them
+            List<HistoricItem> items = new ArrayList<HistoricItem>();
+            long[] timestamps = result.getTimestamps();
+            double[] values = result.getValues(DATASOURCE_STATE);
+            RrdAggregate aggregate = null;
+            for (int i = 0; i < values.length; i++) {
+                if (Double.isNaN(values[i])) {
+                    continue;
+                }
+                long time = timestamps[i] * 1000;
+                long intervalStart = interval > 0 ? start * 1000 + (time - start * 1000) / interval * interval
+                        : end * 1000;
+                if (aggregate == null || aggregate.time != intervalStart) {
+                    if (aggregate != null) {
+                        items.add(aggregate.toHistoricItem());
+                    }
+                    aggregate = new RrdAggregate(itemName, function, intervalStart);
+                }
+                aggregate.add(values[i], time);
+            }
+            if (aggregate != null) {
+                items.add(aggregate.toHistoricItem());
+            }
+            return items;
+        } catch (IOException e) {
+            logger.warn("Could not query rrd4j database for item '{}': {}", new Object[] { itemName, e.getMessage() });
+        } finally {
+            releaseDB(db);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Takes the database of an item from the pool and locks it for the calling thread.
+     * It has to be released with {@link #releaseDB(RrdDb)} afterwards.
+     *
+     * @param alias the name of the database
+     * @return the database or <code>null</code> if it cannot be opened
+     */
+    protected RrdDb getDB(String alias) {
         RrdDb db = null;
         File file = new File(DB_FOLDER + File.separator + alias + ".rrd");
         try {
-            if (file.exists()) {
-                // recreate the RrdDb instance from the file
-                db = new RrdDb(file.getAbsolutePath());
-            } else {
+            RrdDef rrdDef = null;
+            if (!file.exists()) {
                 File folder = new File(DB_FOLDER);
                 if (!folder.exists()) {
                     folder.mkdirs();
                 }
                 // create a new database file
-                // db = new RrdDb(getRrdDef(function, file));
-                db = new RrdDb(getRrdDef(alias, file));
+                rrdDef = getRrdDef(alias, file);
             }
+            db = pool.acquire(file.getAbsolutePath(), rrdDef);
         } catch (IOException e) {
             logger.error("Could not create rrd4j database file '{}': {}",
                     new String[] { file.getAbsolutePath(), e.getMessage() });
@@ -261,6 +348,15 @@ public class RRD4jService implements QueryablePersistenceService {
         return db;
     }
 
+    /**
+     * Releases a database which has been taken from the pool with {@link #getDB(String)}.
+     *
+     * @param db the database to release
+     */
+    protected void releaseDB(RrdDb db) {
+        pool.release(db.getPath());
+    }
+
     private RrdDefConfig getRrdDefConfig(String itemName) {
         RrdDefConfig useRdc = null;
         for (Map.Entry<String, RrdDefConfig> e : rrdDefs.entrySet()) { // try to find special config
@@ -340,6 +436,14 @@ public class RRD4jService implements QueryablePersistenceService {
      * @{inheritDoc
      */
     public void activate(final BundleContext bundleContext, final Map<String, Object> config) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "openHAB-RRD4j");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
 
         // add default configurations
         RrdDefConfig defaultNumeric = new RrdDefConfig("default_numeric");
@@ -356,15 +460,19 @@ public class RRD4jService implements QueryablePersistenceService {
 
         if ((config == null) || config.isEmpty()) {
             logger.debug("using default configuration only");
+            pool = new RRD4jDatabasePool(DEFAULT_POOL_SIZE, RrdBackendFactory.getDefaultFactory());
             return;
         }
 
+        pool = createPool(config);
+
         Iterator<String> keys = config.keySet().iterator();
         while (keys.hasNext()) {
 
             String key = keys.next();
 
-            if (key.equals("service.pid")) { // ignore servioce.pid
+            if (key.equals("service.pid") || key.equals("poolsize") || key.equals("backend")
+                    || key.equals("syncperiod")) { // ignore servioce.pid and the pool options
                 continue;
             }
 
@@ -419,6 +527,154 @@ public class RRD4jService implements QueryablePersistenceService {
         }
     }
 
+    /**
+     * Closes all databases and cancels the deferred stores.
+     */
+    public void deactivate() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        pendingStores.clear();
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private RRD4jDatabasePool createPool(Map<String, Object> config) {
+        int poolSize = DEFAULT_POOL_SIZE;
+        Object value = config.get("poolsize");
+        if (value instanceof String && StringUtils.isNotBlank((String) value)) {
+            try {
+                poolSize = Integer.parseInt(((String) value).trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring illegal pool size '{}'", value);
+            }
+        }
+
+        RrdBackendFactory backendFactory = RrdBackendFactory.getDefaultFactory();
+        value = config.get("backend");
+        if (value instanceof String && StringUtils.isNotBlank((String) value)) {
+            try {
+                backendFactory = RrdBackendFactory.getFactory(((String) value).trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring unknown rrd4j backend '{}'", value);
+            }
+        }
+
+        value = config.get("syncperiod");
+        if (value instanceof String && StringUtils.isNotBlank((String) value)) {
+            try {
+                RrdNioBackendFactory.setSyncPeriod(Integer.parseInt(((String) value).trim()));
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring illegal sync period '{}'", value);
+            }
+        }
+
+        logger.debug("Keeping up to {} rrd4j databases open using the {} backend", poolSize,
+                backendFactory.getName());
+        return new RRD4jDatabasePool(poolSize, backendFactory);
+    }
+
+    /**
+     * The rows of a fetched archive, which are mapped to historic items only while they are iterated,
+     * so that a result keeps just the values and timestamps of the rows in memory.
+     */
+    private class FetchDataResult implements Iterable<HistoricItem> {
+        private final String itemName;
+        private final double[] values;
+        private final long firstTimestamp;
+        private final long step;
+
+        public FetchDataResult(String itemName, FetchData result) {
+            this.itemName = itemName;
+            this.values = result.getValues(DATASOURCE_STATE);
+            this.firstTimestamp = result.getFirstTimestamp();
+            this.step = result.getRowCount() > 1 ? result.getStep() : 0;
+        }
+
+        @Override
+        public Iterator<HistoricItem> iterator() {
+            return new Iterator<HistoricItem>() {
+                private int row = nextRow(0);
+
+                @Override
+                public boolean hasNext() {
+                    return row < values.length;
+                }
+
+                @Override
+                public HistoricItem next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    long ts = firstTimestamp + row * step;
+                    HistoricItem rrd4jItem = new RRD4jItem(itemName, mapToState(values[row], itemName),
+                            new Date(ts * 1000));
+                    row = nextRow(row + 1);
+                    return rrd4jItem;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+                private int nextRow(int from) {
+                    int next = from;
+                    while (next < values.length && Double.isNaN(values[next])) {
+                        next++;
+                    }
+                    return next;
+                }
+            };
+        }
+    }
+
+    /**
+     * The aggregate of the rows of an interval.
+     */
+    private class RrdAggregate {
+        private final String itemName;
+        private final AggregateFunction function;
+        /** the beginning of the interval, or the end of the time range if there are no intervals */
+        private final long time;
+        private int count;
+        private double sum;
+        /** the row which is selected by the minimum, maximum, first and last function */
+        private double selectedValue;
+        private long selectedTime;
+
+        public RrdAggregate(String itemName, AggregateFunction function, long time) {
+            this.itemName = itemName;
+            this.function = function;
+            this.time = time;
+        }
+
+        public void add(double value, long valueTime) {
+            if (count == 0 || function == AggregateFunction.LAST
+                    || (function == AggregateFunction.MIN && value < selectedValue)
+                    || (function == AggregateFunction.MAX && value > selectedValue)) {
+                selectedValue = value;
+                selectedTime = valueTime;
+            }
+            sum += value;
+            count++;
+        }
+
+        public HistoricItem toHistoricItem() {
+            switch (function) {
+                case AVG:
+                    return new RRD4jItem(itemName, new DecimalType(sum / count), new Date(time));
+                case SUM:
+                    return new RRD4jItem(itemName, new DecimalType(sum), new Date(time));
+                case COUNT:
+                    return new RRD4jItem(itemName, new DecimalType(count), new Date(time));
+                default:
+                    return new RRD4jItem(itemName, mapToState(selectedValue, itemName), new Date(selectedTime));
+            }
+        }
+    }
+
     private class RrdArchiveDef {
         public ConsolFun fcn;
         public double xff;